@@ -19,10 +19,21 @@ CREATE TABLE IF NOT EXISTS users (
     master_password_hash TEXT NOT NULL,
     salt TEXT NOT NULL,
     totp_secret TEXT NOT NULL,
+    wrapped_key TEXT,
+    pending_wrapped_key TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Vault data key wrapped under the master-password KEK. NULL marks a legacy
+-- account whose PBKDF2 output is still the data key; it is migrated on next login.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS wrapped_key TEXT;
+
+-- New data key of an unfinished key rotation, wrapped like wrapped_key. While it is set,
+-- entries are being re-sealed under it (checkpoint: reencryption_checkpoints with
+-- target_version 0); the next unlock finishes the rotation and swaps it in.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS pending_wrapped_key TEXT;
+
 -- ============================================
 -- 2. PASSWORDS TABLE
 -- ============================================
@@ -33,12 +44,125 @@ CREATE TABLE IF NOT EXISTS passwords (
     title VARCHAR(255) NOT NULL,
     username VARCHAR(255),
     encrypted_password TEXT NOT NULL,
-    url VARCHAR(512),
+    url TEXT,
     notes TEXT,
+    enc_version SMALLINT NOT NULL DEFAULT 1,
+    row_version INTEGER NOT NULL DEFAULT 1,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Field encryption format: 1 = legacy (separate nonce columns), 2 = nonce|ct|tag per
+-- field with AAD. Older rows are upgraded in the background by ReencryptionService.
+ALTER TABLE passwords ADD COLUMN IF NOT EXISTS enc_version SMALLINT NOT NULL DEFAULT 1;
+
+-- Row version for optimistic updates: every edit is UPDATE ... WHERE row_version = ?
+-- and bumps it, so an edit based on a stale copy fails and is merged (SyncService)
+-- instead of silently overwriting another device's change.
+ALTER TABLE passwords ADD COLUMN IF NOT EXISTS row_version INTEGER NOT NULL DEFAULT 1;
+
+-- The site URL is stored sealed like the other fields (Base64 of nonce|ct|tag), which
+-- outgrows VARCHAR(512) for long URLs
+ALTER TABLE passwords ALTER COLUMN url TYPE TEXT;
+
+-- When the password itself last changed (set on insert, on a password edit and on a
+-- restore from history), for the vault audit's age check. updated_at cannot serve: the
+-- trigger below bumps it on every update, including title edits and re-encryption.
+-- Rows from before this column stay NULL and fall back to updated_at.
+ALTER TABLE passwords ADD COLUMN IF NOT EXISTS password_changed_at TIMESTAMP;
+ALTER TABLE passwords ALTER COLUMN password_changed_at SET DEFAULT CURRENT_TIMESTAMP;
+
+-- ============================================
+-- 2b. RESTORE CHECKPOINTS TABLE
+-- ============================================
+-- Last committed chunk of each backup restore, written in the same
+-- transaction as the chunk's rows so an interrupted restore can resume
+CREATE TABLE IF NOT EXISTS restore_checkpoints (
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    backup_id VARCHAR(64) NOT NULL,
+    last_chunk INTEGER NOT NULL,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, backup_id)
+);
+
+-- ============================================
+-- 2c. ATTACHMENTS TABLE
+-- ============================================
+-- Metadata of encrypted file attachments; the encrypted content lives
+-- in the local blob store, named by blob_id
+CREATE TABLE IF NOT EXISTS attachments (
+    attachment_id SERIAL PRIMARY KEY,
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    file_name VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    blob_id VARCHAR(64) NOT NULL UNIQUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- ============================================
+-- 2d. RE-ENCRYPTION CHECKPOINTS TABLE
+-- ============================================
+-- Last password_id committed by an unfinished re-encryption run, written in
+-- the same transaction as the batch; removed when the run completes
+CREATE TABLE IF NOT EXISTS reencryption_checkpoints (
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    target_version SMALLINT NOT NULL,
+    last_password_id INTEGER NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, target_version)
+);
+
+-- ============================================
+-- 2e. SEARCH TOKENS TABLE
+-- ============================================
+-- Blind-index tokens (truncated HMACs of title/username words and prefixes,
+-- keyed from the vault key) so search runs in SQL without decrypting; the
+-- primary key is the lookup index
+CREATE TABLE IF NOT EXISTS search_tokens (
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    token VARCHAR(24) NOT NULL,
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, token, password_id)
+);
+
+-- ============================================
+-- 2f. TAGS TABLES
+-- ============================================
+-- User-defined tags and folders (a folder is a tag an entry can have only
+-- one of), and which entries carry them. Filtering runs over an in-memory
+-- bitmap index built from these rows at login, not in SQL
+CREATE TABLE IF NOT EXISTS tags (
+    tag_id SERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    name VARCHAR(100) NOT NULL,
+    is_folder BOOLEAN NOT NULL DEFAULT FALSE,
+    UNIQUE (user_id, is_folder, name)
+);
+
+CREATE TABLE IF NOT EXISTS entry_tags (
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    tag_id INTEGER NOT NULL REFERENCES tags(tag_id) ON DELETE CASCADE,
+    PRIMARY KEY (password_id, tag_id)
+);
+
+-- ============================================
+-- 2g. PASSWORD HISTORY TABLE
+-- ============================================
+-- Earlier passwords of an entry, archived in the same transaction as the
+-- edit that replaced them: just the sealed password field (nonce|ct|tag,
+-- current field format), capped per entry and purged by age. Read only when
+-- the user opens an entry's history, never joined into the entry list
+CREATE TABLE IF NOT EXISTS password_history (
+    history_id SERIAL PRIMARY KEY,
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    encrypted_password TEXT NOT NULL,
+    row_version INTEGER NOT NULL,
+    replaced_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- ============================================
 -- 3. INDEXES FOR PERFORMANCE
 -- ============================================
@@ -51,6 +175,24 @@ CREATE INDEX IF NOT EXISTS idx_passwords_user_id ON passwords(user_id);
 -- Speed up password searches by title
 CREATE INDEX IF NOT EXISTS idx_passwords_title ON passwords(title);
 
+-- Keyset scans of rows still in an old encryption format
+CREATE INDEX IF NOT EXISTS idx_passwords_user_version ON passwords(user_id, enc_version, password_id);
+
+-- Speed up attachment listing per entry
+CREATE INDEX IF NOT EXISTS idx_attachments_password_id ON attachments(password_id);
+
+-- Token replacement on save, and the cascade on delete
+CREATE INDEX IF NOT EXISTS idx_search_tokens_password_id ON search_tokens(password_id);
+
+-- The cascade when a tag is deleted
+CREATE INDEX IF NOT EXISTS idx_entry_tags_tag_id ON entry_tags(tag_id);
+
+-- An entry's history, newest first, and the per-entry cap
+CREATE INDEX IF NOT EXISTS idx_password_history_entry ON password_history(password_id, history_id);
+
+-- Purging history older than the retention period
+CREATE INDEX IF NOT EXISTS idx_password_history_user_replaced ON password_history(user_id, replaced_at);
+
 -- ============================================
 -- 4. TRIGGERS FOR AUTO-UPDATE TIMESTAMPS
 -- ============================================
@@ -79,6 +221,35 @@ CREATE TRIGGER update_passwords_updated_at
     FOR EACH ROW
     EXECUTE FUNCTION update_updated_at_column();
 
+-- Change feed: announce every committed write on the owning user's channel,
+-- password_changes_<user_id> (IDs only, never entry content). Open clients LISTEN on
+-- their own user's channel only and refresh just those rows.
+CREATE OR REPLACE FUNCTION notify_password_change()
+RETURNS TRIGGER AS $$
+DECLARE
+    changed RECORD;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+    PERFORM pg_notify('password_changes_' || changed.user_id, json_build_object(
+        'user_id', changed.user_id,
+        'password_id', changed.password_id,
+        'op', TG_OP,
+        'updated_at', CASE WHEN TG_OP = 'DELETE' THEN LOCALTIMESTAMP ELSE changed.updated_at END
+    )::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS notify_passwords_change ON passwords;
+CREATE TRIGGER notify_passwords_change
+    AFTER INSERT OR UPDATE OR DELETE ON passwords
+    FOR EACH ROW
+    EXECUTE FUNCTION notify_password_change();
+
 -- ============================================
 -- 5. ROW LEVEL SECURITY (OPTIONAL - RECOMMENDED)
 -- ============================================
@@ -0,0 +1,124 @@
+package com.passwordmanager.bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares a JMH JSON result with the stored baseline and fails on regressions.
+ *
+ * Usage: BaselineCheck &lt;result.json&gt; &lt;baseline.json&gt; [tolerance, default 0.10]
+ *
+ * A benchmark regresses when its score is worse than the baseline by more than the tolerance
+ * (lower throughput, or higher time per operation), or when it allocates more bytes per
+ * operation than the tolerance allows. With no baseline yet, the result becomes the baseline.
+ * To accept an intentional change, delete the baseline file and re-run.
+ */
+public final class BaselineCheck {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+    private static final double ALLOC_SLACK_BYTES = 16; // ignore JIT noise on tiny allocations
+
+    private BaselineCheck() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <result.json> <baseline.json> [tolerance]");
+            System.exit(2);
+        }
+        Path result = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        if (!Files.exists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("No baseline found; saved " + result + " as " + baseline);
+            return;
+        }
+
+        Map<String, JsonObject> current = load(result);
+        Map<String, JsonObject> previous = load(baseline);
+        int regressions = 0;
+        for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+            JsonObject before = previous.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW      %s%n", entry.getKey());
+                continue;
+            }
+            JsonObject after = entry.getValue();
+            boolean higherIsBetter = "thrpt".equals(after.get("mode").getAsString());
+            double oldScore = score(before);
+            double newScore = score(after);
+            double change = (newScore - oldScore) / oldScore;
+            boolean slower = higherIsBetter ? change < -tolerance : change > tolerance;
+
+            Double oldAlloc = allocation(before);
+            Double newAlloc = allocation(after);
+            boolean allocates = oldAlloc != null && newAlloc != null
+                    && newAlloc > oldAlloc * (1 + tolerance) + ALLOC_SLACK_BYTES;
+
+            String unit = after.getAsJsonObject("primaryMetric").get("scoreUnit").getAsString();
+            System.out.printf("%-8s %s: %.3f -> %.3f %s (%+.1f%%)%s%n",
+                    slower || allocates ? "REGRESS" : "OK", entry.getKey(), oldScore, newScore, unit, change * 100,
+                    newAlloc == null ? "" : String.format(", %.0f -> %.0f B/op", oldAlloc == null ? 0 : oldAlloc, newAlloc));
+            if (slower || allocates) {
+                regressions++;
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed beyond " + (int) (tolerance * 100) + "%.");
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baseline);
+    }
+
+    // Keyed by benchmark name plus its @Param values, e.g. "...CryptoBenchmark.encrypt{payloadSize=256}"
+    private static Map<String, JsonObject> load(Path file) throws IOException {
+        Map<String, JsonObject> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+                String key = run.get("benchmark").getAsString();
+                if (run.has("params")) {
+                    Map<String, String> params = new TreeMap<>();
+                    run.getAsJsonObject("params").entrySet()
+                            .forEach(p -> params.put(p.getKey(), p.getValue().getAsString()));
+                    key += params;
+                }
+                results.put(key, run);
+            }
+        }
+        return results;
+    }
+
+    private static double score(JsonObject run) {
+        return run.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+    }
+
+    private static Double allocation(JsonObject run) {
+        if (!run.has("secondaryMetrics")) {
+            return null;
+        }
+        for (Map.Entry<String, JsonElement> metric : run.getAsJsonObject("secondaryMetrics").entrySet()) {
+            // JMH has named it both "gc.alloc.rate.norm" and "\u00b7gc.alloc.rate.norm"
+            if (metric.getKey().equals(ALLOC_METRIC) || metric.getKey().equals("\u00b7" + ALLOC_METRIC)) {
+                return metric.getValue().getAsJsonObject().get("score").getAsDouble();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.passwordmanager.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.passwordmanager.util.AesGcmEncryptionUtil;
+import com.passwordmanager.util.AesGcmEncryptionUtil.EncryptedResult;
+import com.passwordmanager.util.EntryFieldCipher;
+
+/**
+ * AES-256-GCM field encryption across payload sizes: a password, a note, a long note,
+ * and an attachment-sized chunk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+    @Param({"16", "256", "4096", "65536"})
+    private int payloadSize;
+
+    private byte[] key;
+    private String plaintext;
+    private EncryptedResult encrypted;
+    private String sealed;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        key = new byte[32];
+        random.nextBytes(key);
+        char[] chars = new char[payloadSize];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        plaintext = new String(chars);
+        encrypted = AesGcmEncryptionUtil.encrypt(plaintext, key);
+        sealed = EntryFieldCipher.seal(plaintext, key, 1, EntryFieldCipher.FIELD_NOTE);
+    }
+
+    @Benchmark
+    public EncryptedResult encrypt() throws Exception {
+        return AesGcmEncryptionUtil.encrypt(plaintext, key);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return AesGcmEncryptionUtil.decrypt(encrypted.getCipherTextBase64(), encrypted.getNonceBase64(), key);
+    }
+
+    @Benchmark
+    public String sealField() throws Exception {
+        return EntryFieldCipher.seal(plaintext, key, 1, EntryFieldCipher.FIELD_NOTE);
+    }
+
+    @Benchmark
+    public String openField() throws Exception {
+        return EntryFieldCipher.open(sealed, key, 1, EntryFieldCipher.FIELD_NOTE);
+    }
+}
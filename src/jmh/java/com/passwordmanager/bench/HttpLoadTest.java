@@ -0,0 +1,264 @@
+package com.passwordmanager.bench;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.passwordmanager.bench.VaultGenerator.GeneratedUser;
+import com.passwordmanager.dao.DatabaseManager;
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.server.VaultServer;
+import com.passwordmanager.service.AuthService;
+import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.util.EntryFieldCipher;
+import com.passwordmanager.util.LatencyHistogram;
+import com.warrenstrange.googleauth.GoogleAuthenticator;
+
+/**
+ * Load test of {@link VaultServer} over real HTTP against embedded H2.
+ *
+ * Provisions users with {@link VaultGenerator}, starts the server on an ephemeral loopback
+ * port, opens many sessions through /api/login (each a full PBKDF2 + TOTP check on the
+ * server), then has C virtual-thread clients list, read (and decrypt client-side) and create
+ * entries over random sessions for a fixed time. Prints login latency and, per operation,
+ * throughput and p50/p99/p99.9 latency.
+ *
+ * Options (all optional):
+ *   --users 20  --entries 100  --sessions 500  --concurrency 1000  --duration 30  --warmup 5
+ *   --pool 16   --mix list=10,read=80,create=10  --seed (time)  --url jdbc:h2:mem:httpload
+ */
+public final class HttpLoadTest {
+
+    enum Operation { LIST, READ, CREATE }
+
+    /** A logged-in client session with the key it unwrapped locally. */
+    record ClientSession(String token, int userId, byte[] dataKey, List<Integer> entryIds) {}
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String base;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final AtomicLong[] errors = new AtomicLong[Operation.values().length];
+
+    private HttpLoadTest(String base) {
+        this.base = base;
+        reset();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = VaultGenerator.parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "20"));
+        int entries = Integer.parseInt(options.getOrDefault("entries", "100"));
+        int sessionCount = Integer.parseInt(options.getOrDefault("sessions", "500"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "1000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        long seed = Long.parseLong(options.getOrDefault("seed", Long.toString(System.currentTimeMillis())));
+        int[] weights = parseMix(options.getOrDefault("mix", "list=10,read=80,create=10"));
+
+        // 1. Database, users, server
+        VaultGenerator.useDatabase(options.getOrDefault("url", "jdbc:h2:mem:httpload"),
+                Integer.parseInt(options.getOrDefault("pool", "16")));
+        List<GeneratedUser> population = new VaultGenerator(seed, PasswordDAO.forConfiguredStorage(),
+                Runtime.getRuntime().availableProcessors()).generate(users, entries);
+        VaultServer server = new VaultServer(new AuthService(), new PasswordService());
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+        HttpLoadTest test = new HttpLoadTest("http://127.0.0.1:" + server.getPort() + "/api");
+
+        // 2. Sessions (round-robin over users), logged in concurrently
+        LatencyHistogram logins = new LatencyHistogram();
+        List<ClientSession> sessions = test.login(population, sessionCount, logins);
+        System.out.printf("%d sessions open; login p50 %.1f ms, p99 %.1f ms%n", server.getSessionCount(),
+                logins.getValueAtPercentile(50) / 1e6, logins.getValueAtPercentile(99) / 1e6);
+
+        // 3. Warm up (discarded), then measure
+        if (warmup > 0) {
+            test.run(sessions, weights, concurrency, warmup);
+            test.reset();
+        }
+        test.run(sessions, weights, concurrency, duration);
+        test.report(duration, concurrency, sessions.size());
+        server.stop();
+        System.exit(0); // The HttpClient's selector thread is not a daemon
+    }
+
+    private List<ClientSession> login(List<GeneratedUser> population, int count, LatencyHistogram logins) throws Exception {
+        GoogleAuthenticator totp = new GoogleAuthenticator();
+        List<ClientSession> sessions = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                GeneratedUser user = population.get(i % population.size());
+                workers.submit(() -> {
+                    JsonObject request = new JsonObject();
+                    request.addProperty("username", user.getUsername());
+                    request.addProperty("password", user.getMasterPassword());
+                    request.addProperty("totp", String.valueOf(totp.getTotpPassword(user.getTotpSecret())));
+                    long start = System.nanoTime();
+                    HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                            .POST(HttpRequest.BodyPublishers.ofString(request.toString())), null);
+                    // The server caps concurrent key derivations: wait as told and try again
+                    while (response.statusCode() == 503) {
+                        Thread.sleep(1000L * Long.parseLong(response.headers().firstValue("Retry-After").orElse("1")));
+                        response = send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                                .POST(HttpRequest.BodyPublishers.ofString(request.toString())), null);
+                    }
+                    logins.record(System.nanoTime() - start);
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Login failed: " + response.body());
+                    }
+                    JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+                    // Client side: the key is unwrapped here, never on the server
+                    byte[] dataKey = AuthService.unwrapDataKey(user.getMasterPassword(),
+                            body.get("salt").getAsString(), body.get("wrappedKey").getAsString());
+                    ClientSession session = new ClientSession(body.get("token").getAsString(), body.get("userId").getAsInt(),
+                            dataKey, Collections.synchronizedList(new ArrayList<>()));
+                    refreshIds(session, listEntries(session));
+                    sessions.add(session);
+                    return null;
+                });
+            }
+        }
+        return sessions;
+    }
+
+    private void run(List<ClientSession> sessions, int[] weights, int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int totalWeight = 0;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+        int bound = totalWeight;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        ClientSession session = sessions.get(random.nextInt(sessions.size()));
+                        execute(choose(weights, random.nextInt(bound)), session, random);
+                    }
+                });
+            }
+        }
+    }
+
+    private void execute(Operation op, ClientSession session, ThreadLocalRandom random) {
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = switch (op) {
+                case LIST -> {
+                    refreshIds(session, listEntries(session));
+                    yield true;
+                }
+                case READ -> {
+                    int entryId;
+                    synchronized (session.entryIds()) {
+                        entryId = session.entryIds().isEmpty() ? -1 : session.entryIds().get(random.nextInt(session.entryIds().size()));
+                    }
+                    HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/entries/" + entryId)).GET(), session);
+                    if (response.statusCode() != 200) {
+                        yield false;
+                    }
+                    // Decrypt client-side, as a real client would
+                    JsonObject entry = JsonParser.parseString(response.body()).getAsJsonObject();
+                    yield EntryFieldCipher.open(entry.get("passwordEnc").getAsString(), session.dataKey(),
+                            session.userId(), EntryFieldCipher.FIELD_PASSWORD) != null;
+                }
+                case CREATE -> {
+                    JsonObject entry = new JsonObject();
+                    entry.addProperty("title", "http-" + start + ".example.com");
+                    entry.addProperty("passwordEnc", EntryFieldCipher.seal("pw-" + start, session.dataKey(),
+                            session.userId(), EntryFieldCipher.FIELD_PASSWORD));
+                    yield send(HttpRequest.newBuilder(URI.create(base + "/entries"))
+                            .POST(HttpRequest.BodyPublishers.ofString(entry.toString())), session).statusCode() == 201;
+                }
+            };
+        } catch (Exception e) {
+            ok = false;
+        }
+        latencies[op.ordinal()].record(System.nanoTime() - start);
+        if (!ok) {
+            errors[op.ordinal()].incrementAndGet();
+        }
+    }
+
+    private JsonArray listEntries(ClientSession session) throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/entries")).GET(), session);
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("List failed: " + response.statusCode());
+        }
+        return JsonParser.parseString(response.body()).getAsJsonObject().getAsJsonArray("entries");
+    }
+
+    private static void refreshIds(ClientSession session, JsonArray entries) {
+        synchronized (session.entryIds()) {
+            session.entryIds().clear();
+            entries.forEach(entry -> session.entryIds().add(entry.getAsJsonObject().get("id").getAsInt()));
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, ClientSession session) throws Exception {
+        if (session != null) {
+            request.header("Authorization", "Bearer " + session.token());
+        }
+        return client.send(request.header("Content-Type", "application/json").build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Operation choose(int[] weights, int ticket) {
+        for (Operation op : Operation.values()) {
+            ticket -= weights[op.ordinal()];
+            if (ticket < 0) {
+                return op;
+            }
+        }
+        return Operation.LIST;
+    }
+
+    private void reset() {
+        for (Operation op : Operation.values()) {
+            latencies[op.ordinal()] = new LatencyHistogram();
+            errors[op.ordinal()] = new AtomicLong();
+        }
+    }
+
+    private void report(int seconds, int concurrency, int sessions) {
+        System.out.printf("%nConcurrency %d over %d sessions, %d s, pool of %d connections%n", concurrency, sessions, seconds,
+                DatabaseManager.getInstance().getPoolSize());
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %10s %8s%n",
+                "op", "count", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        long total = 0;
+        for (Operation op : Operation.values()) {
+            LatencyHistogram histogram = latencies[op.ordinal()];
+            total += histogram.getCount();
+            System.out.printf("%-8s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %8d%n",
+                    op.name().toLowerCase(), histogram.getCount(), (double) histogram.getCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getValueAtPercentile(99.9) / 1e6, histogram.getMax() / 1e6, errors[op.ordinal()].get());
+        }
+        System.out.printf("%-8s %10d %10.1f%n", "total", total, (double) total / seconds);
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[Operation.values().length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.split("=");
+            weights[Operation.valueOf(pair[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        return weights;
+    }
+}
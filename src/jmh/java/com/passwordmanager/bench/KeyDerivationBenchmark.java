@@ -0,0 +1,41 @@
+package com.passwordmanager.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.passwordmanager.util.Pbkdf2HashUtil;
+
+/**
+ * PBKDF2 at the production iteration count: the fixed cost of every login and unlock.
+ * Measured as average time, since one call takes hundreds of milliseconds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyDerivationBenchmark {
+
+    private byte[] salt;
+
+    @Setup
+    public void setup() {
+        salt = Pbkdf2HashUtil.generateSalt();
+    }
+
+    @Benchmark
+    public byte[] hashPassword() throws Exception {
+        return Pbkdf2HashUtil.hashPassword("correct horse battery staple", salt);
+    }
+}
@@ -0,0 +1,264 @@
+package com.passwordmanager.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.passwordmanager.dao.DatabaseManager;
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.AuthService;
+import com.passwordmanager.bench.VaultGenerator.GeneratedUser;
+import com.passwordmanager.service.AuthService.UnlockedVault;
+import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.util.LatencyHistogram;
+import com.passwordmanager.util.PasswordGenerator;
+import com.warrenstrange.googleauth.GoogleAuthenticator;
+
+/**
+ * End-to-end load test of the services and DAOs against embedded H2.
+ *
+ * Provisions N users with M entries each with {@link VaultGenerator} (real registration,
+ * realistic seeded content), then runs a weighted mix of login (master password + TOTP), list, point read, decrypt,
+ * create and delete from C virtual threads for a fixed time, and prints throughput and
+ * p50/p99/p99.9 latency per operation. Latency includes waiting for a pooled connection,
+ * as a user would see it.
+ *
+ * Options (all optional):
+ *   --users 50  --entries 200  --concurrency 64  --warmup 10  --duration 30  (seconds)
+ *   --pool 16   --mix login=1,list=10,read=40,decrypt=30,create=10,delete=9  --seed (time)
+ *   --url jdbc:h2:mem:loadtest  (any JDBC URL whose database has the schema; H2 gets it created)
+ *
+ * Login runs PBKDF2 at the production iteration count, so it is CPU-bound and expensive by
+ * design; give it a small weight unless login capacity is what is being measured.
+ */
+public final class LoadTest {
+
+    enum Operation { LOGIN, LIST, READ, DECRYPT, CREATE, DELETE }
+
+    private static final GoogleAuthenticator TOTP = new GoogleAuthenticator();
+
+    /** A provisioned user and what the workers need to act as them. */
+    static final class VirtualUser {
+        final String username;
+        final String masterPassword;
+        final String totpSecret;
+        final int userId;
+        final byte[] dataKey;
+        final IdPool entryIds = new IdPool();
+
+        VirtualUser(GeneratedUser generated) {
+            this.username = generated.getUsername();
+            this.masterPassword = generated.getMasterPassword();
+            this.totpSecret = generated.getTotpSecret();
+            this.userId = generated.getUserId();
+            this.dataKey = generated.getDataKey();
+        }
+    }
+
+    /** Entry IDs known to exist, with O(1) random pick and removal. */
+    static final class IdPool {
+        private final List<Integer> ids = new ArrayList<>();
+
+        synchronized void addAll(List<PasswordEntry> entries) {
+            ids.clear();
+            for (PasswordEntry entry : entries) {
+                ids.add(entry.getId());
+            }
+        }
+
+        synchronized int pick() {
+            return ids.isEmpty() ? -1 : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+
+        synchronized int take() {
+            if (ids.isEmpty()) {
+                return -1;
+            }
+            int i = ThreadLocalRandom.current().nextInt(ids.size());
+            int last = ids.remove(ids.size() - 1);
+            return i == ids.size() ? last : ids.set(i, last);
+        }
+    }
+
+    private final AuthService authService = new AuthService();
+    private final PasswordService passwordService = new PasswordService();
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+
+    private LoadTest() {
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+            errors.put(op, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = VaultGenerator.parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        int entries = Integer.parseInt(options.getOrDefault("entries", "200"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String url = options.getOrDefault("url", "jdbc:h2:mem:loadtest");
+        int[] weights = parseMix(options.getOrDefault("mix", "login=1,list=10,read=40,decrypt=30,create=10,delete=9"));
+
+        long seed = Long.parseLong(options.getOrDefault("seed", Long.toString(System.currentTimeMillis())));
+
+        // 1. Point DatabaseManager at the test database before anything touches it
+        VaultGenerator.useDatabase(url, Integer.parseInt(options.getOrDefault("pool", "16")));
+        LoadTest test = new LoadTest();
+
+        // 2. Provision users and entries
+        long started = System.nanoTime();
+        List<VirtualUser> population = test.provision(seed, users, entries);
+        System.out.printf("Provisioned %d users x %d entries in %.1f s%n", population.size(), entries,
+                (System.nanoTime() - started) / 1e9);
+
+        // 3. Warm up (discarded), then measure
+        if (warmup > 0) {
+            test.run(population, weights, concurrency, warmup);
+            test.reset();
+        }
+        test.run(population, weights, concurrency, duration);
+        test.report(duration, concurrency);
+        DatabaseManager.getInstance().closeConnection();
+    }
+
+    private List<VirtualUser> provision(long seed, int users, int entries) throws InterruptedException {
+        VaultGenerator generator = new VaultGenerator(seed, PasswordDAO.forConfiguredStorage(),
+                Runtime.getRuntime().availableProcessors());
+        List<VirtualUser> population = new ArrayList<>(users);
+        for (GeneratedUser generated : generator.generate(users, entries)) {
+            VirtualUser user = new VirtualUser(generated);
+            user.entryIds.addAll(passwordService.getEncryptedEntries(user.userId));
+            population.add(user);
+        }
+        return population;
+    }
+
+    private void run(List<VirtualUser> population, int[] weights, int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int totalWeight = 0;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+        int bound = totalWeight;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        VirtualUser user = population.get(random.nextInt(population.size()));
+                        execute(choose(weights, random.nextInt(bound)), user);
+                    }
+                });
+            }
+        }
+    }
+
+    private static Operation choose(int[] weights, int ticket) {
+        for (Operation op : Operation.values()) {
+            ticket -= weights[op.ordinal()];
+            if (ticket < 0) {
+                return op;
+            }
+        }
+        return Operation.LIST;
+    }
+
+    private void execute(Operation op, VirtualUser user) {
+        // Pick delete/read targets before starting the clock
+        int entryId = op == Operation.DELETE ? user.entryIds.take()
+                : op == Operation.READ || op == Operation.DECRYPT ? user.entryIds.pick() : 0;
+        if (entryId < 0) {
+            return; // User has no entries left; nothing to measure
+        }
+
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = switch (op) {
+                case LOGIN -> login(user);
+                case LIST -> {
+                    List<PasswordEntry> entries = passwordService.getEncryptedEntries(user.userId);
+                    user.entryIds.addAll(entries); // Picks up created entries, drops deleted ones
+                    yield true;
+                }
+                // A read can miss an entry another worker just deleted; that counts as an error
+                case READ -> passwordService.getEncryptedEntry(entryId, user.userId).isPresent();
+                case DECRYPT -> passwordService.getEncryptedEntry(entryId, user.userId)
+                        .map(entry -> !passwordService.decryptPassword(entry, user.dataKey).startsWith("[DECRYPTION FAILED"))
+                        .orElse(false);
+                case CREATE -> passwordService.createEntry(user.userId, "new-" + start + ".example.com", user.username,
+                        PasswordGenerator.generatePassword(20, true, true, true, true), null, user.dataKey);
+                case DELETE -> passwordService.deleteEntry(entryId, user.userId);
+            };
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+        latencies.get(op).record(System.nanoTime() - start);
+        if (!ok) {
+            errors.get(op).incrementAndGet();
+        }
+    }
+
+    // The full login: master password (PBKDF2 + unwrap) and then the TOTP code
+    private boolean login(VirtualUser user) {
+        Optional<UnlockedVault> vault = authService.unlockVault(user.username, user.masterPassword);
+        if (vault.isEmpty()) {
+            return false;
+        }
+        try {
+            return authService.authenticateTotp(vault.get().getUser(), TOTP.getTotpPassword(user.totpSecret), vault.get().getDataKey());
+        } finally {
+            Arrays.fill(vault.get().getDataKey(), (byte) 0);
+        }
+    }
+
+    private void reset() {
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+            errors.get(op).set(0);
+        }
+    }
+
+    private void report(int seconds, int concurrency) {
+        System.out.printf("%nConcurrency %d, %d s, pool of %d connections%n", concurrency, seconds,
+                DatabaseManager.getInstance().getPoolSize());
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %10s %8s%n",
+                "op", "count", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        long total = 0;
+        for (Operation op : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(op);
+            long count = histogram.getCount();
+            total += count;
+            System.out.printf("%-8s %10d %10.1f %10.3f %10.3f %10.3f %10.3f %8d%n",
+                    op.name().toLowerCase(), count, (double) count / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMax()), errors.get(op).get());
+        }
+        System.out.printf("%-8s %10d %10.1f%n", "total", total, (double) total / seconds);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[Operation.values().length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.split("=");
+            weights[Operation.valueOf(pair[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        return weights;
+    }
+}
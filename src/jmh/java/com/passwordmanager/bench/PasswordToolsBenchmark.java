@@ -0,0 +1,50 @@
+package com.passwordmanager.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.passwordmanager.util.PasswordGenerator;
+import com.passwordmanager.util.PasswordStrengthChecker;
+
+/**
+ * Password generator and strength meter; both run on every keystroke in the add dialog.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordToolsBenchmark {
+
+    @Param({"16", "64"})
+    private int length;
+
+    private String candidate;
+
+    @Setup
+    public void setup() {
+        candidate = PasswordGenerator.generatePassword(length, true, true, true, true);
+    }
+
+    @Benchmark
+    public String generatePassword() {
+        return PasswordGenerator.generatePassword(length, true, true, true, true);
+    }
+
+    @Benchmark
+    public String checkStrength() {
+        return PasswordStrengthChecker.checkStrength(candidate);
+    }
+}
@@ -0,0 +1,67 @@
+package com.passwordmanager.bench;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.passwordmanager.service.SessionManager;
+import com.passwordmanager.service.SessionManager.Session;
+
+/**
+ * Session lookup on every request, and login/logout churn, with many live sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SessionManagerBenchmark {
+
+    @Param({"1000", "100000"})
+    private int liveSessions;
+
+    private SessionManager sessions;
+    private String[] tokens;
+
+    @Setup
+    public void setup() {
+        sessions = new SessionManager("bench", Duration.ofMinutes(15), Duration.ofHours(12), Duration.ofSeconds(2));
+        tokens = new String[liveSessions];
+        for (int i = 0; i < liveSessions; i++) {
+            tokens[i] = sessions.create(i, "user" + i, new byte[32]).getToken();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessions.close();
+    }
+
+    @Benchmark
+    public Object touch() {
+        return sessions.touch(tokens[ThreadLocalRandom.current().nextInt(tokens.length)]);
+    }
+
+    @Benchmark
+    public Session createAndInvalidate() {
+        Session session = sessions.create(-1, "churn", new byte[32]);
+        sessions.invalidate(session.getToken());
+        return session;
+    }
+}
@@ -0,0 +1,70 @@
+package com.passwordmanager.bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.passwordmanager.util.CompressedBitmap;
+import com.passwordmanager.util.TagIndex;
+
+/**
+ * Sidebar filtering over the in-memory tag index: "tag A AND tag B AND NOT folder C", and
+ * the live count of every tag within the result. Tag 0 is on half the entries (dense
+ * containers), tag 1 on a third, folder 2 on a tenth, and the other tags are sparse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagIndexBenchmark {
+
+    private static final int TAGS = 30;
+
+    @Param({"10000", "100000"})
+    private int entries;
+
+    private TagIndex index;
+    private CompressedBitmap result;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        index = new TagIndex();
+        for (int id = 1; id <= entries; id++) {
+            index.addEntry(id);
+            if (random.nextInt(2) == 0) index.tag(id, 0);
+            if (random.nextInt(3) == 0) index.tag(id, 1);
+            if (random.nextInt(10) == 0) index.tag(id, 2);
+            index.tag(id, 3 + random.nextInt(TAGS - 3));
+        }
+        result = filter();
+    }
+
+    @Benchmark
+    public CompressedBitmap filter() {
+        return index.filter(List.of(0, 1), List.of(), List.of(2));
+    }
+
+    @Benchmark
+    public int countAllTags() {
+        int total = 0;
+        for (int tagId = 0; tagId < TAGS; tagId++) {
+            total += index.count(tagId, result);
+        }
+        return total;
+    }
+}
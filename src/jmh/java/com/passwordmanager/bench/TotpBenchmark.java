@@ -0,0 +1,41 @@
+package com.passwordmanager.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.passwordmanager.util.TotpUtil;
+
+/**
+ * TOTP verification. A wrong code is the common worst case: every code in the drift window is checked
+ * (out-of-range codes such as 0 are rejected before any HMAC work, so one is not used).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotpBenchmark {
+
+    private String secret;
+
+    @Setup
+    public void setup() {
+        secret = TotpUtil.generateNewSecret("bench", "PasswordManager").getSecret();
+    }
+
+    @Benchmark
+    public boolean verifyWrongCode() {
+        return TotpUtil.verifyCode(secret, 123456);
+    }
+}
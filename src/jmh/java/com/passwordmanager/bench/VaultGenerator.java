@@ -0,0 +1,360 @@
+package com.passwordmanager.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.passwordmanager.dao.DatabaseManager;
+import com.passwordmanager.dao.FilePasswordDAO;
+import com.passwordmanager.dao.LogStructuredVaultStore;
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.AuthService;
+import com.passwordmanager.service.AuthService.UnlockedVault;
+import com.passwordmanager.util.EntryFieldCipher;
+import com.passwordmanager.util.PasswordGenerator;
+import com.passwordmanager.util.TotpUtil.TotpSetupInfo;
+
+/**
+ * Generates large, realistic test vaults: real users (registered through AuthService, so they
+ * can log in) and encrypted entries written with batched DAO inserts.
+ *
+ * Content is deterministic for a seed: entries are generated in fixed shards, each with its own
+ * seeded Random, so the same seed gives the same titles, usernames, passwords and notes whatever
+ * the thread count. (Ciphertexts still differ between runs, since every encryption takes a fresh
+ * random nonce.) Distributions aim at what real vaults look like: a few popular sites and a long
+ * tail of others, titles from the site name with occasional qualifiers, a quarter of the
+ * passwords reused from a small personal set, and mostly empty notes with a long-tailed size.
+ *
+ * Command line (all optional):
+ *   --seed 42  --users 1  --entries 10000  --threads (cores)
+ *   --target sql|file  --url jdbc:h2:./target/vaultgen  --vault-file target/vaultgen.log
+ *   --credentials target/vaultgen-users.csv  (username, master password, TOTP secret)
+ *
+ * Users always go to the database named by --url (any JDBC URL, e.g. the Postgres instance; H2
+ * gets the schema created); entries go to the same database, or with --target file to a
+ * LogStructuredVaultStore file snapshot for -Dpasswordmanager.storage=file.
+ */
+public final class VaultGenerator {
+
+    private static final int SHARD_SIZE = 1000;
+    private static final int DOMAIN_RANKS = 20000;
+    private static final double REUSE_PROBABILITY = 0.25;
+    private static final double HUMAN_PASSWORD_PROBABILITY = 0.10;
+    private static final double NOTE_PROBABILITY = 0.30;
+
+    private static final String[] POPULAR_DOMAINS = {
+        "google.com", "facebook.com", "amazon.com", "apple.com", "microsoft.com", "github.com",
+        "netflix.com", "linkedin.com", "twitter.com", "instagram.com", "paypal.com", "reddit.com",
+        "dropbox.com", "spotify.com", "yahoo.com", "ebay.com", "slack.com", "zoom.us",
+        "adobe.com", "atlassian.net", "stackoverflow.com", "twitch.tv", "discord.com", "steampowered.com",
+        "airbnb.com", "uber.com", "booking.com", "chase.com", "bankofamerica.com", "wellsfargo.com",
+        "gitlab.com", "digitalocean.com", "aws.amazon.com", "notion.so", "figma.com", "trello.com",
+        "hulu.com", "pinterest.com", "tumblr.com", "wordpress.com"
+    };
+    private static final String[] WORDS = {
+        "cloud", "shop", "bank", "mail", "photo", "travel", "game", "news", "health", "learn",
+        "market", "home", "auto", "food", "music", "video", "sport", "tech", "book", "pay"
+    };
+    private static final String[] TLDS = { "com", "com", "com", "net", "org", "io", "co.uk", "de" };
+    private static final String[] QUALIFIERS = { "Work", "Personal", "Old account", "Family", "Admin", "Test", "Shared" };
+    private static final String[] SEASONS = { "Summer", "Winter", "Spring", "Autumn", "Password", "Welcome", "Dragon", "Monkey" };
+
+    /** A generated account and what is needed to act as it. */
+    public static final class GeneratedUser {
+        private final String username;
+        private final String masterPassword;
+        private final String totpSecret;
+        private final int userId;
+        private final byte[] dataKey;
+
+        GeneratedUser(String username, String masterPassword, String totpSecret, int userId, byte[] dataKey) {
+            this.username = username;
+            this.masterPassword = masterPassword;
+            this.totpSecret = totpSecret;
+            this.userId = userId;
+            this.dataKey = dataKey;
+        }
+
+        public String getUsername() { return username; }
+        public String getMasterPassword() { return masterPassword; }
+        public String getTotpSecret() { return totpSecret; }
+        public int getUserId() { return userId; }
+        public byte[] getDataKey() { return dataKey; }
+    }
+
+    private final long seed;
+    private final PasswordDAO passwordDAO;
+    private final AuthService authService = new AuthService();
+    private final int threads;
+
+    /**
+     * @param passwordDAO Where entries are written (SQL or file-backed).
+     * @param threads Worker threads for key derivation and encryption.
+     */
+    public VaultGenerator(long seed, PasswordDAO passwordDAO, int threads) {
+        this.seed = seed;
+        this.passwordDAO = passwordDAO;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Registers the users and fills each vault.
+     * @throws IllegalStateException if a user cannot be registered (e.g. the seed was used before) or a batch fails.
+     */
+    public List<GeneratedUser> generate(int users, int entriesPerUser) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // 1. Users (PBKDF2-bound, one task each)
+            List<Future<GeneratedUser>> registrations = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                int userIndex = i;
+                registrations.add(pool.submit(() -> register(userIndex)));
+            }
+            List<GeneratedUser> generated = new ArrayList<>(users);
+            for (Future<GeneratedUser> future : registrations) {
+                generated.add(await(future));
+            }
+
+            // 2. Entries, in fixed-size shards so the content does not depend on scheduling
+            List<Future<Integer>> shards = new ArrayList<>();
+            for (int u = 0; u < users; u++) {
+                GeneratedUser user = generated.get(u);
+                int userIndex = u;
+                for (int start = 0; start < entriesPerUser; start += SHARD_SIZE) {
+                    int shard = start / SHARD_SIZE;
+                    int count = Math.min(SHARD_SIZE, entriesPerUser - start);
+                    shards.add(pool.submit(() -> writeShard(user, userIndex, shard, count)));
+                }
+            }
+            for (Future<Integer> future : shards) {
+                await(future);
+            }
+            return generated;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private GeneratedUser register(int userIndex) {
+        String username = "gen-" + seed + "-" + userIndex;
+        String masterPassword = "vault-" + seed + "-" + userIndex + "-master";
+        TotpSetupInfo totp = authService.registerUser(username, masterPassword);
+        Optional<UnlockedVault> vault = totp == null ? Optional.empty() : authService.unlockVault(username, masterPassword);
+        if (vault.isEmpty()) {
+            throw new IllegalStateException("Could not register " + username
+                    + "; use another --seed or a fresh database, and check that it is reachable.");
+        }
+        return new GeneratedUser(username, masterPassword, totp.getSecret(), vault.get().getUser().getId(), vault.get().getDataKey());
+    }
+
+    private int writeShard(GeneratedUser user, int userIndex, int shard, int count) throws Exception {
+        Random userRandom = new Random(mix(seed, userIndex, -1));
+        String[] reused = personalPasswords(userRandom);
+        String[] emails = { "user" + userIndex + "@example.com", "user" + userIndex + ".alt@example.org" };
+
+        Random random = new Random(mix(seed, userIndex, shard));
+        List<PasswordEntry> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String domain = domain(random);
+            PasswordEntry entry = new PasswordEntry();
+            entry.setUserId(user.getUserId());
+            entry.setTitle(title(domain, random));
+            entry.setUsernameEnc(seal(username(emails, random), user, EntryFieldCipher.FIELD_USERNAME));
+            entry.setPasswordEnc(seal(password(reused, random), user, EntryFieldCipher.FIELD_PASSWORD));
+            entry.setNoteEnc(seal(note(random), user, EntryFieldCipher.FIELD_NOTE));
+            entry.setEncVersion(EntryFieldCipher.VERSION_CURRENT);
+            batch.add(entry);
+        }
+        if (passwordDAO.createEntries(batch) != count) {
+            throw new IllegalStateException("Failed to write shard " + shard + " of " + user.getUsername());
+        }
+        return count;
+    }
+
+    private static String seal(String value, GeneratedUser user, String field) throws Exception {
+        return EntryFieldCipher.seal(value, user.getDataKey(), user.getUserId(), field);
+    }
+
+    // --- DISTRIBUTIONS ---
+
+    // Log-uniform rank (Zipf with s ~ 1): the first few sites dominate, with a long tail
+    private static String domain(Random random) {
+        int rank = (int) Math.pow(DOMAIN_RANKS + 1, random.nextDouble()) - 1;
+        if (rank < POPULAR_DOMAINS.length) {
+            return POPULAR_DOMAINS[rank];
+        }
+        Random site = new Random(rank); // A rank always names the same site
+        return WORDS[site.nextInt(WORDS.length)] + WORDS[site.nextInt(WORDS.length)] + rank
+                + "." + TLDS[site.nextInt(TLDS.length)];
+    }
+
+    private static String title(String domain, Random random) {
+        String label = domain.substring(0, domain.indexOf('.'));
+        String name = Character.toUpperCase(label.charAt(0)) + label.substring(1);
+        double roll = random.nextDouble();
+        if (roll < 0.60) {
+            return name;
+        } else if (roll < 0.85) {
+            return domain;
+        }
+        return name + " - " + QUALIFIERS[random.nextInt(QUALIFIERS.length)];
+    }
+
+    private static String username(String[] emails, Random random) {
+        double roll = random.nextDouble();
+        if (roll < 0.70) {
+            return emails[0];
+        } else if (roll < 0.90) {
+            return emails[1];
+        }
+        return WORDS[random.nextInt(WORDS.length)] + "_" + random.nextInt(10000);
+    }
+
+    // 3-6 passwords a person keeps coming back to, the first ones most often
+    private static String[] personalPasswords(Random random) {
+        String[] passwords = new String[3 + random.nextInt(4)];
+        for (int i = 0; i < passwords.length; i++) {
+            passwords[i] = i % 2 == 0 ? humanPassword(random)
+                    : PasswordGenerator.generatePassword(12, true, true, true, false, random);
+        }
+        return passwords;
+    }
+
+    private static String password(String[] reused, Random random) {
+        double roll = random.nextDouble();
+        if (roll < REUSE_PROBABILITY) {
+            return reused[(int) (reused.length * random.nextDouble() * random.nextDouble())];
+        } else if (roll < REUSE_PROBABILITY + HUMAN_PASSWORD_PROBABILITY) {
+            return humanPassword(random);
+        }
+        int[] lengths = { 12, 16, 16, 20, 20, 20, 24, 32 };
+        return PasswordGenerator.generatePassword(lengths[random.nextInt(lengths.length)], true, true, true, true, random);
+    }
+
+    // Word + year + symbol, the way people pick them
+    private static String humanPassword(Random random) {
+        return SEASONS[random.nextInt(SEASONS.length)] + (1990 + random.nextInt(36)) + "!#$".charAt(random.nextInt(3));
+    }
+
+    // Mostly empty; otherwise log-normal length around 55 characters with a tail into kilobytes
+    private static String note(Random random) {
+        if (random.nextDouble() >= NOTE_PROBABILITY) {
+            return null;
+        }
+        int length = (int) Math.min(8000, Math.max(1, Math.exp(4.0 + random.nextGaussian())));
+        StringBuilder note = new StringBuilder(length + 8);
+        while (note.length() < length) {
+            note.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? ".\n" : " ");
+        }
+        return note.substring(0, length);
+    }
+
+    private static long mix(long seed, int userIndex, int shard) {
+        long h = seed * 0x9E3779B97F4A7C15L + userIndex;
+        h = (h ^ (h >>> 31)) * 0xBF58476D1CE4E5B9L + shard;
+        return h ^ (h >>> 29);
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+        }
+    }
+
+    // --- COMMAND LINE ---
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1"));
+        int entries = Integer.parseInt(options.getOrDefault("entries", "10000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+        String target = options.getOrDefault("target", "sql");
+
+        useDatabase(options.getOrDefault("url", "jdbc:h2:./target/vaultgen"), threads);
+
+        LogStructuredVaultStore store = null;
+        PasswordDAO dao;
+        if ("file".equalsIgnoreCase(target)) {
+            Path file = Paths.get(options.getOrDefault("vault-file", "target/vaultgen.log"));
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            store = LogStructuredVaultStore.open(file, false); // Bulk load: no fsync per batch
+            dao = new FilePasswordDAO(store);
+        } else {
+            dao = new PasswordDAO();
+        }
+
+        long started = System.nanoTime();
+        try {
+            List<GeneratedUser> generated = new VaultGenerator(seed, dao, threads).generate(users, entries);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("Generated %d users x %d entries (seed %d) in %.1f s (%.0f entries/s)%n",
+                    users, entries, seed, seconds, users * (double) entries / seconds);
+            if (options.containsKey("credentials")) {
+                writeCredentials(Paths.get(options.get("credentials")), generated);
+            }
+        } finally {
+            if (store != null) {
+                store.close();
+            }
+            DatabaseManager.getInstance().closeConnection();
+        }
+    }
+
+    /**
+     * Points DatabaseManager at the given JDBC URL (before first use) and creates the schema in H2.
+     */
+    static void useDatabase(String url, int poolSize) throws Exception {
+        if (url.startsWith("jdbc:h2:")) {
+            url += ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+            System.setProperty(DatabaseManager.USER_PROPERTY, System.getProperty(DatabaseManager.USER_PROPERTY, "sa"));
+        }
+        System.setProperty(DatabaseManager.URL_PROPERTY, url);
+        System.setProperty(DatabaseManager.POOL_SIZE_PROPERTY, Integer.toString(poolSize));
+        if (url.startsWith("jdbc:h2:")) {
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 Statement statement = conn.createStatement()) {
+                statement.execute("RUNSCRIPT FROM 'classpath:/db/schema-h2.sql'");
+            }
+        }
+    }
+
+    private static void writeCredentials(Path file, List<GeneratedUser> users) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("username,master_password,totp_secret");
+            for (GeneratedUser user : users) {
+                out.println(user.getUsername() + "," + user.getMasterPassword() + "," + user.getTotpSecret());
+            }
+        }
+        System.out.println("Credentials written to " + file);
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -1,12 +1,16 @@
 package com.passwordmanager;
 
 import com.formdev.flatlaf.FlatDarkLaf;
+import com.passwordmanager.metrics.Metrics;
 import com.passwordmanager.ui.LoginDialog;
 import javax.swing.SwingUtilities;
 
 public class AppLauncher {
 
     public static void main(String[] args) {
+        // JMX metrics always; the local text endpoint only with -Dpasswordmanager.metrics.port
+        Metrics.startExporters();
+
         // Use a modern, dark theme for a "premium" look
         // You can switch to FlatLaf.install(new FlatLightLaf()); for a lighter theme
         FlatDarkLaf.setup();
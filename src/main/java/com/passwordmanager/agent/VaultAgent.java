@@ -0,0 +1,492 @@
+package com.passwordmanager.agent;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.passwordmanager.dao.ChangeFeed;
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.User;
+import com.passwordmanager.service.AuthService;
+import com.passwordmanager.service.AuthService.UnlockedVault;
+import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.service.SessionManager;
+import com.passwordmanager.service.SessionManager.Session;
+import com.passwordmanager.util.DomainIndex;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * Headless vault agent: holds one unlocked session in memory and serves it over a
+ * UNIX domain socket, so scripts get a secret without the login dialog or a key derivation.
+ *
+ * The socket lives in a 0700 directory (default ~/.passwordmanager/agent.sock) and every
+ * connection is checked with SO_PEERCRED: only processes running under the agent's uid (the
+ * owner of the socket file it created, not the overridable user.name property) are served.
+ * The agent starts locked; {@link VaultCli} unlocks it (master password + TOTP, one
+ * PBKDF2 derivation), after which get/list/search/match/add are answered from the cached, still
+ * encrypted entries. After the idle timeout the data key is zeroed and it locks again.
+ * For "match" (which entries belong to the site a browser is on) the entries' URLs are
+ * decrypted once per cache load into a {@link DomainIndex}.
+ *
+ * Protocol: one JSON object per line each way, e.g. {"op":"get","title":"github.com"} and
+ * {"ok":true,"id":7,"title":"github.com","username":"...","password":"..."}; failures are
+ * {"ok":false,"error":"..."}. Ops: status, unlock, lock, list, search, match, get, add;
+ * {"op":"match","url":"https://login.example.com/"} lists {id,title,host,match} best first,
+ * match being exact_host, parent_domain or same_site.
+ *
+ * Usage: java -cp PasswordManager.jar com.passwordmanager.agent.VaultAgent
+ *   (-Dpasswordmanager.agent.socket=path, -Dpasswordmanager.agent.idleMinutes=15)
+ */
+public final class VaultAgent implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VaultAgent.class);
+
+    public static final String SOCKET_PROPERTY = "passwordmanager.agent.socket";
+    public static final String IDLE_PROPERTY = "passwordmanager.agent.idleMinutes";
+
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+
+    private static final Duration ABSOLUTE_TIMEOUT = Duration.ofHours(12);
+
+    private final Path socketPath;
+    private final AuthService authService;
+    private final PasswordService passwordService;
+    private final SessionManager sessions;
+    private ServerSocketChannel server;
+    private UserPrincipal owner; // Of the socket file, i.e. the agent's effective uid
+
+    // The one unlocked session and its still-encrypted entries; guarded by this
+    private Session session;
+    private List<PasswordEntry> entries = List.of();
+    private Map<Integer, PasswordEntry> entriesById = Map.of();
+    private final DomainIndex domainIndex = new DomainIndex();
+    // Set by the change feed when the vault changed elsewhere; the cache reloads on next use
+    private ChangeFeed.Subscription changeSubscription;
+    private volatile boolean stale;
+
+    public VaultAgent(Path socketPath, long idleMinutes, AuthService authService, PasswordService passwordService) {
+        this.socketPath = socketPath;
+        this.authService = authService;
+        this.passwordService = passwordService;
+        Duration idle = Duration.ofMinutes(idleMinutes);
+        this.sessions = new SessionManager("agent", idle, ABSOLUTE_TIMEOUT,
+                idle.dividedBy(256).compareTo(Duration.ofSeconds(1)) > 0 ? idle.dividedBy(256) : Duration.ofSeconds(1));
+    }
+
+    /**
+     * The socket path from -Dpasswordmanager.agent.socket, default ~/.passwordmanager/agent.sock.
+     */
+    public static Path configuredSocket() {
+        String configured = System.getProperty(SOCKET_PROPERTY);
+        return configured != null ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".passwordmanager", "agent.sock");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Metrics.startExporters();
+        long idleMinutes = Long.getLong(IDLE_PROPERTY, 15);
+        VaultAgent agent = new VaultAgent(configuredSocket(), idleMinutes, new AuthService(), new PasswordService());
+        Runtime.getRuntime().addShutdownHook(new Thread(agent::close, "vault-agent-shutdown"));
+        agent.start();
+        System.out.println("Vault agent listening on " + agent.socketPath + " (locked; run VaultCli unlock)");
+        agent.acceptLoop();
+    }
+
+    /**
+     * Binds the socket (owner-only permissions).
+     */
+    public void start() throws IOException {
+        // 1. Private directory; a stale socket from a crashed agent is replaced
+        Path directory = socketPath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        if (isPosix()) {
+            Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+        }
+        if (Files.exists(socketPath) && isListening(socketPath)) {
+            throw new IOException("Another agent is already listening on " + socketPath);
+        }
+        Files.deleteIfExists(socketPath);
+
+        // 2. Bind, then restrict the socket file itself
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        if (isPosix()) {
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        }
+        owner = Files.getOwner(socketPath);
+    }
+
+    /**
+     * Accepts connections until the agent is closed; each is served on its own virtual thread.
+     */
+    public void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                Thread.ofVirtual().name("vault-agent-client").start(() -> serve(channel));
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    LOGGER.error("Accept failed on {}: {}", socketPath, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            if (!isSameUser(channel)) {
+                Metrics.increment("agent.rejected");
+                return;
+            }
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            OutputStream out = Channels.newOutputStream(channel);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long length;
+            while ((length = readLine(in, line)) >= 0) {
+                JsonObject response = length > MAX_REQUEST_BYTES
+                        ? error("request too large")
+                        : handle(line.toString(StandardCharsets.UTF_8));
+                out.write((response + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Agent client disconnected: {}", e.getMessage());
+        }
+    }
+
+    // Reads one newline-terminated request into the buffer, keeping at most MAX_REQUEST_BYTES
+    // of it, so an endless line costs no memory. Returns the full length, or -1 at end of stream
+    private static long readLine(InputStream in, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        long length = 0;
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (length++ < MAX_REQUEST_BYTES) {
+                buffer.write(b);
+            }
+        }
+        return b == -1 && length == 0 ? -1 : length;
+    }
+
+    // SO_PEERCRED: the connecting process must run under the uid that created the socket.
+    // UNIX user principals compare by numeric uid, so a renamed or aliased user changes nothing
+    private boolean isSameUser(SocketChannel channel) throws IOException {
+        if (!channel.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+            return true; // No peer credentials on this platform; the 0700 directory still applies
+        }
+        UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        if (!peer.user().equals(owner)) {
+            LOGGER.warn("Rejected agent connection from user {}", peer.user().getName());
+            return false;
+        }
+        return true;
+    }
+
+    JsonObject handle(String line) {
+        long start = System.nanoTime();
+        String op = "invalid";
+        try {
+            JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+            op = request.has("op") ? request.get("op").getAsString().toLowerCase(Locale.ROOT) : "";
+            if (op.equals("unlock")) {
+                return unlock(request); // Takes the monitor itself, after the key derivation
+            }
+            synchronized (this) {
+                return switch (op) {
+                    case "status" -> status();
+                    case "lock" -> {
+                        lock();
+                        yield ok();
+                    }
+                    case "list", "search", "match", "get", "add" -> {
+                        // Counts as activity; fails once the session has ended. While acquired,
+                        // expiry cannot zero the key under this request
+                        Optional<Session> active = session == null ? Optional.empty() : sessions.acquire(session.getToken());
+                        if (active.isEmpty()) {
+                            lock();
+                            yield error("locked");
+                        }
+                        try {
+                            yield switch (op) {
+                                case "list" -> list(null);
+                                case "search" -> list(string(request, "query"));
+                                case "match" -> match(string(request, "url"));
+                                case "get" -> get(request);
+                                default -> add(request);
+                            };
+                        } finally {
+                            sessions.release(active.get());
+                        }
+                    }
+                    default -> error("unknown op: " + op);
+                };
+            }
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException | NumberFormatException e) {
+            return error("malformed request");
+        } catch (RuntimeException e) {
+            // E.g. a database failure: answer the client instead of dropping its connection
+            LOGGER.error("Agent op {} failed: {}", op, e.getMessage(), e);
+            return error("internal error");
+        } finally {
+            Metrics.recordSince("agent." + op, start);
+        }
+    }
+
+    // --- OPS (called with the monitor held, except unlock) ---
+
+    private JsonObject status() {
+        // Does not count as activity
+        boolean unlocked = session != null && !session.isEnded() && sessions.remainingNanos(session) > 0;
+        JsonObject response = ok();
+        response.addProperty("locked", !unlocked);
+        if (unlocked) {
+            response.addProperty("user", session.getUsername());
+            response.addProperty("entries", entries.size());
+            response.addProperty("idleLockSeconds", TimeUnit.NANOSECONDS.toSeconds(sessions.remainingNanos(session)));
+        }
+        return response;
+    }
+
+    // The PBKDF2 derivation (about a second) runs without the monitor, so status, get and lock
+    // requests of other clients are not held up; only installing the new session takes it
+    private JsonObject unlock(JsonObject request) {
+        String username = string(request, "username");
+        String password = string(request, "password");
+        String code = string(request, "totp");
+        if (username == null || password == null || code == null) {
+            return error("username, password and totp are required");
+        }
+        Optional<UnlockedVault> vault = authService.unlockVault(username, password);
+        int totp;
+        try {
+            totp = Integer.parseInt(code.trim());
+        } catch (NumberFormatException e) {
+            totp = -1;
+        }
+        if (vault.isEmpty() || !authService.authenticateTotp(vault.get().getUser(), totp, vault.get().getDataKey())) {
+            vault.ifPresent(v -> Arrays.fill(v.getDataKey(), (byte) 0));
+            LOGGER.warn("Agent unlock failed for user {}", username);
+            return error("invalid credentials");
+        }
+        User user = vault.get().getUser();
+        synchronized (this) {
+            lock(); // Replaces any previous session
+            session = sessions.create(user.getId(), user.getUsername(), vault.get().getDataKey());
+            reload();
+            changeSubscription = ChangeFeed.getDefault().subscribe(user.getId(), change -> stale = true);
+            LOGGER.info("Agent unlocked for user {} ({} entries)", user.getUsername(), entries.size());
+            return status();
+        }
+    }
+
+    private JsonObject list(String query) {
+        refreshIfStale();
+        String needle = query == null ? null : query.toLowerCase(Locale.ROOT);
+        JsonArray matches = new JsonArray();
+        for (PasswordEntry entry : entries) {
+            if (needle == null || entry.getTitle().toLowerCase(Locale.ROOT).contains(needle)) {
+                JsonObject item = new JsonObject();
+                item.addProperty("id", entry.getId());
+                item.addProperty("title", entry.getTitle());
+                matches.add(item);
+            }
+        }
+        JsonObject response = ok();
+        response.add("entries", matches);
+        return response;
+    }
+
+    private JsonObject match(String url) {
+        if (url == null) {
+            return error("url is required");
+        }
+        refreshIfStale();
+        JsonArray matches = new JsonArray();
+        for (DomainIndex.Match match : domainIndex.match(url)) {
+            PasswordEntry entry = entriesById.get(match.entryId());
+            if (entry != null) {
+                JsonObject item = new JsonObject();
+                item.addProperty("id", entry.getId());
+                item.addProperty("title", entry.getTitle());
+                item.addProperty("host", match.host());
+                item.addProperty("match", match.kind().name().toLowerCase(Locale.ROOT));
+                matches.add(item);
+            }
+        }
+        JsonObject response = ok();
+        response.add("entries", matches);
+        return response;
+    }
+
+    private JsonObject get(JsonObject request) {
+        refreshIfStale();
+        PasswordEntry entry = find(request);
+        if (entry == null) {
+            // Maybe added elsewhere since unlock: refresh the cache once
+            reload();
+            entry = find(request);
+        }
+        if (entry == null) {
+            return error("not found");
+        }
+        String password = passwordService.decryptPassword(entry, session.getDataKey());
+        if (password.startsWith("[DECRYPTION FAILED")) {
+            return error("decryption failed");
+        }
+        JsonObject response = ok();
+        response.addProperty("id", entry.getId());
+        response.addProperty("title", entry.getTitle());
+        response.addProperty("username", passwordService.decryptUsername(entry, session.getDataKey()));
+        response.addProperty("password", password);
+        return response;
+    }
+
+    // By "id" if given, else the first case-insensitive "title" match
+    private PasswordEntry find(JsonObject request) {
+        String title = string(request, "title");
+        Integer id = request.has("id") ? request.get("id").getAsInt() : null;
+        for (PasswordEntry entry : entries) {
+            if (id != null ? entry.getId() == id : entry.getTitle().equalsIgnoreCase(title)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private JsonObject add(JsonObject request) {
+        String title = string(request, "title");
+        String password = string(request, "password");
+        if (title == null || title.isBlank() || password == null) {
+            return error("title and password are required");
+        }
+        if (!passwordService.createEntry(session.getUserId(), title, string(request, "username"), password,
+                string(request, "url"), string(request, "note"), session.getDataKey())) {
+            return error("could not save entry");
+        }
+        reload();
+        return ok();
+    }
+
+    private void refreshIfStale() {
+        if (stale) {
+            stale = false;
+            reload();
+        }
+    }
+
+    // Reloads the cache and re-files every entry's URL host
+    private void reload() {
+        entries = passwordService.getEncryptedEntries(session.getUserId());
+        entriesById = new HashMap<>();
+        domainIndex.clear();
+        for (PasswordEntry entry : entries) {
+            entriesById.put(entry.getId(), entry);
+            if (entry.getUrlEnc() != null) {
+                domainIndex.put(entry.getId(), passwordService.decryptUrl(entry, session.getDataKey()));
+            }
+        }
+    }
+
+    // --- LOCKING ---
+
+    /**
+     * Ends the session (zeroing the data key) and drops the cached entries.
+     */
+    public synchronized void lock() {
+        if (session != null) {
+            sessions.invalidate(session.getToken());
+            LOGGER.info("Agent locked for user {}", session.getUsername());
+        }
+        if (changeSubscription != null) {
+            changeSubscription.close();
+            changeSubscription = null;
+        }
+        session = null;
+        entries = List.of();
+        entriesById = Map.of();
+        domainIndex.clear();
+        stale = false;
+    }
+
+    /**
+     * Locks, stops listening and removes the socket file.
+     */
+    @Override
+    public void close() {
+        lock();
+        sessions.close();
+        try {
+            if (server != null) {
+                server.close();
+            }
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            LOGGER.warn("Could not remove agent socket {}: {}", socketPath, e.getMessage());
+        }
+    }
+
+    // --- HELPERS ---
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static boolean isListening(Path path) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String string(JsonObject request, String name) {
+        return request.has(name) && !request.get(name).isJsonNull() ? request.get(name).getAsString() : null;
+    }
+
+    private static JsonObject ok() {
+        JsonObject response = new JsonObject();
+        response.addProperty("ok", true);
+        return response;
+    }
+
+    private static JsonObject error(String message) {
+        JsonObject response = new JsonObject();
+        response.addProperty("ok", false);
+        response.addProperty("error", message);
+        return response;
+    }
+}
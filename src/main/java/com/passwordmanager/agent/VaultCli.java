@@ -0,0 +1,161 @@
+package com.passwordmanager.agent;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Thin command-line client for {@link VaultAgent}. Secrets go to stdout with nothing else,
+ * so they can be captured by scripts: PASSWORD=$(vault get github.com).
+ *
+ * Commands:
+ *   status | lock | list | search &lt;text&gt;
+ *   unlock &lt;username&gt;                 (prompts for the master password and TOTP code)
+ *   get &lt;title&gt; [password|username|json]
+ *   add &lt;title&gt; [username]            (prompts for the password)
+ *
+ * Exit codes: 0 success, 1 the agent refused (locked, not found, ...), 2 usage or connection error.
+ */
+public final class VaultCli {
+
+    private static BufferedReader stdin;
+
+    private VaultCli() {}
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            usage();
+        }
+        try {
+            JsonObject request = buildRequest(args);
+            JsonObject response = send(VaultAgent.configuredSocket(), request);
+            if (!response.get("ok").getAsBoolean()) {
+                System.err.println("vault: " + response.get("error").getAsString());
+                System.exit(1);
+            }
+            print(args, response);
+        } catch (IOException e) {
+            System.err.println("vault: cannot reach the agent at " + VaultAgent.configuredSocket() + " (" + e.getMessage() + ")");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Sends one request and waits for its response line.
+     */
+    public static JsonObject send(Path socket, JsonObject request) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("connection closed by the agent");
+            }
+            return JsonParser.parseString(line).getAsJsonObject();
+        }
+    }
+
+    private static JsonObject buildRequest(String[] args) {
+        JsonObject request = new JsonObject();
+        String command = args[0];
+        request.addProperty("op", command);
+        switch (command) {
+            case "status", "lock", "list" -> { }
+            case "search" -> request.addProperty("query", argument(args, 1));
+            case "get" -> request.addProperty("title", argument(args, 1));
+            case "unlock" -> {
+                request.addProperty("username", argument(args, 1));
+                request.addProperty("password", new String(prompt("Master password: ", true)));
+                request.addProperty("totp", new String(prompt("Authenticator code: ", false)));
+            }
+            case "add" -> {
+                request.addProperty("title", argument(args, 1));
+                if (args.length > 2) {
+                    request.addProperty("username", args[2]);
+                }
+                request.addProperty("password", new String(prompt("Password for " + args[1] + ": ", true)));
+            }
+            default -> usage();
+        }
+        return request;
+    }
+
+    private static void print(String[] args, JsonObject response) {
+        switch (args[0]) {
+            case "get" -> {
+                String field = args.length > 2 ? args[2] : "password";
+                if (field.equals("json")) {
+                    System.out.println(response);
+                } else {
+                    JsonElement value = response.get(field);
+                    System.out.println(value == null || value.isJsonNull() ? "" : value.getAsString());
+                }
+            }
+            case "list", "search" -> response.getAsJsonArray("entries").forEach(entry ->
+                    System.out.println(entry.getAsJsonObject().get("id") + "\t" + entry.getAsJsonObject().get("title").getAsString()));
+            case "status", "unlock" -> {
+                if (response.get("locked").getAsBoolean()) {
+                    System.out.println("locked");
+                } else {
+                    System.out.printf("unlocked as %s, %d entries, locks after %d s idle%n",
+                            response.get("user").getAsString(), response.get("entries").getAsInt(),
+                            response.get("idleLockSeconds").getAsLong());
+                }
+            }
+            default -> { }
+        }
+    }
+
+    // Secrets are read without echo when a terminal is attached, else from stdin (for scripts)
+    private static char[] prompt(String message, boolean secret) {
+        Console console = System.console();
+        if (console != null) {
+            String line = secret ? null : console.readLine(message);
+            char[] value = secret ? console.readPassword(message) : line == null ? null : line.toCharArray();
+            if (value != null) {
+                return value;
+            }
+        } else {
+            try {
+                if (stdin == null) {
+                    stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                }
+                String line = stdin.readLine();
+                if (line != null) {
+                    return line.toCharArray();
+                }
+            } catch (IOException e) {
+                // Falls through to the usage error
+            }
+        }
+        System.err.println("vault: no input");
+        System.exit(2);
+        return null;
+    }
+
+    private static String argument(String[] args, int index) {
+        if (args.length <= index) {
+            usage();
+        }
+        return args[index];
+    }
+
+    private static void usage() {
+        System.err.println("Usage: vault status | unlock <username> | lock | list | search <text>"
+                + " | get <title> [password|username|json] | add <title> [username]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,151 @@
+package com.passwordmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.model.Attachment;
+
+/**
+ * Attachment metadata. Content is kept out of the database (see AttachmentService).
+ */
+public class AttachmentDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentDAO.class);
+
+    private static final String INSERT_ATTACHMENT_SQL =
+            "INSERT INTO attachments (password_id, user_id, file_name, size_bytes, blob_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_BY_ENTRY_SQL =
+            "SELECT attachment_id, password_id, file_name, size_bytes, blob_id, created_at FROM attachments WHERE password_id = ? AND user_id = ? ORDER BY created_at";
+    private static final String SELECT_BY_USER_SQL =
+            "SELECT attachment_id, password_id, file_name, size_bytes, blob_id, created_at FROM attachments WHERE user_id = ? ORDER BY attachment_id";
+    private static final String UPDATE_BLOB_SQL =
+            "UPDATE attachments SET blob_id = ? WHERE attachment_id = ? AND user_id = ? AND blob_id = ?";
+    private static final String DELETE_ATTACHMENT_SQL =
+            "DELETE FROM attachments WHERE attachment_id = ? AND user_id = ?";
+
+    /**
+     * Saves attachment metadata.
+     * @return The generated attachment_id, or -1 on failure.
+     */
+    public int createAttachment(Attachment attachment) {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(INSERT_ATTACHMENT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            preparedStatement.setInt(1, attachment.getPasswordId());
+            preparedStatement.setInt(2, attachment.getUserId());
+            preparedStatement.setString(3, attachment.getFileName());
+            preparedStatement.setLong(4, attachment.getSizeBytes());
+            preparedStatement.setString(5, attachment.getBlobId());
+
+            if (preparedStatement.executeUpdate() > 0) {
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        attachment.setId(keys.getInt(1));
+                        return attachment.getId();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error creating attachment for entry {}: {}", attachment.getPasswordId(), e.getMessage(), e);
+        }
+        return -1;
+    }
+
+    /**
+     * Lists attachment metadata for an entry (no content is read).
+     */
+    public List<Attachment> findByEntry(int passwordId, int userId) {
+        List<Attachment> attachments = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_BY_ENTRY_SQL)) {
+
+            preparedStatement.setInt(1, passwordId);
+            preparedStatement.setInt(2, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    attachments.add(mapRow(rs, userId));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error retrieving attachments for entry {}: {}", passwordId, e.getMessage(), e);
+        }
+        return attachments;
+    }
+
+    /**
+     * Lists the metadata of all the user's attachments, e.g. to re-encrypt them after a
+     * data-key rotation. Failures are thrown, so a rotation never mistakes them for "none".
+     */
+    public List<Attachment> findByUser(int userId) throws SQLException {
+        List<Attachment> attachments = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    attachments.add(mapRow(rs, userId));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error retrieving attachments of user {}: {}", userId, e.getMessage(), e);
+            throw e;
+        }
+        return attachments;
+    }
+
+    /**
+     * Points an attachment at a re-encrypted blob, only while it still refers to the old one.
+     * @return false if the attachment was deleted or already moved.
+     */
+    public boolean updateBlobId(int attachmentId, int userId, String oldBlobId, String newBlobId) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(UPDATE_BLOB_SQL)) {
+
+            preparedStatement.setString(1, newBlobId);
+            preparedStatement.setInt(2, attachmentId);
+            preparedStatement.setInt(3, userId);
+            preparedStatement.setString(4, oldBlobId);
+            return preparedStatement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error moving attachment {} to blob {}: {}", attachmentId, newBlobId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes attachment metadata.
+     */
+    public boolean deleteAttachment(int attachmentId, int userId) {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(DELETE_ATTACHMENT_SQL)) {
+
+            preparedStatement.setInt(1, attachmentId);
+            preparedStatement.setInt(2, userId);
+            return preparedStatement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOGGER.error("Error deleting attachment {}: {}", attachmentId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private static Attachment mapRow(ResultSet rs, int userId) throws SQLException {
+        Attachment attachment = new Attachment();
+        attachment.setId(rs.getInt("attachment_id"));
+        attachment.setPasswordId(rs.getInt("password_id"));
+        attachment.setUserId(userId);
+        attachment.setFileName(rs.getString("file_name"));
+        attachment.setSizeBytes(rs.getLong("size_bytes"));
+        attachment.setBlobId(rs.getString("blob_id"));
+        attachment.setCreatedAt(rs.getTimestamp("created_at"));
+        return attachment;
+    }
+}
@@ -0,0 +1,112 @@
+package com.passwordmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.model.PasswordEntry;
+
+/**
+ * Restore checkpoints: which chunk of which backup has been committed for a user.
+ * Each restored chunk's rows and its checkpoint are written in the same transaction,
+ * so an interrupted restore resumes exactly after the last committed chunk.
+ */
+public class BackupDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupDAO.class);
+
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT last_chunk, completed FROM restore_checkpoints WHERE user_id = ? AND backup_id = ?";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE restore_checkpoints SET last_chunk = ?, completed = ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ? AND backup_id = ?";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO restore_checkpoints (user_id, backup_id, last_chunk, completed) VALUES (?, ?, ?, ?)";
+
+    /**
+     * Finds the last committed chunk of a restore.
+     * @return The chunk sequence number, -1 if the restore never started, or
+     *         {@link Integer#MAX_VALUE} if it already completed. Failures are rethrown
+     *         because guessing here would duplicate or skip entries.
+     */
+    public int findLastCommittedChunk(int userId, String backupId) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_CHECKPOINT_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setString(2, backupId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBoolean("completed") ? Integer.MAX_VALUE : rs.getInt("last_chunk");
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error reading restore checkpoint for backup {}: {}", backupId, e.getMessage(), e);
+            throw e;
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts one chunk's entries and advances the checkpoint, atomically.
+     */
+    public void insertChunk(int userId, String backupId, int chunk, boolean last, List<PasswordEntry> entries) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement insert = conn.prepareStatement(PasswordDAO.INSERT_PASSWORD_SQL)) {
+                    for (PasswordEntry entry : entries) {
+                        insert.setInt(1, userId);
+                        insert.setString(2, entry.getTitle());
+                        insert.setString(3, entry.getUsernameEnc());
+                        insert.setString(4, entry.getPasswordEnc());
+                        insert.setString(5, entry.getEntryNonce());
+                        insert.setString(6, entry.getNoteEnc());
+                        insert.setString(7, entry.getNoteNonce());
+                        insert.setInt(8, entry.getEncVersion());
+                        insert.setString(9, entry.getUrlEnc());
+                        insert.addBatch();
+                    }
+                    if (!entries.isEmpty()) {
+                        insert.executeBatch();
+                    }
+                }
+
+                int updated;
+                try (PreparedStatement update = conn.prepareStatement(UPDATE_CHECKPOINT_SQL)) {
+                    update.setInt(1, chunk);
+                    update.setBoolean(2, last);
+                    update.setInt(3, userId);
+                    update.setString(4, backupId);
+                    updated = update.executeUpdate();
+                }
+                if (updated == 0) {
+                    try (PreparedStatement insert = conn.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+                        insert.setInt(1, userId);
+                        insert.setString(2, backupId);
+                        insert.setInt(3, chunk);
+                        insert.setBoolean(4, last);
+                        insert.executeUpdate();
+                    }
+                }
+                conn.commit();
+                if (!entries.isEmpty()) {
+                    ChangeFeed.publish(userId, -1, ChangeFeed.Op.RESYNC);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Error restoring chunk {} of backup {}: {}", chunk, backupId, e.getMessage(), e);
+            throw e;
+        }
+    }
+}
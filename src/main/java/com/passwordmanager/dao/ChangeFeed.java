@@ -0,0 +1,146 @@
+package com.passwordmanager.dao;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+
+/**
+ * Pushes changes to the passwords table to subscribers, so open clients apply just the
+ * rows that changed instead of reloading the vault.
+ *
+ * On PostgreSQL the changes come from a trigger (see PasswordManagerDatabaseSchema.sql)
+ * through LISTEN/NOTIFY, so writes by every client and process are seen. On H2 and the file
+ * store the DAOs publish their own writes in-process. Events carry IDs only, never entry
+ * content: subscribers fetch the rows they need.
+ */
+public abstract class ChangeFeed implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static volatile ChangeFeed defaultFeed;
+
+    public enum Op {
+        INSERT, UPDATE, DELETE,
+        /** Reload the user's vault: a bulk write, or events may have been missed (listener reconnected). */
+        RESYNC
+    }
+
+    /**
+     * One committed change. For RESYNC, passwordId is -1, and userId is -1 when it concerns everyone.
+     */
+    public record Change(int userId, int passwordId, Op op, LocalDateTime updatedAt) {
+
+        static Change now(int userId, int passwordId, Op op) {
+            return new Change(userId, passwordId, op, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * A registered listener; close it to stop receiving events.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ConcurrentHashMap<Integer, List<Consumer<Change>>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the feed for the configured storage: LISTEN/NOTIFY on PostgreSQL, in-process otherwise.
+     */
+    public static ChangeFeed getDefault() {
+        if (defaultFeed == null) {
+            synchronized (ChangeFeed.class) {
+                if (defaultFeed == null) {
+                    boolean fileStorage = "file".equalsIgnoreCase(System.getProperty(PasswordDAO.STORAGE_PROPERTY, "sql"));
+                    defaultFeed = !fileStorage && DatabaseManager.getInstance().isPostgres()
+                            ? new PostgresChangeFeed()
+                            : new LocalChangeFeed();
+                }
+            }
+        }
+        return defaultFeed;
+    }
+
+    /**
+     * Registers a listener for one user's changes. Listeners run on the feed's own thread,
+     * one event at a time and in commit order; they must not block for long.
+     */
+    public Subscription subscribe(int userId, Consumer<Change> listener) {
+        subscribers.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(listener);
+        started();
+        return () -> subscribers.computeIfPresent(userId, (id, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    /**
+     * Called by the DAOs after a write has committed. Feeds that learn about writes from the
+     * database itself ignore it.
+     */
+    abstract void written(Change change);
+
+    /**
+     * Reports a committed write to the default feed.
+     */
+    static void publish(int userId, int passwordId, Op op) {
+        getDefault().written(Change.now(userId, passwordId, op));
+    }
+
+    /**
+     * Called on every subscribe; feeds that need a listener thread start it here.
+     */
+    void started() {
+    }
+
+    boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * The users that currently have listeners (a snapshot).
+     */
+    Set<Integer> subscribedUsers() {
+        return new HashSet<>(subscribers.keySet());
+    }
+
+    /**
+     * Delivers an event to the user's listeners (RESYNC with userId -1 goes to everyone).
+     */
+    void dispatch(Change change) {
+        Metrics.increment("changefeed.events");
+        if (change.userId() == -1) {
+            subscribers.values().forEach(listeners -> deliver(listeners, change));
+            return;
+        }
+        List<Consumer<Change>> listeners = subscribers.get(change.userId());
+        if (listeners != null) {
+            deliver(listeners, change);
+        }
+    }
+
+    private static void deliver(List<Consumer<Change>> listeners, Change change) {
+        for (Consumer<Change> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (RuntimeException e) {
+                LOGGER.error("Change listener failed on {}:", change, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        subscribers.clear();
+    }
+}
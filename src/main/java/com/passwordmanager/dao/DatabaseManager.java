@@ -1,14 +1,30 @@
 package com.passwordmanager.dao;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.ResultSet;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.MetricsRegistry;
 
 /**
  * Database Manager for Supabase PostgreSQL Connection
  * Handles connection pooling and database operations
+ *
+ * Connections come from a small bounded pool: getConnection() hands out a wrapper whose
+ * close() returns the physical connection to the pool, so the DAOs' try-with-resources
+ * blocks stay unchanged and concurrent callers never share a connection. The target can
+ * be overridden with system properties (passwordmanager.db.url / .user / .password /
+ * .poolSize), e.g. to point the app or a load test at an embedded H2 database.
  */
 public class DatabaseManager {
 
@@ -25,27 +41,53 @@ public class DatabaseManager {
     private static final String DB_PASSWORD = "vgAwGWIrHhiiB6yC";
 
     // New DB_URL construction for the Pooler
-    private static final String DB_URL = String.format(
+    private static final String DEFAULT_DB_URL = String.format(
             "jdbc:postgresql://%s:%s/%s?sslmode=require&prepareThreshold=0",
             DB_HOST, DB_PORT, DB_NAME
     );
+
+    // Overrides (system properties)
+    public static final String URL_PROPERTY = "passwordmanager.db.url";
+    public static final String USER_PROPERTY = "passwordmanager.db.user";
+    public static final String PASSWORD_PROPERTY = "passwordmanager.db.password";
+    public static final String POOL_SIZE_PROPERTY = "passwordmanager.db.poolSize";
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
     // Singleton instance
-    private static DatabaseManager instance;
-    private Connection connection;
+    private static volatile DatabaseManager instance;
 
-    // ... (Private constructor, getInstance() method - NO CHANGES) ...
+    private final String dbUrl;
+    private final String dbUser;
+    private final String dbPassword;
+    private final int poolSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
 
     /**
      * Private constructor for singleton pattern
      */
     private DatabaseManager() {
-        try {
-            // Load PostgreSQL JDBC Driver
-            Class.forName("org.postgresql.Driver");
-            System.out.println("✓ PostgreSQL JDBC Driver loaded successfully");
-        } catch (ClassNotFoundException e) {
-            System.err.println("✗ PostgreSQL JDBC Driver not found!");
-            e.printStackTrace();
+        dbUrl = System.getProperty(URL_PROPERTY, DEFAULT_DB_URL);
+        dbUser = System.getProperty(USER_PROPERTY, System.getProperty(URL_PROPERTY) == null ? DB_USER : "");
+        dbPassword = System.getProperty(PASSWORD_PROPERTY, System.getProperty(URL_PROPERTY) == null ? DB_PASSWORD : "");
+        poolSize = Integer.getInteger(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+        permits = new Semaphore(poolSize, true);
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.gauge("db.pool.size", () -> this.poolSize);
+        metrics.gauge("db.pool.active", this::getActiveConnections);
+        metrics.gauge("db.pool.idle", this::getIdleConnections);
+
+        if (dbUrl.startsWith("jdbc:postgresql:")) {
+            try {
+                // Load PostgreSQL JDBC Driver
+                Class.forName("org.postgresql.Driver");
+                System.out.println("✓ PostgreSQL JDBC Driver loaded successfully");
+            } catch (ClassNotFoundException e) {
+                System.err.println("✗ PostgreSQL JDBC Driver not found!");
+                e.printStackTrace();
+            }
         }
     }
 
@@ -65,29 +107,155 @@ public class DatabaseManager {
 
 
     /**
-     * Establish connection to database
+     * Borrows a connection from the pool, opening a new one if none is idle.
+     * Closing the returned connection gives it back to the pool.
+     * @throws SQLException if no connection frees up within the borrow timeout.
      */
     public Connection getConnection() throws SQLException {
-        // Check if connection is closed or null
-        if (connection == null || connection.isClosed()) {
-            try {
-                System.out.println("→ Connecting to Supabase PostgreSQL...");
-                // Print URL without password for security
-                System.out.println("→ URL: " + DB_URL);
+        long start = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Metrics.recordSince("db.pool.wait", start);
+            if (!acquired) {
+                Metrics.increment("db.pool.timeouts");
+                throw new SQLException("Timed out waiting for a database connection (pool size " + poolSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
 
-                // Pass the clean URL, username, and password separately
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        try {
+            Connection physical;
+            while ((physical = idle.pollFirst()) != null && physical.isClosed()) {
+                // Dropped by the server; discard and try the next one
+            }
+            if (physical == null) {
+                physical = openConnection();
+            }
+            return pooled(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
 
-                System.out.println("✓ Connected to database successfully!");
-                return connection;
+    private Connection openConnection() throws SQLException {
+        try {
+            System.out.println("→ Connecting to database...");
+            // Print URL without password for security
+            System.out.println("→ URL: " + dbUrl);
 
-            } catch (SQLException e) {
-                System.err.println("✗ Failed to connect to database!");
-                System.err.println("Error: " + e.getMessage());
-                throw e;
+            // Pass the clean URL, username, and password separately
+            Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+            Metrics.increment("db.pool.opened");
+
+            System.out.println("✓ Connected to database successfully!");
+            return connection;
+
+        } catch (SQLException e) {
+            System.err.println("✗ Failed to connect to database!");
+            System.err.println("Error: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Wraps a physical connection so close() returns it to the pool (once) and statements are traced
+    private Connection pooled(Connection physical) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(physical);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || physical.isClosed();
+                    case "unwrap":
+                    case "isWrapperFor":
+                        break;
+                    default:
+                        if (released) {
+                            throw new SQLException("Connection has been returned to the pool.");
+                        }
+                }
+                Object result;
+                try {
+                    result = method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                // Trace statements (timing, round-trips, slow-query log) and transaction ends
+                if (result instanceof Statement statement) {
+                    String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                    return StatementTracer.wrap(statement, method.getReturnType(), sql);
+                }
+                if (method.getName().equals("commit") || method.getName().equals("rollback")) {
+                    StatementTracer.recordRoundTrip();
+                }
+                return result;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private void release(Connection physical) {
+        try {
+            if (!physical.isClosed()) {
+                if (!physical.getAutoCommit()) {
+                    // Never hand out a connection with a half-finished transaction
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                idle.offerFirst(physical);
             }
+        } catch (SQLException e) {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Already broken
+            }
+        } finally {
+            permits.release();
         }
-        return connection;
+    }
+
+    /** @return The JDBC URL the pool connects to. */
+    public String getUrl() {
+        return dbUrl;
+    }
+
+    /** @return True when the configured database is PostgreSQL (not embedded H2). */
+    public boolean isPostgres() {
+        return dbUrl.startsWith("jdbc:postgresql:");
+    }
+
+    /**
+     * Opens a connection outside the pool, with the configured credentials, for a long-lived
+     * session of its own (e.g. LISTEN). The caller closes it; statements are not traced.
+     */
+    public Connection openDirectConnection(String url) throws SQLException {
+        return DriverManager.getConnection(url, dbUser, dbPassword);
+    }
+
+    /** @return Connections currently borrowed. */
+    public int getActiveConnections() {
+        return poolSize - permits.availablePermits();
+    }
+
+    /** @return Open connections waiting in the pool. */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /** @return Maximum number of connections. */
+    public int getPoolSize() {
+        return poolSize;
     }
 
     // ... (testConnection(), closeConnection(), and main() methods - NO CHANGES) ...
@@ -167,17 +335,18 @@ public class DatabaseManager {
     }
 
     /**
-     * Close database connection
+     * Close the idle pooled connections (borrowed ones still return to the pool)
      */
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            try {
                 connection.close();
-                System.out.println("✓ Database connection closed");
+            } catch (SQLException e) {
+                System.err.println("✗ Error closing connection: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("✗ Error closing connection: " + e.getMessage());
         }
+        System.out.println("✓ Database connections closed");
     }
 
     /**
@@ -0,0 +1,362 @@
+package com.passwordmanager.dao;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.model.PasswordEntry;
+
+/**
+ * PasswordDAO backed by a {@link LogStructuredVaultStore} file instead of PostgreSQL.
+ * Same contract and error handling as the SQL DAO.
+ *
+ * Only password entries (and restore checkpoints) live in the file. Accounts, and with
+ * them login and TOTP, stay in the users table, so file mode still needs a database; what
+ * it removes is the entry data and its per-entry queries. Features that need entry rows in
+ * SQL are off in file mode: tags ({@code TagService.isAvailable()}), attachments
+ * ({@code AttachmentService.isAvailable()}), password history and the blind search index
+ * (search scans the decrypted entries instead).
+ */
+public class FilePasswordDAO extends PasswordDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilePasswordDAO.class);
+
+    static final String VAULT_FILE_PROPERTY = "passwordmanager.vault.file";
+    private static final String RESTORE_DONE = "done";
+
+    private static FilePasswordDAO defaultInstance;
+
+    private final LogStructuredVaultStore store;
+
+    public FilePasswordDAO(LogStructuredVaultStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Shared DAO for the vault file named by {@code passwordmanager.vault.file}
+     * (default ~/.passwordmanager/vault.log). The file is opened once per process.
+     */
+    static synchronized FilePasswordDAO getDefault() {
+        if (defaultInstance == null) {
+            Path file = Paths.get(System.getProperty(VAULT_FILE_PROPERTY,
+                    Paths.get(System.getProperty("user.home"), ".passwordmanager", "vault.log").toString()));
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                defaultInstance = new FilePasswordDAO(LogStructuredVaultStore.open(file, true));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open vault file " + file, e);
+            }
+        }
+        return defaultInstance;
+    }
+
+    @Override
+    public int createEntry(PasswordEntry entry) {
+        try {
+            int entryId = store.append(entry);
+            if (entryId > 0) {
+                ChangeFeed.publish(entry.getUserId(), entryId, ChangeFeed.Op.INSERT);
+            }
+            return entryId;
+        } catch (IOException e) {
+            LOGGER.error("Error creating password entry: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    @Override
+    public int createEntries(List<PasswordEntry> entries) {
+        try {
+            int written = store.appendAll(entries);
+            if (written > 0) {
+                ChangeFeed.publish(entries.get(0).getUserId(), -1, ChangeFeed.Op.RESYNC);
+            }
+            return written;
+        } catch (IOException e) {
+            LOGGER.error("Error creating batch of {} password entries: {}", entries.size(), e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean updateEntry(PasswordEntry entry) {
+        try {
+            boolean updated = store.update(entry);
+            if (updated) {
+                ChangeFeed.publish(entry.getUserId(), entry.getId(), ChangeFeed.Op.UPDATE);
+            }
+            return updated;
+        } catch (IOException e) {
+            LOGGER.error("Error updating entry with ID {}: {}", entry.getId(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // The log keeps no password history: a password edit is a plain update
+    @Override
+    public boolean updateEntryArchivingPassword(PasswordEntry entry, int maxVersions) {
+        return updateEntry(entry);
+    }
+
+    @Override
+    public List<PasswordEntry> findAllByUserId(int userId) {
+        try {
+            return store.readAllByUser(userId);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error retrieving password entries for user {}: {}", userId, e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public Optional<PasswordEntry> findById(int entryId, int userId) {
+        try {
+            return store.read(entryId, userId);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error retrieving entry with ID {}: {}", entryId, e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<PasswordEntry> findByIds(int userId, List<Integer> entryIds) {
+        List<PasswordEntry> entries = new ArrayList<>(entryIds.size());
+        for (int entryId : entryIds) {
+            findById(entryId, userId).ifPresent(entries::add);
+        }
+        return entries;
+    }
+
+    @Override
+    public int streamAllByUserId(int userId, Consumer<PasswordEntry> consumer) {
+        try {
+            return store.forEachByUser(userId, consumer);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error streaming password entries for user {}: {}", userId, e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    // Records carry no timestamps: ages are unknown
+    @Override
+    public List<AuditRow> findAuditRows(int userId, List<Integer> entryIds) {
+        List<AuditRow> rows = new ArrayList<>();
+        for (PasswordEntry entry : entryIds == null ? findAllByUserId(userId) : findByIds(userId, entryIds)) {
+            rows.add(new AuditRow(entry, null, null));
+        }
+        return rows;
+    }
+
+    @Override
+    public Map<Integer, Integer> findRowVersions(int userId) {
+        Map<Integer, Integer> versions = new HashMap<>();
+        for (PasswordEntry entry : findAllByUserId(userId)) {
+            versions.put(entry.getId(), entry.getRowVersion());
+        }
+        return versions;
+    }
+
+    @Override
+    public Set<String> findTitlesByUserId(int userId) {
+        Set<String> titles = new HashSet<>();
+        for (PasswordEntry entry : findAllByUserId(userId)) {
+            titles.add(entry.getTitle());
+        }
+        return titles;
+    }
+
+    @Override
+    public boolean deleteEntry(int entryId, int userId) {
+        try {
+            boolean deleted = store.delete(entryId, userId);
+            if (deleted) {
+                ChangeFeed.publish(userId, entryId, ChangeFeed.Op.DELETE);
+            }
+            return deleted;
+        } catch (IOException e) {
+            LOGGER.error("Error deleting entry with ID {}: {}", entryId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // The log has no transactions or checkpoint table: each record append is atomic, and the
+    // version filter alone makes a re-run pick up exactly the rows that are still outdated.
+    // A key rotation re-run scans from the start and skips rows already under the new key.
+
+    @Override
+    public List<PasswordEntry> findBatchBelowVersion(int userId, int targetVersion, int afterId, int limit) {
+        List<PasswordEntry> batch = new ArrayList<>();
+        for (PasswordEntry entry : findAllByUserId(userId)) {
+            if (entry.getId() > afterId && entry.getEncVersion() < targetVersion) {
+                batch.add(entry);
+            }
+        }
+        batch.sort(Comparator.comparingInt(PasswordEntry::getId));
+        return batch.size() > limit ? new ArrayList<>(batch.subList(0, limit)) : batch;
+    }
+
+    @Override
+    public int reencryptBatch(int userId, int targetVersion, List<PasswordEntry> entries, int lastId) throws SQLException {
+        int rewritten = 0;
+        try {
+            for (PasswordEntry entry : entries) {
+                if (store.upgrade(entry, targetVersion)) {
+                    rewritten++;
+                    ChangeFeed.publish(userId, entry.getId(), ChangeFeed.Op.UPDATE);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error writing re-encryption batch ending at entry {}: {}", lastId, e.getMessage(), e);
+            throw new SQLException(e.getMessage(), e);
+        }
+        return rewritten;
+    }
+
+    @Override
+    public int rotateBatch(int userId, List<PasswordEntry> entries, int lastId) throws SQLException {
+        int rewritten = 0;
+        try {
+            for (PasswordEntry entry : entries) {
+                if (store.update(entry)) {
+                    rewritten++;
+                    ChangeFeed.publish(userId, entry.getId(), ChangeFeed.Op.UPDATE);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error writing key rotation batch ending at entry {}: {}", lastId, e.getMessage(), e);
+            throw new SQLException(e.getMessage(), e);
+        }
+        return rewritten;
+    }
+
+    @Override
+    public int findReencryptionCheckpoint(int userId, int targetVersion) {
+        return 0;
+    }
+
+    @Override
+    public void clearReencryptionCheckpoint(int userId, int targetVersion) {
+        // Nothing persisted
+    }
+
+    // Restore checkpoints live in a properties file next to the log, one line per user and
+    // backup: the last committed chunk, "<last>,<pending>" while a chunk is being appended, or
+    // "done". The log has no transactions, so a chunk is marked pending (durably) before its
+    // entries are appended and committed after. A chunk still pending was interrupted; the
+    // entries of it that did reach the log (same sealed password, byte for byte) are skipped.
+
+    @Override
+    public synchronized int findLastRestoredChunk(int userId, String backupId) throws SQLException {
+        try {
+            String value = loadRestoreCheckpoints().getProperty(restoreKey(userId, backupId));
+            if (value == null) {
+                return -1;
+            }
+            if (value.equals(RESTORE_DONE)) {
+                return Integer.MAX_VALUE;
+            }
+            int comma = value.indexOf(',');
+            return Integer.parseInt(comma < 0 ? value : value.substring(0, comma));
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.error("Error reading restore checkpoint for backup {}: {}", backupId, e.getMessage(), e);
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void restoreChunk(int userId, String backupId, int chunk, boolean last, List<PasswordEntry> entries) throws SQLException {
+        String key = restoreKey(userId, backupId);
+        try {
+            Properties checkpoints = loadRestoreCheckpoints();
+            List<PasswordEntry> missing = entries;
+            if (((chunk - 1) + "," + chunk).equals(checkpoints.getProperty(key))) {
+                Set<String> present = new HashSet<>();
+                for (PasswordEntry entry : findAllByUserId(userId)) {
+                    present.add(entry.getPasswordEnc());
+                }
+                missing = new ArrayList<>();
+                for (PasswordEntry entry : entries) {
+                    if (!present.contains(entry.getPasswordEnc())) {
+                        missing.add(entry);
+                    }
+                }
+            }
+
+            checkpoints.setProperty(key, (chunk - 1) + "," + chunk);
+            storeRestoreCheckpoints(checkpoints);
+            if (!missing.isEmpty()) {
+                store.appendAll(missing);
+                ChangeFeed.publish(userId, -1, ChangeFeed.Op.RESYNC);
+            }
+            checkpoints.setProperty(key, last ? RESTORE_DONE : String.valueOf(chunk));
+            storeRestoreCheckpoints(checkpoints);
+        } catch (IOException e) {
+            LOGGER.error("Error restoring chunk {} of backup {}: {}", chunk, backupId, e.getMessage(), e);
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private Path restoreCheckpointFile() {
+        Path log = store.getFile();
+        return log.resolveSibling(log.getFileName() + ".restore");
+    }
+
+    private Properties loadRestoreCheckpoints() throws IOException {
+        Properties checkpoints = new Properties();
+        Path file = restoreCheckpointFile();
+        if (Files.exists(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                checkpoints.load(in);
+            }
+        }
+        return checkpoints;
+    }
+
+    // Written to a temporary file, synced, then renamed over the old one
+    private void storeRestoreCheckpoints(Properties checkpoints) throws IOException {
+        Path file = restoreCheckpointFile();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8)) {
+            checkpoints.store(out, null);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String restoreKey(int userId, String backupId) {
+        return userId + "." + backupId;
+    }
+
+    /**
+     * Decrypts a password directly from the mapped vault file (no Base64 round-trip).
+     */
+    public Optional<String> decryptPassword(int entryId, int userId, byte[] masterKeyBytes) throws Exception {
+        return store.decryptPassword(entryId, userId, masterKeyBytes);
+    }
+}
@@ -0,0 +1,32 @@
+package com.passwordmanager.dao;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Change feed for H2 and the file store: the DAOs report their own writes, which are handed
+ * to subscribers on a single background thread (so a slow listener never holds up a write).
+ * Only sees writes made by this process.
+ */
+final class LocalChangeFeed extends ChangeFeed {
+
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    void written(Change change) {
+        if (!hasSubscribers()) {
+            return; // Nobody has a window open (e.g. a bulk load)
+        }
+        delivery.execute(() -> dispatch(change));
+    }
+
+    @Override
+    public void close() {
+        delivery.shutdownNow();
+        super.close();
+    }
+}
@@ -0,0 +1,801 @@
+package com.passwordmanager.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.util.AesGcmEncryptionUtil;
+import com.passwordmanager.util.EntryFieldCipher;
+
+/**
+ * Append-only, single-file vault for machines without a database server.
+ *
+ * Every change is appended as a CRC-checked record; deletes are tombstones. The file is
+ * memory-mapped read-only and scanned once on open to rebuild the id -> offset index, so
+ * reads are slices of the mapping. Writers grow the mapping under the write lock, ahead of
+ * the data and in large steps, so readers never remap; the file is zero-filled up to the
+ * end of the mapping and trimmed back to its records on close. A torn record or
+ * preallocated zeros at the tail (crash mid-append) are truncated away on open. A background task compacts the log into a fresh file once dead
+ * records outweigh live ones, and swaps it in with fsync + atomic rename.
+ *
+ * Record layout: int bodyLength | int crc32c(body) | body
+ * body: byte type | int entryId | int userId | [PUT only] 8 x (int length | bytes)
+ * for title (UTF-8), username, password, nonce, note, note nonce (raw, not Base64),
+ * row version (int) and URL (raw). Records written before row versions existed end after
+ * the sixth field and read as version 1; records without the eighth field have no URL.
+ *
+ * Entry ids are never reused: the next id is one past the highest id in any record, and
+ * compaction keeps a tombstone for the highest id when that entry is gone. The file is
+ * addressed with int offsets (one mapping), so it may not grow past 2 GB; appends beyond
+ * that fail with an IOException.
+ */
+public class LogStructuredVaultStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredVaultStore.class);
+
+    private static final byte[] MAGIC = "PMVLOG01".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_LENGTH = MAGIC.length;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int MAX_BODY_LENGTH = 16 * 1024 * 1024;
+    private static final long MAX_FILE_LENGTH = Integer.MAX_VALUE; // One MappedByteBuffer, int offsets
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+
+    // Field order inside a PUT body
+    private static final int FIELD_TITLE = 0;
+    private static final int FIELD_USERNAME = 1;
+    private static final int FIELD_PASSWORD = 2;
+    private static final int FIELD_NONCE = 3;
+    private static final int FIELD_NOTE = 4;
+    private static final int FIELD_NOTE_NONCE = 5;
+    private static final int FIELD_ROW_VERSION = 6;
+    private static final int FIELD_URL = 7;
+    private static final int FIELD_COUNT = 8;
+
+    // Compaction policy
+    private static final long COMPACTION_CHECK_SECONDS = 30;
+    private static final long COMPACTION_MIN_DEAD_BYTES = 1024 * 1024;
+    // The mapping doubles when an append outgrows it, by at least 1 MiB and at most 64 MiB
+    private static final long MIN_MAP_GROWTH = 1024 * 1024;
+    private static final long MAX_MAP_GROWTH = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final boolean syncEachWrite;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService compactor;
+    private final Object compactionMonitor = new Object();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer mapped;
+    private OffsetIndex index;
+    private long writePosition;
+    private long liveBytes;
+    private int nextId;
+
+    private LogStructuredVaultStore(Path file, boolean syncEachWrite) {
+        this.file = file;
+        this.syncEachWrite = syncEachWrite;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vault-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens (or creates) the vault log, recovering from a torn tail and rebuilding the index.
+     * @param file Path of the vault log.
+     * @param syncEachWrite fsync after every append; turn off only for bulk loads.
+     */
+    public static LogStructuredVaultStore open(Path file, boolean syncEachWrite) throws IOException {
+        LogStructuredVaultStore store = new LogStructuredVaultStore(file, syncEachWrite);
+        store.openChannel();
+        store.recover();
+        store.compactor.scheduleWithFixedDelay(store::compactIfWorthwhile,
+                COMPACTION_CHECK_SECONDS, COMPACTION_CHECK_SECONDS, TimeUnit.SECONDS);
+        return store;
+    }
+
+    /** @return The path of the vault log. */
+    public Path getFile() {
+        return file;
+    }
+
+    // --- WRITES ---
+
+    /**
+     * Appends a new entry and assigns its id.
+     * @return The new entry id.
+     */
+    public int append(PasswordEntry entry) throws IOException {
+        lock.writeLock().lock();
+        try {
+            entry.setId(nextId++);
+            long offset = appendRecord(encodePut(entry));
+            index.put(entry.getId(), entry.getUserId(), offset);
+            liveBytes += recordLength(offset);
+            return entry.getId();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends several entries with a single fsync at the end.
+     * @return The number of entries written.
+     */
+    public int appendAll(List<PasswordEntry> entries) throws IOException {
+        lock.writeLock().lock();
+        try {
+            // Encoded up front so a batch that would not fit fails before any of it is written
+            List<ByteBuffer> bodies = new ArrayList<>(entries.size());
+            long batchLength = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                ByteBuffer body = encodePut(entries.get(i));
+                body.putInt(1, nextId + i);
+                bodies.add(body);
+                batchLength += RECORD_HEADER_LENGTH + body.remaining();
+            }
+            checkCapacity(batchLength);
+            for (int i = 0; i < entries.size(); i++) {
+                PasswordEntry entry = entries.get(i);
+                entry.setId(nextId++);
+                long offset = appendRecordNoSync(bodies.get(i));
+                index.put(entry.getId(), entry.getUserId(), offset);
+                liveBytes += recordLength(offset);
+            }
+            if (syncEachWrite) {
+                channel.force(false);
+            }
+            return entries.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Supersedes an existing entry owned by the same user, only while the stored copy is
+     * still at the entry's row version; the stored row version is then advanced.
+     * @return false if the entry does not exist, belongs to another user, or was changed since it was read.
+     */
+    public boolean update(PasswordEntry entry) throws IOException {
+        lock.writeLock().lock();
+        try {
+            long previous = index.offsetOf(entry.getId(), entry.getUserId());
+            if (previous < 0 || rowVersion(body(previous)) != entry.getRowVersion()) {
+                return false;
+            }
+            entry.setRowVersion(entry.getRowVersion() + 1);
+            long offset = appendRecord(encodePut(entry));
+            liveBytes += recordLength(offset) - recordLength(previous);
+            index.put(entry.getId(), entry.getUserId(), offset);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Supersedes an entry's encrypted fields only while the stored copy is still below
+     * {@code targetVersion}; the title is kept from the stored copy. Used by re-encryption,
+     * so a concurrent user edit is never overwritten with older content.
+     * @return false if the entry is missing, foreign, or already upgraded.
+     */
+    public boolean upgrade(PasswordEntry entry, int targetVersion) throws IOException {
+        lock.writeLock().lock();
+        try {
+            long previous = index.offsetOf(entry.getId(), entry.getUserId());
+            if (previous < 0) {
+                return false;
+            }
+            PasswordEntry current = decodePut(body(previous));
+            if (current.getEncVersion() >= targetVersion) {
+                return false;
+            }
+            entry.setTitle(current.getTitle());
+            entry.setUrlEnc(current.getUrlEnc());
+            entry.setRowVersion(current.getRowVersion()); // Same content, so not a new version
+            long offset = appendRecord(encodePut(entry));
+            liveBytes += recordLength(offset) - recordLength(previous);
+            index.put(entry.getId(), entry.getUserId(), offset);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a tombstone for the entry.
+     * @return false if the entry does not exist or belongs to another user.
+     */
+    public boolean delete(int entryId, int userId) throws IOException {
+        lock.writeLock().lock();
+        try {
+            long previous = index.offsetOf(entryId, userId);
+            if (previous < 0) {
+                return false;
+            }
+            appendRecord(encodeDelete(entryId, userId));
+            liveBytes -= recordLength(previous);
+            index.remove(entryId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- READS ---
+
+    public Optional<PasswordEntry> read(int entryId, int userId) {
+        lock.readLock().lock();
+        try {
+            long offset = index.offsetOf(entryId, userId);
+            return offset < 0 ? Optional.empty() : Optional.of(decodePut(body(offset)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<PasswordEntry> readAllByUser(int userId) {
+        lock.readLock().lock();
+        try {
+            List<PasswordEntry> entries = new ArrayList<>();
+            index.forEachOwnedBy(userId, offset -> entries.add(decodePut(body(offset))));
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Decodes a user's entries one at a time, without building a list.
+     * @return The number of entries visited.
+     */
+    public int forEachByUser(int userId, Consumer<PasswordEntry> consumer) {
+        lock.readLock().lock();
+        try {
+            int[] count = new int[1];
+            index.forEachOwnedBy(userId, offset -> {
+                consumer.accept(decodePut(body(offset)));
+                count[0]++;
+            });
+            return count[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Decrypts an entry's password straight from the mapped file, without materialising
+     * the record or its Base64 form.
+     * @return The plaintext password, or empty if the entry does not exist.
+     */
+    public Optional<String> decryptPassword(int entryId, int userId, byte[] masterKeyBytes) throws Exception {
+        lock.readLock().lock();
+        try {
+            long offset = index.offsetOf(entryId, userId);
+            if (offset < 0) {
+                return Optional.empty();
+            }
+            ByteBuffer body = body(offset);
+            ByteBuffer cipherText = field(body, FIELD_PASSWORD);
+            ByteBuffer nonce = field(body, FIELD_NONCE);
+            if (nonce == null) {
+                // Current format: the nonce travels with the ciphertext
+                return Optional.of(EntryFieldCipher.open(cipherText, masterKeyBytes, userId, EntryFieldCipher.FIELD_PASSWORD));
+            }
+            return Optional.of(AesGcmEncryptionUtil.decrypt(cipherText, nonce, masterKeyBytes));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- COMPACTION ---
+
+    /**
+     * Rewrites the live records into a new file and atomically replaces the log.
+     * Appends made while the bulk copy runs are replayed under the write lock at the end.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionMonitor) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        long snapshotEnd;
+        OffsetIndex snapshot;
+        MappedByteBuffer source;
+        lock.writeLock().lock();
+        try {
+            snapshotEnd = writePosition;
+            snapshot = index.copy();
+            source = mapped; // Covers snapshotEnd: writers grow it before appending
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(MAGIC));
+            OffsetIndex compacted = new OffsetIndex(Math.max(16, snapshot.size() * 2));
+
+            // 1. Bulk copy of the snapshot without holding the lock; everything before
+            //    snapshotEnd is immutable, so readers and writers keep going meanwhile
+            snapshot.forEach((id, owner, offset) -> compacted.put(id, owner, copyRecord(source, offset, out)));
+
+            lock.writeLock().lock();
+            try {
+                // 2. Replay whatever was appended since the snapshot
+                long position = snapshotEnd;
+                while (position < writePosition) {
+                    ByteBuffer body = body(position);
+                    byte type = body.get(0);
+                    int id = body.getInt(1);
+                    if (type == TYPE_PUT) {
+                        compacted.put(id, body.getInt(5), copyRecord(mapped, position, out));
+                    } else if (compacted.offsetOf(id, body.getInt(5)) >= 0) {
+                        copyRecord(mapped, position, out);
+                        compacted.remove(id);
+                    }
+                    position += RECORD_HEADER_LENGTH + body.capacity();
+                }
+
+                // 3. Keep the highest id ever assigned: if that entry is gone, its tombstone stays,
+                //    so a reopen does not hand the id out again
+                int highestId = nextId - 1;
+                if (highestId > 0 && compacted.offsetOf(highestId, -1) < 0) {
+                    ByteBuffer tombstone = frame(encodeDelete(highestId, 0));
+                    while (tombstone.hasRemaining()) {
+                        out.write(tombstone);
+                    }
+                }
+
+                // 4. Make the new file durable, then swap it in atomically
+                out.force(true);
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                syncDirectory();
+
+                channel.close();
+                openChannel();
+                writePosition = channel.size();
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, writePosition);
+                index = compacted;
+                // Tombstones copied above are dead weight from the start
+                long[] live = new long[1];
+                index.forEach((id, owner, offset) -> live[0] += RECORD_HEADER_LENGTH + mapped.getInt((int) offset));
+                liveBytes = live[0];
+                LOGGER.info("Compacted vault log {} to {} bytes ({} entries)", file, writePosition, index.size());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void compactIfWorthwhile() {
+        try {
+            long deadBytes;
+            lock.readLock().lock();
+            try {
+                deadBytes = writePosition - HEADER_LENGTH - liveBytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (deadBytes > COMPACTION_MIN_DEAD_BYTES && deadBytes > liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Vault log compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        lock.writeLock().lock();
+        try {
+            mapped = null;
+            channel.truncate(writePosition); // Drop the zero-filled tail beyond the mapping's data
+            channel.force(true);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- RECOVERY ---
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void recover() throws IOException {
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+            channel.force(true);
+        }
+        long size = channel.size();
+        if (size > MAX_FILE_LENGTH) {
+            throw new IOException("Vault log " + file + " is larger than 2 GB and cannot be mapped");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        byte[] magic = new byte[HEADER_LENGTH];
+        mapped.get(0, magic);
+        if (!java.util.Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a vault log: " + file);
+        }
+
+        index = new OffsetIndex(1024);
+        CRC32C crc = new CRC32C();
+        long position = HEADER_LENGTH;
+        int maxId = 0;
+        while (position + RECORD_HEADER_LENGTH <= size) {
+            int length = mapped.getInt((int) position);
+            if (length < 9 || length > MAX_BODY_LENGTH || position + RECORD_HEADER_LENGTH + length > size) {
+                break;
+            }
+            ByteBuffer body = mapped.slice((int) position + RECORD_HEADER_LENGTH, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != mapped.getInt((int) position + 4)) {
+                break;
+            }
+            int id = body.getInt(1);
+            maxId = Math.max(maxId, id);
+            if (body.get(0) == TYPE_PUT) {
+                long previous = index.offsetOf(id, -1);
+                if (previous >= 0) {
+                    liveBytes -= recordLength(previous);
+                }
+                index.put(id, body.getInt(5), position);
+                liveBytes += RECORD_HEADER_LENGTH + length;
+            } else {
+                long previous = index.offsetOf(id, -1);
+                if (previous >= 0) {
+                    liveBytes -= recordLength(previous);
+                    index.remove(id);
+                }
+            }
+            position += RECORD_HEADER_LENGTH + length;
+        }
+
+        if (position < size) {
+            if (isZeroFilled(position, size)) {
+                LOGGER.debug("Dropping {} preallocated bytes at the end of vault log {}", size - position, file);
+            } else {
+                LOGGER.warn("Truncating torn tail of vault log {} at offset {} (was {} bytes)", file, position, size);
+            }
+            channel.truncate(position);
+            channel.force(true);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+        }
+        writePosition = position;
+        nextId = maxId + 1;
+        LOGGER.info("Opened vault log {}: {} entries, {} bytes", file, index.size(), position);
+    }
+
+    private boolean isZeroFilled(long from, long to) {
+        for (long i = from; i < to; i++) {
+            if (mapped.get((int) i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform (e.g. Windows); the rename itself is still atomic
+            LOGGER.debug("Directory fsync not supported: {}", e.getMessage());
+        }
+    }
+
+    // --- RECORD ENCODING ---
+
+    private long appendRecord(ByteBuffer body) throws IOException {
+        long offset = appendRecordNoSync(body);
+        if (syncEachWrite) {
+            channel.force(false);
+        }
+        return offset;
+    }
+
+    private long appendRecordNoSync(ByteBuffer body) throws IOException {
+        ByteBuffer record = frame(body);
+        checkCapacity(record.remaining());
+        ensureMapped(writePosition + record.remaining());
+
+        long offset = writePosition;
+        while (record.hasRemaining()) {
+            writePosition += channel.write(record, writePosition);
+        }
+        return offset;
+    }
+
+    /** Refuses writes that would take the file past what one mapping can address. */
+    private void checkCapacity(long length) throws IOException {
+        if (writePosition + length > MAX_FILE_LENGTH) {
+            throw new IOException("Vault log " + file + " would grow past 2 GB; compact it or move the vault to SQL storage");
+        }
+    }
+
+    /** Prefixes a body with its length and CRC. */
+    private static ByteBuffer frame(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + body.remaining());
+        record.putInt(body.remaining()).putInt((int) crc.getValue()).put(body).flip();
+        return record;
+    }
+
+    private static ByteBuffer encodeDelete(int entryId, int userId) {
+        ByteBuffer body = ByteBuffer.allocate(9);
+        body.put(TYPE_DELETE).putInt(entryId).putInt(userId).flip();
+        return body;
+    }
+
+    private static long copyRecord(MappedByteBuffer source, long offset, FileChannel out) {
+        try {
+            long target = out.position();
+            int length = RECORD_HEADER_LENGTH + source.getInt((int) offset);
+            ByteBuffer record = source.slice((int) offset, length);
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ByteBuffer encodePut(PasswordEntry entry) {
+        byte[][] fields = new byte[FIELD_COUNT][];
+        fields[FIELD_TITLE] = entry.getTitle() == null ? null : entry.getTitle().getBytes(StandardCharsets.UTF_8);
+        fields[FIELD_USERNAME] = decodeBase64(entry.getUsernameEnc());
+        fields[FIELD_PASSWORD] = decodeBase64(entry.getPasswordEnc());
+        fields[FIELD_NONCE] = decodeBase64(entry.getEntryNonce());
+        fields[FIELD_NOTE] = decodeBase64(entry.getNoteEnc());
+        fields[FIELD_NOTE_NONCE] = decodeBase64(entry.getNoteNonce());
+        fields[FIELD_ROW_VERSION] = ByteBuffer.allocate(4).putInt(entry.getRowVersion()).array();
+        fields[FIELD_URL] = decodeBase64(entry.getUrlEnc());
+
+        int length = 9;
+        for (byte[] field : fields) {
+            length += 4 + (field == null ? 0 : field.length);
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.put(TYPE_PUT).putInt(entry.getId()).putInt(entry.getUserId());
+        for (byte[] field : fields) {
+            if (field == null) {
+                body.putInt(-1);
+            } else {
+                body.putInt(field.length).put(field);
+            }
+        }
+        return body.flip();
+    }
+
+    private static PasswordEntry decodePut(ByteBuffer body) {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setId(body.getInt(1));
+        entry.setUserId(body.getInt(5));
+        ByteBuffer title = field(body, FIELD_TITLE);
+        entry.setTitle(title == null ? null : StandardCharsets.UTF_8.decode(title).toString());
+        entry.setUsernameEnc(encodeBase64(field(body, FIELD_USERNAME)));
+        entry.setPasswordEnc(encodeBase64(field(body, FIELD_PASSWORD)));
+        entry.setEntryNonce(encodeBase64(field(body, FIELD_NONCE)));
+        entry.setNoteEnc(encodeBase64(field(body, FIELD_NOTE)));
+        entry.setNoteNonce(encodeBase64(field(body, FIELD_NOTE_NONCE)));
+        entry.setUrlEnc(encodeBase64(field(body, FIELD_URL)));
+        // Records carry no version byte; only the legacy format has a separate password nonce
+        entry.setEncVersion(entry.getEntryNonce() == null ? EntryFieldCipher.VERSION_CURRENT : EntryFieldCipher.VERSION_LEGACY);
+        entry.setRowVersion(rowVersion(body));
+        return entry;
+    }
+
+    private static int rowVersion(ByteBuffer body) {
+        ByteBuffer version = field(body, FIELD_ROW_VERSION);
+        return version == null ? 1 : version.getInt(0);
+    }
+
+    /** Returns a slice over the n-th field of a PUT body, or null if the field is null or absent (older record). */
+    private static ByteBuffer field(ByteBuffer body, int n) {
+        int position = 9;
+        for (int i = 0; i < n; i++) {
+            position += 4 + Math.max(0, body.getInt(position));
+        }
+        if (position >= body.capacity()) {
+            return null;
+        }
+        int length = body.getInt(position);
+        return length < 0 ? null : body.slice(position + 4, length);
+    }
+
+    private ByteBuffer body(long offset) {
+        int length = mapped.getInt((int) offset);
+        return mapped.slice((int) offset + RECORD_HEADER_LENGTH, length);
+    }
+
+    private long recordLength(long offset) {
+        return RECORD_HEADER_LENGTH + body(offset).capacity();
+    }
+
+    /**
+     * Grows the mapping (and with it the file) so it covers {@code end}. Called with the
+     * write lock held, before the bytes are written; the old mapping is released by GC.
+     */
+    private void ensureMapped(long end) throws IOException {
+        if (end <= mapped.capacity()) {
+            return;
+        }
+        long growth = Math.min(MAX_MAP_GROWTH, Math.max(MIN_MAP_GROWTH, mapped.capacity()));
+        long size = Math.min(MAX_FILE_LENGTH, Math.max(end, mapped.capacity() + growth));
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private static byte[] decodeBase64(String value) {
+        return value == null ? null : Base64.getDecoder().decode(value);
+    }
+
+    private static String encodeBase64(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        return StandardCharsets.ISO_8859_1.decode(Base64.getEncoder().encode(value)).toString();
+    }
+
+    // --- INDEX ---
+
+    /**
+     * Open-addressing id -> (owner, offset) map over primitive arrays, so a million-entry
+     * vault costs three flat arrays rather than a million boxed map nodes.
+     */
+    private static final class OffsetIndex {
+
+        interface Visitor { void visit(int id, int owner, long offset); }
+        interface OffsetVisitor { void visit(long offset); }
+
+        private int[] ids;
+        private int[] owners;
+        private long[] offsets;
+        private int size;
+
+        OffsetIndex(int capacity) {
+            int slots = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            ids = new int[slots];
+            owners = new int[slots];
+            offsets = new long[slots];
+        }
+
+        int size() { return size; }
+
+        /** @param owner expected owner, or -1 to skip the ownership check. */
+        long offsetOf(int id, int owner) {
+            int slot = find(id);
+            if (ids[slot] == 0 || (owner != -1 && owners[slot] != owner)) {
+                return -1;
+            }
+            return offsets[slot];
+        }
+
+        void put(int id, int owner, long offset) {
+            if ((size + 1) * 4 > ids.length * 3) {
+                grow();
+            }
+            int slot = find(id);
+            if (ids[slot] == 0) {
+                ids[slot] = id;
+                size++;
+            }
+            owners[slot] = owner;
+            offsets[slot] = offset;
+        }
+
+        void remove(int id) {
+            int slot = find(id);
+            if (ids[slot] == 0) {
+                return;
+            }
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int mask = ids.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (ids[next] != 0) {
+                int home = hash(ids[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    ids[hole] = ids[next];
+                    owners[hole] = owners[next];
+                    offsets[hole] = offsets[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            ids[hole] = 0;
+            size--;
+        }
+
+        void forEach(Visitor visitor) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != 0) {
+                    visitor.visit(ids[i], owners[i], offsets[i]);
+                }
+            }
+        }
+
+        void forEachOwnedBy(int owner, OffsetVisitor visitor) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != 0 && owners[i] == owner) {
+                    visitor.visit(offsets[i]);
+                }
+            }
+        }
+
+        OffsetIndex copy() {
+            OffsetIndex copy = new OffsetIndex(ids.length);
+            System.arraycopy(ids, 0, copy.ids, 0, ids.length);
+            System.arraycopy(owners, 0, copy.owners, 0, ids.length);
+            System.arraycopy(offsets, 0, copy.offsets, 0, ids.length);
+            copy.size = size;
+            return copy;
+        }
+
+        private int find(int id) {
+            int mask = ids.length - 1;
+            int slot = hash(id) & mask;
+            while (ids[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldIds = ids;
+            int[] oldOwners = owners;
+            long[] oldOffsets = offsets;
+            ids = new int[oldIds.length * 2];
+            owners = new int[oldIds.length * 2];
+            offsets = new long[oldIds.length * 2];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    put(oldIds[i], oldOwners[i], oldOffsets[i]);
+                }
+            }
+        }
+
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
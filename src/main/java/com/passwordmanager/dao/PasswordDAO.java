@@ -5,35 +5,104 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.SqlEvent;
+
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.util.EntryFieldCipher;
 
 public class PasswordDAO {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PasswordDAO.class);
 
+    static final String STORAGE_PROPERTY = "passwordmanager.storage";
+    /** Checkpoint "target version" of a data-key rotation (format versions start at 1). */
+    public static final int KEY_ROTATION = 0;
+    private static final int STREAM_FETCH_SIZE = 500;
+
     // SQL Statements adjusted to your schema's column names
-    private static final String INSERT_PASSWORD_SQL =
-            "INSERT INTO passwords (user_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String INSERT_PASSWORD_SQL =
+            "INSERT INTO passwords (user_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce, enc_version, url) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SELECT_ALL_BY_USER_SQL =
-            "SELECT password_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce FROM passwords WHERE user_id = ?";
+            "SELECT password_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce, enc_version, row_version, url FROM passwords WHERE user_id = ?";
+    private static final String SELECT_BY_ID_SQL =
+            "SELECT password_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce, enc_version, row_version, url FROM passwords WHERE password_id = ? AND user_id = ?";
+    private static final String SELECT_BY_IDS_SQL =
+            "SELECT password_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce, enc_version, row_version, url FROM passwords WHERE user_id = ? AND password_id IN (%s) ORDER BY password_id";
+    private static final int MAX_IDS_PER_QUERY = 500;
     private static final String DELETE_PASSWORD_SQL =
             "DELETE FROM passwords WHERE password_id = ? AND user_id = ?";
-    // ADDED UPDATE functionality
+    private static final String SELECT_TITLES_BY_USER_SQL =
+            "SELECT title FROM passwords WHERE user_id = ?";
+    // Optimistic update: only applies to the row version the caller read
     private static final String UPDATE_PASSWORD_SQL =
-            "UPDATE passwords SET title = ?, username = ?, encrypted_password = ?, nonce = ?, encrypted_note = ?, note_nonce = ?, updated_at = CURRENT_TIMESTAMP WHERE password_id = ? AND user_id = ?";
+            "UPDATE passwords SET title = ?, username = ?, encrypted_password = ?, nonce = ?, encrypted_note = ?, note_nonce = ?, enc_version = ?, url = ?, row_version = row_version + 1, updated_at = CURRENT_TIMESTAMP WHERE password_id = ? AND user_id = ? AND row_version = ?";
+    // Password history: the current sealed password is copied out (only if the row is still at the
+    // expected row version and in the current field format) before the update, and the entry's
+    // oldest versions beyond the cap are dropped, all in the update's transaction
+    private static final String ARCHIVE_PASSWORD_SQL =
+            "INSERT INTO password_history (password_id, user_id, encrypted_password, row_version) SELECT password_id, user_id, encrypted_password, row_version FROM passwords WHERE password_id = ? AND user_id = ? AND row_version = ? AND enc_version = ?";
+    private static final String UPDATE_PASSWORD_CHANGED_SQL =
+            "UPDATE passwords SET title = ?, username = ?, encrypted_password = ?, nonce = ?, encrypted_note = ?, note_nonce = ?, enc_version = ?, url = ?, row_version = row_version + 1, updated_at = CURRENT_TIMESTAMP, password_changed_at = CURRENT_TIMESTAMP WHERE password_id = ? AND user_id = ? AND row_version = ?";
+    private static final String TRIM_HISTORY_SQL =
+            "DELETE FROM password_history WHERE password_id = ? AND history_id <= (SELECT history_id FROM password_history WHERE password_id = ? ORDER BY history_id DESC LIMIT 1 OFFSET ?)";
+    // Vault audit: just the password, its dates and row version, for all rows or the ones whose version moved
+    private static final String SELECT_AUDIT_SQL =
+            "SELECT password_id, title, encrypted_password, nonce, enc_version, row_version, updated_at, password_changed_at FROM passwords WHERE user_id = ?";
+    private static final String SELECT_AUDIT_BY_IDS_SQL = SELECT_AUDIT_SQL + " AND password_id IN (%s)";
+    private static final String SELECT_ROW_VERSIONS_SQL =
+            "SELECT password_id, row_version FROM passwords WHERE user_id = ?";
+    // Re-encryption job: keyset batches of rows below a format version, guarded rewrites, resumable checkpoints
+    private static final String SELECT_BELOW_VERSION_SQL =
+            "SELECT password_id, title, username, encrypted_password, nonce, encrypted_note, note_nonce, enc_version, row_version, url FROM passwords WHERE user_id = ? AND enc_version < ? AND password_id > ? ORDER BY password_id LIMIT ?";
+    private static final String REENCRYPT_PASSWORD_SQL =
+            "UPDATE passwords SET username = ?, encrypted_password = ?, nonce = ?, encrypted_note = ?, note_nonce = ?, enc_version = ? WHERE password_id = ? AND user_id = ? AND enc_version < ?";
+    private static final String ROTATE_PASSWORD_SQL =
+            "UPDATE passwords SET username = ?, encrypted_password = ?, nonce = ?, encrypted_note = ?, note_nonce = ?, enc_version = ?, url = ?, row_version = row_version + 1 WHERE password_id = ? AND user_id = ? AND row_version = ?";
+    private static final String SELECT_REENCRYPTION_CHECKPOINT_SQL =
+            "SELECT last_password_id FROM reencryption_checkpoints WHERE user_id = ? AND target_version = ?";
+    private static final String UPDATE_REENCRYPTION_CHECKPOINT_SQL =
+            "UPDATE reencryption_checkpoints SET last_password_id = ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ? AND target_version = ?";
+    private static final String INSERT_REENCRYPTION_CHECKPOINT_SQL =
+            "INSERT INTO reencryption_checkpoints (user_id, target_version, last_password_id) VALUES (?, ?, ?)";
+    private static final String DELETE_REENCRYPTION_CHECKPOINT_SQL =
+            "DELETE FROM reencryption_checkpoints WHERE user_id = ? AND target_version = ?";
+
+    private final BackupDAO backupDAO = new BackupDAO();
 
+    /**
+     * Returns the DAO for the storage backend selected by the
+     * {@code passwordmanager.storage} system property: {@code sql} (default)
+     * or {@code file} for the single-file vault at {@code passwordmanager.vault.file}.
+     */
+    public static PasswordDAO forConfiguredStorage() {
+        if ("file".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY, "sql"))) {
+            return FilePasswordDAO.getDefault();
+        }
+        return new PasswordDAO();
+    }
 
     /**
      * Saves a new encrypted password entry to the database.
+     * @return The generated password_id (also set on the entry), or -1 on failure.
      */
     public int createEntry(PasswordEntry entry) {
         int entryId = -1;
+        SqlEvent event = new SqlEvent("db.PasswordDAO.createEntry");
         try (Connection conn = DatabaseManager.getInstance().getConnection();
             PreparedStatement preparedStatement = conn.prepareStatement(INSERT_PASSWORD_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
@@ -46,89 +115,690 @@ public class PasswordDAO {
             preparedStatement.setString(5, entry.getEntryNonce());     // nonce (for password)
             preparedStatement.setString(6, entry.getNoteEnc());        // encrypted_note
             preparedStatement.setString(7, entry.getNoteNonce());      // note_nonce
+            preparedStatement.setInt(8, entry.getEncVersion());        // enc_version
+            preparedStatement.setString(9, entry.getUrlEnc());         // url (encrypted)
 
-            if (preparedStatement.executeUpdate() > 0) {
-                // ... rest of the method ...
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            if (rows > 0) {
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        entryId = keys.getInt(1);
+                        entry.setId(entryId);
+                    }
+                }
+                ChangeFeed.publish(entry.getUserId(), entryId, ChangeFeed.Op.INSERT);
             }
         } catch (SQLException e) {
+            Metrics.increment("db.errors");
             LOGGER.error("Error creating password entry: {}", e.getMessage(), e);
+        } finally {
+            event.finish();
         }
         return entryId;
     }
 
     /**
-     * Updates an existing encrypted password entry.
+     * Saves several encrypted entries in one transaction using a JDBC batch,
+     * so an import costs one round-trip per batch instead of one per entry.
+     * @return The number of entries written, or -1 if the batch was rolled back.
+     */
+    public int createEntries(List<PasswordEntry> entries) {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.createEntries");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = conn.prepareStatement(INSERT_PASSWORD_SQL)) {
+                for (PasswordEntry entry : entries) {
+                    preparedStatement.setInt(1, entry.getUserId());
+                    preparedStatement.setString(2, entry.getTitle());
+                    preparedStatement.setString(3, entry.getUsernameEnc());
+                    preparedStatement.setString(4, entry.getPasswordEnc());
+                    preparedStatement.setString(5, entry.getEntryNonce());
+                    preparedStatement.setString(6, entry.getNoteEnc());
+                    preparedStatement.setString(7, entry.getNoteNonce());
+                    preparedStatement.setInt(8, entry.getEncVersion());
+                    preparedStatement.setString(9, entry.getUrlEnc());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                conn.commit();
+                event.setRows(entries.size());
+                if (!entries.isEmpty()) {
+                    // Bulk load: subscribers reload rather than fetch row by row
+                    ChangeFeed.publish(entries.get(0).getUserId(), -1, ChangeFeed.Op.RESYNC);
+                }
+                return entries.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error creating batch of {} password entries: {}", entries.size(), e.getMessage(), e);
+            return -1;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Updates an existing encrypted password entry, only if it is still at the row version
+     * the entry carries (i.e. nobody saved it since it was read). On success the entry's
+     * row version is advanced to the stored one.
+     * @return false if the entry is missing or was changed in the meantime (re-read and merge).
      */
     public boolean updateEntry(PasswordEntry entry) {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.updateEntry");
         try (Connection conn = DatabaseManager.getInstance().getConnection();
             PreparedStatement preparedStatement = conn.prepareStatement(UPDATE_PASSWORD_SQL)) {
 
-            preparedStatement.setString(1, entry.getTitle());
-            preparedStatement.setString(2, entry.getUsernameEnc());
-            preparedStatement.setString(3, entry.getPasswordEnc());
-            preparedStatement.setString(4, entry.getEntryNonce());
-            preparedStatement.setString(5, entry.getNoteEnc());
-            preparedStatement.setString(6, entry.getNoteNonce());
-            preparedStatement.setInt(7, entry.getId());        // WHERE password_id
-            preparedStatement.setInt(8, entry.getUserId());    // WHERE user_id
+            setUpdateParameters(preparedStatement, entry);
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            if (rows > 0) {
+                entry.setRowVersion(entry.getRowVersion() + 1);
+                ChangeFeed.publish(entry.getUserId(), entry.getId(), ChangeFeed.Op.UPDATE);
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error updating entry with ID {}: {}", entry.getId(), e.getMessage(), e);
+            return false;
+        } finally {
+            event.finish();
+        }
+    }
+
 
-            return preparedStatement.executeUpdate() > 0;
+    /**
+     * As {@link #updateEntry(PasswordEntry)}, for an edit that changes the password: the
+     * stored password is first copied to password_history, and the entry's history is then
+     * trimmed to {@code maxVersions}, all in one transaction. A stored password in the legacy
+     * field format is not archived (it could not be restored into a current-format row).
+     * @return false if the entry is missing or was changed in the meantime (nothing is written).
+     */
+    public boolean updateEntryArchivingPassword(PasswordEntry entry, int maxVersions) {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.updateEntryArchivingPassword");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement archive = conn.prepareStatement(ARCHIVE_PASSWORD_SQL);
+                 PreparedStatement update = conn.prepareStatement(UPDATE_PASSWORD_CHANGED_SQL);
+                 PreparedStatement trim = conn.prepareStatement(TRIM_HISTORY_SQL)) {
+                // 1. Copy out the password being replaced
+                archive.setInt(1, entry.getId());
+                archive.setInt(2, entry.getUserId());
+                archive.setInt(3, entry.getRowVersion());
+                archive.setInt(4, EntryFieldCipher.VERSION_CURRENT);
+                archive.executeUpdate();
+
+                // 2. The optimistic update itself; a stale row version undoes step 1
+                setUpdateParameters(update, entry);
+                int rows = update.executeUpdate();
+                if (rows == 0) {
+                    conn.rollback();
+                    return false;
+                }
+
+                // 3. Keep the newest maxVersions
+                trim.setInt(1, entry.getId());
+                trim.setInt(2, entry.getId());
+                trim.setInt(3, maxVersions);
+                trim.executeUpdate();
+
+                conn.commit();
+                event.setRows(rows);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            entry.setRowVersion(entry.getRowVersion() + 1);
+            ChangeFeed.publish(entry.getUserId(), entry.getId(), ChangeFeed.Op.UPDATE);
+            return true;
         } catch (SQLException e) {
+            Metrics.increment("db.errors");
             LOGGER.error("Error updating entry with ID {}: {}", entry.getId(), e.getMessage(), e);
             return false;
+        } finally {
+            event.finish();
         }
     }
 
+    private static void setUpdateParameters(PreparedStatement preparedStatement, PasswordEntry entry) throws SQLException {
+        preparedStatement.setString(1, entry.getTitle());
+        preparedStatement.setString(2, entry.getUsernameEnc());
+        preparedStatement.setString(3, entry.getPasswordEnc());
+        preparedStatement.setString(4, entry.getEntryNonce());
+        preparedStatement.setString(5, entry.getNoteEnc());
+        preparedStatement.setString(6, entry.getNoteNonce());
+        preparedStatement.setInt(7, entry.getEncVersion());
+        preparedStatement.setString(8, entry.getUrlEnc());
+        preparedStatement.setInt(9, entry.getId());        // WHERE password_id
+        preparedStatement.setInt(10, entry.getUserId());   // WHERE user_id
+        preparedStatement.setInt(11, entry.getRowVersion()); // WHERE row_version
+    }
 
     /**
      * Retrieves all encrypted password entries for a specific user.
      */
     public List<PasswordEntry> findAllByUserId(int userId) {
         List<PasswordEntry> entries = new ArrayList<>();
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findAllByUserId");
         try (Connection conn = DatabaseManager.getInstance().getConnection();
             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_ALL_BY_USER_SQL)) {
 
             preparedStatement.setInt(1, userId);
 
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapRow(rs, userId));
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error retrieving password entries for user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(entries.size());
+            event.finish();
+        }
+        return entries;
+    }
+
+    /**
+     * Retrieves one encrypted entry, scoped to its owner.
+     */
+    public Optional<PasswordEntry> findById(int entryId, int userId) {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findById");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+            PreparedStatement preparedStatement = conn.prepareStatement(SELECT_BY_ID_SQL)) {
+
+            preparedStatement.setInt(1, entryId);
+            preparedStatement.setInt(2, userId);
+
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    event.setRows(1);
+                    return Optional.of(mapRow(rs, userId));
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error retrieving entry with ID {}: {}", entryId, e.getMessage(), e);
+        } finally {
+            event.finish();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Retrieves the given entries of a user (IDs of other users' entries are ignored), e.g.
+     * the hits of a search. Large ID lists are split over several IN queries.
+     */
+    public List<PasswordEntry> findByIds(int userId, List<Integer> entryIds) {
+        List<PasswordEntry> entries = new ArrayList<>(entryIds.size());
+        if (entryIds.isEmpty()) {
+            return entries;
+        }
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findByIds");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            for (int from = 0; from < entryIds.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = entryIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, entryIds.size()));
+                String sql = String.format(SELECT_BY_IDS_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+                try (PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+                    preparedStatement.setInt(1, userId);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        preparedStatement.setInt(i + 2, chunk.get(i));
+                    }
+                    try (ResultSet rs = preparedStatement.executeQuery()) {
+                        while (rs.next()) {
+                            entries.add(mapRow(rs, userId));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error retrieving {} entries for user {}: {}", entryIds.size(), userId, e.getMessage(), e);
+        } finally {
+            event.setRows(entries.size());
+            event.finish();
+        }
+        return entries;
+    }
+
+    /**
+     * Streams a user's encrypted entries to the consumer one row at a time, using a
+     * server-side cursor so the result set is never held in memory (exports/backups).
+     * @return The number of rows streamed, or -1 on failure.
+     */
+    public int streamAllByUserId(int userId, Consumer<PasswordEntry> consumer) {
+        int count = 0;
+        SqlEvent event = new SqlEvent("db.PasswordDAO.streamAllByUserId");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false); // PostgreSQL only honours fetchSize inside a transaction
+            try (PreparedStatement preparedStatement = conn.prepareStatement(SELECT_ALL_BY_USER_SQL)) {
+                preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+                preparedStatement.setInt(1, userId);
+                try (ResultSet rs = preparedStatement.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(mapRow(rs, userId));
+                        count++;
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error streaming password entries for user {}: {}", userId, e.getMessage(), e);
+            return -1;
+        } finally {
+            event.setRows(count);
+            event.finish();
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves only the (plaintext) titles of a user's entries, e.g. for duplicate detection.
+     */
+    public Set<String> findTitlesByUserId(int userId) {
+        Set<String> titles = new HashSet<>();
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findTitlesByUserId");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+            PreparedStatement preparedStatement = conn.prepareStatement(SELECT_TITLES_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    titles.add(rs.getString("title"));
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error retrieving titles for user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(titles.size());
+            event.finish();
+        }
+        return titles;
+    }
+
+    /**
+     * A row read for the vault audit: the entry has its ID, title and password fields only.
+     * @param updatedAt Last change of any kind (null on the file store).
+     * @param passwordChangedAt Last change of the password; null if unknown (rows older than
+     *                          the column, or the file store).
+     */
+    public record AuditRow(PasswordEntry entry, Timestamp updatedAt, Timestamp passwordChangedAt) {}
+
+    /**
+     * Reads the user's passwords for an audit, without usernames, notes or URLs. The entries
+     * carry their row version.
+     * @param entryIds Only these entries (large lists are split over several IN queries), or null for all.
+     */
+    public List<AuditRow> findAuditRows(int userId, List<Integer> entryIds) {
+        List<AuditRow> rows = new ArrayList<>();
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findAuditRows");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            if (entryIds == null) {
+                readAuditRows(conn, SELECT_AUDIT_SQL, userId, List.of(), rows);
+            } else {
+                for (int from = 0; from < entryIds.size(); from += MAX_IDS_PER_QUERY) {
+                    List<Integer> chunk = entryIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, entryIds.size()));
+                    String sql = String.format(SELECT_AUDIT_BY_IDS_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+                    readAuditRows(conn, sql, userId, chunk, rows);
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error reading entries of user {} for audit: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(rows.size());
+            event.finish();
+        }
+        return rows;
+    }
+
+    private static void readAuditRows(Connection conn, String sql, int userId, List<Integer> entryIds, List<AuditRow> rows) throws SQLException {
+        try (PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+            preparedStatement.setInt(1, userId);
+            for (int i = 0; i < entryIds.size(); i++) {
+                preparedStatement.setInt(i + 2, entryIds.get(i));
+            }
+            preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
             try (ResultSet rs = preparedStatement.executeQuery()) {
                 while (rs.next()) {
                     PasswordEntry entry = new PasswordEntry();
                     entry.setId(rs.getInt("password_id"));
                     entry.setUserId(userId);
                     entry.setTitle(rs.getString("title"));
-
-                    // Map encrypted fields
-                    entry.setUsernameEnc(rs.getString("username"));
                     entry.setPasswordEnc(rs.getString("encrypted_password"));
-                    entry.setNoteEnc(rs.getString("encrypted_note"));
-
-                    // Map nonces
                     entry.setEntryNonce(rs.getString("nonce"));
-                    entry.setNoteNonce(rs.getString("note_nonce"));
+                    entry.setEncVersion(rs.getInt("enc_version"));
+                    entry.setRowVersion(rs.getInt("row_version"));
+                    rows.add(new AuditRow(entry, rs.getTimestamp("updated_at"), rs.getTimestamp("password_changed_at")));
+                }
+            }
+        }
+    }
+
+    /**
+     * The row version of each of the user's entries, by entry ID: one narrow query that shows
+     * which entries changed (or went away) since a previous read, whenever they committed.
+     */
+    public Map<Integer, Integer> findRowVersions(int userId) {
+        Map<Integer, Integer> versions = new HashMap<>();
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findRowVersions");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+            PreparedStatement preparedStatement = conn.prepareStatement(SELECT_ROW_VERSIONS_SQL)) {
 
-                    entries.add(entry);
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    versions.put(rs.getInt(1), rs.getInt(2));
                 }
             }
         } catch (SQLException e) {
-            LOGGER.error("Error retrieving password entries for user {}: {}", userId, e.getMessage(), e);
+            Metrics.increment("db.errors");
+            LOGGER.error("Error retrieving row versions for user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(versions.size());
+            event.finish();
+        }
+        return versions;
+    }
+
+    /**
+     * Maps the current row of a SELECT_ALL_BY_USER_SQL result.
+     */
+    static PasswordEntry mapRow(ResultSet rs, int userId) throws SQLException {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setId(rs.getInt("password_id"));
+        entry.setUserId(userId);
+        entry.setTitle(rs.getString("title"));
+
+        // Map encrypted fields
+        entry.setUsernameEnc(rs.getString("username"));
+        entry.setPasswordEnc(rs.getString("encrypted_password"));
+        entry.setNoteEnc(rs.getString("encrypted_note"));
+        entry.setUrlEnc(rs.getString("url"));
+
+        // Map nonces
+        entry.setEntryNonce(rs.getString("nonce"));
+        entry.setNoteNonce(rs.getString("note_nonce"));
+        entry.setEncVersion(rs.getInt("enc_version"));
+        entry.setRowVersion(rs.getInt("row_version"));
+        return entry;
+    }
+
+    // --- RE-ENCRYPTION ---
+
+    /**
+     * Fetches the next keyset batch of a user's rows stored below a format version.
+     * Failures are rethrown: an empty result would read as "nothing left to upgrade".
+     * @param afterId Only rows with a larger password_id are returned.
+     */
+    public List<PasswordEntry> findBatchBelowVersion(int userId, int targetVersion, int afterId, int limit) throws SQLException {
+        List<PasswordEntry> entries = new ArrayList<>(limit);
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findBatchBelowVersion");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+            PreparedStatement preparedStatement = conn.prepareStatement(SELECT_BELOW_VERSION_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, targetVersion);
+            preparedStatement.setInt(3, afterId);
+            preparedStatement.setInt(4, limit);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapRow(rs, userId));
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error reading re-encryption batch for user {}: {}", userId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.setRows(entries.size());
+            event.finish();
         }
         return entries;
     }
 
+    /**
+     * Writes re-encrypted rows and advances the checkpoint in one transaction. Each row is
+     * only replaced while it is still below the target version, so an entry the user saved
+     * in the meantime is never overwritten with older content.
+     * @param lastId The last password_id of the batch (recorded even if some rows failed).
+     * @return The number of rows rewritten.
+     */
+    public int reencryptBatch(int userId, int targetVersion, List<PasswordEntry> entries, int lastId) throws SQLException {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.reencryptBatch");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int rewritten = 0;
+                List<Integer> rewrittenIds = new ArrayList<>();
+                if (!entries.isEmpty()) {
+                    try (PreparedStatement update = conn.prepareStatement(REENCRYPT_PASSWORD_SQL)) {
+                        for (PasswordEntry entry : entries) {
+                            update.setString(1, entry.getUsernameEnc());
+                            update.setString(2, entry.getPasswordEnc());
+                            update.setString(3, entry.getEntryNonce());
+                            update.setString(4, entry.getNoteEnc());
+                            update.setString(5, entry.getNoteNonce());
+                            update.setInt(6, entry.getEncVersion());
+                            update.setInt(7, entry.getId());
+                            update.setInt(8, userId);
+                            update.setInt(9, targetVersion);
+                            update.addBatch();
+                        }
+                        int[] counts = update.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] > 0) {
+                                rewritten += counts[i];
+                                rewrittenIds.add(entries.get(i).getId());
+                            }
+                        }
+                    }
+                }
+
+                saveCheckpoint(conn, userId, targetVersion, lastId);
+                conn.commit();
+                event.setRows(rewritten);
+                for (int entryId : rewrittenIds) {
+                    ChangeFeed.publish(userId, entryId, ChangeFeed.Op.UPDATE);
+                }
+                return rewritten;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error writing re-encryption batch ending at entry {}: {}", lastId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Writes rows re-sealed under a new data key and advances the {@link #KEY_ROTATION}
+     * checkpoint in one transaction. Each row is only replaced while it is still at the row
+     * version it was read at (which is then advanced), so a concurrent edit is never lost.
+     * @param lastId The last password_id of the batch, recorded only if every row was written
+     *               (a skipped row must be retried by a resumed run, not passed over).
+     * @return The number of rows rewritten.
+     */
+    public int rotateBatch(int userId, List<PasswordEntry> entries, int lastId) throws SQLException {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.rotateBatch");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int rewritten = 0;
+                List<Integer> rewrittenIds = new ArrayList<>();
+                if (!entries.isEmpty()) {
+                    try (PreparedStatement update = conn.prepareStatement(ROTATE_PASSWORD_SQL)) {
+                        for (PasswordEntry entry : entries) {
+                            update.setString(1, entry.getUsernameEnc());
+                            update.setString(2, entry.getPasswordEnc());
+                            update.setString(3, entry.getEntryNonce());
+                            update.setString(4, entry.getNoteEnc());
+                            update.setString(5, entry.getNoteNonce());
+                            update.setInt(6, entry.getEncVersion());
+                            update.setString(7, entry.getUrlEnc());
+                            update.setInt(8, entry.getId());
+                            update.setInt(9, userId);
+                            update.setInt(10, entry.getRowVersion());
+                            update.addBatch();
+                        }
+                        int[] counts = update.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] > 0) {
+                                rewritten += counts[i];
+                                rewrittenIds.add(entries.get(i).getId());
+                            }
+                        }
+                    }
+                }
+                if (rewritten == entries.size()) {
+                    saveCheckpoint(conn, userId, KEY_ROTATION, lastId);
+                }
+                conn.commit();
+                event.setRows(rewritten);
+                for (int entryId : rewrittenIds) {
+                    ChangeFeed.publish(userId, entryId, ChangeFeed.Op.UPDATE);
+                }
+                return rewritten;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error writing key rotation batch ending at entry {}: {}", lastId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    private static void saveCheckpoint(Connection conn, int userId, int targetVersion, int lastId) throws SQLException {
+        int updated;
+        try (PreparedStatement checkpoint = conn.prepareStatement(UPDATE_REENCRYPTION_CHECKPOINT_SQL)) {
+            checkpoint.setInt(1, lastId);
+            checkpoint.setInt(2, userId);
+            checkpoint.setInt(3, targetVersion);
+            updated = checkpoint.executeUpdate();
+        }
+        if (updated == 0) {
+            try (PreparedStatement checkpoint = conn.prepareStatement(INSERT_REENCRYPTION_CHECKPOINT_SQL)) {
+                checkpoint.setInt(1, userId);
+                checkpoint.setInt(2, targetVersion);
+                checkpoint.setInt(3, lastId);
+                checkpoint.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * @return The last password_id committed by an unfinished re-encryption run, or 0 to start from the beginning.
+     */
+    public int findReencryptionCheckpoint(int userId, int targetVersion) throws SQLException {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.findReencryptionCheckpoint");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+            PreparedStatement preparedStatement = conn.prepareStatement(SELECT_REENCRYPTION_CHECKPOINT_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, targetVersion);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                return rs.next() ? rs.getInt("last_password_id") : 0;
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error reading re-encryption checkpoint for user {}: {}", userId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Removes the checkpoint once a run has reached the end, so the next run (e.g. after
+     * restoring an old backup) scans from the start again.
+     */
+    public void clearReencryptionCheckpoint(int userId, int targetVersion) throws SQLException {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.clearReencryptionCheckpoint");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+            PreparedStatement preparedStatement = conn.prepareStatement(DELETE_REENCRYPTION_CHECKPOINT_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, targetVersion);
+            event.setRows(preparedStatement.executeUpdate());
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error clearing re-encryption checkpoint for user {}: {}", userId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    // --- RESTORE ---
+
+    /**
+     * Finds the last chunk of a backup committed by an earlier restore into this store.
+     * @return The chunk sequence number, -1 if the restore never started, or
+     *         {@link Integer#MAX_VALUE} if it already completed.
+     */
+    public int findLastRestoredChunk(int userId, String backupId) throws SQLException {
+        return backupDAO.findLastCommittedChunk(userId, backupId);
+    }
+
+    /**
+     * Inserts one restored chunk's entries and advances the restore checkpoint, atomically.
+     */
+    public void restoreChunk(int userId, String backupId, int chunk, boolean last, List<PasswordEntry> entries) throws SQLException {
+        backupDAO.insertChunk(userId, backupId, chunk, last, entries);
+    }
+
     /**
      * Deletes a password entry.
      */
     public boolean deleteEntry(int entryId, int userId) {
+        SqlEvent event = new SqlEvent("db.PasswordDAO.deleteEntry");
         try (Connection conn = DatabaseManager.getInstance().getConnection();
             PreparedStatement preparedStatement = conn.prepareStatement(DELETE_PASSWORD_SQL)) {
 
             preparedStatement.setInt(1, entryId);
             preparedStatement.setInt(2, userId);
 
-            return preparedStatement.executeUpdate() > 0;
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            if (rows > 0) {
+                ChangeFeed.publish(userId, entryId, ChangeFeed.Op.DELETE);
+            }
+            return rows > 0;
         } catch (SQLException e) {
+            Metrics.increment("db.errors");
             LOGGER.error("Error deleting entry with ID {}: {}", entryId, e.getMessage(), e);
             return false;
+        } finally {
+            event.finish();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package com.passwordmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.SqlEvent;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
+import com.passwordmanager.util.EntryFieldCipher;
+
+/**
+ * Earlier passwords of entries (password_history table). Versions are written by
+ * {@link PasswordDAO#updateEntryArchivingPassword}; this DAO lists them on demand, restores
+ * one, purges old ones and rewrites them under a new key after a data-key rotation.
+ */
+public class PasswordHistoryDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordHistoryDAO.class);
+
+    private static final String SELECT_BY_ENTRY_SQL =
+            "SELECT history_id, encrypted_password, row_version, replaced_at FROM password_history WHERE password_id = ? AND user_id = ? ORDER BY history_id DESC";
+    // One statement: the entry takes the archived password if it is still at the row version the
+    // caller read, in the current field format, and the version belongs to it
+    private static final String RESTORE_VERSION_SQL =
+            "UPDATE passwords SET encrypted_password = (SELECT h.encrypted_password FROM password_history h WHERE h.history_id = ? AND h.password_id = passwords.password_id AND h.user_id = passwords.user_id), "
+            + "nonce = NULL, row_version = row_version + 1, updated_at = CURRENT_TIMESTAMP, password_changed_at = CURRENT_TIMESTAMP "
+            + "WHERE password_id = ? AND user_id = ? AND row_version = ? AND enc_version = ? "
+            + "AND EXISTS (SELECT 1 FROM password_history h WHERE h.history_id = ? AND h.password_id = passwords.password_id AND h.user_id = passwords.user_id)";
+    private static final String SELECT_BATCH_BY_USER_SQL =
+            "SELECT history_id, password_id, encrypted_password, row_version, replaced_at FROM password_history WHERE user_id = ? AND history_id > ? ORDER BY history_id LIMIT ?";
+    private static final String UPDATE_ENCRYPTED_PASSWORD_SQL =
+            "UPDATE password_history SET encrypted_password = ? WHERE history_id = ? AND user_id = ?";
+    private static final String DELETE_OLDER_THAN_SQL =
+            "DELETE FROM password_history WHERE user_id = ? AND replaced_at < ?";
+
+    /**
+     * Lists an entry's earlier passwords, newest first.
+     */
+    public List<PasswordVersion> findByEntry(int passwordId, int userId) {
+        List<PasswordVersion> versions = new ArrayList<>();
+        SqlEvent event = new SqlEvent("db.PasswordHistoryDAO.findByEntry");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_BY_ENTRY_SQL)) {
+
+            preparedStatement.setInt(1, passwordId);
+            preparedStatement.setInt(2, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    PasswordVersion version = new PasswordVersion();
+                    version.setId(rs.getInt("history_id"));
+                    version.setPasswordId(passwordId);
+                    version.setUserId(userId);
+                    version.setPasswordEnc(rs.getString("encrypted_password"));
+                    version.setRowVersion(rs.getInt("row_version"));
+                    version.setReplacedAt(rs.getTimestamp("replaced_at"));
+                    versions.add(version);
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error loading password history of entry ID {}: {}", passwordId, e.getMessage(), e);
+        } finally {
+            event.setRows(versions.size());
+            event.finish();
+        }
+        return versions;
+    }
+
+    /**
+     * Makes an archived password the entry's current one again, in one statement. The
+     * password it replaces is not archived. On success the entry's row version is advanced.
+     * @param entry The entry as read; its ID, user and row version are used.
+     * @return false if the entry was changed meantime, is still in the legacy field format,
+     *         or the version is not one of its own.
+     */
+    public boolean restoreVersion(PasswordEntry entry, int historyId) {
+        SqlEvent event = new SqlEvent("db.PasswordHistoryDAO.restoreVersion");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(RESTORE_VERSION_SQL)) {
+
+            preparedStatement.setInt(1, historyId);
+            preparedStatement.setInt(2, entry.getId());
+            preparedStatement.setInt(3, entry.getUserId());
+            preparedStatement.setInt(4, entry.getRowVersion());
+            preparedStatement.setInt(5, EntryFieldCipher.VERSION_CURRENT);
+            preparedStatement.setInt(6, historyId);
+
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            if (rows > 0) {
+                entry.setRowVersion(entry.getRowVersion() + 1);
+                ChangeFeed.publish(entry.getUserId(), entry.getId(), ChangeFeed.Op.UPDATE);
+            }
+            return rows > 0;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error restoring password version {} of entry ID {}: {}", historyId, entry.getId(), e.getMessage(), e);
+            return false;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Deletes the user's archived passwords replaced before the cutoff.
+     * @return The number of versions deleted, or -1 on failure.
+     */
+    public int deleteOlderThan(int userId, Timestamp cutoff) {
+        SqlEvent event = new SqlEvent("db.PasswordHistoryDAO.deleteOlderThan");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(DELETE_OLDER_THAN_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setTimestamp(2, cutoff);
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            return rows;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error purging password history of user {}: {}", userId, e.getMessage(), e);
+            return -1;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Next keyset batch of the user's archived passwords (history_id order), for a data-key
+     * rotation. Failures are thrown.
+     */
+    public List<PasswordVersion> findBatchByUser(int userId, int afterId, int limit) throws SQLException {
+        List<PasswordVersion> versions = new ArrayList<>();
+        SqlEvent event = new SqlEvent("db.PasswordHistoryDAO.findBatchByUser");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_BATCH_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, afterId);
+            preparedStatement.setInt(3, limit);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    PasswordVersion version = new PasswordVersion();
+                    version.setId(rs.getInt("history_id"));
+                    version.setPasswordId(rs.getInt("password_id"));
+                    version.setUserId(userId);
+                    version.setPasswordEnc(rs.getString("encrypted_password"));
+                    version.setRowVersion(rs.getInt("row_version"));
+                    version.setReplacedAt(rs.getTimestamp("replaced_at"));
+                    versions.add(version);
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error loading password history of user {}: {}", userId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.setRows(versions.size());
+            event.finish();
+        }
+        return versions;
+    }
+
+    /**
+     * Saves re-encrypted archived passwords, in one transaction.
+     * @return The number of versions rewritten (purged ones are skipped).
+     */
+    public int updateEncryptedPasswords(int userId, List<PasswordVersion> versions) throws SQLException {
+        if (versions.isEmpty()) {
+            return 0;
+        }
+        SqlEvent event = new SqlEvent("db.PasswordHistoryDAO.updateEncryptedPasswords");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(UPDATE_ENCRYPTED_PASSWORD_SQL)) {
+                for (PasswordVersion version : versions) {
+                    update.setString(1, version.getPasswordEnc());
+                    update.setInt(2, version.getId());
+                    update.setInt(3, userId);
+                    update.addBatch();
+                }
+                int rewritten = 0;
+                for (int count : update.executeBatch()) {
+                    rewritten += Math.max(count, 0);
+                }
+                conn.commit();
+                event.setRows(rewritten);
+                return rewritten;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error rewriting {} password versions of user {}: {}", versions.size(), userId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+}
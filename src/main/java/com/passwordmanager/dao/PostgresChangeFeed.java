@@ -0,0 +1,141 @@
+package com.passwordmanager.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.passwordmanager.metrics.Metrics;
+
+/**
+ * Change feed over PostgreSQL LISTEN/NOTIFY. The notify_password_change trigger sends
+ * {user_id, password_id, op, updated_at} on the owning user's own channel,
+ * password_changes_&lt;user_id&gt;, when a write commits; one listener thread per process
+ * receives them on a dedicated connection (outside the pool) and dispatches them. The thread
+ * starts with the first subscriber and only LISTENs on the channels of users subscribed in
+ * this process, so a client never receives other users' entry IDs. It adds and drops channels
+ * as subscriptions come and go; a new subscription takes effect within one poll interval.
+ *
+ * LISTEN needs a session-mode connection, so it cannot go through a transaction-mode pooler
+ * such as Supabase's port 6543: -Dpasswordmanager.db.listenUrl selects the URL, and by
+ * default the configured URL is used with port 6543 swapped for the session-mode 5432.
+ * After a lost connection the listener reconnects with backoff and sends RESYNC, since
+ * notifications are not queued for a session that is gone.
+ */
+final class PostgresChangeFeed extends ChangeFeed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresChangeFeed.class);
+
+    static final String CHANNEL_PREFIX = "password_changes_";
+    static final String LISTEN_URL_PROPERTY = "passwordmanager.db.listenUrl";
+    private static final int POLL_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private Thread listener;
+    private volatile boolean running = true;
+
+    @Override
+    void written(Change change) {
+        // The trigger notifies every listener, this process included
+    }
+
+    @Override
+    synchronized void started() {
+        if (listener == null && running) {
+            listener = new Thread(this::listen, "change-feed-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    private void listen() {
+        DatabaseManager database = DatabaseManager.getInstance();
+        String url = System.getProperty(LISTEN_URL_PROPERTY, database.getUrl().replace(":6543/", ":5432/"));
+        long backoff = 1000;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection conn = database.openDirectConnection(url);
+                 Statement statement = conn.createStatement()) {
+                Set<Integer> listening = new HashSet<>();
+                listenToSubscribers(statement, listening);
+                LOGGER.info("Listening for vault changes of {} user(s)", listening.size());
+                if (reconnecting) {
+                    dispatch(Change.now(-1, -1, Op.RESYNC));
+                }
+                backoff = 1000;
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    listenToSubscribers(statement, listening);
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        Change change = parse(notification.getParameter());
+                        if (change != null) {
+                            dispatch(change);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                Metrics.increment("changefeed.reconnects");
+                LOGGER.warn("Change feed connection lost, retrying in {} ms: {}", backoff, e.getMessage());
+                reconnecting = true;
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // Brings the connection's channels in line with the users subscribed right now
+    private void listenToSubscribers(Statement statement, Set<Integer> listening) throws SQLException {
+        Set<Integer> wanted = subscribedUsers();
+        for (int userId : wanted) {
+            if (listening.add(userId)) {
+                statement.execute("LISTEN " + CHANNEL_PREFIX + userId);
+            }
+        }
+        for (int userId : new HashSet<>(listening)) {
+            if (!wanted.contains(userId)) {
+                statement.execute("UNLISTEN " + CHANNEL_PREFIX + userId);
+                listening.remove(userId);
+            }
+        }
+    }
+
+    private static Change parse(String payload) {
+        try {
+            JsonObject json = JsonParser.parseString(payload).getAsJsonObject();
+            return new Change(json.get("user_id").getAsInt(), json.get("password_id").getAsInt(),
+                    Op.valueOf(json.get("op").getAsString()), LocalDateTime.parse(json.get("updated_at").getAsString()));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring malformed change notification: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        super.close();
+    }
+}
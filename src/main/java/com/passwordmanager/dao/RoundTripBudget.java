@@ -0,0 +1,111 @@
+package com.passwordmanager.dao;
+
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts database round-trips made by one logical operation (e.g. a UI action) on the
+ * current thread, and flags operations that make more than they should: an N+1 loop
+ * shows up as a budget overrun instead of a vague slowness.
+ *
+ * <pre>
+ * List&lt;PasswordEntry&gt; entries = RoundTripBudget.call("MainFrame.loadPasswordData", 1,
+ *         () -&gt; passwordService.getEncryptedEntries(userId));
+ * </pre>
+ * or, where the budget has to span more than one expression, {@link #begin} and close().
+ * Overruns are logged; with {@code -Dpasswordmanager.db.strictRoundTrips=true} (tests)
+ * close() throws instead. Budgets nest: a round-trip counts against every open budget.
+ */
+public final class RoundTripBudget implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoundTripBudget.class);
+
+    public static final String STRICT_PROPERTY = "passwordmanager.db.strictRoundTrips";
+
+    private static final ThreadLocal<RoundTripBudget> CURRENT = new ThreadLocal<>();
+
+    private final String operation;
+    private final int maxRoundTrips;
+    private final RoundTripBudget parent;
+    private int roundTrips;
+
+    private RoundTripBudget(String operation, int maxRoundTrips, RoundTripBudget parent) {
+        this.operation = operation;
+        this.maxRoundTrips = maxRoundTrips;
+        this.parent = parent;
+    }
+
+    /**
+     * Opens a budget on the current thread; close it on the same thread.
+     */
+    public static RoundTripBudget begin(String operation, int maxRoundTrips) {
+        RoundTripBudget budget = new RoundTripBudget(operation, maxRoundTrips, CURRENT.get());
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    /**
+     * Runs the work under a budget and returns its result. If the work fails, its exception
+     * propagates and an overrun is not reported on top of it.
+     * @throws IllegalStateException in strict mode, if the budget was exceeded.
+     */
+    public static <T> T call(String operation, int maxRoundTrips, Supplier<T> work) {
+        RoundTripBudget budget = begin(operation, maxRoundTrips);
+        T result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error e) {
+            budget.release();
+            throw e;
+        }
+        budget.close();
+        return result;
+    }
+
+    /**
+     * {@link #call} for work without a result.
+     */
+    public static void run(String operation, int maxRoundTrips, Runnable work) {
+        call(operation, maxRoundTrips, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Called by the statement tracer for every execution, commit and rollback
+    static void record() {
+        for (RoundTripBudget budget = CURRENT.get(); budget != null; budget = budget.parent) {
+            budget.roundTrips++;
+        }
+    }
+
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * @throws IllegalStateException in strict mode, if the budget was exceeded.
+     */
+    @Override
+    public void close() {
+        release();
+        if (roundTrips > maxRoundTrips) {
+            String message = operation + " made " + roundTrips + " database round-trips (budget " + maxRoundTrips + ")";
+            if (Boolean.getBoolean(STRICT_PROPERTY)) {
+                throw new IllegalStateException(message);
+            }
+            LOGGER.warn(message);
+        }
+    }
+
+    // Makes the enclosing budget (if any) current again
+    private void release() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.passwordmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.SqlEvent;
+
+/**
+ * Blind-index tokens (see util.BlindIndex) in the search_tokens side table, whose primary key
+ * (user_id, token, password_id) is the lookup index: a search touches only the matching rows.
+ */
+public class SearchIndexDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIndexDAO.class);
+
+    private static final String DELETE_TOKENS_SQL =
+            "DELETE FROM search_tokens WHERE password_id = ? AND user_id = ?";
+    private static final String INSERT_TOKEN_SQL =
+            "INSERT INTO search_tokens (user_id, token, password_id) VALUES (?, ?, ?)";
+    // Entries having every one of the n query tokens
+    private static final String SELECT_MATCHES_SQL =
+            "SELECT password_id FROM search_tokens WHERE user_id = ? AND token IN (%s) GROUP BY password_id HAVING COUNT(*) = ?";
+    private static final String DELETE_USER_TOKENS_SQL =
+            "DELETE FROM search_tokens WHERE user_id = ?";
+    private static final String SELECT_UNINDEXED_SQL =
+            "SELECT p.password_id FROM passwords p WHERE p.user_id = ? AND NOT EXISTS (SELECT 1 FROM search_tokens t WHERE t.password_id = p.password_id)";
+
+    /**
+     * Replaces the tokens of the given entries, in one transaction.
+     * @param tokensById Entry ID to its complete token set.
+     * @return false if nothing was written (logged).
+     */
+    public boolean replaceTokens(int userId, Map<Integer, Set<String>> tokensById) {
+        SqlEvent event = new SqlEvent("db.SearchIndexDAO.replaceTokens");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(DELETE_TOKENS_SQL);
+                 PreparedStatement insert = conn.prepareStatement(INSERT_TOKEN_SQL)) {
+                int rows = 0;
+                for (Map.Entry<Integer, Set<String>> entry : tokensById.entrySet()) {
+                    delete.setInt(1, entry.getKey());
+                    delete.setInt(2, userId);
+                    delete.addBatch();
+                    for (String token : entry.getValue()) {
+                        insert.setInt(1, userId);
+                        insert.setString(2, token);
+                        insert.setInt(3, entry.getKey());
+                        insert.addBatch();
+                        rows++;
+                    }
+                }
+                delete.executeBatch();
+                if (rows > 0) {
+                    insert.executeBatch();
+                }
+                conn.commit();
+                event.setRows(rows);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error writing search tokens for {} entries: {}", tokensById.size(), e.getMessage(), e);
+            return false;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * @param tokens Query tokens, one per search term (distinct).
+     * @return IDs of the user's entries matching all of them.
+     */
+    public List<Integer> findMatchingIds(int userId, Collection<String> tokens) {
+        List<Integer> ids = new ArrayList<>();
+        if (tokens.isEmpty()) {
+            return ids;
+        }
+        SqlEvent event = new SqlEvent("db.SearchIndexDAO.findMatchingIds");
+        String sql = String.format(SELECT_MATCHES_SQL, String.join(", ", Collections.nCopies(tokens.size(), "?")));
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            preparedStatement.setInt(index++, userId);
+            for (String token : tokens) {
+                preparedStatement.setString(index++, token);
+            }
+            preparedStatement.setInt(index, tokens.size());
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error searching entries of user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(ids.size());
+            event.finish();
+        }
+        return ids;
+    }
+
+    /**
+     * @return IDs of the user's entries that have no tokens yet (written before the index existed).
+     */
+    public List<Integer> findUnindexedIds(int userId) {
+        List<Integer> ids = new ArrayList<>();
+        SqlEvent event = new SqlEvent("db.SearchIndexDAO.findUnindexedIds");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_UNINDEXED_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error finding unindexed entries of user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(ids.size());
+            event.finish();
+        }
+        return ids;
+    }
+
+    /**
+     * Drops all of the user's tokens, e.g. after a data-key rotation (the index key is derived
+     * from the data key); they are rebuilt by PasswordService#ensureSearchIndex.
+     */
+    public void deleteAllForUser(int userId) throws SQLException {
+        SqlEvent event = new SqlEvent("db.SearchIndexDAO.deleteAllForUser");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(DELETE_USER_TOKENS_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            event.setRows(preparedStatement.executeUpdate());
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error dropping search tokens of user {}: {}", userId, e.getMessage(), e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.passwordmanager.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+
+/**
+ * Wraps the statements handed out by pooled connections: every execution is timed, counted
+ * as a round-trip (metrics and the thread's {@link RoundTripBudget}), and logged if slower
+ * than {@code passwordmanager.db.slowQueryMillis} (default 250). The log shows the SQL text
+ * and the types of the bound parameters, never their values.
+ */
+final class StatementTracer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementTracer.class);
+
+    static final String SLOW_QUERY_PROPERTY = "passwordmanager.db.slowQueryMillis";
+    private static final long SLOW_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong(SLOW_QUERY_PROPERTY, 250));
+
+    private StatementTracer() {}
+
+    /**
+     * @param sql The prepared SQL, or null for a plain Statement (whose SQL may embed values and is never logged).
+     */
+    static Statement wrap(Statement statement, Class<?> type, String sql) {
+        return (Statement) Proxy.newProxyInstance(StatementTracer.class.getClassLoader(), new Class<?>[]{type},
+                new Handler(statement, sql));
+    }
+
+    /**
+     * Counts a round-trip that is not a statement execution (commit, rollback).
+     */
+    static void recordRoundTrip() {
+        RoundTripBudget.record();
+        Metrics.increment("db.roundtrips");
+    }
+
+    private static final class Handler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final List<String> parameterTypes = new ArrayList<>();
+        private int batched;
+
+        private Handler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                recordParameter(index, name, args[1]);
+            } else if (name.equals("addBatch")) {
+                batched++;
+            } else if (name.equals("clearParameters")) {
+                parameterTypes.clear();
+            } else if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            return call(method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return call(method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                recordRoundTrip();
+                if (elapsed >= SLOW_QUERY_NANOS) {
+                    Metrics.increment("db.slowQueries");
+                    LOGGER.warn("Slow statement ({} ms{}): {} params={}", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                            batched > 0 ? ", batch of " + batched : "", describe(args), parameterTypes);
+                }
+                batched = 0;
+            }
+        }
+
+        // Shape only: setString(2, x) records "string", setNull or a null value records "null"
+        private void recordParameter(int index, String setter, Object value) {
+            while (parameterTypes.size() < index) {
+                parameterTypes.add("?");
+            }
+            String type = value == null || setter.equals("setNull") ? "null" : setter.substring(3).toLowerCase();
+            parameterTypes.set(index - 1, type.equals("object") ? value.getClass().getSimpleName() : type);
+        }
+
+        private String describe(Object[] args) {
+            if (sql != null) {
+                return sql;
+            }
+            // Unprepared SQL may carry literal values; only name the kind of statement
+            String text = args != null && args.length > 0 && args[0] instanceof String s ? s.strip() : "";
+            int space = text.indexOf(' ');
+            return (space > 0 ? text.substring(0, space) : text) + " ... (unprepared)";
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
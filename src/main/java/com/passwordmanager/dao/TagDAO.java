@@ -0,0 +1,194 @@
+package com.passwordmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.SqlEvent;
+import com.passwordmanager.model.Tag;
+
+/**
+ * Tags and folders (the tags table) and their assignment to entries (the entry_tags join
+ * table). Reads return whole vaults, for building the in-memory index (see util.TagIndex).
+ */
+public class TagDAO {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TagDAO.class);
+
+    private static final String SELECT_TAGS_SQL =
+            "SELECT tag_id, name, is_folder FROM tags WHERE user_id = ? ORDER BY is_folder DESC, name";
+    private static final String INSERT_TAG_SQL =
+            "INSERT INTO tags (user_id, name, is_folder) VALUES (?, ?, ?)";
+    private static final String DELETE_TAG_SQL =
+            "DELETE FROM tags WHERE tag_id = ? AND user_id = ?";
+    private static final String SELECT_ASSIGNMENTS_SQL =
+            "SELECT et.password_id, et.tag_id FROM entry_tags et JOIN tags t ON t.tag_id = et.tag_id WHERE t.user_id = ?";
+    private static final String DELETE_ASSIGNMENTS_SQL =
+            "DELETE FROM entry_tags WHERE password_id = ? AND tag_id IN (SELECT tag_id FROM tags WHERE user_id = ?)";
+    // Inserts nothing unless both the entry and the tag belong to the user
+    private static final String INSERT_ASSIGNMENT_SQL =
+            "INSERT INTO entry_tags (password_id, tag_id) SELECT p.password_id, t.tag_id FROM passwords p, tags t "
+            + "WHERE p.password_id = ? AND p.user_id = ? AND t.tag_id = ? AND t.user_id = ?";
+
+    /**
+     * @return The user's tags, folders first, each group by name.
+     */
+    public List<Tag> findTags(int userId) {
+        List<Tag> tags = new ArrayList<>();
+        SqlEvent event = new SqlEvent("db.TagDAO.findTags");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_TAGS_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    Tag tag = new Tag();
+                    tag.setId(rs.getInt("tag_id"));
+                    tag.setUserId(userId);
+                    tag.setName(rs.getString("name"));
+                    tag.setFolder(rs.getBoolean("is_folder"));
+                    tags.add(tag);
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error loading tags of user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(tags.size());
+            event.finish();
+        }
+        return tags;
+    }
+
+    /**
+     * Saves a new tag or folder.
+     * @return The generated tag_id (also set on the tag), or -1 on failure, e.g. a duplicate name.
+     */
+    public int createTag(Tag tag) {
+        SqlEvent event = new SqlEvent("db.TagDAO.createTag");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(INSERT_TAG_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            preparedStatement.setInt(1, tag.getUserId());
+            preparedStatement.setString(2, tag.getName());
+            preparedStatement.setBoolean(3, tag.isFolder());
+            if (preparedStatement.executeUpdate() > 0) {
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        tag.setId(keys.getInt(1));
+                        event.setRows(1);
+                        return tag.getId();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error creating tag for user {}: {}", tag.getUserId(), e.getMessage(), e);
+        } finally {
+            event.finish();
+        }
+        return -1;
+    }
+
+    /**
+     * Deletes a tag; its assignments go with it (FK cascade).
+     */
+    public boolean deleteTag(int tagId, int userId) {
+        SqlEvent event = new SqlEvent("db.TagDAO.deleteTag");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(DELETE_TAG_SQL)) {
+
+            preparedStatement.setInt(1, tagId);
+            preparedStatement.setInt(2, userId);
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error deleting tag ID {}: {}", tagId, e.getMessage(), e);
+            return false;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * @return Entry ID to the IDs of its tags, for every tagged entry of the user.
+     */
+    public Map<Integer, List<Integer>> findAssignments(int userId) {
+        Map<Integer, List<Integer>> tagIdsByEntry = new HashMap<>();
+        SqlEvent event = new SqlEvent("db.TagDAO.findAssignments");
+        int rows = 0;
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(SELECT_ASSIGNMENTS_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    tagIdsByEntry.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>(2)).add(rs.getInt(2));
+                    rows++;
+                }
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error loading tag assignments of user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.setRows(rows);
+            event.finish();
+        }
+        return tagIdsByEntry;
+    }
+
+    /**
+     * Replaces an entry's tags, in one transaction. Tags or entries of other users are ignored.
+     * @return false if nothing was written (logged).
+     */
+    public boolean replaceAssignments(int entryId, int userId, Collection<Integer> tagIds) {
+        SqlEvent event = new SqlEvent("db.TagDAO.replaceAssignments");
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(DELETE_ASSIGNMENTS_SQL);
+                 PreparedStatement insert = conn.prepareStatement(INSERT_ASSIGNMENT_SQL)) {
+                delete.setInt(1, entryId);
+                delete.setInt(2, userId);
+                delete.executeUpdate();
+                for (int tagId : tagIds) {
+                    insert.setInt(1, entryId);
+                    insert.setInt(2, userId);
+                    insert.setInt(3, tagId);
+                    insert.setInt(4, userId);
+                    insert.addBatch();
+                }
+                if (!tagIds.isEmpty()) {
+                    insert.executeBatch();
+                }
+                conn.commit();
+                event.setRows(tagIds.size());
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error writing tags of entry ID {}: {}", entryId, e.getMessage(), e);
+            return false;
+        } finally {
+            event.finish();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.passwordmanager.dao;
 
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.SqlEvent;
 import com.passwordmanager.model.User;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -16,11 +18,16 @@ public class UserDAO {
 
     // SQL Statements adjusted to your schema's column names
     private static final String INSERT_USER_SQL =
-            "INSERT INTO users (username, master_password_hash, salt, totp_secret) VALUES (?, ?, ?, ?)";
+            "INSERT INTO users (username, master_password_hash, salt, totp_secret, wrapped_key) VALUES (?, ?, ?, ?, ?)";
     private static final String SELECT_USER_BY_USERNAME_SQL =
-            "SELECT user_id, username, master_password_hash, salt, totp_secret FROM users WHERE username = ?";
+            "SELECT user_id, username, master_password_hash, salt, totp_secret, wrapped_key, pending_wrapped_key FROM users WHERE username = ?";
+    // A pending rotation key is wrapped under the current KEK: the credentials stay until it is done
     private static final String UPDATE_HASH_SQL =
-            "UPDATE users SET master_password_hash = ?, salt = ? WHERE user_id = ?";
+            "UPDATE users SET master_password_hash = ?, salt = ?, wrapped_key = ? WHERE user_id = ? AND pending_wrapped_key IS NULL";
+    private static final String BEGIN_KEY_ROTATION_SQL =
+            "UPDATE users SET pending_wrapped_key = ? WHERE user_id = ? AND wrapped_key = ? AND pending_wrapped_key IS NULL";
+    private static final String COMPLETE_KEY_ROTATION_SQL =
+            "UPDATE users SET wrapped_key = pending_wrapped_key, totp_secret = ?, pending_wrapped_key = NULL, updated_at = CURRENT_TIMESTAMP WHERE user_id = ? AND pending_wrapped_key = ?";
     private static final String UPDATE_TOTP_SQL =
             "UPDATE users SET totp_secret = ? WHERE user_id = ?";
 
@@ -32,23 +39,32 @@ public class UserDAO {
      */
     public int createUser(User user) {
         int userId = -1;
+        SqlEvent event = new SqlEvent("db.UserDAO.createUser");
         try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement preparedStatement = conn.prepareStatement(INSERT_USER_SQL)) {
+             PreparedStatement preparedStatement = conn.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
             preparedStatement.setString(1, user.getUsername());
             preparedStatement.setString(2, user.getMasterHash()); // master_password_hash
             preparedStatement.setString(3, user.getMasterSalt());  // salt
             preparedStatement.setString(4, user.getTotpSecretEnc()); // totp_secret (encrypted or plain based on caller)
+            preparedStatement.setString(5, user.getWrappedKey());    // wrapped_key
 
-            // Use INSERT ... RETURNING to reliably fetch generated id (works well with Supabase/Postgres pooler)
-            try (ResultSet rs = preparedStatement.executeQuery()) {
-                if (rs.next()) {
-                    userId = rs.getInt(1); // first column is user_id
-                    user.setId(userId);
+            // Fetch the generated user_id through the driver's generated-keys support
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            if (rows > 0) {
+                try (ResultSet rs = preparedStatement.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        userId = rs.getInt(1); // first column is user_id
+                        user.setId(userId);
+                    }
                 }
             }
         } catch (SQLException e) {
+            Metrics.increment("db.errors");
             LOGGER.error("Error creating user (INSERT users): {}", e.getMessage(), e);
+        } finally {
+            event.finish();
         }
         return userId;
     }
@@ -59,6 +75,7 @@ public class UserDAO {
      * @return An Optional containing the User object if found, or empty otherwise.
      */
     public Optional<User> findUserByUsername(String username) {
+        SqlEvent event = new SqlEvent("db.UserDAO.findUserByUsername");
         try (Connection conn = DatabaseManager.getInstance().getConnection();
              PreparedStatement preparedStatement = conn.prepareStatement(SELECT_USER_BY_USERNAME_SQL)) {
 
@@ -72,13 +89,95 @@ public class UserDAO {
                     user.setMasterHash(rs.getString("master_password_hash"));
                     user.setMasterSalt(rs.getString("salt"));
                     user.setTotpSecretEnc(rs.getString("totp_secret"));
+                    user.setWrappedKey(rs.getString("wrapped_key"));
+                    user.setPendingWrappedKey(rs.getString("pending_wrapped_key"));
 
+                    event.setRows(1);
                     return Optional.of(user);
                 }
             }
         } catch (SQLException e) {
+            Metrics.increment("db.errors");
             LOGGER.error("Error retrieving user: {}", e.getMessage(), e);
+        } finally {
+            event.finish();
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces the login verifier, salt and wrapped data key in one statement.
+     * Used for master-password changes and legacy-account migration.
+     * @return true if the user row was updated (false while a key rotation is unfinished).
+     */
+    public boolean updateCredentials(int userId, String masterHash, String masterSalt, String wrappedKey) {
+        SqlEvent event = new SqlEvent("db.UserDAO.updateCredentials");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(UPDATE_HASH_SQL)) {
+
+            preparedStatement.setString(1, masterHash);
+            preparedStatement.setString(2, masterSalt);
+            preparedStatement.setString(3, wrappedKey);
+            preparedStatement.setInt(4, userId);
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error updating credentials for user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.finish();
+        }
+        return false;
+    }
+
+    /**
+     * Records the new data key of a key rotation, wrapped under the current KEK, if the user
+     * still has the given wrapped key and no other rotation is pending.
+     * @return true if the rotation was started.
+     */
+    public boolean beginKeyRotation(int userId, String wrappedKey, String pendingWrappedKey) {
+        SqlEvent event = new SqlEvent("db.UserDAO.beginKeyRotation");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(BEGIN_KEY_ROTATION_SQL)) {
+
+            preparedStatement.setString(1, pendingWrappedKey);
+            preparedStatement.setInt(2, userId);
+            preparedStatement.setString(3, wrappedKey);
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error starting key rotation for user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.finish();
+        }
+        return false;
+    }
+
+    /**
+     * Makes the pending data key the user's key, with the TOTP secret re-sealed under it, in
+     * one statement.
+     * @return true if the given rotation was still pending and is now complete.
+     */
+    public boolean completeKeyRotation(int userId, String pendingWrappedKey, String totpSecretEnc) {
+        SqlEvent event = new SqlEvent("db.UserDAO.completeKeyRotation");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement preparedStatement = conn.prepareStatement(COMPLETE_KEY_ROTATION_SQL)) {
+
+            preparedStatement.setString(1, totpSecretEnc);
+            preparedStatement.setInt(2, userId);
+            preparedStatement.setString(3, pendingWrappedKey);
+            int rows = preparedStatement.executeUpdate();
+            event.setRows(rows);
+            return rows > 0;
+        } catch (SQLException e) {
+            Metrics.increment("db.errors");
+            LOGGER.error("Error completing key rotation for user {}: {}", userId, e.getMessage(), e);
+        } finally {
+            event.finish();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,123 @@
+package com.passwordmanager.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streaming reader for unencrypted Bitwarden JSON exports. Walks the token stream with
+ * Gson's {@link JsonReader}, so only the current item is ever held in memory.
+ * Non-login items (cards, identities, secure notes) are skipped.
+ */
+public class BitwardenJsonRecordReader implements RecordReader {
+
+    private static final int TYPE_LOGIN = 1;
+
+    private final JsonReader json;
+    private boolean inItems;
+
+    public BitwardenJsonRecordReader(Reader reader) throws IOException {
+        this.json = new JsonReader(reader);
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("encrypted".equals(name) && json.peek() == JsonToken.BOOLEAN) {
+                if (json.nextBoolean()) {
+                    throw new IOException("Encrypted Bitwarden exports are not supported; export as unencrypted JSON.");
+                }
+            } else if ("items".equals(name)) {
+                json.beginArray();
+                inItems = true;
+                return;
+            } else {
+                json.skipValue();
+            }
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        while (inItems && json.hasNext()) {
+            ImportRecord record = readItem();
+            if (record != null) {
+                return record;
+            }
+        }
+        inItems = false;
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        json.close();
+    }
+
+    private ImportRecord readItem() throws IOException {
+        int type = 0;
+        String title = "";
+        String note = "";
+        String username = "";
+        String password = "";
+        String url = "";
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "type": type = json.nextInt(); break;
+                case "name": title = nextString(); break;
+                case "notes": note = nextString(); break;
+                case "login":
+                    if (json.peek() == JsonToken.NULL) {
+                        json.nextNull();
+                        break;
+                    }
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        switch (json.nextName()) {
+                            case "username": username = nextString(); break;
+                            case "password": password = nextString(); break;
+                            case "uris": url = readFirstUri(); break;
+                            default: json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        return type == TYPE_LOGIN ? new ImportRecord(title, username, password, url, note) : null;
+    }
+
+    private String readFirstUri() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return "";
+        }
+        String first = "";
+        json.beginArray();
+        while (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("uri".equals(json.nextName()) && first.isEmpty()) {
+                    first = nextString();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+        return first;
+    }
+
+    private String nextString() throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return "";
+        }
+        return json.nextString();
+    }
+}
@@ -0,0 +1,140 @@
+package com.passwordmanager.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming RFC 4180 CSV reader for Chrome, Firefox and KeePass exports.
+ * Columns are located by header name, so column order and extra columns do not matter.
+ */
+public class CsvRecordReader implements RecordReader {
+
+    // Header aliases per field, lower-case (Chrome | Firefox | KeePass 2 | KeePass 1 | Bitwarden)
+    private static final String[] TITLE_HEADERS = {"name", "title", "account"};
+    private static final String[] USERNAME_HEADERS = {"username", "user name", "login name", "login", "login_username"};
+    private static final String[] PASSWORD_HEADERS = {"password", "login_password"};
+    private static final String[] URL_HEADERS = {"url", "web site", "website", "login_uri"};
+    private static final String[] NOTE_HEADERS = {"note", "notes", "comments", "comment"};
+
+    private final Reader reader;
+    private final int titleColumn;
+    private final int usernameColumn;
+    private final int passwordColumn;
+    private final int urlColumn;
+    private final int noteColumn;
+    private final List<String> row = new ArrayList<>();
+    private final StringBuilder cell = new StringBuilder();
+    private int pushback = -2;
+
+    public CsvRecordReader(Reader reader) throws IOException {
+        this.reader = reader;
+        if (!readRow()) {
+            throw new IOException("CSV file is empty.");
+        }
+        List<String> header = new ArrayList<>(row.size());
+        for (String name : row) {
+            header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+        }
+        titleColumn = column(header, TITLE_HEADERS);
+        usernameColumn = column(header, USERNAME_HEADERS);
+        passwordColumn = column(header, PASSWORD_HEADERS);
+        urlColumn = column(header, URL_HEADERS);
+        noteColumn = column(header, NOTE_HEADERS);
+        if (passwordColumn < 0 || (titleColumn < 0 && urlColumn < 0)) {
+            throw new IOException("Unrecognised CSV header: " + header);
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        while (readRow()) {
+            if (row.size() == 1 && row.get(0).isEmpty()) {
+                continue; // blank line
+            }
+            String url = cellAt(urlColumn);
+            String title = cellAt(titleColumn);
+            if (title.isEmpty()) {
+                title = url; // Firefox exports have no name column
+            }
+            return new ImportRecord(title, cellAt(usernameColumn), cellAt(passwordColumn), url, cellAt(noteColumn));
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String cellAt(int column) {
+        return column >= 0 && column < row.size() ? row.get(column) : "";
+    }
+
+    private static int column(List<String> header, String[] aliases) {
+        for (String alias : aliases) {
+            int index = header.indexOf(alias);
+            if (index >= 0) return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads one logical row (quoted cells may span lines) into {@link #row}.
+     * @return false at end of input.
+     */
+    private boolean readRow() throws IOException {
+        row.clear();
+        cell.setLength(0);
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted CSV field.");
+                }
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        cell.append('"');
+                    } else {
+                        quoted = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    cell.append((char) c);
+                }
+            } else if (c == '"' && cell.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(cell.toString());
+                cell.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int n = read();
+                    if (n != '\n') pushback = n;
+                }
+                row.add(cell.toString());
+                return true;
+            } else {
+                cell.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != -2) {
+            int c = pushback;
+            pushback = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,58 @@
+package com.passwordmanager.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Supported export formats. CSV covers Chrome, Firefox and KeePass exports;
+ * the column layout is detected from the header row.
+ */
+public enum ImportFormat {
+    CSV("CSV (Chrome / Firefox / KeePass)"),
+    BITWARDEN_JSON("Bitwarden JSON (unencrypted)"),
+    KEEPASS_XML("KeePass 2 XML");
+
+    private final String displayName;
+
+    ImportFormat(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() { return displayName; }
+
+    /**
+     * Guesses the format from the file extension.
+     */
+    public static ImportFormat detect(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".json")) return BITWARDEN_JSON;
+        if (name.endsWith(".xml")) return KEEPASS_XML;
+        return CSV;
+    }
+
+    /**
+     * Opens a streaming reader for the file in this format.
+     */
+    public RecordReader open(Path file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            switch (this) {
+                case BITWARDEN_JSON: return new BitwardenJsonRecordReader(reader);
+                case KEEPASS_XML: return new KeePassXmlRecordReader(reader);
+                case CSV:
+                default: return new CsvRecordReader(reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,27 @@
+package com.passwordmanager.importer;
+
+/**
+ * One plaintext login parsed from another password manager's export.
+ * Lives only between the parse and encrypt stages of an import.
+ */
+public class ImportRecord {
+    private final String title;
+    private final String username;
+    private final String password;
+    private final String url;
+    private final String note;
+
+    public ImportRecord(String title, String username, String password, String url, String note) {
+        this.title = title;
+        this.username = username;
+        this.password = password;
+        this.url = url;
+        this.note = note;
+    }
+
+    public String getTitle() { return title; }
+    public String getUsername() { return username; }
+    public String getPassword() { return password; }
+    public String getUrl() { return url; }
+    public String getNote() { return note; }
+}
@@ -0,0 +1,107 @@
+package com.passwordmanager.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming (StAX) reader for KeePass 2 XML exports. Reads one {@code <Entry>} at a time
+ * and skips each entry's {@code <History>} so old revisions are not imported as duplicates.
+ */
+public class KeePassXmlRecordReader implements RecordReader {
+
+    private final Reader source;
+    private final XMLStreamReader xml;
+
+    public KeePassXmlRecordReader(Reader reader) throws IOException {
+        this.source = reader;
+        try {
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            // Exports are untrusted input: no DTDs, no external entities
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            this.xml = factory.createXMLStreamReader(reader);
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid KeePass XML: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ImportRecord next() throws IOException {
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "Entry".equals(xml.getLocalName())) {
+                    return readEntry();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid KeePass XML: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            // Ignore; the underlying reader is closed below
+        }
+        source.close();
+    }
+
+    private ImportRecord readEntry() throws XMLStreamException {
+        String title = "";
+        String username = "";
+        String password = "";
+        String url = "";
+        String note = "";
+
+        int depth = 1;
+        String key = null;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("History".equals(name)) {
+                    skipElement();
+                    continue;
+                }
+                depth++;
+                if ("Key".equals(name)) {
+                    key = xml.getElementText();
+                    depth--;
+                } else if ("Value".equals(name)) {
+                    String value = xml.getElementText();
+                    depth--;
+                    if (key != null) {
+                        switch (key) {
+                            case "Title": title = value; break;
+                            case "UserName": username = value; break;
+                            case "Password": password = value; break;
+                            case "URL": url = value; break;
+                            case "Notes": note = value; break;
+                            default: break;
+                        }
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return new ImportRecord(title, username, password, url, note);
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+}
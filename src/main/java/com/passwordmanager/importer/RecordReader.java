@@ -0,0 +1,15 @@
+package com.passwordmanager.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull-style streaming parser: holds at most one record in memory at a time.
+ */
+public interface RecordReader extends Closeable {
+
+    /**
+     * @return The next record, or null at end of input.
+     */
+    ImportRecord next() throws IOException;
+}
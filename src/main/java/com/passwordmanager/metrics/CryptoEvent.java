@@ -0,0 +1,37 @@
+package com.passwordmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One AES-GCM encryption or decryption.
+ */
+@Name("com.passwordmanager.Crypto")
+@Label("AES-GCM Operation")
+@Category({"Password Manager", "Crypto"})
+@Description("AES-GCM encrypt or decrypt of one value")
+public class CryptoEvent extends TimedEvent {
+
+    public static final String ENCRYPT = "encrypt";
+    public static final String DECRYPT = "decrypt";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Bytes")
+    @Description("Plaintext or ciphertext size")
+    @DataAmount
+    private long bytes;
+
+    /**
+     * @param operation {@link #ENCRYPT} or {@link #DECRYPT}.
+     */
+    public CryptoEvent(String operation, long bytes) {
+        super(ENCRYPT.equals(operation) ? "crypto.aesgcm.encrypt" : "crypto.aesgcm.decrypt");
+        this.operation = operation;
+        this.bytes = bytes;
+    }
+}
@@ -0,0 +1,62 @@
+package com.passwordmanager.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * The "Record Diagnostics" action: a Java Flight Recorder recording with the JDK's
+ * profile settings plus the app's own events (key derivation, AES-GCM, SQL), dumped
+ * to a .jfr file for JDK Mission Control. Only the last {@link #MAX_AGE} is kept.
+ */
+public final class DiagnosticsRecorder {
+
+    public static final Duration MAX_AGE = Duration.ofMinutes(15);
+
+    private static Recording recording;
+
+    private DiagnosticsRecorder() {}
+
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Starts recording; does nothing if a recording is already running.
+     */
+    public static synchronized void start() throws IOException, ParseException {
+        if (recording != null) {
+            return;
+        }
+        Recording r = new Recording(Configuration.getConfiguration("profile"));
+        r.setName("Password Manager diagnostics");
+        r.enable(KeyDerivationEvent.class);
+        r.enable(CryptoEvent.class);
+        r.enable(SqlEvent.class);
+        r.setMaxAge(MAX_AGE);
+        r.setToDisk(true);
+        r.start();
+        recording = r;
+    }
+
+    /**
+     * Stops the recording and writes it to {@code target}.
+     * @throws IllegalStateException if no recording is running.
+     */
+    public static synchronized void stopAndDump(Path target) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No diagnostics recording is running.");
+        }
+        try {
+            recording.stop();
+            recording.dump(target);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.passwordmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One password-based key derivation (the fixed cost of every unlock).
+ */
+@Name("com.passwordmanager.KeyDerivation")
+@Label("Key Derivation")
+@Category({"Password Manager", "Crypto"})
+@Description("Master password stretched with PBKDF2")
+public class KeyDerivationEvent extends TimedEvent {
+
+    @Label("Algorithm")
+    private String algorithm;
+
+    @Label("Iterations")
+    private int iterations;
+
+    public KeyDerivationEvent(String algorithm, int iterations) {
+        super("crypto.pbkdf2");
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+    }
+}
@@ -0,0 +1,64 @@
+package com.passwordmanager.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Static recording helpers on the default {@link MetricsRegistry}, and the exporters.
+ *
+ * Typical use around a call:
+ * <pre>
+ * long start = System.nanoTime();
+ * try { ... } finally { Metrics.recordSince("db.UserDAO.createUser", start); }
+ * </pre>
+ */
+public final class Metrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Metrics.class);
+
+    public static final String HTTP_PORT_PROPERTY = "passwordmanager.metrics.port";
+    public static final String JMX_NAME = "com.passwordmanager:type=Metrics";
+
+    private Metrics() {}
+
+    /**
+     * Records the time elapsed since {@code startNanos} (from {@link System#nanoTime()}).
+     */
+    public static void recordSince(String name, long startNanos) {
+        MetricsRegistry.getDefault().histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    public static void increment(String name) {
+        MetricsRegistry.getDefault().counter(name).increment();
+    }
+
+    /**
+     * Registers the JMX MBean and, if {@code passwordmanager.metrics.port} is set, starts the
+     * localhost-only text endpoint. Failures are logged; metrics are never worth failing startup.
+     */
+    public static void startExporters() {
+        try {
+            ObjectName name = new ObjectName(JMX_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(MetricsRegistry.getDefault()), name);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Could not register metrics MBean: {}", e.getMessage());
+        }
+
+        Integer port = Integer.getInteger(HTTP_PORT_PROPERTY);
+        if (port != null) {
+            try {
+                MetricsHttpEndpoint.start(MetricsRegistry.getDefault(), port);
+            } catch (IOException e) {
+                LOGGER.warn("Could not start metrics endpoint on port {}: {}", port, e.getMessage());
+            }
+        }
+    }
+}
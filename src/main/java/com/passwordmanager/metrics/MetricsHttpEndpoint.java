@@ -0,0 +1,50 @@
+package com.passwordmanager.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Plain-text metrics at http://127.0.0.1:&lt;port&gt;/metrics. Bound to the loopback
+ * interface only: the values are not secret, but nothing about the vault should be
+ * reachable from the network.
+ */
+final class MetricsHttpEndpoint {
+
+    private MetricsHttpEndpoint() {}
+
+    static HttpServer start(MetricsRegistry registry, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = registry.renderText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.setExecutor(null); // Single dispatcher thread is plenty for scrapes
+
+        // The dispatcher thread inherits daemon status from the thread that starts the server;
+        // start it from a daemon thread so the endpoint never keeps the app alive on exit
+        Thread starter = new Thread(server::start, "metrics-endpoint-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return server;
+    }
+}
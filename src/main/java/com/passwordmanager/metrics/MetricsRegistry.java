@@ -0,0 +1,81 @@
+package com.passwordmanager.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.passwordmanager.util.LatencyHistogram;
+
+/**
+ * In-process metrics: counters, latency histograms (nanoseconds) and gauges, keyed by
+ * dotted names such as {@code db.PasswordDAO.findAllByUserId}.
+ *
+ * Recording is lock-free and allocation-free once a name exists (a map lookup plus atomic
+ * increments), so it is cheap enough for every statement and crypto call. Values are
+ * cumulative since start; exporters read them through {@link #snapshot()}.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @return The process-wide registry used by {@link Metrics}.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers (or replaces) a gauge read on every snapshot.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Flattens every metric into name → value. Histograms expand to
+     * {@code name.count}, {@code .meanMillis}, {@code .p50Millis}, {@code .p99Millis},
+     * {@code .p999Millis} and {@code .maxMillis}.
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".meanMillis", histogram.getMean() / 1e6);
+            values.put(name + ".p50Millis", histogram.getValueAtPercentile(50) / 1e6);
+            values.put(name + ".p99Millis", histogram.getValueAtPercentile(99) / 1e6);
+            values.put(name + ".p999Millis", histogram.getValueAtPercentile(99.9) / 1e6);
+            values.put(name + ".maxMillis", histogram.getMax() / 1e6);
+        });
+        return values;
+    }
+
+    /**
+     * One "name value" line per metric, for the text endpoint and logs.
+     */
+    public String renderText() {
+        StringBuilder text = new StringBuilder();
+        snapshot().forEach((name, value) -> text.append(name).append(' ')
+                .append(value instanceof Double d ? String.format("%.3f", d) : value.toString()).append('\n'));
+        return text.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.passwordmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One DAO call, including the wait for a pooled connection.
+ */
+@Name("com.passwordmanager.Sql")
+@Label("SQL Statement")
+@Category({"Password Manager", "Database"})
+@Description("A DAO statement (or batch) and the rows it returned or changed")
+public class SqlEvent extends TimedEvent {
+
+    @Label("SQL Id")
+    @Description("DAO and method, e.g. db.PasswordDAO.findAllByUserId")
+    private String sqlId;
+
+    @Label("Rows")
+    private int rows;
+
+    /**
+     * @param sqlId Also the metric name.
+     */
+    public SqlEvent(String sqlId) {
+        super(sqlId);
+        this.sqlId = sqlId;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+}
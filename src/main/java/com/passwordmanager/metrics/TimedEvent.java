@@ -0,0 +1,30 @@
+package com.passwordmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+
+/**
+ * Base of the app's JFR events: one object both times the call for {@link Metrics}
+ * and, while a recording is running, emits the Flight Recorder event. With no
+ * recording, commit() is a cheap no-op, so call sites stay unconditional.
+ */
+@Category("Password Manager")
+public abstract class TimedEvent extends Event {
+
+    private final transient String metric;
+    private final transient long startNanos;
+
+    TimedEvent(String metric) {
+        this.metric = metric;
+        this.startNanos = System.nanoTime();
+        begin();
+    }
+
+    /**
+     * Records the latency metric and commits the event; call once, in a finally block.
+     */
+    public void finish() {
+        Metrics.recordSince(metric, startNanos);
+        commit();
+    }
+}
@@ -0,0 +1,32 @@
+package com.passwordmanager.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Metadata of a file attached to a password entry. The content itself lives encrypted
+ * in the local blob store under {@code blobId} and is only read when the user opens it.
+ */
+public class Attachment {
+    private int id;
+    private int passwordId;
+    private int userId;
+    private String fileName;
+    private long sizeBytes;   // plaintext size
+    private String blobId;    // file name in the blob store
+    private Timestamp createdAt;
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public int getPasswordId() { return passwordId; }
+    public void setPasswordId(int passwordId) { this.passwordId = passwordId; }
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+    public String getBlobId() { return blobId; }
+    public void setBlobId(String blobId) { this.blobId = blobId; }
+    public Timestamp getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
+}
@@ -9,11 +9,15 @@ public class PasswordEntry {
     private String usernameEnc; // Encrypted service username/email
     private String passwordEnc; // Encrypted actual password
     private String noteEnc;     // Encrypted note
+    private String urlEnc;      // Encrypted site URL (current format only)
 
     // Nonce fields (separate storage in your schema)
     private String entryNonce;  // Maps to 'nonce' (for password/service username)
     private String noteNonce;   // Maps to 'note_nonce' (for note)
 
+    private int encVersion = 1; // Maps to 'enc_version' (field format, see EntryFieldCipher)
+    private int rowVersion = 1; // Maps to 'row_version' (bumped by every edit, for optimistic updates)
+
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
     public int getUserId() { return userId; }
@@ -26,8 +30,14 @@ public class PasswordEntry {
     public void setPasswordEnc(String passwordEnc) { this.passwordEnc = passwordEnc; }
     public String getNoteEnc() { return noteEnc; }
     public void setNoteEnc(String noteEnc) { this.noteEnc = noteEnc; }
+    public String getUrlEnc() { return urlEnc; }
+    public void setUrlEnc(String urlEnc) { this.urlEnc = urlEnc; }
     public String getEntryNonce() { return entryNonce; }
     public void setEntryNonce(String entryNonce) { this.entryNonce = entryNonce; }
     public String getNoteNonce() { return noteNonce; }
     public void setNoteNonce(String noteNonce) { this.noteNonce = noteNonce; }
+    public int getEncVersion() { return encVersion; }
+    public void setEncVersion(int encVersion) { this.encVersion = encVersion; }
+    public int getRowVersion() { return rowVersion; }
+    public void setRowVersion(int rowVersion) { this.rowVersion = rowVersion; }
 }
\ No newline at end of file
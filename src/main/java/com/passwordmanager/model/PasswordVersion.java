@@ -0,0 +1,29 @@
+package com.passwordmanager.model;
+
+import java.sql.Timestamp;
+
+/**
+ * An earlier password of an entry, from the password_history table. Only the sealed
+ * password field is kept (current field format: nonce|ct|tag, bound to the user).
+ */
+public class PasswordVersion {
+    private int id;
+    private int passwordId;
+    private int userId;
+    private String passwordEnc;
+    private int rowVersion;       // The entry's row version while this password was current
+    private Timestamp replacedAt;
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public int getPasswordId() { return passwordId; }
+    public void setPasswordId(int passwordId) { this.passwordId = passwordId; }
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public String getPasswordEnc() { return passwordEnc; }
+    public void setPasswordEnc(String passwordEnc) { this.passwordEnc = passwordEnc; }
+    public int getRowVersion() { return rowVersion; }
+    public void setRowVersion(int rowVersion) { this.rowVersion = rowVersion; }
+    public Timestamp getReplacedAt() { return replacedAt; }
+    public void setReplacedAt(Timestamp replacedAt) { this.replacedAt = replacedAt; }
+}
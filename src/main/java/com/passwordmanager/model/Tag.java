@@ -0,0 +1,20 @@
+package com.passwordmanager.model;
+
+/**
+ * A user-defined label for entries. A folder is a tag an entry can carry only one of.
+ */
+public class Tag {
+    private int id;
+    private int userId;
+    private String name;
+    private boolean folder;
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public boolean isFolder() { return folder; }
+    public void setFolder(boolean folder) { this.folder = folder; }
+}
@@ -9,6 +9,8 @@ public class User {
     // NOTE: Your schema stores the TOTP Nonce combined with the secret,
     // or relies on the secret being stored after decryption.
     // For now, we use one field: totpSecretEnc, which will store the combined result (Nonce|Ciphertext).
+    private String wrappedKey; // Vault data key encrypted under the master-password KEK (Base64 of nonce|ct|tag)
+    private String pendingWrappedKey; // New data key of an unfinished key rotation, wrapped the same way (null if none)
 
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -20,4 +22,8 @@ public class User {
     public void setMasterSalt(String masterSalt) { this.masterSalt = masterSalt; }
     public String getTotpSecretEnc() { return totpSecretEnc; }
     public void setTotpSecretEnc(String totpSecretEnc) { this.totpSecretEnc = totpSecretEnc; }
+    public String getWrappedKey() { return wrappedKey; }
+    public void setWrappedKey(String wrappedKey) { this.wrappedKey = wrappedKey; }
+    public String getPendingWrappedKey() { return pendingWrappedKey; }
+    public void setPendingWrappedKey(String pendingWrappedKey) { this.pendingWrappedKey = pendingWrappedKey; }
 }
\ No newline at end of file
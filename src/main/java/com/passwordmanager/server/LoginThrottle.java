@@ -0,0 +1,99 @@
+package com.passwordmanager.server;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Failed-login throttle for the vault server, keyed by username and by client address.
+ *
+ * The first few failures of a key are free; each one after that locks the key out for
+ * twice as long as the last (1 s, 2 s, 4 s, ... up to the cap). A login is refused while
+ * either its username or its address is locked out, so neither guessing one user's password
+ * from many addresses nor spraying many users from one address gets more than a trickle
+ * of PBKDF2 derivations. A successful login clears its username. Keys idle for longer than
+ * the cap are forgotten once too many are tracked, so a username spray cannot grow the map
+ * without bound.
+ */
+final class LoginThrottle {
+
+    private static final int MAX_TRACKED = 100_000;
+
+    private final int freeFailures;
+    private final long firstLockoutNanos;
+    private final long maxLockoutNanos;
+    private final LongSupplier clock;
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+
+    // Failure count and lockout of one key; replaced, never mutated
+    private record Failures(int count, long lockedUntil, long lastFailure) {}
+
+    /**
+     * @param freeFailures Failures allowed before the first lockout.
+     * @param firstLockout Lockout after the first failure beyond those; doubles with every further one.
+     * @param maxLockout Cap on a single lockout.
+     */
+    LoginThrottle(int freeFailures, Duration firstLockout, Duration maxLockout) {
+        this(freeFailures, firstLockout, maxLockout, System::nanoTime);
+    }
+
+    LoginThrottle(int freeFailures, Duration firstLockout, Duration maxLockout, LongSupplier clock) {
+        this.freeFailures = freeFailures;
+        this.firstLockoutNanos = firstLockout.toNanos();
+        this.maxLockoutNanos = maxLockout.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * @return How long the caller must wait before this login may be tried, or zero.
+     */
+    Duration retryAfter(String username, String address) {
+        long now = clock.getAsLong();
+        long wait = Math.max(remaining(userKey(username), now), remaining(addressKey(address), now));
+        return Duration.ofNanos(wait);
+    }
+
+    void recordFailure(String username, String address) {
+        long now = clock.getAsLong();
+        if (failures.size() >= MAX_TRACKED) {
+            failures.values().removeIf(f -> now - f.lastFailure() > maxLockoutNanos);
+        }
+        failures.compute(userKey(username), (key, previous) -> next(previous, now));
+        failures.compute(addressKey(address), (key, previous) -> next(previous, now));
+    }
+
+    void recordSuccess(String username) {
+        failures.remove(userKey(username));
+    }
+
+    int size() {
+        return failures.size();
+    }
+
+    private Failures next(Failures previous, long now) {
+        int count = previous == null ? 1 : previous.count() + 1;
+        long lockedUntil = now;
+        if (count > freeFailures) {
+            long lockout = firstLockoutNanos;
+            for (int i = freeFailures + 1; i < count && lockout < maxLockoutNanos; i++) {
+                lockout *= 2;
+            }
+            lockedUntil = now + Math.min(lockout, maxLockoutNanos);
+        }
+        return new Failures(count, lockedUntil, now);
+    }
+
+    private long remaining(String key, long now) {
+        Failures current = failures.get(key);
+        return current == null ? 0 : Math.max(0, current.lockedUntil() - now);
+    }
+
+    private static String userKey(String username) {
+        return "user:" + username;
+    }
+
+    private static String addressKey(String address) {
+        return "addr:" + address;
+    }
+}
@@ -0,0 +1,454 @@
+package com.passwordmanager.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.passwordmanager.dao.DatabaseManager;
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.AuthService;
+import com.passwordmanager.service.AuthService.UnlockedVault;
+import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.service.SessionManager;
+import com.passwordmanager.service.SessionManager.Session;
+import com.passwordmanager.util.EntryFieldCipher;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Multi-user vault service: AuthService and PasswordService as a JSON API on the JDK
+ * HttpServer, one virtual thread per request, so a team shares one database connection pool
+ * instead of every desktop holding database credentials.
+ *
+ * Entries only cross the API sealed: login returns a session token with the user's salt and
+ * wrapped key, the client unwraps the key itself ({@link AuthService#unwrapDataKey}) and
+ * seals/opens fields with EntryFieldCipher. The server is still trusted with the vault key:
+ * login sends the master password, and the server derives the key-encryption key and unwraps
+ * the data key to read the TOTP secret sealed under it, zeroing the key before it answers.
+ * A compromised server can therefore capture master passwords and data keys at login.
+ *
+ * Logins are throttled ({@link LoginThrottle}): after a few failures for a username or a
+ * client address, further attempts get 429 with Retry-After for a doubling lockout, before any
+ * key derivation. At most -Dpasswordmanager.server.loginConcurrency (default: one per core)
+ * derivations run at once; a login that cannot get a slot within 10 s gets 503 with Retry-After.
+ *
+ *   POST   /api/login          {"username","password","totp"} -> {"token","userId","salt","wrappedKey"}
+ *   POST   /api/logout
+ *   GET    /api/entries        -> {"entries":[{id,title,usernameEnc,passwordEnc,noteEnc,urlEnc,encVersion,rowVersion,...}]}
+ *   GET    /api/entries/{id}
+ *   POST   /api/entries        {"title","usernameEnc","passwordEnc","noteEnc","urlEnc"} (sealed client-side) -> {"id"}
+ *   PUT    /api/entries/{id}   {..., "rowVersion"} -> {"id","rowVersion"}; 409 if saved since that version
+ *                              (GET it, merge with SyncService.merge, PUT again)
+ *   DELETE /api/entries/{id}
+ * Everything but login needs "Authorization: Bearer &lt;token&gt;".
+ *
+ * Usage: java -cp PasswordManager.jar com.passwordmanager.server.VaultServer [--host 127.0.0.1] [--port 8080]
+ * The master password crosses the wire at login: outside localhost, serve HTTPS with
+ * -Dpasswordmanager.server.keystore=server.p12 -Dpasswordmanager.server.keystorePassword=... (PKCS12).
+ */
+public final class VaultServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VaultServer.class);
+
+    public static final String KEYSTORE_PROPERTY = "passwordmanager.server.keystore";
+    public static final String KEYSTORE_PASSWORD_PROPERTY = "passwordmanager.server.keystorePassword";
+    public static final String LOGIN_CONCURRENCY_PROPERTY = "passwordmanager.server.loginConcurrency";
+
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(15);
+    private static final Duration ABSOLUTE_TIMEOUT = Duration.ofHours(12);
+    private static final int FREE_LOGIN_FAILURES = 5;
+    private static final Duration FIRST_LOCKOUT = Duration.ofSeconds(1);
+    private static final Duration MAX_LOCKOUT = Duration.ofMinutes(15);
+    private static final Duration DERIVATION_WAIT = Duration.ofSeconds(10);
+    private static final Gson GSON = new Gson();
+
+    /** A failed request: status code and client-facing message. */
+    private static final class ApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    private final AuthService authService;
+    private final PasswordService passwordService;
+    private final SessionManager sessions;
+    private final LoginThrottle loginThrottle = new LoginThrottle(FREE_LOGIN_FAILURES, FIRST_LOCKOUT, MAX_LOCKOUT);
+    private final Semaphore derivations = new Semaphore(
+            Integer.getInteger(LOGIN_CONCURRENCY_PROPERTY, Runtime.getRuntime().availableProcessors()), true);
+    private HttpServer server;
+    private ExecutorService requests;
+
+    public VaultServer(AuthService authService, PasswordService passwordService) {
+        this.authService = authService;
+        this.passwordService = passwordService;
+        // Server sessions hold no key material; 2 s ticks keep the idle timeout within one wheel turn
+        this.sessions = new SessionManager("server", IDLE_TIMEOUT, ABSOLUTE_TIMEOUT, Duration.ofSeconds(2));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = 8080;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host" -> host = args[i + 1];
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        Metrics.startExporters();
+        VaultServer vaultServer = new VaultServer(new AuthService(), new PasswordService());
+        vaultServer.start(new InetSocketAddress(host, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(vaultServer::stop, "vault-server-shutdown"));
+        System.out.println("Vault server listening on " + (vaultServer.server instanceof HttpsServer ? "https" : "http")
+                + "://" + host + ":" + vaultServer.getPort() + "/api/");
+    }
+
+    /**
+     * Starts serving; HTTPS when a keystore is configured.
+     */
+    public void start(InetSocketAddress address) throws Exception {
+        String keystore = System.getProperty(KEYSTORE_PROPERTY);
+        if (keystore != null) {
+            HttpsServer https = HttpsServer.create(address, 1024);
+            https.setHttpsConfigurator(new HttpsConfigurator(sslContext(keystore)));
+            server = https;
+        } else {
+            server = HttpServer.create(address, 1024);
+        }
+        server.createContext("/api/login", exchange -> handle(exchange, "login", false));
+        server.createContext("/api/logout", exchange -> handle(exchange, "logout", true));
+        server.createContext("/api/entries", exchange -> handle(exchange, "entries", true));
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(requests);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public void stop() {
+        server.stop(1);
+        requests.shutdown();
+        sessions.close();
+        DatabaseManager.getInstance().closeConnection();
+    }
+
+    // --- DISPATCH ---
+
+    private void handle(HttpExchange exchange, String route, boolean authenticated) throws IOException {
+        long start = System.nanoTime();
+        try (exchange) {
+            int status;
+            Object body;
+            try {
+                Session session = authenticated ? authenticate(exchange) : null;
+                String method = exchange.getRequestMethod();
+                body = switch (route) {
+                    case "login" -> login(exchange);
+                    case "logout" -> logout(exchange);
+                    default -> entries(exchange, method, session);
+                };
+                status = body == null ? 204 : "POST".equals(method) && "entries".equals(route) ? 201 : 200;
+            } catch (ApiException e) {
+                status = e.status;
+                JsonObject error = new JsonObject();
+                error.addProperty("error", e.getMessage());
+                body = error;
+            } catch (RuntimeException e) {
+                LOGGER.error("Request {} {} failed:", exchange.getRequestMethod(), exchange.getRequestURI().getPath(), e);
+                Metrics.increment("http.errors");
+                status = 500;
+                JsonObject error = new JsonObject();
+                error.addProperty("error", "internal error");
+                body = error;
+            }
+            send(exchange, status, body);
+        } finally {
+            Metrics.recordSince("http." + route, start);
+        }
+    }
+
+    private Session authenticate(HttpExchange exchange) throws ApiException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        String token = header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+        return sessions.touch(token).orElseThrow(() -> new ApiException(401, "not authenticated"));
+    }
+
+    // --- ROUTES ---
+
+    private JsonObject login(HttpExchange exchange) throws ApiException, IOException {
+        requireMethod(exchange.getRequestMethod(), "POST");
+        JsonObject request = readJson(exchange);
+        String username = string(request, "username");
+        String password = string(request, "password");
+        String totp = string(request, "totp");
+        if (username == null || password == null || totp == null) {
+            throw new ApiException(400, "username, password and totp are required");
+        }
+
+        // 1. Refuse while the username or the address is locked out, before any key derivation
+        String address = exchange.getRemoteAddress().getAddress().getHostAddress();
+        Duration wait = loginThrottle.retryAfter(username, address);
+        if (!wait.isZero()) {
+            Metrics.increment("http.login.throttled");
+            retryAfter(exchange, wait);
+            throw new ApiException(429, "too many failed logins, retry later");
+        }
+
+        // 2. Master password, then TOTP; the unwrapped key is only needed for the TOTP secret
+        Optional<UnlockedVault> vault = unlockVault(exchange, username, password);
+        boolean verified = false;
+        if (vault.isPresent()) {
+            try {
+                verified = authService.authenticateTotp(vault.get().getUser(), Integer.parseInt(totp.trim()), vault.get().getDataKey());
+            } catch (NumberFormatException e) {
+                verified = false;
+            } finally {
+                Arrays.fill(vault.get().getDataKey(), (byte) 0);
+            }
+        }
+        if (!verified) {
+            Metrics.increment("http.login.failed");
+            loginThrottle.recordFailure(username, address);
+            throw new ApiException(401, "invalid credentials");
+        }
+        loginThrottle.recordSuccess(username);
+
+        // 3. Session token + what the client needs to unwrap the key itself
+        Session session = sessions.create(vault.get().getUser().getId(), username, null);
+
+        JsonObject response = new JsonObject();
+        response.addProperty("token", session.getToken());
+        response.addProperty("userId", vault.get().getUser().getId());
+        response.addProperty("salt", vault.get().getUser().getMasterSalt());
+        response.addProperty("wrappedKey", vault.get().getUser().getWrappedKey());
+        response.addProperty("idleTimeoutSeconds", IDLE_TIMEOUT.toSeconds());
+        return response;
+    }
+
+    // PBKDF2 under a derivation permit, so a login burst queues instead of starving every core
+    private Optional<UnlockedVault> unlockVault(HttpExchange exchange, String username, String password) throws ApiException {
+        boolean acquired;
+        try {
+            acquired = derivations.tryAcquire(DERIVATION_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            Metrics.increment("http.login.busy");
+            retryAfter(exchange, Duration.ofSeconds(1));
+            throw new ApiException(503, "too many logins in progress, retry later");
+        }
+        try {
+            return authService.unlockVault(username, password);
+        } finally {
+            derivations.release();
+        }
+    }
+
+    private Object logout(HttpExchange exchange) throws ApiException {
+        requireMethod(exchange.getRequestMethod(), "POST");
+        sessions.invalidate(exchange.getRequestHeaders().getFirst("Authorization").substring(7).trim());
+        return null;
+    }
+
+    private Object entries(HttpExchange exchange, String method, Session session) throws ApiException, IOException {
+        String path = exchange.getRequestURI().getPath();
+        String tail = path.length() > "/api/entries".length() ? path.substring("/api/entries/".length()) : "";
+        if (tail.isEmpty()) {
+            return switch (method) {
+                case "GET" -> {
+                    JsonObject response = new JsonObject();
+                    response.add("entries", GSON.toJsonTree(passwordService.getEncryptedEntries(session.getUserId())));
+                    yield response;
+                }
+                case "POST" -> create(readJson(exchange), session);
+                default -> throw new ApiException(405, "method not allowed");
+            };
+        }
+
+        int entryId;
+        try {
+            entryId = Integer.parseInt(tail);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "not found");
+        }
+        return switch (method) {
+            case "GET" -> GSON.toJsonTree(passwordService.getEncryptedEntry(entryId, session.getUserId())
+                    .orElseThrow(() -> new ApiException(404, "not found")));
+            case "PUT" -> update(entryId, readJson(exchange), session);
+            case "DELETE" -> {
+                if (!passwordService.deleteEntry(entryId, session.getUserId())) {
+                    throw new ApiException(404, "not found");
+                }
+                yield null;
+            }
+            default -> throw new ApiException(405, "method not allowed");
+        };
+    }
+
+    private JsonObject create(JsonObject request, Session session) throws ApiException {
+        PasswordEntry entry = sealedEntry(request, session);
+        int entryId = passwordService.saveEncryptedEntry(entry);
+        if (entryId <= 0) {
+            throw new ApiException(500, "could not save entry");
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty("id", entryId);
+        return response;
+    }
+
+    private JsonObject update(int entryId, JsonObject request, Session session) throws ApiException {
+        PasswordEntry entry = sealedEntry(request, session);
+        int rowVersion = integer(request, "rowVersion");
+        entry.setId(entryId);
+        entry.setRowVersion(rowVersion);
+        if (!passwordService.updateEncryptedEntry(entry)) {
+            // Tell a stale write apart from a missing entry
+            if (passwordService.getEncryptedEntry(entryId, session.getUserId()).isPresent()) {
+                Metrics.increment("http.entries.conflicts");
+                throw new ApiException(409, "entry was changed since rowVersion " + rowVersion);
+            }
+            throw new ApiException(404, "not found");
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty("id", entryId);
+        response.addProperty("rowVersion", entry.getRowVersion());
+        return response;
+    }
+
+    // Fields must be sealed in the current format (nonce inside, bound to this user and field)
+    private static PasswordEntry sealedEntry(JsonObject request, Session session) throws ApiException {
+        String title = string(request, "title");
+        String passwordEnc = string(request, "passwordEnc");
+        if (title == null || title.isBlank() || passwordEnc == null) {
+            throw new ApiException(400, "title and passwordEnc are required");
+        }
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(session.getUserId());
+        entry.setTitle(title);
+        entry.setUsernameEnc(string(request, "usernameEnc"));
+        entry.setPasswordEnc(passwordEnc);
+        entry.setNoteEnc(string(request, "noteEnc"));
+        entry.setUrlEnc(string(request, "urlEnc"));
+        entry.setEncVersion(EntryFieldCipher.VERSION_CURRENT);
+        return entry;
+    }
+
+    // --- HELPERS ---
+
+    private static void requireMethod(String method, String expected) throws ApiException {
+        if (!expected.equals(method)) {
+            throw new ApiException(405, "method not allowed");
+        }
+    }
+
+    private static void retryAfter(HttpExchange exchange, Duration wait) {
+        long seconds = Math.max(1, (wait.toMillis() + 999) / 1000);
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+    }
+
+    private static JsonObject readJson(HttpExchange exchange) throws ApiException, IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "request too large");
+            }
+            try {
+                return JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException e) {
+                throw new ApiException(400, "malformed JSON");
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // An optional string field; null when absent, 400 when it is not a string
+    private static String string(JsonObject request, String name) throws ApiException {
+        JsonElement value = request.get(name);
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+            throw new ApiException(400, name + " must be a string");
+        }
+        return value.getAsString();
+    }
+
+    // A required integer field; 400 when it is absent, fractional or out of range
+    private static int integer(JsonObject request, String name) throws ApiException {
+        JsonElement value = request.get(name);
+        if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+            throw new ApiException(400, name + " must be an integer");
+        }
+        try {
+            return value.getAsBigDecimal().intValueExact();
+        } catch (ArithmeticException e) {
+            throw new ApiException(400, name + " must be an integer");
+        }
+    }
+
+    private static SSLContext sslContext(String keystore) throws Exception {
+        char[] password = System.getProperty(KEYSTORE_PASSWORD_PROPERTY, "").toCharArray();
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(Paths.get(keystore))) {
+            store.load(in, password);
+        }
+        KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(store, password);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keys.getKeyManagers(), null, null);
+        return context;
+    }
+}
@@ -0,0 +1,81 @@
+package com.passwordmanager.service;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.passwordmanager.model.User;
+import com.passwordmanager.service.AuthService.UnlockedVault;
+import com.passwordmanager.util.TotpUtil.TotpSetupInfo;
+
+/**
+ * Non-blocking counterpart of {@link AuthService}. Key derivations run under the
+ * executor's CPU limit; see {@link AsyncPasswordService} for the conventions.
+ */
+public class AsyncAuthService {
+
+    private final AuthService authService;
+    private final VaultExecutor executor;
+
+    public AsyncAuthService() {
+        this(new AuthService(), VaultExecutor.getDefault());
+    }
+
+    public AsyncAuthService(AuthService authService, VaultExecutor executor) {
+        this.authService = authService;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<TotpSetupInfo> registerUser(String username, String masterPassword) {
+        return executor.compute(() -> authService.registerUser(username, masterPassword));
+    }
+
+    public CompletableFuture<Optional<UnlockedVault>> unlockVault(String username, String masterPassword) {
+        return executor.compute(() -> authService.unlockVault(username, masterPassword));
+    }
+
+    /**
+     * Looks up the user row only (see {@link AuthService#findUser}).
+     */
+    public CompletableFuture<Optional<User>> findUser(String username) {
+        return executor.database(() -> authService.findUser(username));
+    }
+
+    public CompletableFuture<Optional<UnlockedVault>> unlockVault(User user, String masterPassword) {
+        return executor.compute(() -> authService.unlockVault(user, masterPassword));
+    }
+
+    public CompletableFuture<Boolean> authenticateTotp(User user, int totpCode, byte[] dataKey) {
+        return executor.compute(() -> authService.authenticateTotp(user, totpCode, dataKey));
+    }
+
+    /**
+     * Full login: master password, then the TOTP code.
+     * @return The unlocked vault, or empty if either step fails (the data key is then zeroed).
+     */
+    public CompletableFuture<Optional<UnlockedVault>> login(String username, String masterPassword, int totpCode) {
+        return unlockVault(username, masterPassword).thenCompose(vault -> {
+            if (vault.isEmpty()) {
+                return CompletableFuture.completedFuture(vault);
+            }
+            return authenticateTotp(vault.get().getUser(), totpCode, vault.get().getDataKey()).handle((verified, error) -> {
+                if (error != null || !verified) {
+                    Arrays.fill(vault.get().getDataKey(), (byte) 0);
+                    return Optional.empty();
+                }
+                return vault;
+            });
+        });
+    }
+
+    public CompletableFuture<Boolean> changeMasterPassword(User user, String currentPassword, String newPassword) {
+        return executor.compute(() -> authService.changeMasterPassword(user, currentPassword, newPassword));
+    }
+
+    /**
+     * The blocking service behind this one.
+     */
+    public AuthService getAuthService() {
+        return authService;
+    }
+}
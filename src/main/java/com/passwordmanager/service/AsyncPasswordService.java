@@ -0,0 +1,136 @@
+package com.passwordmanager.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
+
+/**
+ * Non-blocking counterpart of {@link PasswordService}: the same public operations, run on
+ * virtual threads by a {@link VaultExecutor} and returned as futures that compose and time out.
+ *
+ * Results and failure values are those of the blocking methods (e.g. false when a create
+ * fails); a future only completes exceptionally on a timeout, an unexpected error, or where
+ * the blocking method throws. Key arguments are read when the call runs, not when it is
+ * submitted: keep them intact until the future completes.
+ */
+public class AsyncPasswordService {
+
+    private final PasswordService passwordService;
+    private final VaultExecutor executor;
+
+    public AsyncPasswordService() {
+        this(new PasswordService(), VaultExecutor.getDefault());
+    }
+
+    public AsyncPasswordService(PasswordService passwordService, VaultExecutor executor) {
+        this.passwordService = passwordService;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<List<PasswordEntry>> getEncryptedEntries(int userId) {
+        return executor.database(() -> passwordService.getEncryptedEntries(userId));
+    }
+
+    public CompletableFuture<List<PasswordEntry>> getEncryptedEntries(int userId, List<Integer> entryIds) {
+        return executor.database(() -> passwordService.getEncryptedEntries(userId, entryIds));
+    }
+
+    public CompletableFuture<Optional<PasswordEntry>> getEncryptedEntry(int entryId, int userId) {
+        return executor.database(() -> passwordService.getEncryptedEntry(entryId, userId));
+    }
+
+    public CompletableFuture<Boolean> createEntry(int userId, String title, String serviceUsername, String plaintextPassword, String note, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.createEntry(userId, title, serviceUsername, plaintextPassword, note, masterKeyBytes));
+    }
+
+    public CompletableFuture<Boolean> createEntry(int userId, String title, String serviceUsername, String plaintextPassword, String url, String note, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.createEntry(userId, title, serviceUsername, plaintextPassword, url, note, masterKeyBytes));
+    }
+
+    public CompletableFuture<Integer> saveEncryptedEntry(PasswordEntry entry) {
+        return executor.database(() -> passwordService.saveEncryptedEntry(entry));
+    }
+
+    public CompletableFuture<Optional<PasswordEntry>> updateEntry(PasswordEntry current, String title, String serviceUsername, String plaintextPassword, String note, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.updateEntry(current, title, serviceUsername, plaintextPassword, note, masterKeyBytes));
+    }
+
+    public CompletableFuture<Optional<PasswordEntry>> updateEntry(PasswordEntry current, String title, String serviceUsername, String plaintextPassword, String url, String note, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.updateEntry(current, title, serviceUsername, plaintextPassword, url, note, masterKeyBytes));
+    }
+
+    public CompletableFuture<Optional<PasswordEntry>> changePassword(PasswordEntry current, String plaintextPassword, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.changePassword(current, plaintextPassword, masterKeyBytes));
+    }
+
+    public CompletableFuture<Boolean> updateEncryptedEntry(PasswordEntry entry) {
+        return executor.database(() -> passwordService.updateEncryptedEntry(entry));
+    }
+
+    public CompletableFuture<Boolean> deleteEntry(int entryId, int userId) {
+        return executor.database(() -> passwordService.deleteEntry(entryId, userId));
+    }
+
+    // --- HISTORY ---
+
+    /**
+     * A storage setting, answered directly.
+     */
+    public boolean keepsPasswordHistory() {
+        return passwordService.keepsPasswordHistory();
+    }
+
+    public CompletableFuture<List<PasswordVersion>> getPasswordHistory(int entryId, int userId) {
+        return executor.database(() -> passwordService.getPasswordHistory(entryId, userId));
+    }
+
+    public CompletableFuture<Boolean> restoreVersion(PasswordEntry current, PasswordVersion version) {
+        return executor.database(() -> passwordService.restoreVersion(current, version));
+    }
+
+    public CompletableFuture<Integer> purgePasswordHistory(int userId) {
+        return executor.database(() -> passwordService.purgePasswordHistory(userId));
+    }
+
+    // --- SEARCH ---
+
+    public CompletableFuture<List<PasswordEntry>> search(int userId, String query, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.search(userId, query, masterKeyBytes));
+    }
+
+    /**
+     * Completes exceptionally if indexing fails, like the blocking method throws.
+     */
+    public CompletableFuture<Integer> ensureSearchIndex(int userId, byte[] masterKeyBytes) {
+        return executor.database(() -> passwordService.ensureSearchIndex(userId, masterKeyBytes));
+    }
+
+    // --- DECRYPTION ---
+    // Decryption is microseconds of CPU, so it runs on the calling thread; the futures are for composition.
+
+    public CompletableFuture<String> decryptPassword(PasswordEntry encryptedEntry, byte[] masterKeyBytes) {
+        return CompletableFuture.completedFuture(passwordService.decryptPassword(encryptedEntry, masterKeyBytes));
+    }
+
+    public CompletableFuture<String> decryptPassword(PasswordVersion version, byte[] masterKeyBytes) {
+        return CompletableFuture.completedFuture(passwordService.decryptPassword(version, masterKeyBytes));
+    }
+
+    public CompletableFuture<String> decryptUsername(PasswordEntry encryptedEntry, byte[] masterKeyBytes) {
+        return CompletableFuture.completedFuture(passwordService.decryptUsername(encryptedEntry, masterKeyBytes));
+    }
+
+    public CompletableFuture<String> decryptUrl(PasswordEntry encryptedEntry, byte[] masterKeyBytes) {
+        return CompletableFuture.completedFuture(passwordService.decryptUrl(encryptedEntry, masterKeyBytes));
+    }
+
+    /**
+     * The blocking service behind this one.
+     */
+    public PasswordService getPasswordService() {
+        return passwordService;
+    }
+}
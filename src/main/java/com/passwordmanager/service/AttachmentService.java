@@ -0,0 +1,313 @@
+package com.passwordmanager.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.dao.AttachmentDAO;
+import com.passwordmanager.dao.FilePasswordDAO;
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.model.Attachment;
+import com.passwordmanager.util.ChunkedAesGcm;
+import com.passwordmanager.util.HkdfUtil;
+
+/**
+ * Encrypted file attachments (SSH keys, certificates, recovery codes) for password entries.
+ *
+ * Metadata goes to the attachments table; content goes to a local blob store directory
+ * ({@code passwordmanager.attachments.dir}, default ~/.passwordmanager/attachments) as
+ * "PMATTACH" | version | stream id | {@link ChunkedAesGcm} chunks, sealed with a per-blob key
+ * derived from the session key. The source file is memory-mapped in 16 MiB windows and fed
+ * to the cipher in 64 KiB slices, and decryption streams chunk by chunk to the destination, so a file is
+ * never held in the heap. Nothing is decrypted until the user opens or saves it.
+ * The file vault has no attachments table (its entries are not rows the metadata could
+ * reference): there, {@link #isAvailable()} is false and adding an attachment fails.
+ */
+public class AttachmentService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentService.class);
+
+    private static final String BLOB_DIR_PROPERTY = "passwordmanager.attachments.dir";
+    private static final byte[] MAGIC = "PMATTACH".getBytes(StandardCharsets.US_ASCII);
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + ChunkedAesGcm.STREAM_ID_LENGTH;
+    private static final String KEY_INFO = "pm-attachment-v1";
+    private static final long MAP_WINDOW = 256L * ChunkedAesGcm.CHUNK_SIZE; // 16 MiB
+
+    private final AttachmentDAO attachmentDAO; // null for the file vault
+    private final Path blobDirectory;
+
+    public AttachmentService() {
+        this(Paths.get(System.getProperty(BLOB_DIR_PROPERTY,
+                Paths.get(System.getProperty("user.home"), ".passwordmanager", "attachments").toString())),
+                PasswordDAO.forConfiguredStorage() instanceof FilePasswordDAO ? null : new AttachmentDAO());
+    }
+
+    public AttachmentService(Path blobDirectory) {
+        this(blobDirectory, new AttachmentDAO());
+    }
+
+    public AttachmentService(Path blobDirectory, AttachmentDAO attachmentDAO) {
+        this.blobDirectory = blobDirectory;
+        this.attachmentDAO = attachmentDAO;
+    }
+
+    public boolean isAvailable() {
+        return attachmentDAO != null;
+    }
+
+    /**
+     * Lists an entry's attachments (metadata only).
+     */
+    public List<Attachment> listAttachments(int passwordId, int userId) {
+        return attachmentDAO == null ? new ArrayList<>() : attachmentDAO.findByEntry(passwordId, userId);
+    }
+
+    /**
+     * Encrypts a file into the blob store and records it against the entry.
+     * @return The saved attachment metadata.
+     */
+    public Attachment addAttachment(int userId, int passwordId, Path source, byte[] masterKeyBytes) throws Exception {
+        if (attachmentDAO == null) {
+            throw new IOException("Attachments need SQL storage.");
+        }
+        Files.createDirectories(blobDirectory);
+        byte[] streamId = ChunkedAesGcm.newStreamId();
+        String blobId = HexFormat.of().formatHex(streamId);
+        Path blob = blobPath(blobId);
+
+        long size;
+        byte[] blobKey = HkdfUtil.derive(masterKeyBytes, streamId, KEY_INFO, 32);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(blob, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            size = in.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).put(FORMAT_VERSION).put(streamId).flip();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+
+            try (ChunkedAesGcm.Writer writer = new ChunkedAesGcm.Writer(out, blobKey, streamId, false)) {
+                if (size == 0) {
+                    writer.write(ByteBuffer.allocate(0), true);
+                }
+                for (long windowStart = 0; windowStart < size; windowStart += MAP_WINDOW) {
+                    // Map one window at a time: pages come from the page cache, not the heap
+                    long windowLength = Math.min(MAP_WINDOW, size - windowStart);
+                    MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                    for (int offset = 0; offset < windowLength; offset += ChunkedAesGcm.CHUNK_SIZE) {
+                        int length = (int) Math.min(ChunkedAesGcm.CHUNK_SIZE, windowLength - offset);
+                        writer.write(window.slice(offset, length), windowStart + offset + length >= size);
+                    }
+                }
+            }
+            out.force(true);
+        } catch (Exception e) {
+            Files.deleteIfExists(blob);
+            throw e;
+        } finally {
+            Arrays.fill(blobKey, (byte) 0);
+        }
+
+        Attachment attachment = new Attachment();
+        attachment.setPasswordId(passwordId);
+        attachment.setUserId(userId);
+        attachment.setFileName(source.getFileName().toString());
+        attachment.setSizeBytes(size);
+        attachment.setBlobId(blobId);
+        if (attachmentDAO.createAttachment(attachment) < 0) {
+            Files.deleteIfExists(blob);
+            throw new IOException("Could not save attachment metadata.");
+        }
+        LOGGER.info("Attached {} ({} bytes) to entry {}", attachment.getFileName(), size, passwordId);
+        return attachment;
+    }
+
+    /**
+     * Decrypts an attachment chunk by chunk into the target file. The target only
+     * receives authenticated plaintext, and is removed if any chunk fails to verify.
+     */
+    public void decryptTo(Attachment attachment, byte[] masterKeyBytes, Path target) throws Exception {
+        try (FileChannel in = FileChannel.open(blobPath(attachment.getBlobId()), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            byte[] streamId = readStreamId(in);
+            byte[] blobKey = HkdfUtil.derive(masterKeyBytes, streamId, KEY_INFO, 32);
+            try (ChunkedAesGcm.Reader reader = new ChunkedAesGcm.Reader(in, blobKey, streamId)) {
+                ChunkedAesGcm.Chunk chunk;
+                while ((chunk = reader.next()) != null) {
+                    ByteBuffer plaintext = chunk.getPlaintext();
+                    while (plaintext.hasRemaining()) {
+                        out.write(plaintext);
+                    }
+                }
+            } finally {
+                Arrays.fill(blobKey, (byte) 0);
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypts an attachment into a private temporary file for viewing with the
+     * desktop's default application. The file is removed when the application exits.
+     */
+    public Path decryptToTempFile(Attachment attachment, byte[] masterKeyBytes) throws Exception {
+        Path directory = Files.createTempDirectory("pm-attachment");
+        directory.toFile().deleteOnExit();
+        Path target = directory.resolve(Paths.get(attachment.getFileName()).getFileName());
+        decryptTo(attachment, masterKeyBytes, target);
+        target.toFile().deleteOnExit();
+        return target;
+    }
+
+    /**
+     * Re-encrypts an attachment under a new data key, for a data-key rotation: the blob is
+     * streamed chunk by chunk into a new blob (new stream id), the metadata is pointed at it,
+     * and the old blob is deleted. Plaintext never reaches the disk.
+     * @return false if the blob already opens under the new key (an interrupted rotation moved it).
+     */
+    public boolean reencrypt(Attachment attachment, byte[] oldKeyBytes, byte[] newKeyBytes) throws Exception {
+        if (attachmentDAO == null) {
+            return false;
+        }
+        Path source = blobPath(attachment.getBlobId());
+        if (!opensWith(source, oldKeyBytes)) {
+            if (opensWith(source, newKeyBytes)) {
+                return false;
+            }
+            throw new IOException("Attachment " + attachment.getId() + " opens under neither key.");
+        }
+
+        byte[] newStreamId = ChunkedAesGcm.newStreamId();
+        String newBlobId = HexFormat.of().formatHex(newStreamId);
+        Path target = blobPath(newBlobId);
+        byte[] oldBlobKey = null;
+        byte[] newBlobKey = HkdfUtil.derive(newKeyBytes, newStreamId, KEY_INFO, 32);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            byte[] streamId = readStreamId(in);
+            oldBlobKey = HkdfUtil.derive(oldKeyBytes, streamId, KEY_INFO, 32);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).put(FORMAT_VERSION).put(newStreamId).flip();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            try (ChunkedAesGcm.Reader reader = new ChunkedAesGcm.Reader(in, oldBlobKey, streamId);
+                 ChunkedAesGcm.Writer writer = new ChunkedAesGcm.Writer(out, newBlobKey, newStreamId, false)) {
+                ChunkedAesGcm.Chunk chunk;
+                while ((chunk = reader.next()) != null) {
+                    writer.write(chunk.getPlaintext(), chunk.isLast());
+                }
+            }
+            out.force(true);
+            if (!attachmentDAO.updateBlobId(attachment.getId(), attachment.getUserId(), attachment.getBlobId(), newBlobId)) {
+                throw new IOException("Attachment " + attachment.getId() + " was deleted or moved meanwhile.");
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            Arrays.fill(newBlobKey, (byte) 0);
+            if (oldBlobKey != null) {
+                Arrays.fill(oldBlobKey, (byte) 0);
+            }
+        }
+        try {
+            Files.deleteIfExists(source);
+        } catch (IOException e) {
+            LOGGER.warn("Attachment {} re-encrypted but old blob {} could not be removed: {}", attachment.getId(), attachment.getBlobId(), e.getMessage());
+        }
+        attachment.setBlobId(newBlobId);
+        return true;
+    }
+
+    /**
+     * All the user's attachments (metadata only), e.g. for a data-key rotation.
+     */
+    public List<Attachment> listAllAttachments(int userId) throws SQLException {
+        return attachmentDAO == null ? new ArrayList<>() : attachmentDAO.findByUser(userId);
+    }
+
+    /**
+     * Deletes an attachment's metadata and its encrypted blob.
+     */
+    public boolean deleteAttachment(Attachment attachment) {
+        if (attachmentDAO == null || !attachmentDAO.deleteAttachment(attachment.getId(), attachment.getUserId())) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(blobPath(attachment.getBlobId()));
+        } catch (IOException e) {
+            LOGGER.warn("Attachment {} deleted but blob {} could not be removed: {}", attachment.getId(), attachment.getBlobId(), e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Deletes every attachment of an entry; call before deleting the entry itself.
+     */
+    public void deleteAllForEntry(int passwordId, int userId) {
+        for (Attachment attachment : listAttachments(passwordId, userId)) {
+            deleteAttachment(attachment);
+        }
+    }
+
+    // Whether the blob's first chunk authenticates under the key
+    private boolean opensWith(Path blob, byte[] masterKeyBytes) throws Exception {
+        try (FileChannel in = FileChannel.open(blob, StandardOpenOption.READ)) {
+            byte[] streamId = readStreamId(in);
+            byte[] blobKey = HkdfUtil.derive(masterKeyBytes, streamId, KEY_INFO, 32);
+            try (ChunkedAesGcm.Reader reader = new ChunkedAesGcm.Reader(in, blobKey, streamId)) {
+                reader.next();
+                return true;
+            } catch (IOException e) {
+                return false; // Failed authentication
+            } finally {
+                Arrays.fill(blobKey, (byte) 0);
+            }
+        }
+    }
+
+    // Reads and checks the blob header, leaving the channel at the first chunk
+    private static byte[] readStreamId(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        while (header.hasRemaining()) {
+            if (in.read(header) < 0) {
+                throw new IOException("Attachment blob is truncated.");
+            }
+        }
+        header.flip();
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || header.get() != FORMAT_VERSION) {
+            throw new IOException("Not an attachment blob.");
+        }
+        byte[] streamId = new byte[ChunkedAesGcm.STREAM_ID_LENGTH];
+        header.get(streamId);
+        return streamId;
+    }
+
+    private Path blobPath(String blobId) {
+        if (!blobId.matches("[0-9a-f]{32}")) {
+            throw new IllegalArgumentException("Invalid blob id.");
+        }
+        return blobDirectory.resolve(blobId + ".bin");
+    }
+}
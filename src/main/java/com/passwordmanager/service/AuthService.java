@@ -3,47 +3,109 @@ package com.passwordmanager.service;
 import com.passwordmanager.dao.UserDAO;
 import com.passwordmanager.model.User;
 import com.passwordmanager.util.AesGcmEncryptionUtil;
-import com.passwordmanager.util.AesGcmEncryptionUtil.EncryptedResult; // <-- Crucial Import for encryption results
+import com.passwordmanager.util.HkdfUtil;
 import com.passwordmanager.util.Pbkdf2HashUtil;
 import com.passwordmanager.util.TotpUtil;
 import com.passwordmanager.util.TotpUtil.TotpSetupInfo;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Registration, login and master-password changes using envelope encryption.
+ *
+ * Entries are encrypted with a random per-user data key. The master password is stretched
+ * once with PBKDF2, and HKDF splits the result into two independent keys: an auth key, whose
+ * SHA-256 is stored as the login verifier (master_password_hash), and a key-encryption key
+ * that wraps the data key (wrapped_key). Changing the master password only rewraps the data
+ * key, so it costs one row update whatever the size of the vault. Replacing the data key
+ * itself ({@link #rotateDataKey}) re-seals the vault under a new one; an unfinished rotation
+ * is finished by the next unlock.
+ */
 public class AuthService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthService.class);
+
+    private static final String AUTH_KEY_INFO = "pm-auth-v1";
+    private static final String KEK_INFO = "pm-kek-v1";
+    private static final int DATA_KEY_LENGTH = 32;
+
     private final UserDAO userDAO = new UserDAO();
 
+    /**
+     * A successful unlock: the user and the vault data key for the session.
+     */
+    public static class UnlockedVault {
+        private final User user;
+        private final byte[] dataKey;
+
+        public UnlockedVault(User user, byte[] dataKey) {
+            this.user = user;
+            this.dataKey = dataKey;
+        }
+
+        public User getUser() { return user; }
+        public byte[] getDataKey() { return dataKey; }
+    }
+
+    // Auth key and KEK derived from one PBKDF2 run, and that run's output (the data key of a legacy account)
+    private static class MasterKeys {
+        private final byte[] authKey;
+        private final byte[] kek;
+        private final byte[] stretched;
+
+        private MasterKeys(byte[] authKey, byte[] kek, byte[] stretched) {
+            this.authKey = authKey;
+            this.kek = kek;
+            this.stretched = stretched;
+        }
+
+        private String verifier() throws Exception {
+            return Pbkdf2HashUtil.toBase64(MessageDigest.getInstance("SHA-256").digest(authKey));
+        }
+
+        private void destroy() {
+            Arrays.fill(authKey, (byte) 0);
+            Arrays.fill(kek, (byte) 0);
+            Arrays.fill(stretched, (byte) 0);
+        }
+    }
+
     // --- REGISTRATION ---
 
     /**
-     * Registers a new user, hashes the master password, and encrypts the TOTP secret.
+     * Registers a new user: generates the data key, wraps it under the master password,
+     * and encrypts the TOTP secret with the data key.
      */
     public TotpSetupInfo registerUser(String username, String masterPassword) {
+        byte[] dataKey = new byte[DATA_KEY_LENGTH];
+        MasterKeys keys = null;
         try {
-            // 1. Generate Salt and Hash Master Password (PBKDF2)
+            // 1. Generate Salt and derive the auth key / KEK from the Master Password
             byte[] salt = Pbkdf2HashUtil.generateSalt();
-            byte[] masterKeyBytes = Pbkdf2HashUtil.hashPassword(masterPassword, salt);
+            keys = deriveMasterKeys(masterPassword, salt);
 
-            // 2. Generate TOTP Secret
-            TotpSetupInfo totpInfo = TotpUtil.generateNewSecret(username, "PasswordManager");
+            // 2. Generate the random vault data key and wrap it
+            new SecureRandom().nextBytes(dataKey);
+            byte[] wrappedKey = AesGcmEncryptionUtil.encryptBytes(dataKey, keys.kek);
 
-            // 3. Encrypt the raw TOTP secret using the Master Key (AES-GCM)
-            EncryptedResult totpEncryptedResult = AesGcmEncryptionUtil.encrypt(
-                    totpInfo.getSecret(), masterKeyBytes
-            );
-            // We only store the ciphertext part for the single totp_secret column in the DB
-            String encryptedTotpSecret = totpEncryptedResult.getCipherTextBase64();
+            // 3. Generate TOTP Secret and encrypt it with the data key (nonce|ct|tag in one column)
+            TotpSetupInfo totpInfo = TotpUtil.generateNewSecret(username, "PasswordManager");
+            byte[] encryptedTotpSecret = AesGcmEncryptionUtil.encryptBytes(
+                    totpInfo.getSecret().getBytes(StandardCharsets.UTF_8), dataKey);
 
             // 4. Create User Model
             User user = new User();
             user.setUsername(username);
-            user.setMasterHash(Pbkdf2HashUtil.toBase64(masterKeyBytes)); // Hash is stored
+            user.setMasterHash(keys.verifier()); // Verifier only; never a key
             user.setMasterSalt(Pbkdf2HashUtil.toBase64(salt));
-            user.setTotpSecretEnc(encryptedTotpSecret); // Encrypted secret stored
+            user.setTotpSecretEnc(Pbkdf2HashUtil.toBase64(encryptedTotpSecret));
+            user.setWrappedKey(Pbkdf2HashUtil.toBase64(wrappedKey));
 
             // 5. Save to Database
             if (userDAO.findUserByUsername(username).isPresent()) {
@@ -56,6 +118,9 @@ public class AuthService {
 
         } catch (Exception e) {
             LOGGER.error("Registration failed for user {}:", username, e);
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+            if (keys != null) keys.destroy();
         }
         return null;
     }
@@ -63,70 +128,281 @@ public class AuthService {
     // --- LOGIN ---
 
     /**
-     * Authenticates master password.
+     * Verifies the master password and unwraps the vault data key. Legacy accounts
+     * (no wrapped key yet) are migrated to envelope encryption on the way through, and their
+     * vault is rotated off the password-derived key before it is returned.
+     * @return The user and session data key, or empty if the credentials are wrong or a
+     *         rotation did not finish (the next unlock resumes it).
      */
-    public Optional<User> authenticateMasterPassword(String username, String masterPassword) {
-        Optional<User> userOpt = userDAO.findUserByUsername(username);
-
+    public Optional<UnlockedVault> unlockVault(String username, String masterPassword) {
+        Optional<User> userOpt = findUser(username);
         if (userOpt.isEmpty()) {
             return Optional.empty(); // User not found
         }
+        return unlockVault(userOpt.get(), masterPassword);
+    }
+
+    /**
+     * Looks up the user row only, so callers can start work that needs the user ID (such as
+     * prefetching the vault) before the slow key derivation. Nothing is authenticated yet.
+     */
+    public Optional<User> findUser(String username) {
+        return userDAO.findUserByUsername(username);
+    }
 
-        User user = userOpt.get();
+    /**
+     * Second half of {@link #unlockVault(String, String)}, for a user row already looked up.
+     */
+    public Optional<UnlockedVault> unlockVault(User user, String masterPassword) {
+        String username = user.getUsername();
+        MasterKeys keys = null;
+        try {
+            byte[] salt = Pbkdf2HashUtil.fromBase64(user.getMasterSalt());
+            if (user.getWrappedKey() == null) {
+                return unlockLegacy(user, masterPassword, salt);
+            }
 
-        if (Pbkdf2HashUtil.verifyPassword(masterPassword, user.getMasterHash(), user.getMasterSalt())) {
-            return Optional.of(user); // Password match
-        } else {
-            return Optional.empty(); // Password mismatch
+            // 1. Derive keys and check the verifier in constant time
+            keys = deriveMasterKeys(masterPassword, salt);
+            if (!MessageDigest.isEqual(keys.verifier().getBytes(StandardCharsets.US_ASCII),
+                    user.getMasterHash().getBytes(StandardCharsets.US_ASCII))) {
+                return Optional.empty(); // Password mismatch
+            }
+
+            // 2. Unwrap the data key, finishing a key rotation left pending
+            byte[] dataKey = AesGcmEncryptionUtil.decryptBytes(Pbkdf2HashUtil.fromBase64(user.getWrappedKey()), keys.kek);
+            if (user.getPendingWrappedKey() != null) {
+                byte[] newKey = AesGcmEncryptionUtil.decryptBytes(Pbkdf2HashUtil.fromBase64(user.getPendingWrappedKey()), keys.kek);
+                return finishRotation(user, dataKey, newKey);
+            }
+            // Migrated from a legacy account before migration rotated the key: the data key is the PBKDF2 output
+            if (MessageDigest.isEqual(dataKey, keys.stretched)) {
+                return startRotation(user, keys.kek, dataKey);
+            }
+            return Optional.of(new UnlockedVault(user, dataKey));
+        } catch (Exception e) {
+            LOGGER.error("Unlock failed for user {}:", username, e);
+            return Optional.empty();
+        } finally {
+            if (keys != null) keys.destroy();
         }
     }
 
+    /**
+     * Authenticates master password.
+     */
+    public Optional<User> authenticateMasterPassword(String username, String masterPassword) {
+        return unlockVault(username, masterPassword).map(vault -> {
+            Arrays.fill(vault.getDataKey(), (byte) 0);
+            return vault.getUser();
+        });
+    }
+
     /**
      * Authenticates the TOTP code as the final step of login (derives key internally).
      */
     public boolean authenticateTotp(User user, int totpCode, String masterPassword) {
+        Optional<UnlockedVault> vault = unlockVault(user.getUsername(), masterPassword);
+        if (vault.isEmpty()) {
+            return false;
+        }
         try {
-            // 1. Re-derive the Master Key from the password and stored salt
-            byte[] salt = Pbkdf2HashUtil.fromBase64(user.getMasterSalt());
-            byte[] masterKeyBytes = Pbkdf2HashUtil.hashPassword(masterPassword, salt);
+            return authenticateTotp(vault.get().getUser(), totpCode, vault.get().getDataKey());
+        } finally {
+            Arrays.fill(vault.get().getDataKey(), (byte) 0);
+        }
+    }
 
-            // 2. Decrypt the TOTP secret using the Master Key
-            String encryptedSecret = user.getTotpSecretEnc();
+    /**
+     * Overload to authenticate TOTP using the unwrapped data key (for session handling).
+     */
+    public boolean authenticateTotp(User user, int totpCode, byte[] dataKey) {
+        try {
+            // The TOTP secret is stored as Base64(nonce|ct|tag) under the data key
+            byte[] decryptedSecret = AesGcmEncryptionUtil.decryptBytes(
+                    Pbkdf2HashUtil.fromBase64(user.getTotpSecretEnc()), dataKey);
+
+            return TotpUtil.verifyCode(new String(decryptedSecret, StandardCharsets.UTF_8), totpCode);
+        } catch (Exception e) {
+            LOGGER.error("TOTP authentication (with key) failed for user {}:", user.getUsername(), e);
+            return false;
+        }
+    }
 
-            // FIX: Pass empty Nonce ("") for decryption of the combined TOTP secret (due to schema structure)
-            String decryptedSecret = AesGcmEncryptionUtil.decrypt(
-                    encryptedSecret,
-                    "", // Nonce is stored implicitly/combined in this field for TOTP
-                    masterKeyBytes
-            );
+    // --- MASTER PASSWORD CHANGE ---
 
-            // 3. Verify the 6-digit code
-            return TotpUtil.verifyCode(decryptedSecret, totpCode);
+    /**
+     * Changes the master password by rewrapping the data key under a new salt.
+     * No entry is touched, so this takes the same time for any vault size.
+     * @return true if the current password was correct and the new credentials were saved.
+     */
+    public boolean changeMasterPassword(User user, String currentPassword, String newPassword) {
+        Optional<UnlockedVault> vault = unlockVault(user.getUsername(), currentPassword);
+        if (vault.isEmpty()) {
+            return false;
+        }
+        byte[] dataKey = vault.get().getDataKey();
+        MasterKeys keys = null;
+        try {
+            byte[] salt = Pbkdf2HashUtil.generateSalt();
+            keys = deriveMasterKeys(newPassword, salt);
+            String verifier = keys.verifier();
+            String saltBase64 = Pbkdf2HashUtil.toBase64(salt);
+            String wrappedKey = Pbkdf2HashUtil.toBase64(AesGcmEncryptionUtil.encryptBytes(dataKey, keys.kek));
 
+            if (!userDAO.updateCredentials(user.getId(), verifier, saltBase64, wrappedKey)) {
+                return false;
+            }
+            user.setMasterHash(verifier);
+            user.setMasterSalt(saltBase64);
+            user.setWrappedKey(wrappedKey);
+            LOGGER.info("Master password changed for user {}", user.getUsername());
+            return true;
         } catch (Exception e) {
-            LOGGER.error("TOTP authentication failed for user {}:", user.getUsername(), e);
+            LOGGER.error("Master password change failed for user {}:", user.getUsername(), e);
             return false;
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+            if (keys != null) keys.destroy();
         }
     }
 
+    // --- DATA KEY ROTATION ---
+
     /**
-     * Overload to authenticate TOTP using a pre-derived master key (for session handling).
+     * Replaces the user's data key with a fresh random one and re-seals the whole vault under
+     * it (see {@link ReencryptionService#rotate}), e.g. when the old key may have leaked. Runs
+     * on the calling thread; an interrupted rotation is finished by the next unlock. Sessions
+     * elsewhere still hold the old key and must unlock again.
+     * @return The vault with the new session key, or empty if the password is wrong or the rotation did not finish.
      */
-    public boolean authenticateTotp(User user, int totpCode, byte[] masterKeyBytes) {
+    public Optional<UnlockedVault> rotateDataKey(User user, String masterPassword) {
+        MasterKeys keys = null;
+        byte[] dataKey = null;
         try {
-            String encryptedSecret = user.getTotpSecretEnc();
+            keys = deriveMasterKeys(masterPassword, Pbkdf2HashUtil.fromBase64(user.getMasterSalt()));
+            if (user.getWrappedKey() == null || !MessageDigest.isEqual(keys.verifier().getBytes(StandardCharsets.US_ASCII),
+                    user.getMasterHash().getBytes(StandardCharsets.US_ASCII))) {
+                return Optional.empty();
+            }
+            dataKey = AesGcmEncryptionUtil.decryptBytes(Pbkdf2HashUtil.fromBase64(user.getWrappedKey()), keys.kek);
+            if (user.getPendingWrappedKey() != null) {
+                byte[] newKey = AesGcmEncryptionUtil.decryptBytes(Pbkdf2HashUtil.fromBase64(user.getPendingWrappedKey()), keys.kek);
+                return finishRotation(user, dataKey, newKey);
+            }
+            return startRotation(user, keys.kek, dataKey);
+        } catch (Exception e) {
+            LOGGER.error("Key rotation failed for user {}:", user.getUsername(), e);
+            if (dataKey != null) Arrays.fill(dataKey, (byte) 0);
+            return Optional.empty();
+        } finally {
+            if (keys != null) keys.destroy();
+        }
+    }
 
-            // FIX: Correct the signature here as well.
-            String decryptedSecret = AesGcmEncryptionUtil.decrypt(
-                    encryptedSecret,
-                    "", // Nonce is stored implicitly/combined in this field for TOTP
-                    masterKeyBytes
-            );
+    // Wraps a new random data key next to the current one, then re-seals the vault under it
+    private Optional<UnlockedVault> startRotation(User user, byte[] kek, byte[] dataKey) throws Exception {
+        byte[] newKey = new byte[DATA_KEY_LENGTH];
+        new SecureRandom().nextBytes(newKey);
+        String pendingWrappedKey = Pbkdf2HashUtil.toBase64(AesGcmEncryptionUtil.encryptBytes(newKey, kek));
+        if (!userDAO.beginKeyRotation(user.getId(), user.getWrappedKey(), pendingWrappedKey)) {
+            Arrays.fill(newKey, (byte) 0);
+            Arrays.fill(dataKey, (byte) 0);
+            LOGGER.warn("Could not start key rotation for user {} (changed meanwhile)", user.getUsername());
+            return Optional.empty();
+        }
+        user.setPendingWrappedKey(pendingWrappedKey);
+        return finishRotation(user, dataKey, newKey);
+    }
 
-            return TotpUtil.verifyCode(decryptedSecret, totpCode);
+    /**
+     * Re-seals the vault from the old key to the new one, then swaps the wrapped key and the
+     * TOTP secret over in one statement. Both keys are consumed: the one returned in the
+     * vault is the session key, the other is zeroed.
+     */
+    private Optional<UnlockedVault> finishRotation(User user, byte[] oldKey, byte[] newKey) throws Exception {
+        byte[] totpSecret = null;
+        try {
+            ReencryptionService.ReencryptionSummary summary = new ReencryptionService(new PasswordService(),
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1.0).rotate(user.getId(), oldKey, newKey);
+            if (!summary.isCompleted()) {
+                LOGGER.warn("Key rotation for user {} was interrupted; the next unlock finishes it", user.getUsername());
+                Arrays.fill(newKey, (byte) 0);
+                return Optional.empty();
+            }
+            totpSecret = AesGcmEncryptionUtil.decryptBytes(Pbkdf2HashUtil.fromBase64(user.getTotpSecretEnc()), oldKey);
+            String totpSecretEnc = Pbkdf2HashUtil.toBase64(AesGcmEncryptionUtil.encryptBytes(totpSecret, newKey));
+            if (!userDAO.completeKeyRotation(user.getId(), user.getPendingWrappedKey(), totpSecretEnc)) {
+                LOGGER.warn("Could not complete key rotation for user {}; the next unlock retries", user.getUsername());
+                Arrays.fill(newKey, (byte) 0);
+                return Optional.empty();
+            }
+            user.setWrappedKey(user.getPendingWrappedKey());
+            user.setPendingWrappedKey(null);
+            user.setTotpSecretEnc(totpSecretEnc);
+            LOGGER.info("Rotated the data key of user {} ({} items re-sealed, {} failed)", user.getUsername(), summary.getUpgraded(), summary.getFailed());
+            return Optional.of(new UnlockedVault(user, newKey));
         } catch (Exception e) {
-            LOGGER.error("TOTP authentication (with key) failed for user {}:", user.getUsername(), e);
-            return false;
+            Arrays.fill(newKey, (byte) 0);
+            throw e;
+        } finally {
+            Arrays.fill(oldKey, (byte) 0);
+            if (totpSecret != null) Arrays.fill(totpSecret, (byte) 0);
+        }
+    }
+
+    // --- KEY DERIVATION ---
+
+    /**
+     * Client-side unlock for server mode: recovers the data key from the salt and wrapped key
+     * the server returns at login, so entries can be decrypted without the server ever
+     * holding the key. Costs one PBKDF2 run.
+     * @return The data key (caller zeroes it when done).
+     */
+    public static byte[] unwrapDataKey(String masterPassword, String saltBase64, String wrappedKeyBase64) throws Exception {
+        MasterKeys keys = deriveMasterKeys(masterPassword, Pbkdf2HashUtil.fromBase64(saltBase64));
+        try {
+            return AesGcmEncryptionUtil.decryptBytes(Pbkdf2HashUtil.fromBase64(wrappedKeyBase64), keys.kek);
+        } finally {
+            keys.destroy();
+        }
+    }
+
+    private static MasterKeys deriveMasterKeys(String masterPassword, byte[] salt) throws Exception {
+        byte[] stretched = Pbkdf2HashUtil.hashPassword(masterPassword, salt);
+        try {
+            return new MasterKeys(HkdfUtil.derive(stretched, salt, AUTH_KEY_INFO, 32),
+                    HkdfUtil.derive(stretched, salt, KEK_INFO, 32), stretched);
+        } catch (Exception e) {
+            Arrays.fill(stretched, (byte) 0);
+            throw e;
+        }
+    }
+
+    /**
+     * Legacy accounts stored the PBKDF2 output itself as the hash and used it as the entry key.
+     * That output is wrapped under a KEK and the stored hash is replaced by a verifier; the
+     * vault is then rotated to a random data key, since the old one was stored in the clear.
+     */
+    private Optional<UnlockedVault> unlockLegacy(User user, String masterPassword, byte[] salt) throws Exception {
+        MasterKeys keys = deriveMasterKeys(masterPassword, salt);
+        try {
+            if (!MessageDigest.isEqual(keys.stretched, Pbkdf2HashUtil.fromBase64(user.getMasterHash()))) {
+                return Optional.empty(); // Password mismatch
+            }
+            byte[] dataKey = keys.stretched.clone();
+            String verifier = keys.verifier();
+            String wrappedKey = Pbkdf2HashUtil.toBase64(AesGcmEncryptionUtil.encryptBytes(dataKey, keys.kek));
+            if (!userDAO.updateCredentials(user.getId(), verifier, user.getMasterSalt(), wrappedKey)) {
+                LOGGER.warn("Could not migrate user {} to a wrapped data key; will retry next login", user.getUsername());
+                return Optional.of(new UnlockedVault(user, dataKey));
+            }
+            user.setMasterHash(verifier);
+            user.setWrappedKey(wrappedKey);
+            LOGGER.info("Migrated user {} to a wrapped data key", user.getUsername());
+            return startRotation(user, keys.kek, dataKey);
+        } finally {
+            keys.destroy();
         }
     }
-}
\ No newline at end of file
+}
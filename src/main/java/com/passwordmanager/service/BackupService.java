@@ -0,0 +1,251 @@
+package com.passwordmanager.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.util.ChunkedAesGcm;
+import com.passwordmanager.util.EntryFieldCipher;
+import com.passwordmanager.util.HkdfUtil;
+
+/**
+ * Streaming encrypted vault backups.
+ *
+ * File layout: "PMBACKUP" | byte version | 16-byte stream id | chunks (see {@link ChunkedAesGcm}).
+ * Version 2 prefixes each row with its field-format version and version 3 adds the encrypted
+ * URL as a seventh field; version 1 files (legacy rows only) and version 2 files are still restored.
+ * Chunks hold whole rows exactly as stored (field ciphertexts are not decrypted), optionally
+ * deflated, and are sealed with a per-backup key derived from the session key and stream id.
+ * Export streams rows straight from a DB cursor (or the vault log) into 64 KiB chunks; restore
+ * hands one chunk at a time to the same DAO, which commits it together with a checkpoint, so
+ * re-running an interrupted restore picks up after the last committed chunk. Both directions
+ * use a fixed set of buffers.
+ */
+public class BackupService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupService.class);
+
+    private static final byte[] MAGIC = "PMBACKUP".getBytes(StandardCharsets.US_ASCII);
+    private static final byte FORMAT_VERSION = 3;
+    private static final byte FORMAT_VERSION_NO_URL = 2;
+    private static final byte FORMAT_VERSION_UNVERSIONED_ROWS = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + ChunkedAesGcm.STREAM_ID_LENGTH;
+    private static final String KEY_INFO = "pm-backup-v1";
+    private static final int FIELD_COUNT = 7;
+
+    private final PasswordDAO passwordDAO;
+
+    public BackupService() {
+        this(PasswordDAO.forConfiguredStorage());
+    }
+
+    public BackupService(PasswordDAO passwordDAO) {
+        this.passwordDAO = passwordDAO;
+    }
+
+    // --- EXPORT ---
+
+    /**
+     * Writes an encrypted backup of the user's vault. The file appears atomically once complete.
+     * @param userId The ID of the user to back up.
+     * @param masterKeyBytes The session key.
+     * @param target The backup file to create (replaced if it exists).
+     * @param compress Deflate chunks before encryption.
+     * @return The number of entries written.
+     */
+    public int exportVault(int userId, byte[] masterKeyBytes, Path target, boolean compress) throws Exception {
+        byte[] streamId = ChunkedAesGcm.newStreamId();
+        byte[] backupKey = HkdfUtil.derive(masterKeyBytes, streamId, KEY_INFO, 32);
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).put(FORMAT_VERSION).put(streamId).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+
+            try (ChunkedAesGcm.Writer writer = new ChunkedAesGcm.Writer(channel, backupKey, streamId, compress)) {
+                ByteBuffer chunk = ByteBuffer.allocate(ChunkedAesGcm.CHUNK_SIZE);
+                int rows;
+                try {
+                    rows = passwordDAO.streamAllByUserId(userId, entry -> {
+                        try {
+                            if (!writeRow(chunk, entry)) {
+                                chunk.flip();
+                                writer.write(chunk, false);
+                                chunk.clear();
+                                if (!writeRow(chunk, entry)) {
+                                    throw new IOException("Entry " + entry.getId() + " is larger than a backup chunk.");
+                                }
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (rows < 0) {
+                    throw new IOException("Could not read the vault for backup.");
+                }
+                chunk.flip();
+                writer.write(chunk, true);
+                channel.force(true);
+
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                LOGGER.info("Backed up {} entries for user {} to {} ({} chunks)", rows, userId, target, writer.getChunkCount());
+                return rows;
+            }
+        } finally {
+            Files.deleteIfExists(partial);
+            Arrays.fill(backupKey, (byte) 0);
+        }
+    }
+
+    // --- RESTORE ---
+
+    /**
+     * Restores a backup into the user's vault, resuming after the last committed chunk
+     * if an earlier attempt was interrupted. Restoring a completed backup again is a no-op.
+     * @return The number of entries inserted by this call.
+     */
+    public int restoreVault(int userId, byte[] masterKeyBytes, Path source) throws Exception {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Not a Password Manager backup file.");
+                }
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a Password Manager backup file.");
+            }
+            byte formatVersion = header.get();
+            if (formatVersion != FORMAT_VERSION && formatVersion != FORMAT_VERSION_NO_URL
+                    && formatVersion != FORMAT_VERSION_UNVERSIONED_ROWS) {
+                throw new IOException("Unsupported backup format version.");
+            }
+            byte[] streamId = new byte[ChunkedAesGcm.STREAM_ID_LENGTH];
+            header.get(streamId);
+
+            String backupId = HexFormat.of().formatHex(streamId);
+            int lastCommitted = passwordDAO.findLastRestoredChunk(userId, backupId);
+            if (lastCommitted == Integer.MAX_VALUE) {
+                LOGGER.info("Backup {} was already restored for user {}", backupId, userId);
+                return 0;
+            }
+
+            byte[] backupKey = HkdfUtil.derive(masterKeyBytes, streamId, KEY_INFO, 32);
+            try (ChunkedAesGcm.Reader reader = new ChunkedAesGcm.Reader(channel, backupKey, streamId)) {
+                List<PasswordEntry> batch = new ArrayList<>();
+                int restored = 0;
+                while (true) {
+                    ChunkedAesGcm.Chunk chunk = lastCommitted >= 0 ? reader.skip() : reader.next();
+                    if (chunk == null) {
+                        break;
+                    }
+                    if (chunk.getSeq() <= lastCommitted) {
+                        if (chunk.getSeq() == lastCommitted) lastCommitted = -1; // resume from here
+                        continue;
+                    }
+                    batch.clear();
+                    ByteBuffer rows = chunk.getPlaintext();
+                    while (rows.hasRemaining()) {
+                        batch.add(readRow(rows, userId, formatVersion));
+                    }
+                    passwordDAO.restoreChunk(userId, backupId, chunk.getSeq(), chunk.isLast(), batch);
+                    restored += batch.size();
+                }
+                LOGGER.info("Restored {} entries for user {} from backup {}", restored, userId, backupId);
+                return restored;
+            } finally {
+                Arrays.fill(backupKey, (byte) 0);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Restore interrupted; run it again to resume. " + e.getMessage(), e);
+        }
+    }
+
+    // --- ROW ENCODING: byte enc_version | 7 x (int length | UTF-8 bytes), length -1 for null ---
+
+    private static boolean writeRow(ByteBuffer chunk, PasswordEntry entry) {
+        String[] fields = {entry.getTitle(), entry.getUsernameEnc(), entry.getPasswordEnc(),
+                entry.getEntryNonce(), entry.getNoteEnc(), entry.getNoteNonce(), entry.getUrlEnc()};
+        int start = chunk.position();
+        if (!chunk.hasRemaining()) {
+            return false;
+        }
+        chunk.put((byte) entry.getEncVersion());
+        for (String field : fields) {
+            byte[] bytes = field == null ? null : field.getBytes(StandardCharsets.UTF_8);
+            int needed = 4 + (bytes == null ? 0 : bytes.length);
+            if (chunk.remaining() < needed) {
+                chunk.position(start);
+                return false;
+            }
+            if (bytes == null) {
+                chunk.putInt(-1);
+            } else {
+                chunk.putInt(bytes.length).put(bytes);
+            }
+        }
+        return true;
+    }
+
+    private static PasswordEntry readRow(ByteBuffer rows, int userId, byte formatVersion) throws IOException {
+        int encVersion = EntryFieldCipher.VERSION_LEGACY;
+        if (formatVersion != FORMAT_VERSION_UNVERSIONED_ROWS) {
+            if (!rows.hasRemaining()) {
+                throw new IOException("Corrupt backup row.");
+            }
+            encVersion = rows.get();
+        }
+        String[] fields = new String[FIELD_COUNT];
+        int fieldCount = formatVersion == FORMAT_VERSION ? FIELD_COUNT : FIELD_COUNT - 1; // Older files have no URL
+        for (int i = 0; i < fieldCount; i++) {
+            if (rows.remaining() < 4) {
+                throw new IOException("Corrupt backup row.");
+            }
+            int length = rows.getInt();
+            if (length > rows.remaining()) {
+                throw new IOException("Corrupt backup row.");
+            }
+            if (length >= 0) {
+                fields[i] = new String(rows.array(), rows.arrayOffset() + rows.position(), length, StandardCharsets.UTF_8);
+                rows.position(rows.position() + length);
+            }
+        }
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(userId);
+        entry.setTitle(fields[0]);
+        entry.setUsernameEnc(fields[1]);
+        entry.setPasswordEnc(fields[2]);
+        entry.setEntryNonce(fields[3]);
+        entry.setNoteEnc(fields[4]);
+        entry.setNoteNonce(fields[5]);
+        entry.setUrlEnc(fields[6]);
+        entry.setEncVersion(encVersion);
+        return entry;
+    }
+}
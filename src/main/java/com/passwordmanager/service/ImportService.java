@@ -0,0 +1,203 @@
+package com.passwordmanager.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.importer.ImportFormat;
+import com.passwordmanager.importer.ImportRecord;
+import com.passwordmanager.importer.RecordReader;
+import com.passwordmanager.model.PasswordEntry;
+
+/**
+ * Imports exports from other password managers through a bounded three-stage pipeline:
+ *
+ *   parse (1 thread) -> [queue] -> encrypt (N threads) -> [queue] -> batched insert (caller)
+ *
+ * Both queues are bounded, so a fast parser blocks instead of buffering the file, and
+ * memory stays constant whatever the input size. Titles that already exist in the
+ * vault (or earlier in the same file) are skipped before any encryption work is done.
+ */
+public class ImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportService.class);
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int BATCH_SIZE = 100;
+
+    // End-of-stream markers passed through the queues
+    private static final ImportRecord END_OF_RECORDS = new ImportRecord(null, null, null, null, null);
+    private static final PasswordEntry END_OF_ENTRIES = new PasswordEntry();
+
+    private final PasswordService passwordService;
+    private final PasswordDAO passwordDAO;
+    private final int encryptThreads;
+
+    public ImportService() {
+        this(new PasswordService(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ImportService(PasswordService passwordService, int encryptThreads) {
+        this.passwordService = passwordService;
+        this.passwordDAO = passwordService.getPasswordDAO();
+        this.encryptThreads = Math.max(1, encryptThreads);
+    }
+
+    /**
+     * Receives progress updates from the pipeline (called on the inserting thread).
+     */
+    public interface ProgressListener {
+        void onProgress(int parsed, int imported, int skipped);
+    }
+
+    /**
+     * Final counts of an import run.
+     */
+    public static class ImportSummary {
+        private final int parsed;
+        private final int imported;
+        private final int duplicates;
+        private final int failed;
+
+        public ImportSummary(int parsed, int imported, int duplicates, int failed) {
+            this.parsed = parsed;
+            this.imported = imported;
+            this.duplicates = duplicates;
+            this.failed = failed;
+        }
+
+        public int getParsed() { return parsed; }
+        public int getImported() { return imported; }
+        public int getDuplicates() { return duplicates; }
+        public int getFailed() { return failed; }
+    }
+
+    /**
+     * Streams the file into the user's vault.
+     * @param file The export file.
+     * @param format The export format (see {@link ImportFormat#detect(Path)}).
+     * @param userId The ID of the owning user.
+     * @param masterKeyBytes The session key used to encrypt the imported fields.
+     * @param listener Progress callback, may be null.
+     * @return Counts of parsed, imported, duplicate and failed records.
+     */
+    public ImportSummary importFile(Path file, ImportFormat format, int userId, byte[] masterKeyBytes,
+                                    ProgressListener listener) throws IOException, InterruptedException {
+        Set<String> knownTitles = passwordDAO.findTitlesByUserId(userId);
+
+        BlockingQueue<ImportRecord> records = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<PasswordEntry> entries = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicInteger parsed = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(encryptThreads + 1);
+        try (RecordReader reader = format.open(file)) {
+            // 1. Parse + duplicate check
+            Future<?> parser = pool.submit(() -> {
+                try {
+                    ImportRecord record;
+                    while ((record = reader.next()) != null) {
+                        parsed.incrementAndGet();
+                        if (record.getTitle() == null || record.getTitle().isBlank() || record.getPassword().isEmpty()) {
+                            failed.incrementAndGet();
+                        } else if (!knownTitles.add(record.getTitle().trim())) {
+                            duplicates.incrementAndGet();
+                        } else {
+                            records.put(record);
+                        }
+                    }
+                    return null;
+                } finally {
+                    for (int i = 0; i < encryptThreads; i++) {
+                        records.put(END_OF_RECORDS);
+                    }
+                }
+            });
+
+            // 2. Parallel encrypt
+            for (int i = 0; i < encryptThreads; i++) {
+                pool.submit(() -> {
+                    try {
+                        ImportRecord record;
+                        while ((record = records.take()) != END_OF_RECORDS) {
+                            try {
+                                entries.put(passwordService.encryptEntry(userId, record.getTitle().trim(),
+                                        record.getUsername(), record.getPassword(), urlOf(record), record.getNote(), masterKeyBytes));
+                            } catch (InterruptedException e) {
+                                throw e;
+                            } catch (Exception e) {
+                                LOGGER.warn("Skipping import record that failed to encrypt: {}", e.getMessage());
+                                failed.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        entries.put(END_OF_ENTRIES);
+                    }
+                    return null;
+                });
+            }
+
+            // 3. Batched transactional insert on this thread
+            int imported = 0;
+            int finishedWorkers = 0;
+            List<PasswordEntry> batch = new ArrayList<>(BATCH_SIZE);
+            while (finishedWorkers < encryptThreads) {
+                PasswordEntry entry = entries.take();
+                if (entry == END_OF_ENTRIES) {
+                    finishedWorkers++;
+                } else {
+                    batch.add(entry);
+                }
+                if (batch.size() == BATCH_SIZE || (finishedWorkers == encryptThreads && !batch.isEmpty())) {
+                    imported += writeBatch(batch, failed);
+                    if (listener != null) {
+                        listener.onProgress(parsed.get(), imported, duplicates.get() + failed.get());
+                    }
+                }
+            }
+
+            try {
+                parser.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) throw io;
+                throw new IOException("Import failed: " + cause.getMessage(), cause);
+            }
+
+            LOGGER.info("Imported {} of {} records for user {} ({} duplicates, {} failed)",
+                    imported, parsed.get(), userId, duplicates.get(), failed.get());
+            return new ImportSummary(parsed.get(), imported, duplicates.get(), failed.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int writeBatch(List<PasswordEntry> batch, AtomicInteger failed) {
+        int written = passwordDAO.createEntries(batch);
+        int size = batch.size();
+        batch.clear();
+        if (written < 0) {
+            failed.addAndGet(size);
+            return 0;
+        }
+        return written;
+    }
+
+    private static String urlOf(ImportRecord record) {
+        String url = record.getUrl() == null ? "" : record.getUrl().trim();
+        return url.isEmpty() ? null : url;
+    }
+}
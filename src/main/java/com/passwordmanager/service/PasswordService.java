@@ -1,19 +1,55 @@
 package com.passwordmanager.service;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.passwordmanager.dao.FilePasswordDAO;
 import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.dao.PasswordHistoryDAO;
+import com.passwordmanager.dao.SearchIndexDAO;
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
 import com.passwordmanager.util.AesGcmEncryptionUtil;
-import com.passwordmanager.util.AesGcmEncryptionUtil.EncryptedResult;
+import com.passwordmanager.util.BlindIndex;
+import com.passwordmanager.util.EntryFieldCipher;
 
 public class PasswordService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PasswordService.class);
-    private final PasswordDAO passwordDAO = new PasswordDAO();
+    private static final int INDEX_BATCH_SIZE = 200;
+
+    // Password history policy: versions kept per entry, and days a replaced password is kept
+    public static final String HISTORY_VERSIONS_PROPERTY = "passwordmanager.history.maxVersions";
+    public static final String HISTORY_DAYS_PROPERTY = "passwordmanager.history.retentionDays";
+    private static final int HISTORY_VERSIONS = Integer.getInteger(HISTORY_VERSIONS_PROPERTY, 10);
+    private static final int HISTORY_DAYS = Integer.getInteger(HISTORY_DAYS_PROPERTY, 365);
+
+    private final PasswordDAO passwordDAO;
+    private final SearchIndexDAO searchIndexDAO; // null for the file vault, which is searched by scanning
+    private final PasswordHistoryDAO historyDAO; // null for the file vault, which keeps no history
+
+    public PasswordService() {
+        this(PasswordDAO.forConfiguredStorage());
+    }
+
+    public PasswordService(PasswordDAO passwordDAO) {
+        this.passwordDAO = passwordDAO;
+        this.searchIndexDAO = passwordDAO instanceof FilePasswordDAO ? null : new SearchIndexDAO();
+        this.historyDAO = passwordDAO instanceof FilePasswordDAO ? null : new PasswordHistoryDAO();
+    }
 
     // --- CRUD OPERATIONS ---
 
@@ -28,31 +64,189 @@ public class PasswordService {
      * @return true if the entry was successfully created.
      */
     public boolean createEntry(int userId, String title, String serviceUsername, String plaintextPassword, String note, byte[] masterKeyBytes) {
+        return createEntry(userId, title, serviceUsername, plaintextPassword, null, note, masterKeyBytes);
+    }
+
+    /**
+     * Encrypts a new password entry with a site URL and saves it to the database.
+     * @param url The site address (any form a browser shows; only its host is used for matching), or null.
+     * @return true if the entry was successfully created.
+     */
+    public boolean createEntry(int userId, String title, String serviceUsername, String plaintextPassword, String url, String note, byte[] masterKeyBytes) {
         try {
-            // FIX: Use the imported EncryptedResult and the correct 'encrypt' method name
-            EncryptedResult usernameEncResult = AesGcmEncryptionUtil.encrypt(serviceUsername, masterKeyBytes);
-            EncryptedResult passwordEncResult = AesGcmEncryptionUtil.encrypt(plaintextPassword, masterKeyBytes);
-            EncryptedResult noteEncResult = AesGcmEncryptionUtil.encrypt(note, masterKeyBytes);
+            PasswordEntry entry = encryptEntry(userId, title, serviceUsername, plaintextPassword, url, note, masterKeyBytes);
+            int entryId = passwordDAO.createEntry(entry);
+            if (entryId > 0) {
+                indexEntry(userId, entryId, title, serviceUsername, url, masterKeyBytes);
+            }
+            return entryId > 0;
 
-            PasswordEntry entry = new PasswordEntry();
-            entry.setUserId(userId);
-            entry.setTitle(title);
+        } catch (Exception e) {
+            LOGGER.error("Failed to create password entry:", e);
+            return false;
+        }
+    }
 
-            // Set encrypted ciphertext
-            entry.setUsernameEnc(usernameEncResult.getCipherTextBase64());
-            entry.setPasswordEnc(passwordEncResult.getCipherTextBase64());
-            entry.setNoteEnc(noteEncResult.getCipherTextBase64());
+    /**
+     * Saves an entry whose fields were already sealed by the client (server mode, where
+     * plaintext and keys never reach the server).
+     * @return The new entry ID, or -1 on failure.
+     */
+    public int saveEncryptedEntry(PasswordEntry entry) {
+        return passwordDAO.createEntry(entry);
+    }
 
-            // Set nonce separately
-            entry.setEntryNonce(passwordEncResult.getNonceBase64()); // Use password nonce for entryNonce
-            entry.setNoteNonce(noteEncResult.getNonceBase64());
+    /**
+     * Re-encrypts an existing entry with new field values and saves it, provided nobody saved
+     * it since {@code current} was read (optimistic concurrency on the row version).
+     * @param current The entry as read; its ID and row version are used.
+     * @return The saved entry (with its new row version), or empty if it was changed or
+     *         deleted meanwhile (re-read and merge, see {@link SyncService}) or saving failed.
+     */
+    public Optional<PasswordEntry> updateEntry(PasswordEntry current, String title, String serviceUsername, String plaintextPassword, String note, byte[] masterKeyBytes) {
+        return updateEntry(current, title, serviceUsername, plaintextPassword, decryptUrl(current, masterKeyBytes), note, masterKeyBytes);
+    }
 
-            return passwordDAO.createEntry(entry) > 0;
+    /**
+     * As {@link #updateEntry(PasswordEntry, String, String, String, String, byte[])}, also
+     * replacing the site URL (null removes it); the other overload keeps the current one.
+     * If the password changes, the old one goes to the entry's history in the same transaction.
+     */
+    public Optional<PasswordEntry> updateEntry(PasswordEntry current, String title, String serviceUsername, String plaintextPassword, String url, String note, byte[] masterKeyBytes) {
+        try {
+            PasswordEntry entry = encryptEntry(current.getUserId(), title, serviceUsername, plaintextPassword, url, note, masterKeyBytes);
+            entry.setId(current.getId());
+            entry.setRowVersion(current.getRowVersion());
+            boolean saved = passwordChanged(current, plaintextPassword, masterKeyBytes)
+                    ? passwordDAO.updateEntryArchivingPassword(entry, HISTORY_VERSIONS)
+                    : passwordDAO.updateEntry(entry);
+            if (!saved) {
+                return Optional.empty();
+            }
+            indexEntry(current.getUserId(), current.getId(), title, serviceUsername, url, masterKeyBytes);
+            return Optional.of(entry);
+        } catch (Exception e) {
+            LOGGER.error("Failed to update password entry ID {}:", current.getId(), e);
+            return Optional.empty();
+        }
+    }
 
+    /**
+     * Replaces just the password of an entry (e.g. after rotating it on the site); the old one
+     * goes to the entry's history.
+     * @return The saved entry, or empty if it was changed meanwhile or saving failed.
+     */
+    public Optional<PasswordEntry> changePassword(PasswordEntry current, String plaintextPassword, byte[] masterKeyBytes) {
+        try {
+            SyncService.EntryFields fields = decryptFields(current, masterKeyBytes);
+            return updateEntry(current, fields.title(), fields.username(), plaintextPassword, fields.url(), fields.note(), masterKeyBytes);
         } catch (Exception e) {
-            LOGGER.error("Failed to create password entry:", e);
+            LOGGER.error("Failed to change the password of entry ID {}:", current.getId(), e);
+            return Optional.empty();
+        }
+    }
+
+    // Ciphertexts always differ (fresh nonces), so compare plaintexts; if unsure, archive
+    private boolean passwordChanged(PasswordEntry current, String plaintextPassword, byte[] masterKeyBytes) {
+        if (historyDAO == null) {
             return false;
         }
+        try {
+            return !Objects.equals(decryptField(current, current.getPasswordEnc(), current.getEntryNonce(),
+                    EntryFieldCipher.FIELD_PASSWORD, masterKeyBytes), plaintextPassword);
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Saves new client-sealed fields over an existing entry (server mode), if the entry is
+     * still at the row version the client read.
+     * @return false if it was changed or deleted meanwhile.
+     */
+    public boolean updateEncryptedEntry(PasswordEntry entry) {
+        return passwordDAO.updateEntry(entry);
+    }
+
+    /**
+     * Builds an encrypted (not yet saved) entry from plaintext fields, in the current field format.
+     */
+    PasswordEntry encryptEntry(int userId, String title, String serviceUsername, String plaintextPassword, String url, String note, byte[] masterKeyBytes) throws Exception {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(userId);
+        entry.setTitle(title);
+
+        // Each field carries its own nonce (no separate nonce columns) and is bound to user + field
+        entry.setUsernameEnc(EntryFieldCipher.seal(serviceUsername, masterKeyBytes, userId, EntryFieldCipher.FIELD_USERNAME));
+        entry.setPasswordEnc(EntryFieldCipher.seal(plaintextPassword, masterKeyBytes, userId, EntryFieldCipher.FIELD_PASSWORD));
+        entry.setNoteEnc(EntryFieldCipher.seal(note, masterKeyBytes, userId, EntryFieldCipher.FIELD_NOTE));
+        entry.setUrlEnc(EntryFieldCipher.seal(url, masterKeyBytes, userId, EntryFieldCipher.FIELD_URL));
+        entry.setEncVersion(EntryFieldCipher.VERSION_CURRENT);
+        return entry;
+    }
+
+    /**
+     * Re-encrypts an entry read in an older field format into the current one
+     * (same id, user and title). Used by the background re-encryption job.
+     * Legacy usernames were stored without their nonce and cannot be recovered;
+     * they are carried over as null.
+     */
+    PasswordEntry upgradeEntry(PasswordEntry legacy, byte[] masterKeyBytes) throws Exception {
+        SyncService.EntryFields fields = decryptFields(legacy, masterKeyBytes);
+        PasswordEntry upgraded = encryptEntry(legacy.getUserId(), legacy.getTitle(), fields.username(), fields.password(), fields.url(), fields.note(), masterKeyBytes);
+        upgraded.setId(legacy.getId());
+        return upgraded;
+    }
+
+    /**
+     * Re-seals an entry from the old data key to a new one, in the current format (same id,
+     * user, title and row version). Used by a data-key rotation.
+     * @return null if the entry already opens under the new key (written by an interrupted rotation).
+     */
+    PasswordEntry rotateEntry(PasswordEntry entry, byte[] oldKeyBytes, byte[] newKeyBytes) throws Exception {
+        SyncService.EntryFields fields;
+        try {
+            fields = decryptFields(entry, oldKeyBytes);
+        } catch (Exception e) {
+            decryptFields(entry, newKeyBytes); // Opens under neither key: let it fail
+            return null;
+        }
+        PasswordEntry rotated = encryptEntry(entry.getUserId(), entry.getTitle(), fields.username(), fields.password(), fields.url(), fields.note(), newKeyBytes);
+        rotated.setId(entry.getId());
+        rotated.setRowVersion(entry.getRowVersion());
+        return rotated;
+    }
+
+    /**
+     * {@link #rotateEntry} for an archived password.
+     * @return null if it already opens under the new key.
+     */
+    PasswordVersion rotateVersion(PasswordVersion version, byte[] oldKeyBytes, byte[] newKeyBytes) throws Exception {
+        String password;
+        try {
+            password = EntryFieldCipher.open(version.getPasswordEnc(), oldKeyBytes, version.getUserId(), EntryFieldCipher.FIELD_PASSWORD);
+        } catch (Exception e) {
+            EntryFieldCipher.open(version.getPasswordEnc(), newKeyBytes, version.getUserId(), EntryFieldCipher.FIELD_PASSWORD);
+            return null;
+        }
+        version.setPasswordEnc(EntryFieldCipher.seal(password, newKeyBytes, version.getUserId(), EntryFieldCipher.FIELD_PASSWORD));
+        return version;
+    }
+
+    /**
+     * Returns the DAO this service writes through (shared with the import/backup pipelines).
+     */
+    PasswordDAO getPasswordDAO() {
+        return passwordDAO;
+    }
+
+    // Null on the file vault, like the fields
+    PasswordHistoryDAO getHistoryDAO() {
+        return historyDAO;
+    }
+
+    SearchIndexDAO getSearchIndexDAO() {
+        return searchIndexDAO;
     }
 
     /**
@@ -64,6 +258,21 @@ public class PasswordService {
         return passwordDAO.findAllByUserId(userId);
     }
 
+    /**
+     * Retrieves the given encrypted entries of the user in one query; IDs that no longer
+     * exist are skipped.
+     */
+    public List<PasswordEntry> getEncryptedEntries(int userId, List<Integer> entryIds) {
+        return passwordDAO.findByIds(userId, entryIds);
+    }
+
+    /**
+     * Retrieves one encrypted entry of the user, e.g. for a point read by ID.
+     */
+    public Optional<PasswordEntry> getEncryptedEntry(int entryId, int userId) {
+        return passwordDAO.findById(entryId, userId);
+    }
+
     /**
      * Deletes a password entry.
      */
@@ -71,6 +280,178 @@ public class PasswordService {
         return passwordDAO.deleteEntry(entryId, userId);
     }
 
+    // --- PASSWORD HISTORY ---
+
+    /**
+     * Whether password edits are archived (SQL storage; the file vault keeps no history).
+     */
+    public boolean keepsPasswordHistory() {
+        return historyDAO != null;
+    }
+
+    /**
+     * Lists an entry's earlier passwords, newest first (one query, only when asked for; the
+     * entry list never reads history). Empty on the file vault.
+     */
+    public List<PasswordVersion> getPasswordHistory(int entryId, int userId) {
+        return historyDAO == null ? new ArrayList<>() : historyDAO.findByEntry(entryId, userId);
+    }
+
+    /**
+     * Decrypts an archived password.
+     */
+    public String decryptPassword(PasswordVersion version, byte[] masterKeyBytes) {
+        try {
+            return EntryFieldCipher.open(version.getPasswordEnc(), masterKeyBytes, version.getUserId(), EntryFieldCipher.FIELD_PASSWORD);
+        } catch (Exception e) {
+            LOGGER.error("Failed to decrypt password version {} of entry ID {}:", version.getId(), version.getPasswordId(), e);
+            return "[DECRYPTION FAILED]";
+        }
+    }
+
+    /**
+     * Makes an archived password current again: one UPDATE, no decryption. The password it
+     * replaces is not archived.
+     * @param current The entry as read; its row version is advanced on success.
+     * @return false if the entry was changed meanwhile (re-read it) or the restore failed.
+     */
+    public boolean restoreVersion(PasswordEntry current, PasswordVersion version) {
+        if (historyDAO == null || version.getPasswordId() != current.getId()) {
+            return false;
+        }
+        if (!historyDAO.restoreVersion(current, version.getId())) {
+            return false;
+        }
+        current.setPasswordEnc(version.getPasswordEnc());
+        current.setEntryNonce(null);
+        return true;
+    }
+
+    /**
+     * Deletes the user's archived passwords older than the retention period
+     * ({@value #HISTORY_DAYS_PROPERTY}, default 365 days). Runs in the background after login.
+     * @return The number of versions deleted.
+     */
+    public int purgePasswordHistory(int userId) {
+        if (historyDAO == null) {
+            return 0;
+        }
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(Duration.ofDays(HISTORY_DAYS)));
+        return Math.max(0, historyDAO.deleteOlderThan(userId, cutoff));
+    }
+
+    // --- SEARCH ---
+
+    /**
+     * Finds the user's entries whose title, username or site host contains every word of the
+     * query as a word or word prefix (case-insensitive; "ali exa" finds alice@example.com). Words of
+     * fewer than {@value BlindIndex#MIN_TERM_LENGTH} characters are ignored.
+     *
+     * On SQL storage this is one indexed lookup of blind-index tokens plus a fetch of the
+     * hits, so nothing is decrypted and the cost follows the number of matches, not the size
+     * of the vault. The file vault has no index and decrypts every username and URL instead (matching
+     * substrings anywhere, a superset of the indexed matches).
+     * @param masterKeyBytes The session data key (the index key is derived from it).
+     * @return The matching encrypted entries, or all entries if no word is long enough.
+     */
+    public List<PasswordEntry> search(int userId, String query, byte[] masterKeyBytes) {
+        List<String> terms = new ArrayList<>();
+        for (String term : (query == null ? "" : query.trim()).split("\\s+")) {
+            if (term.length() >= BlindIndex.MIN_TERM_LENGTH) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return getEncryptedEntries(userId);
+        }
+        try {
+            if (searchIndexDAO == null) {
+                return scan(userId, terms, masterKeyBytes);
+            }
+            BlindIndex index = new BlindIndex(masterKeyBytes, userId);
+            Set<String> tokens = new LinkedHashSet<>();
+            for (String term : terms) {
+                String token = index.queryToken(term);
+                if (token != null) {
+                    tokens.add(token);
+                }
+            }
+            return passwordDAO.findByIds(userId, searchIndexDAO.findMatchingIds(userId, tokens));
+        } catch (Exception e) {
+            LOGGER.error("Search failed for user {}:", userId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Writes blind-index tokens for the user's entries that have none, e.g. entries saved
+     * before the index existed or by a batch import. Runs in the background after login.
+     * @return The number of entries indexed.
+     */
+    public int ensureSearchIndex(int userId, byte[] masterKeyBytes) throws Exception {
+        if (searchIndexDAO == null) {
+            return 0;
+        }
+        List<Integer> unindexed = searchIndexDAO.findUnindexedIds(userId);
+        BlindIndex index = new BlindIndex(masterKeyBytes, userId);
+        int indexed = 0;
+        for (int from = 0; from < unindexed.size(); from += INDEX_BATCH_SIZE) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            List<Integer> batch = unindexed.subList(from, Math.min(from + INDEX_BATCH_SIZE, unindexed.size()));
+            Map<Integer, Set<String>> tokensById = new HashMap<>();
+            for (PasswordEntry entry : passwordDAO.findByIds(userId, batch)) {
+                Set<String> tokens = tokensOf(index, entry.getTitle(), decryptUsername(entry, masterKeyBytes), decryptUrl(entry, masterKeyBytes));
+                if (!tokens.isEmpty()) {
+                    tokensById.put(entry.getId(), tokens);
+                }
+            }
+            if (!tokensById.isEmpty() && searchIndexDAO.replaceTokens(userId, tokensById)) {
+                indexed += tokensById.size();
+            }
+        }
+        if (indexed > 0) {
+            LOGGER.info("Indexed {} entries of user {} for search", indexed, userId);
+        }
+        return indexed;
+    }
+
+    /**
+     * Replaces an entry's tokens after a save. A failure only leaves the entry unsearchable
+     * (logged) until it is saved again; the save itself stands.
+     */
+    private void indexEntry(int userId, int entryId, String title, String serviceUsername, String url, byte[] masterKeyBytes) {
+        if (searchIndexDAO == null) {
+            return;
+        }
+        try {
+            Set<String> tokens = tokensOf(new BlindIndex(masterKeyBytes, userId), title, serviceUsername, url);
+            searchIndexDAO.replaceTokens(userId, Map.of(entryId, tokens));
+        } catch (Exception e) {
+            LOGGER.error("Failed to index entry ID {} for search:", entryId, e);
+        }
+    }
+
+    private static Set<String> tokensOf(BlindIndex index, String title, String serviceUsername, String url) {
+        Set<String> tokens = index.textTokens(title);
+        tokens.addAll(index.usernameTokens(serviceUsername));
+        tokens.addAll(index.hostTokens(url));
+        return tokens;
+    }
+
+    // File vault: a plain substring match on the title and decrypted username
+    private List<PasswordEntry> scan(int userId, List<String> terms, byte[] masterKeyBytes) {
+        List<PasswordEntry> matches = new ArrayList<>();
+        for (PasswordEntry entry : getEncryptedEntries(userId)) {
+            String text = (entry.getTitle() + " " + decryptUsername(entry, masterKeyBytes) + " " + decryptUrl(entry, masterKeyBytes)).toLowerCase(Locale.ROOT);
+            if (terms.stream().allMatch(term -> text.contains(term.toLowerCase(Locale.ROOT)))) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
     // --- DECRYPTION ---
 
     /**
@@ -81,15 +462,86 @@ public class PasswordService {
      */
     public String decryptPassword(PasswordEntry encryptedEntry, byte[] masterKeyBytes) {
         try {
-            // NOTE: The utility needs the ciphertext and the separate nonce!
-            return AesGcmEncryptionUtil.decrypt(
-                    encryptedEntry.getPasswordEnc(),  // Ciphertext
-                    encryptedEntry.getEntryNonce(), // Nonce
-                    masterKeyBytes
-            );
+            // The file vault decrypts straight from its mapped record
+            if (passwordDAO instanceof FilePasswordDAO fileDAO) {
+                return fileDAO.decryptPassword(encryptedEntry.getId(), encryptedEntry.getUserId(), masterKeyBytes)
+                        .orElse("[DECRYPTION FAILED]");
+            }
+            return decryptField(encryptedEntry, encryptedEntry.getPasswordEnc(), encryptedEntry.getEntryNonce(),
+                    EntryFieldCipher.FIELD_PASSWORD, masterKeyBytes);
         } catch (Exception e) {
             LOGGER.error("Failed to decrypt password for entry ID {}:", encryptedEntry.getId(), e);
             return "[DECRYPTION FAILED]";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Decrypts the service username of a single entry.
+     * @return The plaintext username, or null if the entry has none (legacy rows lost theirs) or it fails to decrypt.
+     */
+    public String decryptUsername(PasswordEntry encryptedEntry, byte[] masterKeyBytes) {
+        if (encryptedEntry.getEncVersion() < EntryFieldCipher.VERSION_CURRENT) {
+            return null;
+        }
+        try {
+            return decryptField(encryptedEntry, encryptedEntry.getUsernameEnc(), null, EntryFieldCipher.FIELD_USERNAME, masterKeyBytes);
+        } catch (Exception e) {
+            LOGGER.error("Failed to decrypt username for entry ID {}:", encryptedEntry.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Decrypts the site URL of a single entry.
+     * @return The plaintext URL, or null if the entry has none or it fails to decrypt.
+     */
+    public String decryptUrl(PasswordEntry encryptedEntry, byte[] masterKeyBytes) {
+        if (encryptedEntry.getUrlEnc() == null) {
+            return null;
+        }
+        try {
+            return EntryFieldCipher.open(encryptedEntry.getUrlEnc(), masterKeyBytes, encryptedEntry.getUserId(), EntryFieldCipher.FIELD_URL);
+        } catch (Exception e) {
+            LOGGER.error("Failed to decrypt URL for entry ID {}:", encryptedEntry.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Decrypts the password of the given copy of an entry, failing loudly (bulk callers
+     * count failures instead of showing a placeholder).
+     */
+    String openPassword(PasswordEntry entry, byte[] masterKeyBytes) throws Exception {
+        return decryptField(entry, entry.getPasswordEnc(), entry.getEntryNonce(), EntryFieldCipher.FIELD_PASSWORD, masterKeyBytes);
+    }
+
+    /**
+     * Decrypts all fields of the given copy of an entry (never re-read from storage, so it
+     * also works on an old copy kept as a merge base).
+     */
+    SyncService.EntryFields decryptFields(PasswordEntry entry, byte[] masterKeyBytes) throws Exception {
+        String username = entry.getEncVersion() >= EntryFieldCipher.VERSION_CURRENT
+                ? decryptField(entry, entry.getUsernameEnc(), null, EntryFieldCipher.FIELD_USERNAME, masterKeyBytes)
+                : null;
+        String url = entry.getUrlEnc() == null ? null
+                : EntryFieldCipher.open(entry.getUrlEnc(), masterKeyBytes, entry.getUserId(), EntryFieldCipher.FIELD_URL);
+        return new SyncService.EntryFields(entry.getTitle(), username,
+                decryptField(entry, entry.getPasswordEnc(), entry.getEntryNonce(), EntryFieldCipher.FIELD_PASSWORD, masterKeyBytes),
+                url,
+                decryptField(entry, entry.getNoteEnc(), entry.getNoteNonce(), EntryFieldCipher.FIELD_NOTE, masterKeyBytes));
+    }
+
+    /**
+     * Decrypts one field in whichever format its row was written (both coexist while
+     * the re-encryption job runs). Legacy fields need their separate nonce.
+     */
+    private static String decryptField(PasswordEntry entry, String cipherText, String legacyNonce, String field, byte[] masterKeyBytes) throws Exception {
+        if (cipherText == null) {
+            return null;
+        }
+        if (entry.getEncVersion() >= EntryFieldCipher.VERSION_CURRENT) {
+            return EntryFieldCipher.open(cipherText, masterKeyBytes, entry.getUserId(), field);
+        }
+        return AesGcmEncryptionUtil.decrypt(cipherText, legacyNonce, masterKeyBytes);
+    }
+}
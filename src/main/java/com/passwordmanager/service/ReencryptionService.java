@@ -0,0 +1,288 @@
+package com.passwordmanager.service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.dao.PasswordHistoryDAO;
+import com.passwordmanager.dao.SearchIndexDAO;
+import com.passwordmanager.model.Attachment;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
+import com.passwordmanager.util.EntryFieldCipher;
+
+/**
+ * Upgrades a user's entries to the current field format in the background, and rotates a
+ * user's data key.
+ *
+ * The upgrade walks rows below {@link EntryFieldCipher#VERSION_CURRENT} in keyset batches
+ * (password_id order), re-encrypts each batch on a small pool of low-priority threads, and
+ * writes it back together with a checkpoint in one transaction, so a crash loses at most
+ * the batch in flight. Reads handle both formats meanwhile, so the vault stays usable.
+ * The job sleeps between batches to stay within a duty cycle (the share of wall time it
+ * may spend working, CPU and database I/O alike).
+ *
+ * A rotation ({@link #rotate}) walks every row the same way, under its own checkpoint,
+ * re-sealing it from the old data key to a new one, then re-seals the archived passwords
+ * and attachments and drops the search tokens (their key derives from the data key). Rows
+ * already under the new key are skipped, so an interrupted rotation simply runs again.
+ * Swapping the wrapped key is up to the caller (AuthService), once the rotation completed.
+ */
+public class ReencryptionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReencryptionService.class);
+
+    private static final int BATCH_SIZE = 100;
+    private static final int HISTORY_BATCH_SIZE = 500;
+    private static final int TARGET_VERSION = EntryFieldCipher.VERSION_CURRENT;
+    static final int ANY_VERSION = Short.MAX_VALUE; // Above every enc_version (a SMALLINT)
+    private static final int ROTATION_ATTEMPTS = 3; // Writes of a row edited meanwhile before it counts as failed
+
+    private final PasswordService passwordService;
+    private final PasswordDAO passwordDAO;
+    private final AttachmentService attachmentService;
+    private final int threads;
+    private final double dutyCycle;
+
+    public ReencryptionService() {
+        this(new PasswordService(), Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 0.25);
+    }
+
+    /**
+     * @param threads Re-encryption threads per batch.
+     * @param dutyCycle Share of wall time the job may be busy, in (0, 1]; 1 disables throttling.
+     */
+    public ReencryptionService(PasswordService passwordService, int threads, double dutyCycle) {
+        this(passwordService, new AttachmentService(), threads, dutyCycle);
+    }
+
+    /**
+     * @param attachmentService Whose attachments a rotation re-encrypts.
+     */
+    public ReencryptionService(PasswordService passwordService, AttachmentService attachmentService, int threads, double dutyCycle) {
+        if (dutyCycle <= 0 || dutyCycle > 1) {
+            throw new IllegalArgumentException("Duty cycle must be in (0, 1].");
+        }
+        this.passwordService = passwordService;
+        this.passwordDAO = passwordService.getPasswordDAO();
+        this.attachmentService = attachmentService;
+        this.threads = Math.max(1, threads);
+        this.dutyCycle = dutyCycle;
+    }
+
+    /**
+     * Final counts of a run.
+     */
+    public static class ReencryptionSummary {
+        private final int upgraded;
+        private final int failed;
+        private final boolean completed;
+
+        public ReencryptionSummary(int upgraded, int failed, boolean completed) {
+            this.upgraded = upgraded;
+            this.failed = failed;
+            this.completed = completed;
+        }
+
+        public int getUpgraded() { return upgraded; }
+        public int getFailed() { return failed; }
+        /** false if the run was interrupted; the next run resumes from the checkpoint. */
+        public boolean isCompleted() { return completed; }
+    }
+
+    /**
+     * Upgrades the user's outdated entries, resuming after the last committed batch.
+     * Interrupt the calling thread to stop early; committed batches are kept.
+     * @param masterKeyBytes The session data key (copied; the caller may zero its own copy).
+     */
+    public ReencryptionSummary run(int userId, byte[] masterKeyBytes) throws SQLException {
+        byte[] key = masterKeyBytes.clone();
+        ExecutorService pool = newPool();
+        int upgraded = 0;
+        int failed = 0;
+        try {
+            int afterId = passwordDAO.findReencryptionCheckpoint(userId, TARGET_VERSION);
+            while (!Thread.currentThread().isInterrupted()) {
+                long started = System.nanoTime();
+
+                // 1. Next keyset batch
+                List<PasswordEntry> batch = passwordDAO.findBatchBelowVersion(userId, TARGET_VERSION, afterId, BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    passwordDAO.clearReencryptionCheckpoint(userId, TARGET_VERSION);
+                    LOGGER.info("Re-encryption finished for user {}: {} upgraded, {} failed", userId, upgraded, failed);
+                    return new ReencryptionSummary(upgraded, failed, true);
+                }
+
+                // 2. Decrypt + re-encrypt in parallel
+                List<Callable<PasswordEntry>> tasks = new ArrayList<>(batch.size());
+                for (PasswordEntry entry : batch) {
+                    tasks.add(() -> passwordService.upgradeEntry(entry, key));
+                }
+                List<PasswordEntry> rewritten = new ArrayList<>(batch.size());
+                // Failures are left in their old format (still readable); retried by the next full run
+                failed += collect(pool, tasks, rewritten);
+
+                // 3. Write back + checkpoint in one transaction
+                afterId = batch.get(batch.size() - 1).getId();
+                upgraded += passwordDAO.reencryptBatch(userId, TARGET_VERSION, rewritten, afterId);
+
+                // 4. Stay within the duty cycle
+                throttle(System.nanoTime() - started);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+            Arrays.fill(key, (byte) 0);
+        }
+        LOGGER.info("Re-encryption paused for user {} after {} entries; it resumes on the next run", userId, upgraded);
+        return new ReencryptionSummary(upgraded, failed, false);
+    }
+
+    /**
+     * Re-seals everything of the user's vault from the old data key to the new one, resuming
+     * after the last committed batch of entries. Interrupt the calling thread to stop early.
+     * Until the run completes, the vault holds both keys' data, so it must not be used with
+     * either key alone; the caller swaps the wrapped key afterwards.
+     * @return The summary; failures are items that open under neither key. A run whose
+     *         entries were still being edited after {@value #ROTATION_ATTEMPTS} attempts
+     *         stops uncompleted, like an interrupted one.
+     */
+    public ReencryptionSummary rotate(int userId, byte[] oldKeyBytes, byte[] newKeyBytes) throws SQLException {
+        byte[] oldKey = oldKeyBytes.clone();
+        byte[] newKey = newKeyBytes.clone();
+        ExecutorService pool = newPool();
+        int rotated = 0;
+        int failed = 0;
+        try {
+            // 1. Entries, in keyset batches under the rotation checkpoint
+            int afterId = passwordDAO.findReencryptionCheckpoint(userId, PasswordDAO.KEY_ROTATION);
+            List<PasswordEntry> batch;
+            while (!(batch = passwordDAO.findBatchBelowVersion(userId, ANY_VERSION, afterId, BATCH_SIZE)).isEmpty()) {
+                long started = System.nanoTime();
+                afterId = batch.get(batch.size() - 1).getId();
+                for (int attempt = 1; !batch.isEmpty(); attempt++) {
+                    List<Callable<PasswordEntry>> tasks = new ArrayList<>(batch.size());
+                    for (PasswordEntry entry : batch) {
+                        tasks.add(() -> passwordService.rotateEntry(entry, oldKey, newKey));
+                    }
+                    List<PasswordEntry> resealed = new ArrayList<>(batch.size());
+                    failed += collect(pool, tasks, resealed);
+                    int written = passwordDAO.rotateBatch(userId, resealed, afterId);
+                    rotated += written;
+                    if (written == resealed.size()) {
+                        break;
+                    }
+                    if (attempt == ROTATION_ATTEMPTS) {
+                        // Not done: those rows are still under the old key, so the swap must wait
+                        LOGGER.warn("{} entries of user {} kept changing during key rotation", resealed.size() - written, userId);
+                        return new ReencryptionSummary(rotated, failed, false);
+                    }
+                    // Some rows were edited since they were read: re-read those (rewritten ones are skipped)
+                    batch = passwordDAO.findByIds(userId, resealed.stream().map(PasswordEntry::getId).toList());
+                }
+                throttle(System.nanoTime() - started);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+
+            // 2. Archived passwords
+            PasswordHistoryDAO historyDAO = passwordService.getHistoryDAO();
+            if (historyDAO != null) {
+                int afterHistoryId = 0;
+                List<PasswordVersion> versions;
+                while (!(versions = historyDAO.findBatchByUser(userId, afterHistoryId, HISTORY_BATCH_SIZE)).isEmpty()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                    afterHistoryId = versions.get(versions.size() - 1).getId();
+                    List<Callable<PasswordVersion>> tasks = new ArrayList<>(versions.size());
+                    for (PasswordVersion version : versions) {
+                        tasks.add(() -> passwordService.rotateVersion(version, oldKey, newKey));
+                    }
+                    List<PasswordVersion> resealed = new ArrayList<>(versions.size());
+                    failed += collect(pool, tasks, resealed);
+                    rotated += historyDAO.updateEncryptedPasswords(userId, resealed);
+                }
+            }
+
+            // 3. Attachments, one blob at a time
+            for (Attachment attachment : attachmentService.listAllAttachments(userId)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                try {
+                    if (attachmentService.reencrypt(attachment, oldKey, newKey)) {
+                        rotated++;
+                    }
+                } catch (SQLException e) {
+                    throw e;
+                } catch (Exception e) {
+                    LOGGER.warn("Skipping attachment {} that failed to re-encrypt: {}", attachment.getId(), e.getMessage());
+                    failed++;
+                }
+            }
+
+            // 4. Search tokens, rebuilt under the new key after the next unlock
+            SearchIndexDAO searchIndexDAO = passwordService.getSearchIndexDAO();
+            if (searchIndexDAO != null) {
+                searchIndexDAO.deleteAllForUser(userId);
+            }
+            passwordDAO.clearReencryptionCheckpoint(userId, PasswordDAO.KEY_ROTATION);
+            LOGGER.info("Key rotation finished for user {}: {} re-sealed, {} failed", userId, rotated, failed);
+            return new ReencryptionSummary(rotated, failed, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+            Arrays.fill(oldKey, (byte) 0);
+            Arrays.fill(newKey, (byte) 0);
+        }
+        LOGGER.info("Key rotation paused for user {} after {} items; it resumes on the next run", userId, rotated);
+        return new ReencryptionSummary(rotated, failed, false);
+    }
+
+    private ExecutorService newPool() {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "vault-reencrypt");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    // Runs the tasks and adds their non-null results to out, in order
+    private static <T> int collect(ExecutorService pool, List<Callable<T>> tasks, List<T> out) throws InterruptedException {
+        int failed = 0;
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                T result = future.get();
+                if (result != null) {
+                    out.add(result);
+                }
+            } catch (ExecutionException e) {
+                LOGGER.warn("Skipping a row that failed to re-encrypt: {}", e.getCause().getMessage());
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private void throttle(long busyNanos) throws InterruptedException {
+        if (dutyCycle < 1) {
+            TimeUnit.NANOSECONDS.sleep((long) (busyNanos * (1 - dutyCycle) / dutyCycle));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.passwordmanager.service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.metrics.MetricsRegistry;
+
+/**
+ * Live sessions for the server and agent modes, with idle and absolute expiry.
+ *
+ * Sessions sit in a ConcurrentHashMap keyed by token, and each is also filed once in a
+ * hashed timing wheel under its current deadline. Touching a session on a request is a
+ * single (rate-limited) volatile write; the wheel is not updated. When a slot comes due, only
+ * the sessions filed there are looked at: those really past their deadline are evicted (data
+ * key zeroed) and those touched since are re-filed under their new deadline. Create, touch,
+ * invalidate and expire are all O(1), however many sessions are live. Lookups check the
+ * deadline too, so a session is never served past it even between ticks.
+ *
+ * A request that uses the data key {@link #acquire}s the session and releases it when done:
+ * a session that ends meanwhile (expiry, logout) is gone for new lookups at once, but its key
+ * is only zeroed after the last release.
+ */
+public final class SessionManager implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionManager.class);
+
+    private static final int WHEEL_SLOTS = 512; // power of two
+    private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * One authenticated session. The data key, if any, belongs to the session and is
+     * zeroed when it ends and no request holds it; callers must not keep their own
+     * references past their release.
+     */
+    public static final class Session {
+        private final String token;
+        private final int userId;
+        private final String username;
+        private final byte[] dataKey;
+        private final long createdNanos;
+        private volatile long lastAccessNanos;
+        private volatile boolean ended;
+        private int users; // acquired and not yet released; guarded by this
+        private long deadlineTick; // guarded by the wheel slot it is filed in
+
+        private Session(String token, int userId, String username, byte[] dataKey, long now) {
+            this.token = token;
+            this.userId = userId;
+            this.username = username;
+            this.dataKey = dataKey;
+            this.createdNanos = now;
+            this.lastAccessNanos = now;
+        }
+
+        public String getToken() { return token; }
+        public int getUserId() { return userId; }
+        public String getUsername() { return username; }
+        /** The session's data key, or null for sessions that hold none (server mode). */
+        public byte[] getDataKey() { return dataKey; }
+        public long getLastAccessNanos() { return lastAccessNanos; }
+        public boolean isEnded() { return ended; }
+
+        private synchronized boolean pin() {
+            if (ended) {
+                return false;
+            }
+            users++;
+            return true;
+        }
+
+        private synchronized void unpin() {
+            if (--users == 0 && ended) {
+                zeroKey();
+            }
+        }
+
+        private synchronized void markEnded() {
+            ended = true;
+            if (users == 0) {
+                zeroKey();
+            }
+        }
+
+        private void zeroKey() {
+            if (dataKey != null) {
+                Arrays.fill(dataKey, (byte) 0);
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleNanos;
+    private final long absoluteNanos;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final List<ArrayDeque<Session>> wheel = new ArrayList<>(WHEEL_SLOTS);
+    private final ScheduledExecutorService ticker;
+    private long currentTick; // only advanced by the ticker thread
+    private volatile long publishedTick;
+
+    /**
+     * @param idle Sessions end after this long without a request.
+     * @param absolute Sessions end this long after login, however active.
+     * @param tick Expiry resolution; sessions end at most one tick late (lookups are exact).
+     */
+    public SessionManager(String name, Duration idle, Duration absolute, Duration tick) {
+        this.idleNanos = idle.toNanos();
+        this.absoluteNanos = absolute.toNanos();
+        this.tickNanos = Math.max(1, tick.toNanos());
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-sessions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        MetricsRegistry.getDefault().gauge("sessions." + name + ".live", sessions::size);
+    }
+
+    /**
+     * Starts a session with a fresh random token.
+     * @param dataKey Handed over to the session (zeroed when it ends), or null.
+     */
+    public Session create(int userId, String username, byte[] dataKey) {
+        byte[] tokenBytes = new byte[32];
+        RANDOM.nextBytes(tokenBytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+        Session session = new Session(token, userId, username, dataKey, System.nanoTime());
+        sessions.put(token, session);
+        file(session, deadlineOf(session));
+        return session;
+    }
+
+    /**
+     * Looks a session up and records the activity.
+     * @return The session, or empty if the token is unknown or the session has expired.
+     */
+    public Optional<Session> touch(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        if (now - deadlineOf(session) >= 0) {
+            end(session, "expired");
+            return Optional.empty();
+        }
+        // Skip the write (and the cache-line traffic) when the last one was very recent
+        if (now - session.lastAccessNanos > TOUCH_GRANULARITY_NANOS) {
+            session.lastAccessNanos = now;
+        }
+        return Optional.of(session);
+    }
+
+    /**
+     * {@link #touch} for a request that will use the data key: the key stays intact, even if
+     * the session ends meanwhile, until {@link #release}. Release in a finally block.
+     * @return The session, or empty if the token is unknown or the session has ended.
+     */
+    public Optional<Session> acquire(String token) {
+        return touch(token).filter(Session::pin);
+    }
+
+    /**
+     * Ends a request's use of the session; zeroes the key if the session ended meanwhile
+     * and this was its last user.
+     */
+    public void release(Session session) {
+        session.unpin();
+    }
+
+    /**
+     * Ends a session now (logout, lock). Unknown tokens are ignored.
+     */
+    public void invalidate(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session != null) {
+            end(session, "invalidated");
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public Duration getIdleTimeout() {
+        return Duration.ofNanos(idleNanos);
+    }
+
+    /**
+     * Nanoseconds until the session ends if it stays idle (0 if already due).
+     */
+    public long remainingNanos(Session session) {
+        return Math.max(0, deadlineOf(session) - System.nanoTime());
+    }
+
+    /**
+     * Stops the ticker and ends every session.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        for (Session session : sessions.values()) {
+            end(session, "closed");
+        }
+    }
+
+    // --- WHEEL ---
+
+    private long deadlineOf(Session session) {
+        return Math.min(session.lastAccessNanos + idleNanos, session.createdNanos + absoluteNanos);
+    }
+
+    private void file(Session session, long deadlineNanos) {
+        long wanted = Math.ceilDiv(deadlineNanos - startNanos, tickNanos);
+        while (true) {
+            // Never into a slot the ticker has started on (so at most one tick late); re-checked
+            // under the slot lock because the ticker publishes a tick before draining its slot
+            long tick = Math.max(publishedTick + 1, wanted);
+            ArrayDeque<Session> slot = wheel.get((int) (tick & (WHEEL_SLOTS - 1)));
+            synchronized (slot) {
+                if (tick > publishedTick) {
+                    session.deadlineTick = tick;
+                    slot.add(session);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Ticker thread: process every slot whose time has come
+    private void advance() {
+        try {
+            long target = (System.nanoTime() - startNanos) / tickNanos;
+            List<Session> due = new ArrayList<>();
+            while (currentTick < target) {
+                currentTick++;
+                publishedTick = currentTick;
+                ArrayDeque<Session> slot = wheel.get((int) (currentTick & (WHEEL_SLOTS - 1)));
+                synchronized (slot) {
+                    // Sessions filed a full revolution (or more) ahead stay put
+                    for (int n = slot.size(); n > 0; n--) {
+                        Session session = slot.poll();
+                        if (session.deadlineTick > currentTick) {
+                            slot.add(session);
+                        } else {
+                            due.add(session);
+                        }
+                    }
+                }
+                long now = System.nanoTime();
+                for (Session session : due) {
+                    if (session.ended) {
+                        continue; // Invalidated meanwhile; dropped from the wheel here
+                    }
+                    long deadline = deadlineOf(session);
+                    if (now - deadline >= 0) {
+                        end(session, "expired");
+                    } else {
+                        file(session, deadline); // Touched since it was filed
+                    }
+                }
+                due.clear();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Session expiry tick failed:", e);
+        }
+    }
+
+    private void end(Session session, String reason) {
+        if (sessions.remove(session.token, session)) {
+            session.markEnded(); // Zeroes the key now, or at the last release
+            Metrics.increment("sessions." + reason);
+            LOGGER.debug("Session of {} {}", session.username, reason);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.passwordmanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.metrics.Metrics;
+import com.passwordmanager.model.PasswordEntry;
+
+/**
+ * Reconciles edits made on a stale copy of an entry (offline, or on another device) with
+ * the vault, field by field.
+ *
+ * Every edit is first written optimistically against the row version it was based on; that
+ * single UPDATE is all an unconflicted edit costs, so a sync is proportional to the number
+ * of edited entries, not the size of the vault. Only when the row has moved on is the
+ * current copy read and a three-way merge done on the plaintext fields (title, username,
+ * password, URL, note) against the base: a field changed on one side only takes that side's
+ * value. When both sides changed the same field differently, the stored entry keeps the
+ * other device's value and the local version is saved next to it as a conflict copy, so
+ * nothing typed on either device is lost.
+ */
+public class SyncService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncService.class);
+
+    public static final String CONFLICT_SUFFIX = " (conflict copy)";
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Plaintext fields of an entry: what the merge compares.
+     */
+    public record EntryFields(String title, String username, String password, String url, String note) {}
+
+    /**
+     * An edit made against {@code base}, the encrypted entry as last synced (its row version
+     * matters). {@code local} is null for an entry deleted locally.
+     */
+    public record OfflineEdit(PasswordEntry base, EntryFields local) {}
+
+    /**
+     * Result of a three-way merge: the fields to store, and the names of the fields both
+     * sides changed (those keep the remote value in {@code merged}).
+     */
+    public record MergeResult(EntryFields merged, List<String> conflicts) {
+        public boolean hasConflicts() { return !conflicts.isEmpty(); }
+    }
+
+    public static class SyncSummary {
+        private final int applied;
+        private final int merged;
+        private final int conflictCopies;
+        private final int failed;
+
+        public SyncSummary(int applied, int merged, int conflictCopies, int failed) {
+            this.applied = applied;
+            this.merged = merged;
+            this.conflictCopies = conflictCopies;
+            this.failed = failed;
+        }
+
+        /** Edits written as they were (nobody else had changed the entry). */
+        public int getApplied() { return applied; }
+        /** Edits combined with a concurrent change. */
+        public int getMerged() { return merged; }
+        /** Conflict copies created for fields both sides changed. */
+        public int getConflictCopies() { return conflictCopies; }
+        public int getFailed() { return failed; }
+    }
+
+    private final PasswordService passwordService;
+
+    public SyncService() {
+        this(new PasswordService());
+    }
+
+    public SyncService(PasswordService passwordService) {
+        this.passwordService = passwordService;
+    }
+
+    /**
+     * Three-way merge of one entry's fields. Pure; also usable by server-mode clients, which
+     * merge on their side after a 409 from PUT /api/entries/{id}.
+     */
+    public static MergeResult merge(EntryFields base, EntryFields local, EntryFields remote) {
+        List<String> conflicts = new ArrayList<>();
+        EntryFields merged = new EntryFields(
+                mergeField("title", base.title(), local.title(), remote.title(), conflicts),
+                mergeField("username", base.username(), local.username(), remote.username(), conflicts),
+                mergeField("password", base.password(), local.password(), remote.password(), conflicts),
+                mergeField("url", base.url(), local.url(), remote.url(), conflicts),
+                mergeField("note", base.note(), local.note(), remote.note(), conflicts));
+        return new MergeResult(merged, conflicts);
+    }
+
+    private static String mergeField(String name, String base, String local, String remote, List<String> conflicts) {
+        if (Objects.equals(local, base) || Objects.equals(local, remote)) {
+            return remote; // Unchanged here, or both made the same change
+        }
+        if (Objects.equals(remote, base)) {
+            return local; // Changed here only
+        }
+        conflicts.add(name);
+        return remote;
+    }
+
+    /**
+     * Writes the user's offline edits, merging each with any change made meanwhile.
+     * @param masterKeyBytes The session data key, to compare and re-seal fields.
+     */
+    public SyncSummary reconcile(int userId, List<OfflineEdit> edits, byte[] masterKeyBytes) {
+        int applied = 0, merged = 0, conflictCopies = 0, failed = 0;
+        for (OfflineEdit edit : edits) {
+            try {
+                switch (reconcile(userId, edit, masterKeyBytes)) {
+                    case APPLIED -> applied++;
+                    case MERGED -> merged++;
+                    case CONFLICT -> {
+                        merged++;
+                        conflictCopies++;
+                        Metrics.increment("sync.conflicts");
+                    }
+                    case FAILED -> failed++;
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to sync entry ID {}:", edit.base().getId(), e);
+                failed++;
+            }
+        }
+        LOGGER.info("Synced {} edits for user {}: {} applied, {} merged, {} conflict copies, {} failed",
+                edits.size(), userId, applied, merged, conflictCopies, failed);
+        return new SyncSummary(applied, merged, conflictCopies, failed);
+    }
+
+    private enum Outcome { APPLIED, MERGED, CONFLICT, FAILED }
+
+    private Outcome reconcile(int userId, OfflineEdit edit, byte[] key) throws Exception {
+        PasswordEntry base = edit.base();
+        EntryFields local = edit.local();
+
+        // 1. Local delete: only if nobody edited the entry since; a remote edit wins over it
+        if (local == null) {
+            Optional<PasswordEntry> current = passwordService.getEncryptedEntry(base.getId(), userId);
+            if (current.isEmpty()) {
+                return Outcome.APPLIED;
+            }
+            if (current.get().getRowVersion() != base.getRowVersion()) {
+                return Outcome.MERGED;
+            }
+            return passwordService.deleteEntry(base.getId(), userId) ? Outcome.APPLIED : Outcome.FAILED;
+        }
+
+        // 2. Fast path: nobody else changed it
+        if (save(base, local, key)) {
+            return Outcome.APPLIED;
+        }
+
+        // 3. Read the current copy and merge; retried if it moves on again while we merge
+        EntryFields baseFields = passwordService.decryptFields(base, key);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Optional<PasswordEntry> current = passwordService.getEncryptedEntry(base.getId(), userId);
+            if (current.isEmpty()) {
+                // Deleted elsewhere while edited here: keep the edit as a new entry
+                return create(userId, local, key) ? Outcome.MERGED : Outcome.FAILED;
+            }
+            MergeResult result = merge(baseFields, local, passwordService.decryptFields(current.get(), key));
+            if (save(current.get(), result.merged(), key)) {
+                if (!result.hasConflicts()) {
+                    return Outcome.MERGED;
+                }
+                LOGGER.info("Entry ID {} changed on both sides ({}); keeping a conflict copy", base.getId(), result.conflicts());
+                EntryFields copy = new EntryFields(local.title() + CONFLICT_SUFFIX, local.username(), local.password(), local.url(), local.note());
+                return create(userId, copy, key) ? Outcome.CONFLICT : Outcome.FAILED;
+            }
+        }
+        return Outcome.FAILED;
+    }
+
+    private boolean save(PasswordEntry current, EntryFields fields, byte[] key) {
+        return passwordService.updateEntry(current, fields.title(), fields.username(), fields.password(), fields.url(), fields.note(), key).isPresent();
+    }
+
+    private boolean create(int userId, EntryFields fields, byte[] key) {
+        return passwordService.createEntry(userId, fields.title(), fields.username(), fields.password(), fields.url(), fields.note(), key);
+    }
+}
@@ -0,0 +1,115 @@
+package com.passwordmanager.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.dao.FilePasswordDAO;
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.dao.TagDAO;
+import com.passwordmanager.model.Tag;
+import com.passwordmanager.util.TagIndex;
+
+/**
+ * Tags and folders for organizing entries. Assignments are stored in SQL; filtering runs
+ * over a {@link TagIndex} built once per session, so it never waits on the database.
+ * The file vault has no tag tables: there, {@link #isAvailable()} is false.
+ */
+public class TagService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TagService.class);
+    public static final int MAX_NAME_LENGTH = 100;
+
+    private final TagDAO tagDAO; // null for the file vault
+
+    public TagService() {
+        this(PasswordDAO.forConfiguredStorage() instanceof FilePasswordDAO ? null : new TagDAO());
+    }
+
+    public TagService(TagDAO tagDAO) {
+        this.tagDAO = tagDAO;
+    }
+
+    public boolean isAvailable() {
+        return tagDAO != null;
+    }
+
+    /**
+     * @return The user's tags, folders first.
+     */
+    public List<Tag> getTags(int userId) {
+        return tagDAO == null ? new ArrayList<>() : tagDAO.findTags(userId);
+    }
+
+    /**
+     * Builds the filter index over the given entries (normally the whole vault) from the
+     * stored assignments: one query, whatever the number of tags.
+     */
+    public TagIndex buildIndex(int userId, Collection<Integer> entryIds) {
+        TagIndex index = new TagIndex();
+        for (int entryId : entryIds) {
+            index.addEntry(entryId);
+        }
+        if (tagDAO == null) {
+            return index;
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : tagDAO.findAssignments(userId).entrySet()) {
+            for (int tagId : entry.getValue()) {
+                index.tag(entry.getKey(), tagId);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Creates a tag or folder.
+     * @return The new tag, or empty if the name is blank, too long or already used (logged).
+     */
+    public Optional<Tag> createTag(int userId, String name, boolean folder) {
+        String trimmed = name == null ? "" : name.strip();
+        if (tagDAO == null || trimmed.isEmpty() || trimmed.length() > MAX_NAME_LENGTH) {
+            return Optional.empty();
+        }
+        Tag tag = new Tag();
+        tag.setUserId(userId);
+        tag.setName(trimmed);
+        tag.setFolder(folder);
+        return tagDAO.createTag(tag) > 0 ? Optional.of(tag) : Optional.empty();
+    }
+
+    /**
+     * Deletes a tag, removing it from all entries, and drops it from the index.
+     */
+    public boolean deleteTag(int tagId, int userId, TagIndex index) {
+        if (tagDAO == null || !tagDAO.deleteTag(tagId, userId)) {
+            return false;
+        }
+        index.removeTag(tagId);
+        return true;
+    }
+
+    /**
+     * Replaces an entry's tags (at most one of them a folder) and updates the index to match.
+     * @throws IllegalArgumentException if more than one folder is given.
+     */
+    public boolean setEntryTags(int userId, int entryId, Collection<Tag> tags, TagIndex index) {
+        if (tags.stream().filter(Tag::isFolder).count() > 1) {
+            throw new IllegalArgumentException("An entry can be in one folder only");
+        }
+        if (tagDAO == null) {
+            return false;
+        }
+        List<Integer> tagIds = tags.stream().map(Tag::getId).toList();
+        if (!tagDAO.replaceAssignments(entryId, userId, tagIds)) {
+            return false;
+        }
+        index.setTags(entryId, tagIds);
+        LOGGER.debug("Entry ID {} now has {} tags", entryId, tagIds.size());
+        return true;
+    }
+}
@@ -0,0 +1,307 @@
+package com.passwordmanager.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.util.HkdfUtil;
+import com.passwordmanager.util.PasswordStrengthChecker;
+
+/**
+ * Vault health audit: weak, reused and stale passwords.
+ *
+ * Passwords are decrypted in parallel slices, scored with {@link PasswordStrengthChecker} and
+ * reduced to a reuse key, HMAC-SHA256(auditKey, password) truncated to 128 bits, where the
+ * audit key is an HKDF subkey of the vault data key. Reuse is found by grouping those keys;
+ * no plaintext outlives the task that decrypted it. Age is measured from the last password
+ * change (password_changed_at, falling back to updated_at for older rows).
+ *
+ * The service keeps the last audit's results with each entry's row version, so a re-audit
+ * reads every entry's current version (one narrow query), then only decrypts the rows that are
+ * new or whose version moved, and drops deleted ones. Versions are compared per entry, so a write
+ * that commits late is still picked up (a timestamp high-water mark would miss it: PostgreSQL
+ * stamps rows with the transaction start time). The file store has no timestamps: ages are unknown
+ * there.
+ */
+public class VaultAuditService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VaultAuditService.class);
+
+    public static final String STALE_DAYS_PROPERTY = "passwordmanager.audit.staleDays";
+
+    private static final String AUDIT_KEY_INFO = "pm-audit-reuse-v1";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int REUSE_KEY_BYTES = 16;
+    private static final int SLICES_PER_THREAD = 4;
+
+    private final PasswordService passwordService;
+    private final PasswordDAO passwordDAO;
+    private final int threads;
+    private final int staleDays;
+
+    // Results of the previous run, for the incremental re-audit
+    private int auditedUserId = -1;
+    private final Map<Integer, Result> results = new HashMap<>();
+
+    public VaultAuditService(PasswordService passwordService) {
+        this(passwordService, Runtime.getRuntime().availableProcessors(),
+                Integer.getInteger(STALE_DAYS_PROPERTY, 365));
+    }
+
+    /**
+     * @param threads Decryption threads.
+     * @param staleDays Passwords unchanged for at least this many days are flagged as stale.
+     */
+    public VaultAuditService(PasswordService passwordService, int threads, int staleDays) {
+        this.passwordService = passwordService;
+        this.passwordDAO = passwordService.getPasswordDAO();
+        this.threads = Math.max(1, threads);
+        this.staleDays = staleDays;
+    }
+
+    /**
+     * One audited entry, as shown in the report.
+     */
+    public static class Finding {
+        private final int entryId;
+        private final String title;
+        private final String strength;
+        private final int reuseGroup;
+        private final int reuseCount;
+        private final long ageDays;
+        private final boolean stale;
+
+        public Finding(int entryId, String title, String strength, int reuseGroup, int reuseCount, long ageDays, boolean stale) {
+            this.entryId = entryId;
+            this.title = title;
+            this.strength = strength;
+            this.reuseGroup = reuseGroup;
+            this.reuseCount = reuseCount;
+            this.ageDays = ageDays;
+            this.stale = stale;
+        }
+
+        public int getEntryId() { return entryId; }
+        public String getTitle() { return title; }
+        /** "Weak", "Moderate" or "Strong", or null if the password failed to decrypt. */
+        public String getStrength() { return strength; }
+        /** Entries sharing a password have the same group number; 0 if the password is unique. */
+        public int getReuseGroup() { return reuseGroup; }
+        /** Entries in the group, this one included (1 if unique). */
+        public int getReuseCount() { return reuseCount; }
+        /** Days since the password last changed, or -1 if unknown. */
+        public long getAgeDays() { return ageDays; }
+        public boolean isWeak() { return "Weak".equals(strength); }
+        public boolean isReused() { return reuseCount > 1; }
+        public boolean isStale() { return stale; }
+        public boolean isUnreadable() { return strength == null; }
+    }
+
+    /**
+     * Findings of a run, with the totals.
+     */
+    public static class AuditReport {
+        private final List<Finding> findings;
+        private final int audited;
+        private final boolean incremental;
+        private final long elapsedMillis;
+        private final int weak;
+        private final int reused;
+        private final int stale;
+        private final int unreadable;
+
+        public AuditReport(List<Finding> findings, int audited, boolean incremental, long elapsedMillis) {
+            this.findings = findings;
+            this.audited = audited;
+            this.incremental = incremental;
+            this.elapsedMillis = elapsedMillis;
+            int weakCount = 0, reusedCount = 0, staleCount = 0, unreadableCount = 0;
+            for (Finding finding : findings) {
+                if (finding.isWeak()) weakCount++;
+                if (finding.isReused()) reusedCount++;
+                if (finding.isStale()) staleCount++;
+                if (finding.isUnreadable()) unreadableCount++;
+            }
+            this.weak = weakCount;
+            this.reused = reusedCount;
+            this.stale = staleCount;
+            this.unreadable = unreadableCount;
+        }
+
+        public List<Finding> getFindings() { return findings; }
+        public int getTotal() { return findings.size(); }
+        /** Entries decrypted by this run (all of them unless it was incremental). */
+        public int getAudited() { return audited; }
+        public boolean isIncremental() { return incremental; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public int getWeak() { return weak; }
+        /** Entries whose password is used by at least one other entry. */
+        public int getReused() { return reused; }
+        public int getStale() { return stale; }
+        public int getUnreadable() { return unreadable; }
+    }
+
+    // Per-entry state kept between runs: no plaintext, only the score and the reuse key
+    private record Result(int entryId, int rowVersion, String title, String strength, String reuseKey, Timestamp changedAt) {}
+
+    /**
+     * Audits the user's vault: the first run (or the first for another user) reads every
+     * entry, later runs only those changed since.
+     * @param masterKeyBytes The session data key (copied; the caller may zero its own copy).
+     */
+    public synchronized AuditReport audit(int userId, byte[] masterKeyBytes) throws Exception {
+        long started = System.nanoTime();
+        boolean incremental = userId == auditedUserId;
+        if (!incremental) {
+            reset();
+        }
+
+        // 1. Rows that are new or whose version moved since the last run (all of them the first time)
+        List<PasswordDAO.AuditRow> rows;
+        if (incremental) {
+            Map<Integer, Integer> versions = passwordDAO.findRowVersions(userId);
+            results.keySet().retainAll(versions.keySet()); // Deleted since
+            List<Integer> changed = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> version : versions.entrySet()) {
+                Result previous = results.get(version.getKey());
+                if (previous == null || previous.rowVersion() != version.getValue()) {
+                    changed.add(version.getKey());
+                }
+            }
+            Collections.sort(changed);
+            rows = changed.isEmpty() ? List.of() : passwordDAO.findAuditRows(userId, changed);
+        } else {
+            rows = passwordDAO.findAuditRows(userId, null);
+        }
+
+        // 2. Decrypt, score and key them in parallel
+        List<Result> audited = auditRows(rows, masterKeyBytes);
+
+        // 3. Merge into the previous results
+        for (Result result : audited) {
+            results.put(result.entryId(), result);
+        }
+        auditedUserId = userId;
+
+        // 4. Group reuse keys and build the report
+        AuditReport report = new AuditReport(buildFindings(), audited.size(), incremental,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+        LOGGER.info("Vault audit for user {}: {} of {} entries audited in {} ms ({} weak, {} reused, {} stale)",
+                userId, report.getAudited(), report.getTotal(), report.getElapsedMillis(),
+                report.getWeak(), report.getReused(), report.getStale());
+        return report;
+    }
+
+    /**
+     * Forgets the previous results; the next audit is a full one.
+     */
+    public synchronized void reset() {
+        auditedUserId = -1;
+        results.clear();
+    }
+
+    private List<Result> auditRows(List<PasswordDAO.AuditRow> rows, byte[] masterKeyBytes) throws Exception {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        byte[] key = masterKeyBytes.clone();
+        byte[] auditKey = HkdfUtil.derive(key, null, AUDIT_KEY_INFO, 32);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "vault-audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // A few slices per thread even out slow ones; each slice has its own Mac
+            int sliceSize = Math.max(1, (rows.size() + threads * SLICES_PER_THREAD - 1) / (threads * SLICES_PER_THREAD));
+            List<Callable<List<Result>>> tasks = new ArrayList<>();
+            for (int from = 0; from < rows.size(); from += sliceSize) {
+                List<PasswordDAO.AuditRow> slice = rows.subList(from, Math.min(rows.size(), from + sliceSize));
+                tasks.add(() -> auditSlice(slice, key, auditKey));
+            }
+            List<Result> audited = new ArrayList<>(rows.size());
+            for (Future<List<Result>> future : pool.invokeAll(tasks)) {
+                try {
+                    audited.addAll(future.get());
+                } catch (ExecutionException e) {
+                    throw new Exception("Vault audit failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return audited;
+        } finally {
+            pool.shutdownNow();
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(auditKey, (byte) 0);
+        }
+    }
+
+    private List<Result> auditSlice(List<PasswordDAO.AuditRow> slice, byte[] key, byte[] auditKey) throws Exception {
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        mac.init(new SecretKeySpec(auditKey, MAC_ALGORITHM));
+        List<Result> audited = new ArrayList<>(slice.size());
+        for (PasswordDAO.AuditRow row : slice) {
+            String strength = null;
+            String reuseKey = null;
+            try {
+                String password = passwordService.openPassword(row.entry(), key);
+                if (password != null) {
+                    strength = PasswordStrengthChecker.checkStrength(password);
+                    byte[] digest = mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+                    reuseKey = Base64.getEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, REUSE_KEY_BYTES));
+                }
+            } catch (Exception e) {
+                // Reported as unreadable; the rest of the vault is still audited
+                LOGGER.warn("Could not decrypt entry ID {} for audit: {}", row.entry().getId(), e.getMessage());
+            }
+            Timestamp changedAt = row.passwordChangedAt() != null ? row.passwordChangedAt() : row.updatedAt();
+            audited.add(new Result(row.entry().getId(), row.entry().getRowVersion(), row.entry().getTitle(), strength, reuseKey, changedAt));
+        }
+        return audited;
+    }
+
+    private List<Finding> buildFindings() {
+        Map<String, Integer> reuseCounts = new HashMap<>();
+        for (Result result : results.values()) {
+            if (result.reuseKey() != null) {
+                reuseCounts.merge(result.reuseKey(), 1, Integer::sum);
+            }
+        }
+
+        // Group numbers in entry ID order, so they stay put while nothing changes
+        List<Result> ordered = new ArrayList<>(results.values());
+        ordered.sort((a, b) -> Integer.compare(a.entryId(), b.entryId()));
+        Map<String, Integer> groups = new HashMap<>();
+        Instant now = Instant.now();
+        List<Finding> findings = new ArrayList<>(ordered.size());
+        for (Result result : ordered) {
+            int count = result.reuseKey() != null ? reuseCounts.get(result.reuseKey()) : 1;
+            int group = count > 1 ? groups.computeIfAbsent(result.reuseKey(), k -> groups.size() + 1) : 0;
+            long ageDays = result.changedAt() != null
+                    ? Math.max(0, Duration.between(result.changedAt().toInstant(), now).toDays())
+                    : -1;
+            findings.add(new Finding(result.entryId(), result.title(), result.strength(), group, count,
+                    ageDays, ageDays >= staleDays));
+        }
+        return Collections.unmodifiableList(findings);
+    }
+}
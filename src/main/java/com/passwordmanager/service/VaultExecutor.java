@@ -0,0 +1,112 @@
+package com.passwordmanager.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.passwordmanager.dao.DatabaseManager;
+import com.passwordmanager.metrics.Metrics;
+
+/**
+ * Runs blocking service calls on virtual threads for the async service API.
+ *
+ * Calls that use the database take a permit sized to the connection pool first, so any number
+ * of pending calls queue here (cheaply, as parked virtual threads) instead of timing out on the
+ * pool. Key derivations take a permit sized to the CPU count, so a burst of logins does not
+ * thrash the cores. Every future times out after the configured limit; the thread running a
+ * timed-out call is interrupted, which releases a call still waiting for its permit.
+ */
+public final class VaultExecutor {
+
+    public static final String TIMEOUT_PROPERTY = "passwordmanager.async.timeoutSeconds";
+
+    private static volatile VaultExecutor defaultExecutor;
+
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("vault-async-", 0).factory());
+    private final Semaphore dbPermits;
+    private final Semaphore cpuPermits;
+    private final Duration timeout;
+
+    /**
+     * @param dbConcurrency Database calls allowed at once (normally the pool size).
+     * @param cpuConcurrency Key derivations allowed at once.
+     * @param timeout Applied to every future this executor returns.
+     */
+    public VaultExecutor(int dbConcurrency, int cpuConcurrency, Duration timeout) {
+        this.dbPermits = new Semaphore(dbConcurrency, true);
+        this.cpuPermits = new Semaphore(cpuConcurrency, true);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Shared executor: pool-sized database limit, one derivation per core, and
+     * -Dpasswordmanager.async.timeoutSeconds (default 30).
+     */
+    public static VaultExecutor getDefault() {
+        if (defaultExecutor == null) {
+            synchronized (VaultExecutor.class) {
+                if (defaultExecutor == null) {
+                    defaultExecutor = new VaultExecutor(DatabaseManager.getInstance().getPoolSize(),
+                            Runtime.getRuntime().availableProcessors(),
+                            Duration.ofSeconds(Long.getLong(TIMEOUT_PROPERTY, 30)));
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Runs a call that uses a database connection.
+     */
+    public <T> CompletableFuture<T> database(Callable<T> call) {
+        return submit(dbPermits, call);
+    }
+
+    /**
+     * Runs a CPU-heavy call (key derivation); it may also use the database briefly.
+     */
+    public <T> CompletableFuture<T> compute(Callable<T> call) {
+        return submit(cpuPermits, call);
+    }
+
+    private <T> CompletableFuture<T> submit(Semaphore permits, Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        long start = System.nanoTime();
+        threads.execute(() -> {
+            runner.set(Thread.currentThread());
+            try {
+                permits.acquire();
+                try {
+                    Metrics.recordSince("async.wait", start);
+                    if (!future.isDone()) {
+                        future.complete(call.call());
+                    }
+                } finally {
+                    permits.release();
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                runner.set(null);
+            }
+        });
+        future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                Metrics.increment("async.timeouts");
+                Thread thread = runner.get();
+                if (thread != null) {
+                    thread.interrupt(); // Each call has its own virtual thread, so nothing else is hit
+                }
+            }
+        });
+        return future;
+    }
+}
@@ -27,7 +27,7 @@ public class AddPasswordDialog extends JDialog {
     private final PasswordService passwordService = new PasswordService();
 
     // UI Components
-    private JTextField titleField, usernameField, passwordField, strengthMeter, noteField;
+    private JTextField titleField, usernameField, urlField, passwordField, strengthMeter, noteField;
     private JButton generateButton;
     private JButton saveButton;
 
@@ -59,6 +59,10 @@ public class AddPasswordDialog extends JDialog {
         gbc.gridy++; gbc.gridx = 0; gbc.gridwidth = 1; mainPanel.add(new JLabel("Username/Email:"), gbc);
         gbc.gridx = 1; gbc.gridwidth = 2; usernameField = new JTextField(25); mainPanel.add(usernameField, gbc);
 
+        // --- Row 2b: Site URL (used to find the entry for a site) ---
+        gbc.gridy++; gbc.gridx = 0; gbc.gridwidth = 1; mainPanel.add(new JLabel("Website URL:"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2; urlField = new JTextField(25); mainPanel.add(urlField, gbc);
+
         // --- Row 3: Password Field ---
         gbc.gridy++; gbc.gridx = 0; gbc.gridwidth = 1; mainPanel.add(new JLabel("Password:"), gbc);
         gbc.gridx = 1; passwordField = new JTextField(15); passwordField.putClientProperty("JComponent.roundRect", true); mainPanel.add(passwordField, gbc);
@@ -129,6 +133,7 @@ public class AddPasswordDialog extends JDialog {
             titleField.getText().trim(),
             usernameField.getText().trim(),
             passwordField.getText(),
+            urlField.getText().trim().isEmpty() ? null : urlField.getText().trim(),
             noteField.getText().trim(),
             masterKeyBytes
         );
@@ -0,0 +1,209 @@
+package com.passwordmanager.ui;
+
+import java.awt.BorderLayout;
+import java.awt.Desktop;
+import java.awt.FlowLayout;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.table.DefaultTableModel;
+
+import com.passwordmanager.model.Attachment;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.User;
+import com.passwordmanager.service.AttachmentService;
+
+/**
+ * Lists the files attached to one entry. Only metadata is shown; content is
+ * decrypted on demand when the user opens or saves an attachment.
+ */
+public class AttachmentsDialog extends JDialog {
+
+    private final User loggedInUser;
+    private final PasswordEntry entry;
+    private final byte[] masterKeyBytes;
+    private final AttachmentService attachmentService;
+
+    // UI Components
+    private JTable attachmentTable;
+    private DefaultTableModel tableModel;
+    private List<Attachment> attachments = List.of();
+    private JButton addButton, openButton, saveButton, deleteButton;
+
+    public AttachmentsDialog(MainFrame parent, User user, PasswordEntry entry, byte[] masterKeyBytes,
+                             AttachmentService attachmentService) {
+        super(parent, "Attachments - " + entry.getTitle(), true);
+        this.loggedInUser = user;
+        this.entry = entry;
+        this.masterKeyBytes = masterKeyBytes;
+        this.attachmentService = attachmentService;
+
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        initUI();
+        loadAttachments();
+        setSize(560, 320);
+        setLocationRelativeTo(parent);
+    }
+
+    private void initUI() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        tableModel = new DefaultTableModel(new String[]{"File", "Size", "Added"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        attachmentTable = new JTable(tableModel);
+        attachmentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        attachmentTable.setRowHeight(25);
+        mainPanel.add(new JScrollPane(attachmentTable), BorderLayout.CENTER);
+
+        addButton = new JButton("Add...");
+        openButton = new JButton("Open");
+        saveButton = new JButton("Save As...");
+        deleteButton = new JButton("Delete");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(addButton);
+        buttonPanel.add(openButton);
+        buttonPanel.add(saveButton);
+        buttonPanel.add(deleteButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        addButton.addActionListener(e -> addAttachment());
+        openButton.addActionListener(e -> openAttachment());
+        saveButton.addActionListener(e -> saveAttachment());
+        deleteButton.addActionListener(e -> deleteAttachment());
+
+        add(mainPanel);
+    }
+
+    private void loadAttachments() {
+        attachments = attachmentService.listAttachments(entry.getId(), loggedInUser.getId());
+        tableModel.setRowCount(0);
+        for (Attachment attachment : attachments) {
+            tableModel.addRow(new Object[]{
+                attachment.getFileName(),
+                formatSize(attachment.getSizeBytes()),
+                attachment.getCreatedAt() != null ? attachment.getCreatedAt().toLocalDateTime().toLocalDate().toString() : ""
+            });
+        }
+    }
+
+    private Attachment getSelectedAttachment() {
+        int selectedRow = attachmentTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select an attachment.", "Select Attachment", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return attachments.get(selectedRow);
+    }
+
+    private void addAttachment() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Attach file");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path source = chooser.getSelectedFile().toPath();
+
+        runInBackground(() -> attachmentService.addAttachment(loggedInUser.getId(), entry.getId(), source, masterKeyBytes),
+            "Attach", false);
+    }
+
+    private void openAttachment() {
+        Attachment attachment = getSelectedAttachment();
+        if (attachment == null) return;
+        if (!Desktop.isDesktopSupported() || !Desktop.getDesktop().isSupported(Desktop.Action.OPEN)) {
+            JOptionPane.showMessageDialog(this, "Opening files is not supported here; use Save As instead.", "Open", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        runInBackground(() -> {
+            Desktop.getDesktop().open(attachmentService.decryptToTempFile(attachment, masterKeyBytes).toFile());
+            return null;
+        }, "Open", false);
+    }
+
+    private void saveAttachment() {
+        Attachment attachment = getSelectedAttachment();
+        if (attachment == null) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save decrypted attachment");
+        chooser.setSelectedFile(new java.io.File(attachment.getFileName()));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path target = chooser.getSelectedFile().toPath();
+
+        runInBackground(() -> {
+            attachmentService.decryptTo(attachment, masterKeyBytes, target);
+            return null;
+        }, "Save", true);
+    }
+
+    private void deleteAttachment() {
+        Attachment attachment = getSelectedAttachment();
+        if (attachment == null) return;
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Are you sure you want to delete the attachment: " + attachment.getFileName() + "?",
+            "Confirm Delete", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        if (!attachmentService.deleteAttachment(attachment)) {
+            JOptionPane.showMessageDialog(this, "Failed to delete attachment.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        loadAttachments();
+    }
+
+    /**
+     * Runs an encrypt/decrypt task off the EDT with the buttons disabled, then refreshes the list.
+     */
+    private void runInBackground(Callable<?> task, String title, boolean confirm) {
+        setButtonsEnabled(false);
+        new SwingWorker<Object, Void>() {
+            @Override
+            protected Object doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                setButtonsEnabled(true);
+                try {
+                    get();
+                    loadAttachments();
+                    if (confirm) {
+                        JOptionPane.showMessageDialog(AttachmentsDialog.this, title + " complete.", title, JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(AttachmentsDialog.this, title + " failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void setButtonsEnabled(boolean enabled) {
+        addButton.setEnabled(enabled);
+        openButton.setEnabled(enabled);
+        saveButton.setEnabled(enabled);
+        deleteButton.setEnabled(enabled);
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KiB", bytes / 1024.0);
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -13,7 +13,10 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.RenderingHints;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -25,14 +28,27 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPasswordField;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import com.passwordmanager.model.PasswordEntry;
 import com.passwordmanager.model.User;
+import com.passwordmanager.service.AsyncAuthService;
+import com.passwordmanager.service.AsyncPasswordService;
 import com.passwordmanager.service.AuthService;
 
 public class LoginDialog extends JDialog {
 
     private final AuthService authService = new AuthService();
+    private final AsyncAuthService asyncAuthService = new AsyncAuthService();
+    private final AsyncPasswordService asyncPasswordService = new AsyncPasswordService();
+
+    // Result of the background login: the unlocked vault and prefetched entries, or an error message
+    private record LoginResult(User user, byte[] dataKey, List<PasswordEntry> entries, String error) {
+        static LoginResult failed(String error) {
+            return new LoginResult(null, null, null, error);
+        }
+    }
 
     // UI Components
     private JTextField usernameField;
@@ -170,36 +186,69 @@ public class LoginDialog extends JDialog {
             return;
         }
 
-        // Step 1: Authenticate Master Password
-        Optional<User> userOpt = authService.authenticateMasterPassword(username, password);
-        if (userOpt.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Invalid Username or Master Password.", "Authentication Failed", JOptionPane.ERROR_MESSAGE);
+        // Everything below runs off the EDT; the dialog stays responsive while the key is derived
+        loginButton.setEnabled(false);
+        int code = Integer.parseInt(totp);
+        asyncAuthService.findUser(username)
+            .thenCompose(userOpt -> userOpt.isEmpty()
+                ? CompletableFuture.completedFuture(LoginResult.failed("Invalid Username or Master Password."))
+                : unlock(userOpt.get(), password, code))
+            .whenComplete((result, error) -> SwingUtilities.invokeLater(() -> finishLogin(result, error)));
+    }
+
+    private CompletableFuture<LoginResult> unlock(User found, String password, int code) {
+        // Step 1: Start fetching the vault while the key is derived. The entries are only
+        // encrypted summaries; they are dropped unless login succeeds.
+        CompletableFuture<List<PasswordEntry>> prefetch = asyncPasswordService.getEncryptedEntries(found.getId());
+
+        // Step 2: Verify Master Password and unwrap the session data key
+        return asyncAuthService.unlockVault(found, password).thenCompose(vaultOpt -> {
+            if (vaultOpt.isEmpty()) {
+                prefetch.cancel(false);
+                return CompletableFuture.completedFuture(LoginResult.failed("Invalid Username or Master Password."));
+            }
+            User user = vaultOpt.get().getUser();
+            byte[] dataKeyBytes = vaultOpt.get().getDataKey();
+
+            // Step 3: Verify TOTP, then wait for the prefetch (MainFrame loads the entries itself if it failed)
+            return asyncAuthService.authenticateTotp(user, code, dataKeyBytes)
+                .handle((verified, error) -> error == null && verified)
+                .thenCompose(verified -> {
+                    if (!verified) {
+                        prefetch.cancel(false);
+                        Arrays.fill(dataKeyBytes, (byte) 0);
+                        return CompletableFuture.completedFuture(LoginResult.failed("Invalid TOTP Code."));
+                    }
+                    return prefetch.handle((entries, error) ->
+                        new LoginResult(user, dataKeyBytes, error == null ? entries : null, null));
+                });
+        });
+    }
+
+    // On the EDT, once the background login is done
+    private void finishLogin(LoginResult result, Throwable error) {
+        if (!isDisplayable()) {
+            // Dialog closed while logging in: drop the key instead of opening the vault
+            if (result != null && result.dataKey() != null) {
+                Arrays.fill(result.dataKey(), (byte) 0);
+            }
             return;
         }
-
-        // Derive the session master key (32 bytes) once
-        byte[] masterKeyBytes;
-        try {
-            String storedSalt = userOpt.get().getMasterSalt();
-            masterKeyBytes = com.passwordmanager.util.Pbkdf2HashUtil.hashPassword(
-                    password, com.passwordmanager.util.Pbkdf2HashUtil.fromBase64(storedSalt));
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Security Key Derivation Failed.", "Error", JOptionPane.ERROR_MESSAGE);
+        loginButton.setEnabled(true);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            JOptionPane.showMessageDialog(this, "Login failed: " + cause.getMessage(), "Authentication Failed", JOptionPane.ERROR_MESSAGE);
             return;
         }
-
-        // Step 2: Verify TOTP inline
-        int code = Integer.parseInt(totp);
-        boolean ok = authService.authenticateTotp(userOpt.get(), code, masterKeyBytes);
-        if (!ok) {
-            JOptionPane.showMessageDialog(this, "Invalid TOTP Code.", "Authentication Failed", JOptionPane.ERROR_MESSAGE);
+        if (result.error() != null) {
+            JOptionPane.showMessageDialog(this, result.error(), "Authentication Failed", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        // Success → open MainFrame
+        // Success → open MainFrame with the prefetched entries
         JOptionPane.showMessageDialog(this, "Login Successful!", "Success", JOptionPane.INFORMATION_MESSAGE);
         dispose();
-        MainFrame main = new MainFrame(userOpt.get(), masterKeyBytes);
+        MainFrame main = new MainFrame(result.user(), result.dataKey(), result.entries());
         main.setVisible(true);
     }
 
@@ -6,54 +6,134 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.GridLayout;
 import java.awt.Toolkit;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.BorderFactory; // Use javax.swing.Timer for event dispatch thread safety
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPasswordField;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
+import javax.swing.ProgressMonitor;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import javax.swing.UIManager;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 
+import com.passwordmanager.dao.ChangeFeed;
+import com.passwordmanager.dao.RoundTripBudget;
+import com.passwordmanager.importer.ImportFormat;
+import com.passwordmanager.metrics.DiagnosticsRecorder;
 import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.Tag;
 import com.passwordmanager.model.User;
+import com.passwordmanager.service.AttachmentService;
+import com.passwordmanager.service.AuthService;
+import com.passwordmanager.service.BackupService;
+import com.passwordmanager.service.ImportService;
 import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.service.ReencryptionService;
+import com.passwordmanager.service.TagService;
+import com.passwordmanager.service.VaultAuditService;
+import com.passwordmanager.util.CompressedBitmap;
+import com.passwordmanager.util.PasswordStrengthChecker;
 import com.passwordmanager.util.Pbkdf2HashUtil;
+import com.passwordmanager.util.TagIndex;
 
 public class MainFrame extends JFrame {
 
     private final User loggedInUser;
     private final byte[] masterKeyBytes;
     private final PasswordService passwordService = new PasswordService();
+    private final AttachmentService attachmentService = new AttachmentService();
+    private final TagService tagService = new TagService();
+    private final VaultAuditService auditService = new VaultAuditService(passwordService); // Keeps the last audit for a quick re-audit
 
     // UI Components
     private JTable passwordTable;
     private DefaultTableModel tableModel;
+    private JTextField searchField;
     private JButton addButton;
     private JButton decryptButton;
     private JButton copyButton;
     private JButton deleteButton;
+    private JButton attachmentsButton;
+    private JButton historyButton;
+    private JButton tagsButton;
+    private JButton auditButton;
+    private JButton importButton;
+    private JButton backupButton;
+    private JButton restoreButton;
+    private JButton changePasswordButton;
+    private JButton diagnosticsButton;
     private JSplitPane splitPane;
+    private JList<Tag> tagList;
+    private DefaultListModel<Tag> tagListModel;
     
     // Security Timers
     private static final int CLIPBOARD_CLEAR_DELAY_MS = 30000; // 30 seconds
     private static final int INACTIVITY_TIMEOUT_MS = 300000; // 5 minutes
     private Timer inactivityTimer;
 
+    // Entries loaded for the table (search hits, or the whole vault), by ID (selection lookups need no database round-trip)
+    private Map<Integer, PasswordEntry> entriesById = new HashMap<>();
+
+    // Tags and folders of the whole vault, indexed in memory: the tag filter and the sidebar counts never touch the database
+    private TagIndex tagIndex = new TagIndex();
+    private final Map<Integer, Integer> tagFilter = new HashMap<>(); // Tag ID to +1 (required) or -1 (excluded)
+    private final Map<Integer, Integer> tagCounts = new HashMap<>(); // Tag ID to its entries among those shown
+
+    // Background upgrade of entries stored in an older encryption format
+    private Thread reencryptionThread;
+
+    // Changes made elsewhere (other devices, background jobs), applied to the table in batches
+    private static final int MAX_DELTA_FETCHES = 500; // More than one IN query's worth in a batch: reload instead
+
+    // Round-trip budgets of the table's data paths (MainFrameRoundTripTest runs them in strict mode)
+    static final int LOAD_ROUND_TRIPS = 3; // Entries, tag assignments, tags
+    static final int SEARCH_ROUND_TRIPS = 2; // Blind-index lookup, fetch of the hits
+    static final int DECRYPT_ROUND_TRIPS = 0; // Everything needed is already loaded
+    static final int DELTA_ROUND_TRIPS = 1; // All rows of a change batch in one fetch
+    private ChangeFeed.Subscription changeSubscription;
+    private final Queue<ChangeFeed.Change> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean changesScheduled = new AtomicBoolean();
+
     public MainFrame(User user, byte[] masterKeyBytes) {
+        this(user, masterKeyBytes, null);
+    }
+
+    /**
+     * @param prefetchedEntries The user's encrypted entries, already fetched during login,
+     *                          or null to load them here.
+     */
+    public MainFrame(User user, byte[] masterKeyBytes, List<PasswordEntry> prefetchedEntries) {
         this.loggedInUser = user;
         this.masterKeyBytes = masterKeyBytes;
 
@@ -63,10 +143,17 @@ public class MainFrame extends JFrame {
         setLocationRelativeTo(null);
 
         initUI();
-        loadPasswordData(); 
+        if (prefetchedEntries != null) {
+            installTags(withTags(prefetchedEntries, tagService, user.getId()));
+            showEntries(prefetchedEntries);
+        } else {
+            loadPasswordData();
+        }
+        changeSubscription = ChangeFeed.getDefault().subscribe(user.getId(), this::onChange);
 
         // Start Security Features
         startInactivityTimer();
+        startReencryption();
 
         // Enable AWT event logging for better inactivity detection
         Toolkit.getDefaultToolkit().addAWTEventListener(e -> resetInactivityTimer(), 
@@ -103,12 +190,30 @@ public class MainFrame extends JFrame {
         decryptButton = new JButton("Decrypt & View");
         copyButton = new JButton("Copy Password");
         deleteButton = new JButton("Delete Entry");
+        attachmentsButton = new JButton("Attachments...");
+        historyButton = new JButton("Password History...");
+        tagsButton = new JButton("Tags & Folder...");
+        auditButton = new JButton("Vault Health...");
+        importButton = new JButton("Import...");
+        backupButton = new JButton("Backup Vault...");
+        restoreButton = new JButton("Restore Backup...");
+        changePasswordButton = new JButton("Change Master Password...");
+        diagnosticsButton = new JButton(DiagnosticsRecorder.isRecording() ? "Save Diagnostics..." : "Record Diagnostics");
         
         // Styling
         styleSidebarButton(addButton, new Color(50, 150, 250));
         styleSidebarButton(decryptButton, null);
         styleSidebarButton(copyButton, null);
         styleSidebarButton(deleteButton, new Color(200, 50, 50));
+        styleSidebarButton(attachmentsButton, null);
+        styleSidebarButton(historyButton, null);
+        styleSidebarButton(tagsButton, null);
+        styleSidebarButton(auditButton, null);
+        styleSidebarButton(importButton, null);
+        styleSidebarButton(backupButton, null);
+        styleSidebarButton(restoreButton, null);
+        styleSidebarButton(changePasswordButton, null);
+        styleSidebarButton(diagnosticsButton, null);
 
         panel.add(addButton);
         panel.add(Box.createVerticalStrut(10));
@@ -117,17 +222,93 @@ public class MainFrame extends JFrame {
         panel.add(copyButton);
         panel.add(Box.createVerticalStrut(10));
         panel.add(deleteButton);
-        panel.add(Box.createVerticalGlue());
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(attachmentsButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(historyButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(tagsButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(auditButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(importButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(backupButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(restoreButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(changePasswordButton);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(diagnosticsButton);
+        if (!attachmentService.isAvailable()) {
+            attachmentsButton.setEnabled(false);
+            attachmentsButton.setToolTipText("Attachments need SQL storage");
+        }
+        if (tagService.isAvailable()) {
+            panel.add(Box.createVerticalStrut(20));
+            panel.add(createTagFilter());
+        } else {
+            tagsButton.setEnabled(false);
+            tagsButton.setToolTipText("Tags need SQL storage");
+            panel.add(Box.createVerticalGlue());
+        }
 
         // Add Listeners (Phase 7 Integration)
         addButton.addActionListener(e -> showAddPasswordDialog());
         decryptButton.addActionListener(e -> decryptSelectedPassword());
         copyButton.addActionListener(e -> copySelectedPassword());
         deleteButton.addActionListener(e -> deleteSelectedEntry()); // Implement this method later
+        attachmentsButton.addActionListener(e -> showAttachmentsDialog());
+        historyButton.addActionListener(e -> showPasswordHistoryDialog());
+        tagsButton.addActionListener(e -> showTagsDialog());
+        auditButton.addActionListener(e -> showVaultAuditDialog());
+        importButton.addActionListener(e -> importFromFile());
+        backupButton.addActionListener(e -> backupVault());
+        restoreButton.addActionListener(e -> restoreBackup());
+        changePasswordButton.addActionListener(e -> changeMasterPassword());
+        diagnosticsButton.addActionListener(e -> toggleDiagnostics());
         
         return panel;
     }
 
+    // Folders and tags with their counts among the shown entries; a click cycles off -> required (+) -> excluded (-)
+    private JPanel createTagFilter() {
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        JLabel label = new JLabel("Filter by folder / tag:");
+        label.setToolTipText("Click: require, click again: exclude, third click: off");
+        panel.add(label, BorderLayout.NORTH);
+
+        tagListModel = new DefaultListModel<>();
+        tagList = new JList<>(tagListModel);
+        tagList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        tagList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                Tag tag = (Tag) value;
+                int state = tagFilter.getOrDefault(tag.getId(), 0);
+                String text = (state > 0 ? "+ " : state < 0 ? "- " : "   ") + (tag.isFolder() ? "[" + tag.getName() + "]" : "#" + tag.getName())
+                        + "  (" + tagCounts.getOrDefault(tag.getId(), 0) + ")";
+                super.getListCellRendererComponent(list, text, index, false, cellHasFocus);
+                if (state != 0) {
+                    setForeground(state > 0 ? new Color(30, 120, 30) : new Color(200, 50, 50));
+                }
+                return this;
+            }
+        });
+        tagList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = tagList.locationToIndex(e.getPoint());
+                if (index != -1 && tagList.getCellBounds(index, index).contains(e.getPoint())) {
+                    cycleTagFilter(tagListModel.get(index));
+                }
+            }
+        });
+        panel.add(new JScrollPane(tagList), BorderLayout.CENTER);
+        return panel;
+    }
+
     private void styleSidebarButton(JButton button, Color backgroundColor) {
         button.setAlignmentX(Component.CENTER_ALIGNMENT);
         button.setMaximumSize(new Dimension(Integer.MAX_VALUE, button.getPreferredSize().height));
@@ -159,29 +340,297 @@ public class MainFrame extends JFrame {
         
         JScrollPane scrollPane = new JScrollPane(passwordTable);
         panel.add(scrollPane, BorderLayout.CENTER);
+
+        // Search by title/username/site words; Enter runs it, an empty query shows everything
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        searchField = new JTextField();
+        searchField.setToolTipText("Words or word beginnings (3+ letters) of a title, username or site");
+        searchField.addActionListener(e -> loadPasswordData());
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        panel.add(searchPanel, BorderLayout.NORTH);
         
         return panel;
     }
 
     // --- Data and Business Logic Methods ---
     
+    /**
+     * Reloads the table: the entries matching the search field, or all of them.
+     */
     public void loadPasswordData() {
-        tableModel.setRowCount(0);
-        
-        List<PasswordEntry> entries = passwordService.getEncryptedEntries(loggedInUser.getId());
-        
+        String query = currentQuery();
+        List<PasswordEntry> entries;
+        if (query.isEmpty()) {
+            VaultData vault = readVault(passwordService, tagService, loggedInUser.getId());
+            installTags(vault);
+            entries = vault.entries();
+        } else {
+            entries = searchVault(passwordService, loggedInUser.getId(), query, masterKeyBytes);
+        }
+        showEntries(entries);
+    }
+
+    /**
+     * The encrypted entries with the tag filter index and the tags over them (both null on
+     * the file vault, which has no tags).
+     */
+    record VaultData(List<PasswordEntry> entries, TagIndex tagIndex, List<Tag> tags) {}
+
+    static VaultData readVault(PasswordService passwordService, TagService tagService, int userId) {
+        return RoundTripBudget.call("MainFrame.loadPasswordData", LOAD_ROUND_TRIPS,
+                () -> withTags(passwordService.getEncryptedEntries(userId), tagService, userId));
+    }
+
+    /**
+     * Reads the tags and builds the filter index over the given entries (two queries).
+     */
+    static VaultData withTags(List<PasswordEntry> entries, TagService tagService, int userId) {
+        if (!tagService.isAvailable()) {
+            return new VaultData(entries, null, null);
+        }
+        TagIndex index = tagService.buildIndex(userId, entries.stream().map(PasswordEntry::getId).toList());
+        return new VaultData(entries, index, tagService.getTags(userId));
+    }
+
+    static List<PasswordEntry> searchVault(PasswordService passwordService, int userId, String query, byte[] masterKeyBytes) {
+        return RoundTripBudget.call("MainFrame.search", SEARCH_ROUND_TRIPS,
+                () -> passwordService.search(userId, query, masterKeyBytes));
+    }
+
+    static List<PasswordEntry> fetchChanged(PasswordService passwordService, int userId, List<Integer> entryIds) {
+        return RoundTripBudget.call("MainFrame.applyChanges", DELTA_ROUND_TRIPS,
+                () -> passwordService.getEncryptedEntries(userId, entryIds));
+    }
+
+    static String revealPassword(PasswordService passwordService, PasswordEntry entry, byte[] masterKeyBytes) {
+        return RoundTripBudget.call("MainFrame.revealPassword", DECRYPT_ROUND_TRIPS,
+                () -> passwordService.decryptPassword(entry, masterKeyBytes));
+    }
+
+    private String currentQuery() {
+        return searchField == null ? "" : searchField.getText().trim();
+    }
+
+    private void showEntries(List<PasswordEntry> entries) {
+        Map<Integer, PasswordEntry> byId = new HashMap<>();
         for (PasswordEntry entry : entries) {
-            // Note: Displaying the ciphertext for security
-            tableModel.addRow(new Object[]{
-                entry.getId(),
-                entry.getTitle(),
-                entry.getUsernameEnc() != null ? entry.getUsernameEnc().substring(0, Math.min(entry.getUsernameEnc().length(), 20)) + "..." : "",
-                entry.getNoteEnc() != null ? entry.getNoteEnc().substring(0, Math.min(entry.getNoteEnc().length(), 20)) + "..." : "",
-                "..." 
-            });
+            byId.put(entry.getId(), entry);
+            tagIndex.addEntry(entry.getId());
+        }
+        entriesById = byId;
+        if (tagFilter.isEmpty()) {
+            tableModel.setRowCount(0);
+            for (PasswordEntry entry : entries) {
+                tableModel.addRow(toRow(entry));
+            }
+            refreshTagCounts(null);
+        } else {
+            applyTagFilter();
+        }
+    }
+
+    /**
+     * Swaps in the freshly read tags and filter index. Filter settings of tags that no longer
+     * exist are dropped.
+     */
+    private void installTags(VaultData vault) {
+        if (vault.tagIndex() == null) {
+            return;
+        }
+        tagIndex = vault.tagIndex();
+        showTags(vault.tags());
+    }
+
+    private void showTags(List<Tag> tags) {
+        tagListModel.clear();
+        tagListModel.addAll(tags);
+        tagFilter.keySet().removeIf(tagId -> tags.stream().noneMatch(tag -> tag.getId() == tagId));
+    }
+
+    private void cycleTagFilter(Tag tag) {
+        int state = tagFilter.getOrDefault(tag.getId(), 0);
+        if (state == 0) {
+            tagFilter.put(tag.getId(), 1);
+        } else if (state > 0) {
+            tagFilter.put(tag.getId(), -1);
+        } else {
+            tagFilter.remove(tag.getId());
+        }
+        applyTagFilter();
+    }
+
+    /**
+     * Shows the loaded entries that pass the tag filter: bitmap operations over the index,
+     * with no database round-trip. Rows appear in index order (load order, then newer entries).
+     */
+    private void applyTagFilter() {
+        CompressedBitmap shown = currentSelection();
+        tableModel.setRowCount(0);
+        for (int entryId : tagIndex.entryIds(shown)) {
+            PasswordEntry entry = entriesById.get(entryId);
+            if (entry != null) {
+                tableModel.addRow(toRow(entry));
+            }
+        }
+        refreshTagCounts(shown);
+    }
+
+    // The loaded entries (all, or the search hits) narrowed by the tag filter
+    private CompressedBitmap currentSelection() {
+        List<Integer> required = new ArrayList<>();
+        List<Integer> excluded = new ArrayList<>();
+        tagFilter.forEach((tagId, state) -> (state > 0 ? required : excluded).add(tagId));
+        CompressedBitmap selection = tagIndex.filter(required, List.of(), excluded);
+        return currentQuery().isEmpty() ? selection : selection.and(tagIndex.subset(entriesById.keySet()));
+    }
+
+    // Sidebar counts among the shown entries; null means all loaded entries
+    private void refreshTagCounts(CompressedBitmap shown) {
+        if (tagList == null) {
+            return;
+        }
+        CompressedBitmap within = shown != null ? shown : currentSelection();
+        tagCounts.clear();
+        for (int i = 0; i < tagListModel.size(); i++) {
+            int tagId = tagListModel.get(i).getId();
+            tagCounts.put(tagId, tagIndex.count(tagId, within));
+        }
+        tagList.repaint();
+    }
+
+    // Note: Displaying the ciphertext for security
+    private static Object[] toRow(PasswordEntry entry) {
+        return new Object[]{
+            entry.getId(),
+            entry.getTitle(),
+            entry.getUsernameEnc() != null ? entry.getUsernameEnc().substring(0, Math.min(entry.getUsernameEnc().length(), 20)) + "..." : "",
+            entry.getNoteEnc() != null ? entry.getNoteEnc().substring(0, Math.min(entry.getNoteEnc().length(), 20)) + "..." : "",
+            "..."
+        };
+    }
+
+    // Change-feed thread: queue the event and schedule one batch on the EDT
+    private void onChange(ChangeFeed.Change change) {
+        pendingChanges.add(change);
+        if (changesScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::applyChanges);
         }
     }
 
+    /**
+     * Applies queued changes: deleted rows are dropped, inserted/updated ones fetched by ID
+     * in one query off the EDT. A resync, or a burst too large for one fetch, reloads the
+     * table instead. Batches run one at a time, so an older fetch never lands after a newer one.
+     */
+    private void applyChanges() {
+        List<ChangeFeed.Change> changes = new ArrayList<>();
+        ChangeFeed.Change change;
+        while ((change = pendingChanges.poll()) != null) {
+            changes.add(change);
+        }
+        if (changes.isEmpty() || !isDisplayable()) {
+            finishChanges();
+            return;
+        }
+        // While filtered, a changed row may have started or stopped matching: re-run the search
+        if (!currentQuery().isEmpty() || changes.size() > MAX_DELTA_FETCHES
+                || changes.stream().anyMatch(c -> c.op() == ChangeFeed.Op.RESYNC)) {
+            loadPasswordData();
+            finishChanges();
+            return;
+        }
+        List<Integer> changedIds = changes.stream()
+                .filter(c -> c.op() != ChangeFeed.Op.DELETE)
+                .map(ChangeFeed.Change::passwordId)
+                .distinct()
+                .toList();
+        int userId = loggedInUser.getId();
+        new SwingWorker<List<PasswordEntry>, Void>() {
+            @Override
+            protected List<PasswordEntry> doInBackground() {
+                return changedIds.isEmpty() ? List.of() : fetchChanged(passwordService, userId, changedIds);
+            }
+
+            @Override
+            protected void done() {
+                if (!isDisplayable()) {
+                    finishChanges();
+                    return;
+                }
+                try {
+                    applyChangedRows(changes, get());
+                } catch (Exception ex) {
+                    loadPasswordData(); // The fetch failed: the rows may be stale, start over
+                } finally {
+                    finishChanges();
+                }
+            }
+        }.execute();
+    }
+
+    private void applyChangedRows(List<ChangeFeed.Change> changes, List<PasswordEntry> fetched) {
+        Map<Integer, PasswordEntry> byId = new HashMap<>();
+        for (PasswordEntry entry : fetched) {
+            byId.put(entry.getId(), entry);
+        }
+        for (ChangeFeed.Change c : changes) {
+            PasswordEntry entry = c.op() == ChangeFeed.Op.DELETE ? null : byId.get(c.passwordId());
+            if (entry != null) {
+                putEntryRow(entry);
+            } else {
+                removeEntryRow(c.passwordId()); // Deleted, or gone again before we fetched it
+            }
+        }
+        // A new entry has no tags yet: it passes the filter only if nothing is required
+        if (!tagFilter.isEmpty()) {
+            applyTagFilter();
+        } else {
+            refreshTagCounts(null);
+        }
+    }
+
+    // Lets the next batch run, and schedules it if changes arrived meanwhile
+    private void finishChanges() {
+        changesScheduled.set(false);
+        if (!pendingChanges.isEmpty() && changesScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::applyChanges);
+        }
+    }
+
+    private void putEntryRow(PasswordEntry entry) {
+        entriesById.put(entry.getId(), entry);
+        tagIndex.addEntry(entry.getId());
+        int row = findRow(entry.getId());
+        Object[] values = toRow(entry);
+        if (row == -1) {
+            tableModel.addRow(values);
+            return;
+        }
+        for (int column = 0; column < values.length; column++) {
+            tableModel.setValueAt(values[column], row, column);
+        }
+    }
+
+    private void removeEntryRow(int entryId) {
+        entriesById.remove(entryId);
+        tagIndex.removeEntry(entryId); // Its entry_tags rows went with it (FK cascade)
+        int row = findRow(entryId);
+        if (row != -1) {
+            tableModel.removeRow(row);
+        }
+    }
+
+    private int findRow(int entryId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((int) tableModel.getValueAt(row, 0) == entryId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
     private void showAddPasswordDialog() {
         AddPasswordDialog addDialog = new AddPasswordDialog(this, loggedInUser, masterKeyBytes);
         addDialog.setVisible(true);
@@ -195,12 +644,8 @@ public class MainFrame extends JFrame {
         }
         int entryId = (int) tableModel.getValueAt(selectedRow, 0); 
         
-        // This is necessary because the table only stores truncated/encrypted strings
-        List<PasswordEntry> entries = passwordService.getEncryptedEntries(loggedInUser.getId());
-        return entries.stream()
-            .filter(e -> e.getId() == entryId)
-            .findFirst()
-            .orElse(null);
+        // The table only stores truncated/encrypted strings; the full entries were kept by loadPasswordData
+        return entriesById.get(entryId);
     }
     
     // --- Phase 7 Decryption & Copy Logic ---
@@ -209,11 +654,14 @@ public class MainFrame extends JFrame {
         PasswordEntry selectedEntry = getSelectedEntry();
         if (selectedEntry == null) return;
 
-        // Decrypt password (and username/note for full view)
-        String decryptedPassword = passwordService.decryptPassword(selectedEntry, masterKeyBytes);
+        // Decrypt password (and username/note for full view); everything needed is already loaded
+        String decryptedPassword = revealPassword(passwordService, selectedEntry, masterKeyBytes);
+        String url = RoundTripBudget.call("MainFrame.decryptSelectedPassword", DECRYPT_ROUND_TRIPS,
+                () -> passwordService.decryptUrl(selectedEntry, masterKeyBytes));
 
         JOptionPane.showMessageDialog(this, 
             "Title: " + selectedEntry.getTitle() + "\n" +
+            (url != null ? "Website: " + url + "\n" : "") +
             "Password: " + decryptedPassword, 
             "Decrypted Password", JOptionPane.INFORMATION_MESSAGE);
     }
@@ -222,7 +670,7 @@ public class MainFrame extends JFrame {
         PasswordEntry selectedEntry = getSelectedEntry();
         if (selectedEntry == null) return;
 
-        String decryptedPassword = passwordService.decryptPassword(selectedEntry, masterKeyBytes);
+        String decryptedPassword = revealPassword(passwordService, selectedEntry, masterKeyBytes);
         
         // Copy to Clipboard
         StringSelection stringSelection = new StringSelection(decryptedPassword);
@@ -244,15 +692,251 @@ public class MainFrame extends JFrame {
             "Confirm Delete", JOptionPane.YES_NO_OPTION);
             
         if (confirm == JOptionPane.YES_OPTION) {
+            // Blobs live outside the database, so the FK cascade cannot remove them
+            attachmentService.deleteAllForEntry(selectedEntry.getId(), loggedInUser.getId());
             if (passwordService.deleteEntry(selectedEntry.getId(), loggedInUser.getId())) {
                 JOptionPane.showMessageDialog(this, "Entry deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadPasswordData(); // Refresh table
+                removeEntryRow(selectedEntry.getId()); // No reload needed
+                refreshTagCounts(null);
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete entry.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
+    private void showAttachmentsDialog() {
+        PasswordEntry selectedEntry = getSelectedEntry();
+        if (selectedEntry == null) return;
+
+        new AttachmentsDialog(this, loggedInUser, selectedEntry, masterKeyBytes, attachmentService).setVisible(true);
+    }
+
+    private void showPasswordHistoryDialog() {
+        PasswordEntry selectedEntry = getSelectedEntry();
+        if (selectedEntry == null) return;
+
+        PasswordHistoryDialog dialog = new PasswordHistoryDialog(this, loggedInUser, selectedEntry, masterKeyBytes, passwordService);
+        dialog.setVisible(true);
+        if (dialog.isChanged()) {
+            passwordService.getEncryptedEntry(selectedEntry.getId(), loggedInUser.getId()).ifPresent(this::putEntryRow);
+        }
+    }
+
+    private void showTagsDialog() {
+        PasswordEntry selectedEntry = getSelectedEntry();
+        if (selectedEntry == null) return;
+
+        TagsDialog dialog = new TagsDialog(this, loggedInUser, selectedEntry, tagService, tagIndex);
+        dialog.setVisible(true);
+        if (dialog.isChanged()) {
+            showTags(tagService.getTags(loggedInUser.getId()));
+            applyTagFilter(); // The index is already up to date
+        }
+    }
+
+    private void showVaultAuditDialog() {
+        new VaultAuditDialog(this, loggedInUser, masterKeyBytes, auditService).setVisible(true);
+    }
+
+    private void importFromFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import from another password manager");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV, Bitwarden JSON or KeePass XML", "csv", "json", "xml"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        Path file = chooser.getSelectedFile().toPath();
+        ImportFormat format = (ImportFormat) JOptionPane.showInputDialog(this, "File format:", "Import",
+                JOptionPane.QUESTION_MESSAGE, null, ImportFormat.values(), ImportFormat.detect(file));
+        if (format == null) return;
+
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing " + file.getFileName(), "", 0, 100);
+        monitor.setMillisToPopup(200);
+        importButton.setEnabled(false);
+
+        // Run the pipeline off the EDT; progress is marshalled back via publish()
+        new SwingWorker<ImportService.ImportSummary, String>() {
+            @Override
+            protected ImportService.ImportSummary doInBackground() throws Exception {
+                return new ImportService(passwordService, Runtime.getRuntime().availableProcessors())
+                        .importFile(file, format, loggedInUser.getId(), masterKeyBytes,
+                                (parsed, imported, skipped) -> publish(imported + " imported, " + skipped + " skipped"));
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                monitor.setNote(chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                importButton.setEnabled(true);
+                try {
+                    ImportService.ImportSummary summary = get();
+                    loadPasswordData();
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                        "Imported " + summary.getImported() + " of " + summary.getParsed() + " entries.\n" +
+                        summary.getDuplicates() + " duplicate title(s) skipped, " + summary.getFailed() + " failed.",
+                        "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(MainFrame.this, "Import failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void backupVault() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save encrypted backup");
+        chooser.setSelectedFile(new java.io.File("vault-" + java.time.LocalDate.now() + ".pmbackup"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path target = chooser.getSelectedFile().toPath();
+
+        runInBackground(backupButton, () -> new BackupService().exportVault(loggedInUser.getId(), masterKeyBytes, target, true),
+            count -> "Backed up " + count + " entries to " + target.getFileName() + ".", "Backup");
+    }
+
+    private void restoreBackup() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Restore encrypted backup");
+        chooser.setFileFilter(new FileNameExtensionFilter("Password Manager backup", "pmbackup"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path source = chooser.getSelectedFile().toPath();
+
+        runInBackground(restoreButton, () -> new BackupService().restoreVault(loggedInUser.getId(), masterKeyBytes, source),
+            count -> "Restored " + count + " entries from " + source.getFileName() + ".", "Restore");
+    }
+
+    private void changeMasterPassword() {
+        JPasswordField currentField = new JPasswordField(20);
+        JPasswordField newField = new JPasswordField(20);
+        JPasswordField confirmField = new JPasswordField(20);
+        JPanel form = new JPanel(new GridLayout(0, 1, 0, 4));
+        form.add(new JLabel("Current Master Password:"));
+        form.add(currentField);
+        form.add(new JLabel("New Master Password:"));
+        form.add(newField);
+        form.add(new JLabel("Confirm New Master Password:"));
+        form.add(confirmField);
+
+        int result = JOptionPane.showConfirmDialog(this, form, "Change Master Password", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        String currentPassword = new String(currentField.getPassword());
+        String newPassword = new String(newField.getPassword());
+        if (newPassword.isEmpty() || !newPassword.equals(new String(confirmField.getPassword()))) {
+            JOptionPane.showMessageDialog(this, "New passwords are empty or do not match.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if ("Weak".equals(PasswordStrengthChecker.checkStrength(newPassword))) {
+            int res = JOptionPane.showConfirmDialog(this, "Your new master password looks weak. Continue anyway?", "Low Strength", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (res != JOptionPane.YES_OPTION) return;
+        }
+
+        // Only the wrapped data key changes; the session key and all entries stay as they are
+        changePasswordButton.setEnabled(false);
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return new AuthService().changeMasterPassword(loggedInUser, currentPassword, newPassword);
+            }
+
+            @Override
+            protected void done() {
+                changePasswordButton.setEnabled(true);
+                try {
+                    if (get()) {
+                        JOptionPane.showMessageDialog(MainFrame.this, "Master password changed.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(MainFrame.this, "Current master password is incorrect, or the change could not be saved.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(MainFrame.this, "Master password change failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * First click starts a JFR recording (it survives lock/unlock, so a slow unlock can be
+     * captured); the next click saves it as a .jfr file for JDK Mission Control.
+     */
+    private void toggleDiagnostics() {
+        try {
+            if (!DiagnosticsRecorder.isRecording()) {
+                DiagnosticsRecorder.start();
+                diagnosticsButton.setText("Save Diagnostics...");
+                JOptionPane.showMessageDialog(this, "Diagnostics recording started. Reproduce the problem, then click \"Save Diagnostics...\".\n"
+                    + "The recording holds timings only (no vault contents) and keeps the last " + DiagnosticsRecorder.MAX_AGE.toMinutes() + " minutes.",
+                    "Diagnostics", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Save diagnostics recording");
+            chooser.setSelectedFile(new java.io.File("passwordmanager-" + java.time.LocalDate.now() + ".jfr"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            Path target = chooser.getSelectedFile().toPath();
+
+            DiagnosticsRecorder.stopAndDump(target);
+            diagnosticsButton.setText("Record Diagnostics");
+            JOptionPane.showMessageDialog(this, "Diagnostics saved to " + target.getFileName() + ".", "Diagnostics", JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception ex) {
+            diagnosticsButton.setText(DiagnosticsRecorder.isRecording() ? "Save Diagnostics..." : "Record Diagnostics");
+            JOptionPane.showMessageDialog(this, "Diagnostics failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Runs a long vault operation off the EDT with its button disabled, then reports the result.
+     */
+    private void runInBackground(JButton button, java.util.concurrent.Callable<Integer> task,
+                                 java.util.function.IntFunction<String> successMessage, String title) {
+        button.setEnabled(false);
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                try {
+                    int count = get();
+                    loadPasswordData();
+                    JOptionPane.showMessageDialog(MainFrame.this, successMessage.apply(count), title, JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(MainFrame.this, title + " failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Upgrades legacy-format entries in the background; reads handle both formats meanwhile.
+     * Then indexes any entries search does not know about yet.
+     */
+    private void startReencryption() {
+        reencryptionThread = new Thread(() -> {
+            try {
+                ReencryptionService.ReencryptionSummary summary = new ReencryptionService().run(loggedInUser.getId(), masterKeyBytes);
+                if (summary.getUpgraded() > 0) {
+                    SwingUtilities.invokeLater(this::loadPasswordData);
+                }
+                // Entries saved before search existed (or imported in bulk) get their tokens now
+                passwordService.ensureSearchIndex(loggedInUser.getId(), masterKeyBytes);
+                passwordService.purgePasswordHistory(loggedInUser.getId());
+            } catch (Exception e) {
+                // Retried at next login from the last checkpoint
+            }
+        }, "vault-reencryption");
+        reencryptionThread.setDaemon(true);
+        reencryptionThread.setPriority(Thread.MIN_PRIORITY);
+        reencryptionThread.start();
+    }
+
     // --- Phase 7 Security Features ---
 
     private void startClipboardClearTimer() {
@@ -286,6 +970,8 @@ public class MainFrame extends JFrame {
         
         // Clean up and log out
         if (inactivityTimer != null) inactivityTimer.stop();
+        if (reencryptionThread != null) reencryptionThread.interrupt();
+        if (changeSubscription != null) changeSubscription.close();
         dispose();
         
         // Return to login screen
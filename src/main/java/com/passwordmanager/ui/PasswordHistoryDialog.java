@@ -0,0 +1,180 @@
+package com.passwordmanager.ui;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JPasswordField;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.table.DefaultTableModel;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
+import com.passwordmanager.model.User;
+import com.passwordmanager.service.PasswordService;
+
+/**
+ * An entry's earlier passwords, loaded when the dialog opens. Passwords stay masked until
+ * revealed one at a time; a version can be restored, and the password changed (the current
+ * one is then archived).
+ */
+public class PasswordHistoryDialog extends JDialog {
+
+    private final User loggedInUser;
+    private final byte[] masterKeyBytes;
+    private final PasswordService passwordService;
+    private PasswordEntry entry;
+
+    // UI Components
+    private JTable historyTable;
+    private DefaultTableModel tableModel;
+    private List<PasswordVersion> versions = List.of();
+    private boolean changed;
+
+    public PasswordHistoryDialog(MainFrame parent, User user, PasswordEntry entry, byte[] masterKeyBytes,
+                                 PasswordService passwordService) {
+        super(parent, "Password History - " + entry.getTitle(), true);
+        this.loggedInUser = user;
+        this.entry = entry;
+        this.masterKeyBytes = masterKeyBytes;
+        this.passwordService = passwordService;
+
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        initUI();
+        loadHistory();
+        setSize(520, 320);
+        setLocationRelativeTo(parent);
+    }
+
+    /**
+     * @return true if the entry's password was changed or restored (the caller refreshes its row).
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    private void initUI() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        tableModel = new DefaultTableModel(new String[]{"Version", "Replaced", "Password"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        historyTable = new JTable(tableModel);
+        historyTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        historyTable.setRowHeight(25);
+        mainPanel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
+        if (!passwordService.keepsPasswordHistory()) {
+            mainPanel.add(new JLabel("This vault keeps no password history (file storage)."), BorderLayout.NORTH);
+        }
+
+        JButton revealButton = new JButton("Reveal");
+        JButton restoreButton = new JButton("Restore");
+        JButton changeButton = new JButton("Change Password...");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(revealButton);
+        buttonPanel.add(restoreButton);
+        buttonPanel.add(changeButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        revealButton.addActionListener(e -> revealVersion());
+        restoreButton.addActionListener(e -> restoreVersion());
+        changeButton.addActionListener(e -> changePassword());
+
+        add(mainPanel);
+    }
+
+    private void loadHistory() {
+        versions = passwordService.getPasswordHistory(entry.getId(), loggedInUser.getId());
+        tableModel.setRowCount(0);
+        for (PasswordVersion version : versions) {
+            tableModel.addRow(new Object[]{
+                version.getRowVersion(),
+                version.getReplacedAt() != null ? version.getReplacedAt().toLocalDateTime().withNano(0).toString().replace('T', ' ') : "",
+                "********"
+            });
+        }
+    }
+
+    private PasswordVersion getSelectedVersion() {
+        int selectedRow = historyTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a version.", "Select Version", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return versions.get(selectedRow);
+    }
+
+    private void revealVersion() {
+        int selectedRow = historyTable.getSelectedRow();
+        PasswordVersion version = getSelectedVersion();
+        if (version == null) return;
+
+        tableModel.setValueAt(passwordService.decryptPassword(version, masterKeyBytes), selectedRow, 2);
+    }
+
+    private void restoreVersion() {
+        PasswordVersion version = getSelectedVersion();
+        if (version == null) return;
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Make this password current again? The current password is not kept.",
+            "Confirm Restore", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        if (passwordService.restoreVersion(entry, version)) {
+            changed = true;
+            JOptionPane.showMessageDialog(this, "Password restored.", "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to restore: the entry was changed elsewhere. Reopen it and try again.",
+                "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void changePassword() {
+        JPasswordField passwordField = new JPasswordField();
+        JPasswordField confirmField = new JPasswordField();
+        JPanel form = new JPanel(new GridLayout(0, 1, 5, 5));
+        form.add(new JLabel("New password:"));
+        form.add(passwordField);
+        form.add(new JLabel("Confirm new password:"));
+        form.add(confirmField);
+        int result = JOptionPane.showConfirmDialog(this, form, "Change Password", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        char[] password = passwordField.getPassword();
+        char[] confirmation = confirmField.getPassword();
+        try {
+            if (result != JOptionPane.OK_OPTION) return;
+            if (password.length == 0 || !Arrays.equals(password, confirmation)) {
+                JOptionPane.showMessageDialog(this, "The passwords are empty or do not match.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            Optional<PasswordEntry> saved = passwordService.changePassword(entry, new String(password), masterKeyBytes);
+            if (saved.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Failed to save: the entry was changed elsewhere. Reopen it and try again.",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            entry = saved.get();
+            changed = true;
+            loadHistory();
+        } finally {
+            Arrays.fill(password, '\0');
+            Arrays.fill(confirmation, '\0');
+        }
+    }
+}
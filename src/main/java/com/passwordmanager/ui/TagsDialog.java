@@ -0,0 +1,204 @@
+package com.passwordmanager.ui;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.Tag;
+import com.passwordmanager.model.User;
+import com.passwordmanager.service.TagService;
+import com.passwordmanager.util.TagIndex;
+
+/**
+ * Puts one entry in a folder and sets its tags; new tags and folders can be created (or
+ * old ones deleted) on the way. Changes are saved, and the shared index updated, on Save.
+ */
+public class TagsDialog extends JDialog {
+
+    private static final String NO_FOLDER = "(none)";
+
+    private final User loggedInUser;
+    private final PasswordEntry entry;
+    private final TagService tagService;
+    private final TagIndex tagIndex;
+
+    // UI Components
+    private JComboBox<String> folderCombo;
+    private JPanel tagsPanel;
+    private JTextField newTagField;
+    private final List<Tag> folders = new ArrayList<>();
+    private final Map<Tag, JCheckBox> tagBoxes = new LinkedHashMap<>();
+    private boolean loaded; // Later reloads keep the user's choices instead of the stored tags
+    private boolean changed;
+
+    public TagsDialog(MainFrame parent, User user, PasswordEntry entry, TagService tagService, TagIndex tagIndex) {
+        super(parent, "Tags - " + entry.getTitle(), true);
+        this.loggedInUser = user;
+        this.entry = entry;
+        this.tagService = tagService;
+        this.tagIndex = tagIndex;
+
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        initUI();
+        loadTags();
+        setSize(380, 400);
+        setLocationRelativeTo(parent);
+    }
+
+    /**
+     * @return true if anything was saved, created or deleted (the caller refreshes its view).
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    private void initUI() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel folderPanel = new JPanel(new BorderLayout(5, 0));
+        folderCombo = new JComboBox<>();
+        folderPanel.add(new JLabel("Folder:"), BorderLayout.WEST);
+        folderPanel.add(folderCombo, BorderLayout.CENTER);
+        mainPanel.add(folderPanel, BorderLayout.NORTH);
+
+        tagsPanel = new JPanel();
+        tagsPanel.setLayout(new BoxLayout(tagsPanel, BoxLayout.Y_AXIS));
+        JScrollPane tagsScroll = new JScrollPane(tagsPanel);
+        tagsScroll.setBorder(BorderFactory.createTitledBorder("Tags"));
+        mainPanel.add(tagsScroll, BorderLayout.CENTER);
+
+        newTagField = new JTextField(12);
+        JButton newTagButton = new JButton("New Tag");
+        JButton newFolderButton = new JButton("New Folder");
+        JButton deleteButton = new JButton("Delete...");
+        JButton saveButton = new JButton("Save");
+        JPanel createPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        createPanel.add(newTagField);
+        createPanel.add(newTagButton);
+        createPanel.add(newFolderButton);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(saveButton);
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(createPanel, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+        mainPanel.add(southPanel, BorderLayout.SOUTH);
+
+        newTagButton.addActionListener(e -> createTag(false));
+        newFolderButton.addActionListener(e -> createTag(true));
+        deleteButton.addActionListener(e -> deleteTag());
+        saveButton.addActionListener(e -> save());
+
+        add(mainPanel);
+    }
+
+    // Rebuilds the controls from the stored tags, keeping the choices made so far
+    private void loadTags() {
+        Tag currentFolder = selectedFolder();
+        List<Integer> checked = new ArrayList<>();
+        tagBoxes.forEach((tag, box) -> {
+            if (box.isSelected()) {
+                checked.add(tag.getId());
+            }
+        });
+
+        folders.clear();
+        tagBoxes.clear();
+        folderCombo.removeAllItems();
+        folderCombo.addItem(NO_FOLDER);
+        tagsPanel.removeAll();
+        for (Tag tag : tagService.getTags(loggedInUser.getId())) {
+            boolean has = !loaded && tagIndex.hasTag(entry.getId(), tag.getId());
+            if (tag.isFolder()) {
+                folders.add(tag);
+                folderCombo.addItem(tag.getName());
+                if (has || (currentFolder != null && currentFolder.getId() == tag.getId())) {
+                    folderCombo.setSelectedIndex(folders.size());
+                }
+            } else {
+                JCheckBox box = new JCheckBox(tag.getName(), has || checked.contains(tag.getId()));
+                tagBoxes.put(tag, box);
+                tagsPanel.add(box);
+            }
+        }
+        loaded = true;
+        tagsPanel.revalidate();
+        tagsPanel.repaint();
+    }
+
+    private Tag selectedFolder() {
+        int index = folderCombo.getSelectedIndex();
+        return index > 0 ? folders.get(index - 1) : null;
+    }
+
+    private void createTag(boolean folder) {
+        Optional<Tag> tag = tagService.createTag(loggedInUser.getId(), newTagField.getText(), folder);
+        if (tag.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Enter a new name of up to " + TagService.MAX_NAME_LENGTH + " characters.",
+                    "Cannot Create", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        changed = true;
+        newTagField.setText("");
+        loadTags();
+        if (folder) {
+            folderCombo.setSelectedItem(tag.get().getName());
+        } else {
+            tagBoxes.forEach((t, box) -> box.setSelected(box.isSelected() || t.getId() == tag.get().getId()));
+        }
+    }
+
+    private void deleteTag() {
+        List<Tag> all = new ArrayList<>(folders);
+        all.addAll(tagBoxes.keySet());
+        if (all.isEmpty()) return;
+        String[] names = all.stream().map(t -> (t.isFolder() ? "Folder: " : "Tag: ") + t.getName()).toArray(String[]::new);
+        Object choice = JOptionPane.showInputDialog(this, "Delete from all entries:", "Delete Tag",
+                JOptionPane.WARNING_MESSAGE, null, names, names[0]);
+        if (choice == null) return;
+        Tag tag = all.get(List.of(names).indexOf(choice));
+        if (tagService.deleteTag(tag.getId(), loggedInUser.getId(), tagIndex)) {
+            changed = true;
+            loadTags();
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to delete " + tag.getName() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void save() {
+        List<Tag> selected = new ArrayList<>();
+        Tag folder = selectedFolder();
+        if (folder != null) {
+            selected.add(folder);
+        }
+        tagBoxes.forEach((tag, box) -> {
+            if (box.isSelected()) {
+                selected.add(tag);
+            }
+        });
+        if (tagService.setEntryTags(loggedInUser.getId(), entry.getId(), selected, tagIndex)) {
+            changed = true;
+            dispose();
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to save tags.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
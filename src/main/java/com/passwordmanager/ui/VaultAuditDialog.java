@@ -0,0 +1,148 @@
+package com.passwordmanager.ui;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingWorker;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
+
+import com.passwordmanager.model.User;
+import com.passwordmanager.service.VaultAuditService;
+
+/**
+ * Vault health report: one row per entry with its strength, reuse group and password age,
+ * sortable by any column. The audit runs in the background when the dialog opens; "Re-audit"
+ * only re-checks entries changed since the previous run.
+ */
+public class VaultAuditDialog extends JDialog {
+
+    private static final int REUSE_COLUMN = 2;
+
+    private final User loggedInUser;
+    private final byte[] masterKeyBytes;
+    private final VaultAuditService auditService;
+
+    // UI Components
+    private JTable auditTable;
+    private DefaultTableModel tableModel;
+    private JLabel summaryLabel;
+    private JButton reauditButton;
+
+    public VaultAuditDialog(MainFrame parent, User user, byte[] masterKeyBytes, VaultAuditService auditService) {
+        super(parent, "Vault Health", true);
+        this.loggedInUser = user;
+        this.masterKeyBytes = masterKeyBytes;
+        this.auditService = auditService;
+
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        initUI();
+        runAudit();
+        setSize(720, 460);
+        setLocationRelativeTo(parent);
+    }
+
+    private void initUI() {
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        summaryLabel = new JLabel("Auditing...");
+        mainPanel.add(summaryLabel, BorderLayout.NORTH);
+
+        // Numeric columns keep their type so the sorter orders them by value
+        tableModel = new DefaultTableModel(new String[]{"Title", "Strength", "Reuse Group", "Shared By", "Age (days)", "Issues"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column >= REUSE_COLUMN && column <= 4 ? Integer.class : String.class;
+            }
+        };
+        auditTable = new JTable(tableModel);
+        auditTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        auditTable.setRowHeight(25);
+        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(REUSE_COLUMN, SortOrder.DESCENDING)));
+        auditTable.setRowSorter(sorter);
+        mainPanel.add(new JScrollPane(auditTable), BorderLayout.CENTER);
+
+        reauditButton = new JButton("Re-audit");
+        JButton closeButton = new JButton("Close");
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(reauditButton);
+        buttonPanel.add(closeButton);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        reauditButton.addActionListener(e -> runAudit());
+        closeButton.addActionListener(e -> dispose());
+
+        add(mainPanel);
+    }
+
+    private void runAudit() {
+        reauditButton.setEnabled(false);
+        summaryLabel.setText("Auditing...");
+
+        // Decryption runs off the EDT; the table is filled once the report is ready
+        new SwingWorker<VaultAuditService.AuditReport, Void>() {
+            @Override
+            protected VaultAuditService.AuditReport doInBackground() throws Exception {
+                return auditService.audit(loggedInUser.getId(), masterKeyBytes);
+            }
+
+            @Override
+            protected void done() {
+                reauditButton.setEnabled(true);
+                try {
+                    showReport(get());
+                } catch (Exception ex) {
+                    summaryLabel.setText("Audit failed.");
+                    JOptionPane.showMessageDialog(VaultAuditDialog.this, "Audit failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void showReport(VaultAuditService.AuditReport report) {
+        tableModel.setRowCount(0);
+        for (VaultAuditService.Finding finding : report.getFindings()) {
+            tableModel.addRow(new Object[]{
+                finding.getTitle(),
+                finding.isUnreadable() ? "?" : finding.getStrength(),
+                finding.getReuseGroup(),
+                finding.getReuseCount(),
+                finding.getAgeDays() >= 0 ? (int) finding.getAgeDays() : null,
+                issuesOf(finding)
+            });
+        }
+        summaryLabel.setText(String.format("%d entries: %d weak, %d reused, %d stale%s. %s %d in %d ms.",
+            report.getTotal(), report.getWeak(), report.getReused(), report.getStale(),
+            report.getUnreadable() > 0 ? ", " + report.getUnreadable() + " unreadable" : "",
+            report.isIncremental() ? "Re-checked" : "Checked", report.getAudited(), report.getElapsedMillis()));
+    }
+
+    private static String issuesOf(VaultAuditService.Finding finding) {
+        List<String> issues = new ArrayList<>();
+        if (finding.isUnreadable()) issues.add("Cannot decrypt");
+        if (finding.isWeak()) issues.add("Weak");
+        if (finding.isReused()) issues.add("Reused");
+        if (finding.isStale()) issues.add("Old");
+        return String.join(", ", issues);
+    }
+}
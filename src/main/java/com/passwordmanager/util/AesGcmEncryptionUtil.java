@@ -3,10 +3,14 @@ package com.passwordmanager.util;
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
 import java.util.Arrays;
 
+import com.passwordmanager.metrics.CryptoEvent;
+
 public class AesGcmEncryptionUtil {
 
     // --- Constants ---
@@ -15,6 +19,17 @@ public class AesGcmEncryptionUtil {
     private static final String ALGORITHM = "AES";
     private static final String CIPHER_MODE = "AES/GCM/NoPadding";
 
+    // Cipher.getInstance does a provider lookup and allocates on every call; a Cipher is
+    // re-initialised with a fresh key and nonce each use, so one per thread can be reused.
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(CIPHER_MODE);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(CIPHER_MODE + " is not available", e);
+        }
+    });
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     /**
      * Helper class to hold separate nonce and ciphertext Base64 strings.
      */
@@ -42,26 +57,31 @@ public class AesGcmEncryptionUtil {
      * @return EncryptedResult containing Base64 encoded nonce and ciphertext+tag.
      */
     public static EncryptedResult encrypt(String plaintext, byte[] keyBytes) throws Exception {
-        byte[] plainBytes = plaintext.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-
-        // 1. Generate a secure, unique Nonce (IV)
-        byte[] nonce = new byte[GCM_NONCE_LENGTH];
-        new SecureRandom().nextBytes(nonce);
-
-        // 2. Setup Cipher
-        Cipher cipher = Cipher.getInstance(CIPHER_MODE);
-        SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce);
-        cipher.init(Cipher.ENCRYPT_MODE, keySpec, gcmSpec);
-
-        // 3. Encrypt (Output contains Ciphertext + GCM Tag)
-        byte[] cipherTextWithTag = cipher.doFinal(plainBytes);
-
-        // 4. Return separate Base64 encoded components
-        String base64Ciphertext = Base64.getEncoder().encodeToString(cipherTextWithTag);
-        String base64Nonce = Base64.getEncoder().encodeToString(nonce);
-
-        return new EncryptedResult(base64Ciphertext, base64Nonce);
+        CryptoEvent event = new CryptoEvent(CryptoEvent.ENCRYPT, plaintext.length());
+        try {
+            byte[] plainBytes = plaintext.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+
+            // 1. Generate a secure, unique Nonce (IV)
+            byte[] nonce = new byte[GCM_NONCE_LENGTH];
+            RANDOM.nextBytes(nonce);
+
+            // 2. Setup Cipher
+            Cipher cipher = CIPHER.get();
+            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
+            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce);
+            cipher.init(Cipher.ENCRYPT_MODE, keySpec, gcmSpec);
+
+            // 3. Encrypt (Output contains Ciphertext + GCM Tag)
+            byte[] cipherTextWithTag = cipher.doFinal(plainBytes);
+
+            // 4. Return separate Base64 encoded components
+            String base64Ciphertext = Base64.getEncoder().encodeToString(cipherTextWithTag);
+            String base64Nonce = Base64.getEncoder().encodeToString(nonce);
+
+            return new EncryptedResult(base64Ciphertext, base64Nonce);
+        } finally {
+            event.finish();
+        }
     }
 
     // --- Decryption Method ---
@@ -75,24 +95,134 @@ public class AesGcmEncryptionUtil {
      * @return The original plaintext string.
      */
     public static String decrypt(String base64Ciphertext, String base64Nonce, byte[] keyBytes) throws Exception {
-        // 1. Decode separate components
-        byte[] cipherTextWithTag = Base64.getDecoder().decode(base64Ciphertext);
-        byte[] nonce = Base64.getDecoder().decode(base64Nonce);
+        CryptoEvent event = new CryptoEvent(CryptoEvent.DECRYPT, base64Ciphertext.length() * 3L / 4);
+        try {
+            // 1. Decode separate components
+            byte[] cipherTextWithTag = Base64.getDecoder().decode(base64Ciphertext);
+            byte[] nonce = Base64.getDecoder().decode(base64Nonce);
+
+            // Input validation (optional, but good practice)
+            if (nonce.length != GCM_NONCE_LENGTH) {
+                throw new IllegalArgumentException("Invalid Nonce length during decryption.");
+            }
+
+            // 2. Setup Cipher
+            Cipher cipher = CIPHER.get();
+            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
+            GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce);
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmSpec);
+
+            // 3. Decrypt
+            byte[] decryptedBytes = cipher.doFinal(cipherTextWithTag);
+
+            return new String(decryptedBytes, java.nio.charset.StandardCharsets.UTF_8);
+        } finally {
+            event.finish();
+        }
+    }
 
-        // Input validation (optional, but good practice)
-        if (nonce.length != GCM_NONCE_LENGTH) {
-            throw new IllegalArgumentException("Invalid Nonce length during decryption.");
+    /**
+     * Decrypts raw (not Base64) ciphertext+tag directly from a buffer, e.g. a slice of a
+     * memory-mapped vault file, without copying the ciphertext onto the heap first.
+     * @param cipherTextWithTag The Ciphertext + Tag; consumed from position to limit.
+     * @param nonce The 12-byte Nonce/IV; consumed from position to limit.
+     * @param keyBytes The 32-byte (256-bit) encryption key.
+     * @return The original plaintext string.
+     */
+    public static String decrypt(ByteBuffer cipherTextWithTag, ByteBuffer nonce, byte[] keyBytes) throws Exception {
+        CryptoEvent event = new CryptoEvent(CryptoEvent.DECRYPT, cipherTextWithTag.remaining());
+        try {
+            if (nonce.remaining() != GCM_NONCE_LENGTH) {
+                throw new IllegalArgumentException("Invalid Nonce length during decryption.");
+            }
+            byte[] nonceBytes = new byte[GCM_NONCE_LENGTH];
+            nonce.get(nonceBytes);
+
+            Cipher cipher = CIPHER.get();
+            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonceBytes));
+
+            ByteBuffer plain = ByteBuffer.allocate(cipher.getOutputSize(cipherTextWithTag.remaining()));
+            cipher.doFinal(cipherTextWithTag, plain);
+            return new String(plain.array(), 0, plain.position(), java.nio.charset.StandardCharsets.UTF_8);
+        } finally {
+            event.finish();
         }
+    }
 
-        // 2. Setup Cipher
-        Cipher cipher = Cipher.getInstance(CIPHER_MODE);
-        SecretKeySpec keySpec = new SecretKeySpec(keyBytes, ALGORITHM);
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce);
-        cipher.init(Cipher.DECRYPT_MODE, keySpec, gcmSpec);
+    // --- Combined Format (nonce | ciphertext + tag in one array) ---
 
-        // 3. Decrypt
-        byte[] decryptedBytes = cipher.doFinal(cipherTextWithTag);
+    /**
+     * Encrypts raw bytes (e.g. a key being wrapped) and returns nonce | ciphertext + tag
+     * as one array, for values stored in a single column.
+     * @param plainBytes The data to encrypt.
+     * @param keyBytes The 32-byte encryption key (AES-256).
+     * @return 12-byte nonce followed by ciphertext + tag.
+     */
+    public static byte[] encryptBytes(byte[] plainBytes, byte[] keyBytes) throws Exception {
+        return encryptBytes(plainBytes, keyBytes, null);
+    }
+
+    /**
+     * As {@link #encryptBytes(byte[], byte[])}, additionally authenticating {@code aad}
+     * (which must be supplied again, unchanged, to decrypt).
+     */
+    public static byte[] encryptBytes(byte[] plainBytes, byte[] keyBytes, byte[] aad) throws Exception {
+        CryptoEvent event = new CryptoEvent(CryptoEvent.ENCRYPT, plainBytes.length);
+        try {
+            byte[] nonce = new byte[GCM_NONCE_LENGTH];
+            RANDOM.nextBytes(nonce);
+
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyBytes, ALGORITHM), new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+
+            byte[] combined = new byte[GCM_NONCE_LENGTH + cipher.getOutputSize(plainBytes.length)];
+            System.arraycopy(nonce, 0, combined, 0, GCM_NONCE_LENGTH);
+            cipher.doFinal(plainBytes, 0, plainBytes.length, combined, GCM_NONCE_LENGTH);
+            return combined;
+        } finally {
+            event.finish();
+        }
+    }
 
-        return new String(decryptedBytes, java.nio.charset.StandardCharsets.UTF_8);
+    /**
+     * Decrypts the output of {@link #encryptBytes(byte[], byte[])}.
+     * @param combined 12-byte nonce followed by ciphertext + tag.
+     * @param keyBytes The 32-byte (256-bit) encryption key.
+     * @return The original bytes.
+     */
+    public static byte[] decryptBytes(byte[] combined, byte[] keyBytes) throws Exception {
+        return decryptBytes(ByteBuffer.wrap(combined), keyBytes, null);
+    }
+
+    /**
+     * Decrypts nonce | ciphertext + tag straight from a buffer (e.g. a slice of a
+     * memory-mapped file), verifying the same {@code aad} used to encrypt.
+     * @param combined Consumed from position to limit.
+     * @return The original bytes.
+     */
+    public static byte[] decryptBytes(ByteBuffer combined, byte[] keyBytes, byte[] aad) throws Exception {
+        CryptoEvent event = new CryptoEvent(CryptoEvent.DECRYPT, combined.remaining());
+        try {
+            if (combined.remaining() < GCM_NONCE_LENGTH + GCM_TAG_LENGTH) {
+                throw new IllegalArgumentException("Invalid combined ciphertext length during decryption.");
+            }
+            byte[] nonce = new byte[GCM_NONCE_LENGTH];
+            combined.get(nonce);
+
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, ALGORITHM), new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce));
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
+            ByteBuffer plain = ByteBuffer.allocate(cipher.getOutputSize(combined.remaining()));
+            cipher.doFinal(combined, plain);
+            return plain.position() == plain.capacity() ? plain.array() : Arrays.copyOf(plain.array(), plain.position());
+        } finally {
+            event.finish();
+        }
     }
 }
\ No newline at end of file
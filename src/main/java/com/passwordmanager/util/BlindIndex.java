@@ -0,0 +1,135 @@
+package com.passwordmanager.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Blind-index tokens for searching encrypted fields without decrypting them.
+ *
+ * A search term becomes HMAC-SHA256(indexKey, userId | term), truncated to 128 bits, where
+ * the index key is an HKDF subkey of the vault data key. The database can match tokens but
+ * learns nothing about the terms beyond which entries share one. Values are normalised
+ * (Unicode NFKC, lower case), split into words (usernames and e-mail addresses at
+ * . _ - + @, hosts at dots), and every word and the whole value are indexed with all their
+ * prefixes from {@value #MIN_TERM_LENGTH} characters, so "ali" finds alice.smith@example.com.
+ *
+ * Not thread-safe (one Mac per instance); create one per operation.
+ */
+public final class BlindIndex {
+
+    private static final String INDEX_KEY_INFO = "pm-blind-index-v1";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    public static final int MIN_TERM_LENGTH = 3;
+    private static final int MAX_PREFIX_LENGTH = 32; // Longer terms are indexed whole only
+    private static final int TOKEN_BYTES = 16;
+
+    private final Mac mac;
+    private final byte[] userPrefix;
+
+    /**
+     * @param dataKey The session data key (not kept; only the derived subkey is).
+     */
+    public BlindIndex(byte[] dataKey, int userId) throws Exception {
+        byte[] indexKey = HkdfUtil.derive(dataKey, null, INDEX_KEY_INFO, 32);
+        this.mac = Mac.getInstance(MAC_ALGORITHM);
+        this.mac.init(new SecretKeySpec(indexKey, MAC_ALGORITHM));
+        this.userPrefix = ByteBuffer.allocate(4).putInt(userId).array();
+    }
+
+    /**
+     * Tokens for an entry's username (or e-mail address).
+     */
+    public Set<String> usernameTokens(String username) {
+        return tokens(termsOf(normalise(username), "[._\\-+@\\s]+"));
+    }
+
+    /**
+     * Tokens for free text such as a title: each word and its prefixes.
+     */
+    public Set<String> textTokens(String text) {
+        return tokens(termsOf(normalise(text), "[^\\p{L}\\p{N}]+"));
+    }
+
+    /**
+     * Tokens for a URL's host (scheme, port, path and a leading "www." are dropped): the host,
+     * its labels and its parent domains, e.g. mail.example.com, example.com, mail, example.
+     */
+    public Set<String> hostTokens(String url) {
+        String host = PublicSuffixList.hostOf(url);
+        List<String> terms = new ArrayList<>();
+        if (host != null) {
+            for (int dot = -1; dot != host.length(); ) {
+                terms.add(host.substring(dot + 1)); // host, then each parent domain
+                int next = host.indexOf('.', dot + 1);
+                terms.add(host.substring(dot + 1, next < 0 ? host.length() : next));
+                dot = next < 0 ? host.length() : next;
+            }
+        }
+        return tokens(terms);
+    }
+
+    /**
+     * The token a search term is looked up by (it matches any indexed word or prefix).
+     * @return null if the term is shorter than {@value #MIN_TERM_LENGTH} characters after normalising.
+     */
+    public String queryToken(String term) {
+        String normalised = normalise(term);
+        return normalised == null || normalised.length() < MIN_TERM_LENGTH ? null : token(normalised);
+    }
+
+    private static String normalise(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalised = Normalizer.normalize(value, Normalizer.Form.NFKC).trim().toLowerCase(Locale.ROOT);
+        return normalised.isEmpty() ? null : normalised;
+    }
+
+    // The whole value plus each word
+    private static List<String> termsOf(String value, String separators) {
+        List<String> terms = new ArrayList<>();
+        if (value != null) {
+            terms.add(value);
+            for (String word : value.split(separators)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    private Set<String> tokens(List<String> terms) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String term : terms) {
+            if (term.length() < MIN_TERM_LENGTH) {
+                continue;
+            }
+            int longest = Math.min(term.length(), MAX_PREFIX_LENGTH);
+            for (int length = MIN_TERM_LENGTH; length <= longest; length++) {
+                prefixes.add(term.substring(0, length));
+            }
+            prefixes.add(term);
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String prefix : prefixes) {
+            tokens.add(token(prefix));
+        }
+        return tokens;
+    }
+
+    private String token(String term) {
+        mac.update(userPrefix);
+        byte[] digest = mac.doFinal(term.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, TOKEN_BYTES));
+    }
+}
@@ -0,0 +1,292 @@
+package com.passwordmanager.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Streaming AES-256-GCM over NIO channels for data too large to encrypt in one piece
+ * (backups, attachments). The stream is cut into chunks of at most {@link #CHUNK_SIZE}
+ * plaintext bytes, each sealed on its own with a fresh nonce:
+ *
+ *   int seq | byte flags | 12-byte nonce | int length | ciphertext + tag
+ *
+ * The stream id, sequence number and flags are bound in as AAD, so chunks cannot be
+ * reordered, spliced between streams, or dropped from the end (the last chunk carries
+ * FLAG_FINAL and the reader rejects a stream that ends without it). Buffers are
+ * allocated once per writer/reader, so memory stays flat however large the stream is.
+ * Close writers and readers when done (try-with-resources) to release their native
+ * zlib state; closing does not close the underlying channel.
+ */
+public final class ChunkedAesGcm {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+    public static final int STREAM_ID_LENGTH = 16;
+
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 16;
+    private static final int FRAME_HEADER_LENGTH = 4 + 1 + GCM_NONCE_LENGTH + 4;
+    private static final byte FLAG_FINAL = 1;
+    private static final byte FLAG_COMPRESSED = 2;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private ChunkedAesGcm() {}
+
+    /**
+     * Generates a random stream id; store it with the stream (e.g. in a file header).
+     */
+    public static byte[] newStreamId() {
+        byte[] id = new byte[STREAM_ID_LENGTH];
+        RANDOM.nextBytes(id);
+        return id;
+    }
+
+    /**
+     * Encrypts chunks onto a channel.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final WritableByteChannel channel;
+        private final SecretKeySpec key;
+        private final byte[] streamId;
+        private final Cipher cipher;
+        private final Deflater deflater;
+        private final byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        private final byte[] compressed = new byte[CHUNK_SIZE];
+        private final ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_LENGTH + CHUNK_SIZE + GCM_TAG_LENGTH);
+        private int seq;
+        private boolean finished;
+
+        /**
+         * @param compress Deflate each chunk before encryption (kept only when it actually shrinks).
+         */
+        public Writer(WritableByteChannel channel, byte[] keyBytes, byte[] streamId, boolean compress) throws GeneralSecurityException {
+            this.channel = channel;
+            this.key = new SecretKeySpec(keyBytes, "AES");
+            this.streamId = streamId.clone();
+            this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        }
+
+        /**
+         * Seals and writes one chunk.
+         * @param plaintext At most {@link #CHUNK_SIZE} bytes, consumed from position to limit.
+         * @param last true for the final chunk of the stream.
+         */
+        public void write(ByteBuffer plaintext, boolean last) throws IOException {
+            if (finished) {
+                throw new IllegalStateException("Stream already finished.");
+            }
+            if (plaintext.remaining() > CHUNK_SIZE) {
+                throw new IllegalArgumentException("Chunk larger than " + CHUNK_SIZE + " bytes.");
+            }
+            byte flags = last ? FLAG_FINAL : 0;
+            ByteBuffer input = plaintext;
+            if (deflater != null && plaintext.hasRemaining()) {
+                deflater.reset();
+                deflater.setInput(plaintext.duplicate());
+                deflater.finish();
+                int n = deflater.deflate(compressed);
+                if (deflater.finished() && n < plaintext.remaining()) {
+                    input = ByteBuffer.wrap(compressed, 0, n);
+                    flags |= FLAG_COMPRESSED;
+                }
+            }
+
+            RANDOM.nextBytes(nonce);
+            frame.clear();
+            frame.putInt(seq).put(flags).put(nonce);
+            int lengthPosition = frame.position();
+            frame.putInt(0);
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce));
+                cipher.updateAAD(aad(streamId, seq, flags));
+                int length = cipher.doFinal(input, frame);
+                frame.putInt(lengthPosition, length);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chunk encryption failed: " + e.getMessage(), e);
+            }
+            frame.flip();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            plaintext.position(plaintext.limit());
+            seq++;
+            finished = last;
+        }
+
+        /** @return Number of chunks written so far. */
+        public int getChunkCount() { return seq; }
+
+        /**
+         * Releases the deflater. The channel stays open.
+         */
+        @Override
+        public void close() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * One decrypted chunk. The plaintext buffer is reused by the next {@link Reader#next()} call.
+     */
+    public static final class Chunk {
+        private final int seq;
+        private final boolean last;
+        private final ByteBuffer plaintext;
+
+        Chunk(int seq, boolean last, ByteBuffer plaintext) {
+            this.seq = seq;
+            this.last = last;
+            this.plaintext = plaintext;
+        }
+
+        public int getSeq() { return seq; }
+        public boolean isLast() { return last; }
+        public ByteBuffer getPlaintext() { return plaintext; }
+    }
+
+    /**
+     * Reads and authenticates chunks from a channel.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final ReadableByteChannel channel;
+        private final SecretKeySpec key;
+        private final byte[] streamId;
+        private final Cipher cipher;
+        private final Inflater inflater = new Inflater();
+        private final byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+        private final ByteBuffer body = ByteBuffer.allocate(CHUNK_SIZE + GCM_TAG_LENGTH);
+        private final ByteBuffer decrypted = ByteBuffer.allocate(CHUNK_SIZE);
+        private final ByteBuffer inflated = ByteBuffer.allocate(CHUNK_SIZE);
+        private int expectedSeq;
+        private boolean finished;
+
+        public Reader(ReadableByteChannel channel, byte[] keyBytes, byte[] streamId) throws GeneralSecurityException {
+            this.channel = channel;
+            this.key = new SecretKeySpec(keyBytes, "AES");
+            this.streamId = streamId.clone();
+            this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        }
+
+        /**
+         * @return The next chunk, or null once the final chunk has been returned.
+         * @throws IOException on truncation, reordering or authentication failure.
+         */
+        public Chunk next() throws IOException {
+            if (!readFrame()) {
+                return null;
+            }
+            byte flags = header.get(4);
+            try {
+                decrypted.clear();
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH * 8, nonce));
+                cipher.updateAAD(aad(streamId, expectedSeq, flags));
+                cipher.doFinal(body, decrypted);
+                decrypted.flip();
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chunk " + expectedSeq + " failed authentication (wrong key or corrupted data).", e);
+            }
+
+            ByteBuffer plaintext = decrypted;
+            if ((flags & FLAG_COMPRESSED) != 0) {
+                try {
+                    inflater.reset();
+                    inflater.setInput(decrypted);
+                    inflated.clear();
+                    inflater.inflate(inflated);
+                    if (!inflater.finished()) {
+                        throw new IOException("Chunk " + expectedSeq + " inflates beyond the chunk size.");
+                    }
+                    plaintext = inflated.flip();
+                } catch (DataFormatException e) {
+                    throw new IOException("Chunk " + expectedSeq + " is not valid compressed data.", e);
+                }
+            }
+            return advance(flags, plaintext);
+        }
+
+        /**
+         * Reads past the next chunk without decrypting it, e.g. to resume after chunks
+         * that were already applied. Sequence and framing are still checked.
+         * @return The skipped chunk's metadata (with an empty plaintext), or null at end.
+         */
+        public Chunk skip() throws IOException {
+            if (!readFrame()) {
+                return null;
+            }
+            return advance(header.get(4), ByteBuffer.allocate(0));
+        }
+
+        private Chunk advance(byte flags, ByteBuffer plaintext) {
+            boolean last = (flags & FLAG_FINAL) != 0;
+            Chunk chunk = new Chunk(expectedSeq, last, plaintext);
+            expectedSeq++;
+            finished = last;
+            return chunk;
+        }
+
+        /**
+         * Releases the inflater. The channel stays open.
+         */
+        @Override
+        public void close() {
+            inflater.end();
+        }
+
+        private boolean readFrame() throws IOException {
+            if (finished) {
+                return false;
+            }
+            header.clear();
+            if (!readFully(header)) {
+                throw new EOFException("Stream ended before its final chunk (truncated).");
+            }
+            header.flip();
+            int seq = header.getInt(0);
+            if (seq != expectedSeq) {
+                throw new IOException("Chunk out of order: expected " + expectedSeq + " but found " + seq + ".");
+            }
+            header.get(5, nonce);
+            int length = header.getInt(5 + GCM_NONCE_LENGTH);
+            if (length < GCM_TAG_LENGTH || length > body.capacity()) {
+                throw new IOException("Invalid chunk length " + length + ".");
+            }
+            body.clear().limit(length);
+            if (!readFully(body)) {
+                throw new EOFException("Stream ended inside chunk " + seq + " (truncated).");
+            }
+            body.flip();
+            return true;
+        }
+
+        private boolean readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static byte[] aad(byte[] streamId, int seq, byte flags) {
+        ByteBuffer aad = ByteBuffer.allocate(STREAM_ID_LENGTH + 5);
+        aad.put(streamId).putInt(seq).put(flags);
+        return aad.array();
+    }
+}
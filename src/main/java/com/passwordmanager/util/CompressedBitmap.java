@@ -0,0 +1,480 @@
+package com.passwordmanager.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the Roaring layout: values are split by their high
+ * 16 bits into containers, each holding the low 16 bits either as a sorted char array (up to
+ * {@value #ARRAY_MAX} values, 2 bytes each) or as a 65536-bit bitmap (8 KiB) when denser.
+ * Sparse sets stay small and dense ones take a bit per value, and AND/OR/AND NOT run
+ * container by container (merges on arrays, 64 bits per step on bitmaps).
+ *
+ * {@link #and}, {@link #or} and {@link #andNot} return new bitmaps and leave their operands
+ * unchanged. Not thread-safe.
+ */
+public final class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4096; // Above this a bitmap container is smaller
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Object[] containers; // char[] (array container, cardinality in sizes) or long[] (bitmap)
+    private int[] sizes;         // Cardinality of each container
+    private int count;           // Containers in use
+
+    public CompressedBitmap() {
+        this(4);
+    }
+
+    private CompressedBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Object[capacity];
+        sizes = new int[capacity];
+    }
+
+    /**
+     * Bitmap of the given values (any order, duplicates ignored).
+     */
+    public static CompressedBitmap of(int... values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = Arrays.binarySearch(keys, 0, count, high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new char[4], 0);
+        }
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            long word = bits[low >>> 6];
+            long updated = word | (1L << low);
+            if (updated != word) {
+                bits[low >>> 6] = updated;
+                sizes[index]++;
+            }
+            return;
+        }
+        char[] values = (char[]) container;
+        int size = sizes[index];
+        int position = Arrays.binarySearch(values, 0, size, low);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ARRAY_MAX) {
+            long[] bits = toBits(values, size);
+            bits[low >>> 6] |= 1L << low;
+            containers[index] = bits;
+            sizes[index] = size + 1;
+            return;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            containers[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = low;
+        sizes[index] = size + 1;
+    }
+
+    public void remove(int value) {
+        int index = Arrays.binarySearch(keys, 0, count, (char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            long word = bits[low >>> 6];
+            long updated = word & ~(1L << low);
+            if (updated == word) {
+                return;
+            }
+            bits[low >>> 6] = updated;
+            sizes[index]--;
+            if (sizes[index] <= ARRAY_MAX) {
+                containers[index] = toArray(bits, sizes[index]);
+            }
+        } else {
+            char[] values = (char[]) container;
+            int size = sizes[index];
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            sizes[index]--;
+        }
+        if (sizes[index] == 0) {
+            removeContainer(index);
+        }
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, 0, count, (char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, sizes[index], low) >= 0;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < count; i++) {
+            cardinality += sizes[i];
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Calls the consumer with each value, in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < count; i++) {
+            int base = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[] bits) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = bits[w];
+                    while (word != 0) {
+                        consumer.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int v = 0; v < sizes[i]; v++) {
+                    consumer.accept(base | values[v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The values, in ascending order.
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] next = {0};
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    // --- SET OPERATIONS ---
+
+    /**
+     * Values in both bitmaps.
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, Math.min(count, other.count)));
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], and(containers[i], sizes[i], other.containers[j], other.sizes[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of values in both bitmaps, without building the intersection.
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int cardinality = 0;
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += andCardinality(containers[i], sizes[i], other.containers[j], other.sizes[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Values in either bitmap.
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, count + other.count));
+        int i = 0, j = 0;
+        while (i < count || j < other.count) {
+            if (j == other.count || (i < count && keys[i] < other.keys[j])) {
+                result.appendIfNotEmpty(keys[i], copy(containers[i], sizes[i]));
+                i++;
+            } else if (i == count || keys[i] > other.keys[j]) {
+                result.appendIfNotEmpty(other.keys[j], copy(other.containers[j], other.sizes[j]));
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], or(containers[i], sizes[i], other.containers[j], other.sizes[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Values in this bitmap but not in the other.
+     */
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap(Math.max(1, count));
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            while (j < other.count && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.count && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], andNot(containers[i], sizes[i], other.containers[j], other.sizes[j]));
+            } else {
+                result.appendIfNotEmpty(keys[i], copy(containers[i], sizes[i]));
+            }
+        }
+        return result;
+    }
+
+    // --- CONTAINER OPERATIONS: results are {container, cardinality} ---
+
+    private record Sized(Object container, int size) {}
+
+    private static Sized and(Object a, int aSize, Object b, int bSize) {
+        if (a instanceof long[] aBits && b instanceof long[] bBits) {
+            long[] bits = new long[BITMAP_WORDS];
+            int size = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                bits[w] = aBits[w] & bBits[w];
+                size += Long.bitCount(bits[w]);
+            }
+            return size > ARRAY_MAX ? new Sized(bits, size) : new Sized(toArray(bits, size), size);
+        }
+        if (a instanceof long[]) {
+            return and(b, bSize, a, aSize); // Array first
+        }
+        char[] values = (char[]) a;
+        char[] result = new char[Math.min(aSize, b instanceof long[] ? aSize : bSize)];
+        int size = 0;
+        if (b instanceof long[] bits) {
+            for (int v = 0; v < aSize; v++) {
+                if ((bits[values[v] >>> 6] & (1L << values[v])) != 0) {
+                    result[size++] = values[v];
+                }
+            }
+        } else {
+            char[] others = (char[]) b;
+            int i = 0, j = 0;
+            while (i < aSize && j < bSize) {
+                if (values[i] < others[j]) {
+                    i++;
+                } else if (values[i] > others[j]) {
+                    j++;
+                } else {
+                    result[size++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return new Sized(result, size);
+    }
+
+    private static int andCardinality(Object a, int aSize, Object b, int bSize) {
+        if (a instanceof long[] aBits && b instanceof long[] bBits) {
+            int size = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                size += Long.bitCount(aBits[w] & bBits[w]);
+            }
+            return size;
+        }
+        if (a instanceof long[]) {
+            return andCardinality(b, bSize, a, aSize);
+        }
+        char[] values = (char[]) a;
+        int size = 0;
+        if (b instanceof long[] bits) {
+            for (int v = 0; v < aSize; v++) {
+                if ((bits[values[v] >>> 6] & (1L << values[v])) != 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+        char[] others = (char[]) b;
+        int i = 0, j = 0;
+        while (i < aSize && j < bSize) {
+            if (values[i] < others[j]) {
+                i++;
+            } else if (values[i] > others[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static Sized or(Object a, int aSize, Object b, int bSize) {
+        if (a instanceof long[] || b instanceof long[] || aSize + bSize > ARRAY_MAX) {
+            long[] bits = a instanceof long[] aBits ? aBits.clone() : toBits((char[]) a, aSize);
+            if (b instanceof long[] bBits) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits[w] |= bBits[w];
+                }
+            } else {
+                char[] others = (char[]) b;
+                for (int v = 0; v < bSize; v++) {
+                    bits[others[v] >>> 6] |= 1L << others[v];
+                }
+            }
+            int size = 0;
+            for (long word : bits) {
+                size += Long.bitCount(word);
+            }
+            return size > ARRAY_MAX ? new Sized(bits, size) : new Sized(toArray(bits, size), size);
+        }
+        char[] values = (char[]) a;
+        char[] others = (char[]) b;
+        char[] result = new char[aSize + bSize];
+        int i = 0, j = 0, size = 0;
+        while (i < aSize || j < bSize) {
+            if (j == bSize || (i < aSize && values[i] < others[j])) {
+                result[size++] = values[i++];
+            } else if (i == aSize || values[i] > others[j]) {
+                result[size++] = others[j++];
+            } else {
+                result[size++] = values[i];
+                i++;
+                j++;
+            }
+        }
+        return new Sized(result, size);
+    }
+
+    private static Sized andNot(Object a, int aSize, Object b, int bSize) {
+        if (a instanceof long[] aBits) {
+            long[] bits = aBits.clone();
+            if (b instanceof long[] bBits) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    bits[w] &= ~bBits[w];
+                }
+            } else {
+                char[] others = (char[]) b;
+                for (int v = 0; v < bSize; v++) {
+                    bits[others[v] >>> 6] &= ~(1L << others[v]);
+                }
+            }
+            int size = 0;
+            for (long word : bits) {
+                size += Long.bitCount(word);
+            }
+            return size > ARRAY_MAX ? new Sized(bits, size) : new Sized(toArray(bits, size), size);
+        }
+        char[] values = (char[]) a;
+        char[] result = new char[aSize];
+        int size = 0;
+        if (b instanceof long[] bits) {
+            for (int v = 0; v < aSize; v++) {
+                if ((bits[values[v] >>> 6] & (1L << values[v])) == 0) {
+                    result[size++] = values[v];
+                }
+            }
+        } else {
+            char[] others = (char[]) b;
+            int j = 0;
+            for (int i = 0; i < aSize; i++) {
+                while (j < bSize && others[j] < values[i]) {
+                    j++;
+                }
+                if (j == bSize || others[j] != values[i]) {
+                    result[size++] = values[i];
+                }
+            }
+        }
+        return new Sized(result, size);
+    }
+
+    private static Sized copy(Object container, int size) {
+        return new Sized(container instanceof long[] bits ? bits.clone() : Arrays.copyOf((char[]) container, Math.max(size, 1)), size);
+    }
+
+    private static long[] toBits(char[] values, int size) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int v = 0; v < size; v++) {
+            bits[values[v] >>> 6] |= 1L << values[v];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int size) {
+        char[] values = new char[Math.max(size, 1)];
+        int next = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                values[next++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    // --- CONTAINER DIRECTORY ---
+
+    private void appendIfNotEmpty(char key, Sized sized) {
+        if (sized.size() > 0) {
+            insertContainer(count, key, sized.container(), sized.size());
+        }
+    }
+
+    private void insertContainer(int index, char key, Object container, int size) {
+        if (count == keys.length) {
+            int capacity = Math.max(4, count * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, count - index);
+        System.arraycopy(containers, index, containers, index + 1, count - index);
+        System.arraycopy(sizes, index, sizes, index + 1, count - index);
+        keys[index] = key;
+        containers[index] = container;
+        sizes[index] = size;
+        count++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, count - index - 1);
+        System.arraycopy(sizes, index + 1, sizes, index, count - index - 1);
+        count--;
+        containers[count] = null;
+    }
+}
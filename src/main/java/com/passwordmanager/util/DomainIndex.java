@@ -0,0 +1,166 @@
+package com.passwordmanager.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers "which entries belong to this site?" for a URL, e.g. for a browser helper asking
+ * about login.corp.example.com.
+ *
+ * Entry hosts are kept in a trie of reversed labels (com → example → corp → login). A lookup
+ * walks the query host's labels from the top and collects, in rank order:
+ * <ol>
+ *   <li>EXACT_HOST: entries for the same host;</li>
+ *   <li>PARENT_DOMAIN: entries for a parent domain down to the registrable domain
+ *       (corp.example.com, then example.com);</li>
+ *   <li>SAME_SITE: other entries under the same registrable domain (mail.example.com).</li>
+ * </ol>
+ * The registrable domain comes from the {@link PublicSuffixList}, so nothing above it is
+ * matched: a co.uk or github.io entry never matches another customer's site. Each
+ * registrable-domain node also keeps the IDs of all entries below it, so a lookup costs one
+ * probe per label plus the matches returned, whatever the size of the vault.
+ *
+ * Thread-safe. Callers keep it in step with their entry cache: put on save, remove on delete.
+ */
+public final class DomainIndex {
+
+    public enum MatchKind { EXACT_HOST, PARENT_DOMAIN, SAME_SITE }
+
+    /**
+     * One matching entry; {@code host} is the entry's host in normal form.
+     */
+    public record Match(int entryId, String host, MatchKind kind) {}
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>(4);
+        Set<Integer> hostIds; // Entries whose host ends here
+        Set<Integer> siteIds; // On registrable-domain nodes: every entry of the site
+    }
+
+    private final PublicSuffixList suffixes;
+    private final Node root = new Node();
+    private final Map<Integer, String> hostById = new HashMap<>();
+
+    public DomainIndex() {
+        this(PublicSuffixList.getDefault());
+    }
+
+    public DomainIndex(PublicSuffixList suffixes) {
+        this.suffixes = suffixes;
+    }
+
+    /**
+     * Files an entry under its URL's host, replacing any previous URL of the entry.
+     * Entries without a usable URL are just removed.
+     */
+    public synchronized void put(int entryId, String url) {
+        remove(entryId);
+        String host = PublicSuffixList.hostOf(url);
+        if (host == null) {
+            return;
+        }
+        String[] labels = PublicSuffixList.labelsOf(host);
+        int siteDepth = suffixes.siteLabels(labels);
+        Node node = root;
+        for (int depth = 1; depth <= labels.length; depth++) {
+            node = node.children.computeIfAbsent(labels[labels.length - depth], label -> new Node());
+            if (depth == siteDepth) {
+                node.siteIds = add(node.siteIds, entryId);
+            }
+        }
+        node.hostIds = add(node.hostIds, entryId);
+        hostById.put(entryId, host);
+    }
+
+    public synchronized void remove(int entryId) {
+        String host = hostById.remove(entryId);
+        if (host == null) {
+            return;
+        }
+        String[] labels = PublicSuffixList.labelsOf(host);
+        Node node = root;
+        for (int depth = 1; depth <= labels.length && node != null; depth++) {
+            node = node.children.get(labels[labels.length - depth]);
+            if (node != null && node.siteIds != null) {
+                node.siteIds.remove(entryId);
+            }
+        }
+        if (node != null && node.hostIds != null) {
+            node.hostIds.remove(entryId);
+        }
+    }
+
+    public synchronized void clear() {
+        root.children.clear();
+        hostById.clear();
+    }
+
+    public synchronized int size() {
+        return hostById.size();
+    }
+
+    /**
+     * The entries matching a URL, best first (see the class comment for the order).
+     * @return Empty if the URL has no host.
+     */
+    public synchronized List<Match> match(String url) {
+        List<Match> matches = new ArrayList<>();
+        String host = PublicSuffixList.hostOf(url);
+        if (host == null) {
+            return matches;
+        }
+        String[] labels = PublicSuffixList.labelsOf(host);
+        int siteDepth = suffixes.siteLabels(labels);
+
+        // 1. Walk down: parent domains at and below the site, then the host itself
+        Set<Integer> site = null;
+        List<Node> path = new ArrayList<>(labels.length);
+        Node node = root;
+        for (int depth = 1; depth <= labels.length; depth++) {
+            node = node.children.get(labels[labels.length - depth]);
+            if (node == null) {
+                break;
+            }
+            if (depth == siteDepth) {
+                site = node.siteIds;
+            }
+            if (depth >= siteDepth) {
+                path.add(node);
+            }
+        }
+
+        // 2. Most specific first: exact host, then the nearest parents
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node match = path.get(i);
+            if (match.hostIds == null) {
+                continue;
+            }
+            MatchKind kind = i == labels.length - siteDepth ? MatchKind.EXACT_HOST : MatchKind.PARENT_DOMAIN;
+            for (int entryId : match.hostIds) {
+                seen.add(entryId);
+                matches.add(new Match(entryId, hostById.get(entryId), kind));
+            }
+        }
+
+        // 3. The rest of the site
+        if (site != null) {
+            for (int entryId : site) {
+                if (!seen.contains(entryId)) {
+                    matches.add(new Match(entryId, hostById.get(entryId), MatchKind.SAME_SITE));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static Set<Integer> add(Set<Integer> ids, int entryId) {
+        Set<Integer> set = ids != null ? ids : new LinkedHashSet<>(2);
+        set.add(entryId);
+        return set;
+    }
+}
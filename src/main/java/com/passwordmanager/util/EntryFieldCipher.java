@@ -0,0 +1,61 @@
+package com.passwordmanager.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * On-disk formats of encrypted entry fields.
+ *
+ * Version 1 (legacy): ciphertext + tag in the field column, the nonce in a separate
+ * column (nonce for the password, note_nonce for the note; the username's nonce was
+ * never stored). Version 2 (current): each field is Base64(nonce | ciphertext + tag)
+ * in its own column, with the owning user and field name bound in as AAD, so a
+ * ciphertext cannot be moved to another field or another user's row.
+ */
+public final class EntryFieldCipher {
+
+    public static final int VERSION_LEGACY = 1;
+    public static final int VERSION_CURRENT = 2;
+
+    public static final String FIELD_USERNAME = "username";
+    public static final String FIELD_PASSWORD = "password";
+    public static final String FIELD_NOTE = "note";
+    public static final String FIELD_URL = "url";
+
+    private EntryFieldCipher() {}
+
+    /**
+     * Encrypts one field in the current format.
+     * @return Base64(nonce | ciphertext + tag), or null for a null value.
+     */
+    public static String seal(String plaintext, byte[] keyBytes, int userId, String field) throws Exception {
+        if (plaintext == null) {
+            return null;
+        }
+        byte[] combined = AesGcmEncryptionUtil.encryptBytes(plaintext.getBytes(StandardCharsets.UTF_8), keyBytes, aad(userId, field));
+        return Base64.getEncoder().encodeToString(combined);
+    }
+
+    /**
+     * Decrypts one field written by {@link #seal}.
+     */
+    public static String open(String sealed, byte[] keyBytes, int userId, String field) throws Exception {
+        if (sealed == null) {
+            return null;
+        }
+        return open(ByteBuffer.wrap(Base64.getDecoder().decode(sealed)), keyBytes, userId, field);
+    }
+
+    /**
+     * Decrypts one field from raw (not Base64) bytes, e.g. a slice of a mapped vault file.
+     */
+    public static String open(ByteBuffer combined, byte[] keyBytes, int userId, String field) throws Exception {
+        byte[] plain = AesGcmEncryptionUtil.decryptBytes(combined, keyBytes, aad(userId, field));
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] aad(int userId, String field) {
+        return ("pm-entry-v2|" + userId + "|" + field).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.passwordmanager.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HKDF-SHA256 (RFC 5869) for deriving independent subkeys from the session master key,
+ * so one key is never used directly for two different purposes.
+ */
+public final class HkdfUtil {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int HASH_LENGTH = 32;
+
+    private HkdfUtil() {}
+
+    /**
+     * Derives a subkey.
+     * @param inputKey The input keying material (e.g. the 32-byte master key).
+     * @param salt Optional salt; may be null or empty.
+     * @param info Purpose label, e.g. "pm-backup-v1".
+     * @param length Output length in bytes (at most 255 * 32).
+     * @return The derived key.
+     */
+    public static byte[] derive(byte[] inputKey, byte[] salt, String info, int length) throws Exception {
+        if (length > 255 * HASH_LENGTH) {
+            throw new IllegalArgumentException("HKDF output too long.");
+        }
+        // 1. Extract
+        Mac mac = Mac.getInstance(MAC_ALGORITHM);
+        byte[] saltBytes = (salt == null || salt.length == 0) ? new byte[HASH_LENGTH] : salt;
+        mac.init(new SecretKeySpec(saltBytes, MAC_ALGORITHM));
+        byte[] prk = mac.doFinal(inputKey);
+
+        // 2. Expand
+        mac.init(new SecretKeySpec(prk, MAC_ALGORITHM));
+        byte[] infoBytes = info.getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[length];
+        byte[] block = new byte[0];
+        int offset = 0;
+        for (int counter = 1; offset < length; counter++) {
+            mac.update(block);
+            mac.update(infoBytes);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            int n = Math.min(HASH_LENGTH, length - offset);
+            System.arraycopy(block, 0, output, offset, n);
+            offset += n;
+        }
+        return output;
+    }
+}
@@ -1,10 +1,8 @@
 package com.passwordmanager.util;
 
 import java.security.SecureRandom;
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.Random;
 
 public class PasswordGenerator {
 
@@ -16,41 +14,60 @@ public class PasswordGenerator {
     private static final SecureRandom RANDOM = new SecureRandom();
 
     public static String generatePassword(int length, boolean useUpper, boolean useLower, boolean useDigits, boolean useSymbols) {
+        return generatePassword(length, useUpper, useLower, useDigits, useSymbols, RANDOM);
+    }
+
+    /**
+     * Same as above with a caller-supplied source of randomness. Only pass a seeded
+     * {@link Random} for reproducible test data, never for real passwords.
+     */
+    public static String generatePassword(int length, boolean useUpper, boolean useLower, boolean useDigits, boolean useSymbols, Random random) {
 
-        StringBuilder charPool = new StringBuilder();
-        if (useUpper) charPool.append(UPPERCASE);
-        if (useLower) charPool.append(LOWERCASE);
-        if (useDigits) charPool.append(DIGITS);
-        if (useSymbols) charPool.append(SYMBOLS);
+        // Works on plain char arrays: no boxing, no per-char Strings (bulk generation stays GC-quiet)
+        char[] charPool = new char[UPPERCASE.length() + LOWERCASE.length() + DIGITS.length() + SYMBOLS.length()];
+        int poolSize = 0;
+        if (useUpper) poolSize = append(charPool, poolSize, UPPERCASE);
+        if (useLower) poolSize = append(charPool, poolSize, LOWERCASE);
+        if (useDigits) poolSize = append(charPool, poolSize, DIGITS);
+        if (useSymbols) poolSize = append(charPool, poolSize, SYMBOLS);
 
-        if (charPool.length() == 0) {
+        if (poolSize == 0) {
             throw new IllegalArgumentException("At least one character set must be selected.");
         }
 
         // 1. Ensure at least one character from each selected set is included
-        StringBuilder password = new StringBuilder();
-        if (useUpper) password.append(getRandomChar(UPPERCASE));
-        if (useLower) password.append(getRandomChar(LOWERCASE));
-        if (useDigits) password.append(getRandomChar(DIGITS));
-        if (useSymbols) password.append(getRandomChar(SYMBOLS));
+        char[] password = new char[Math.max(length, 4)];
+        int filled = 0;
+        if (useUpper) password[filled++] = getRandomChar(UPPERCASE, random);
+        if (useLower) password[filled++] = getRandomChar(LOWERCASE, random);
+        if (useDigits) password[filled++] = getRandomChar(DIGITS, random);
+        if (useSymbols) password[filled++] = getRandomChar(SYMBOLS, random);
 
         // 2. Fill the remaining length with random characters from the full pool
-        int remainingLength = length - password.length();
-        for (int i = 0; i < remainingLength; i++) {
-            password.append(getRandomChar(charPool.toString()));
+        while (filled < length) {
+            password[filled++] = charPool[random.nextInt(poolSize)];
         }
 
-        // 3. Shuffle the characters to randomize placement
-        List<Character> charList = password.chars()
-                .mapToObj(e -> (char)e)
-                .collect(Collectors.toList());
-        Collections.shuffle(charList, RANDOM);
+        // 3. Shuffle the characters to randomize placement (same swaps as Collections.shuffle)
+        for (int i = filled; i > 1; i--) {
+            int j = random.nextInt(i);
+            char swap = password[i - 1];
+            password[i - 1] = password[j];
+            password[j] = swap;
+        }
 
         // 4. Convert back to string and return
-        return charList.stream().map(String::valueOf).collect(Collectors.joining());
+        String result = new String(password, 0, filled);
+        Arrays.fill(password, '\0');
+        return result;
+    }
+
+    private static int append(char[] pool, int size, String chars) {
+        chars.getChars(0, chars.length(), pool, size);
+        return size + chars.length();
     }
 
-    private static char getRandomChar(String pool) {
-        return pool.charAt(RANDOM.nextInt(pool.length()));
+    private static char getRandomChar(String pool, Random random) {
+        return pool.charAt(random.nextInt(pool.length()));
     }
 }
\ No newline at end of file
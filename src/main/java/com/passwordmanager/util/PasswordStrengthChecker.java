@@ -14,18 +14,28 @@ public class PasswordStrengthChecker {
         // 1. Calculate Keyspace Size
         int keyspaceSize = 0;
 
+        // One pass over the characters (no regex: this runs on every keystroke and in bulk audits)
+        boolean hasLower = false, hasUpper = false, hasDigit = false, hasSymbol = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z') hasLower = true;
+            else if (c >= 'A' && c <= 'Z') hasUpper = true;
+            else if (c >= '0' && c <= '9') hasDigit = true;
+            else hasSymbol = true;
+        }
+
         // Lowercase letters (26)
-        if (password.matches(".*[a-z].*")) keyspaceSize += 26;
+        if (hasLower) keyspaceSize += 26;
 
         // Uppercase letters (26)
-        if (password.matches(".*[A-Z].*")) keyspaceSize += 26;
+        if (hasUpper) keyspaceSize += 26;
 
         // Digits (10)
-        if (password.matches(".*[0-9].*")) keyspaceSize += 10;
+        if (hasDigit) keyspaceSize += 10;
 
         // Symbols (~32 common symbols)
         // A simple check for anything that isn't a letter or digit
-        if (password.matches(".*[^a-zA-Z0-9].*")) keyspaceSize += 32;
+        if (hasSymbol) keyspaceSize += 32;
 
         if (keyspaceSize == 0) {
             // Should not happen for a non-empty string, but as a safeguard
@@ -2,10 +2,12 @@ package com.passwordmanager.util;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.security.spec.KeySpec;
 import java.util.Base64;
-import java.util.Arrays;
+
+import com.passwordmanager.metrics.KeyDerivationEvent;
 
 public class Pbkdf2HashUtil {
     // SECURITY CONSTANTS
@@ -33,9 +35,14 @@ public class Pbkdf2HashUtil {
      * @return The resulting 256-bit hash (32-byte array).
      */
     public static byte[] hashPassword(String password, byte[] salt) throws Exception {
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
-        return factory.generateSecret(spec).getEncoded();
+        KeyDerivationEvent event = new KeyDerivationEvent(ALGORITHM, ITERATION_COUNT);
+        try {
+            KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH);
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
+            return factory.generateSecret(spec).getEncoded();
+        } finally {
+            event.finish();
+        }
     }
 
     /**
@@ -67,8 +74,8 @@ public class Pbkdf2HashUtil {
             // Hash the entered password with the stored salt
             byte[] enteredHashBytes = hashPassword(enteredPassword, salt);
 
-            // Compare the resulting hash bytes (using Arrays.equals for constant-time comparison)
-            return Arrays.equals(storedHashBytes, enteredHashBytes);
+            // Compare the resulting hash bytes in constant time
+            return MessageDigest.isEqual(storedHashBytes, enteredHashBytes);
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -0,0 +1,187 @@
+package com.passwordmanager.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.IDN;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Public Suffix List: which part of a host name is a registry suffix (com, co.uk, github.io),
+ * so the registrable domain, the "site" a login belongs to, is one label more
+ * (example.co.uk, alice.github.io). Without it, co.uk or github.io would count as one site
+ * and every entry under them would match every other.
+ *
+ * Rules are kept in a trie of reversed labels, so a lookup costs one map probe per label of
+ * the host. Wildcard (*.ck) and exception (!www.ck) rules follow the publicsuffix.org
+ * algorithm, with "*" as the default rule. The list ships as the resource
+ * /psl/public_suffix_list.dat; -Dpasswordmanager.psl.file reads another copy in the same
+ * format, e.g. the current upstream list.
+ */
+public final class PublicSuffixList {
+
+    public static final String FILE_PROPERTY = "passwordmanager.psl.file";
+    private static final String RESOURCE = "/psl/public_suffix_list.dat";
+
+    private static volatile PublicSuffixList defaultList;
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        boolean rule;
+        boolean exception;
+    }
+
+    private final Node root = new Node();
+    private int ruleCount;
+
+    private PublicSuffixList() {
+    }
+
+    /**
+     * The configured list, loaded on first use.
+     */
+    public static PublicSuffixList getDefault() {
+        if (defaultList == null) {
+            synchronized (PublicSuffixList.class) {
+                if (defaultList == null) {
+                    String file = System.getProperty(FILE_PROPERTY);
+                    try (InputStream in = file != null ? Files.newInputStream(Paths.get(file))
+                            : PublicSuffixList.class.getResourceAsStream(RESOURCE)) {
+                        if (in == null) {
+                            throw new IOException("Resource " + RESOURCE + " is missing");
+                        }
+                        defaultList = parse(in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot load the public suffix list", e);
+                    }
+                }
+            }
+        }
+        return defaultList;
+    }
+
+    /**
+     * Reads a list in the publicsuffix.org format: one rule per line, // comments.
+     */
+    public static PublicSuffixList parse(InputStream in) throws IOException {
+        PublicSuffixList list = new PublicSuffixList();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("//")) {
+                continue;
+            }
+            list.add(line.split("\\s+", 2)[0].toLowerCase(Locale.ROOT));
+        }
+        return list;
+    }
+
+    private void add(String rule) {
+        boolean exception = rule.startsWith("!");
+        String[] labels = (exception ? rule.substring(1) : rule).split("\\.");
+        Node node = root;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            node = node.children.computeIfAbsent(labels[i], label -> new Node());
+        }
+        if (exception) {
+            node.exception = true;
+        } else {
+            node.rule = true;
+        }
+        ruleCount++;
+    }
+
+    public int size() {
+        return ruleCount;
+    }
+
+    /**
+     * Number of labels of the host's public suffix (at least 1, by the default rule).
+     * @param labels From {@link #labelsOf}.
+     */
+    public int suffixLabels(String[] labels) {
+        int suffix = 1;
+        Node node = root;
+        for (int depth = 0; depth < labels.length && node != null; depth++) {
+            Node child = node.children.get(labels[labels.length - 1 - depth]);
+            Node wildcard = node.children.get("*");
+            if (child != null && child.exception) {
+                return depth; // The exception's own label is registrable
+            }
+            if ((child != null && child.rule) || wildcard != null) {
+                suffix = depth + 1;
+            }
+            node = child != null ? child : wildcard;
+        }
+        return suffix;
+    }
+
+    /**
+     * Number of labels of the registrable domain; all of them when the host is itself a
+     * public suffix or an IP address (it is then its own site).
+     * @param labels From {@link #labelsOf}.
+     */
+    public int siteLabels(String[] labels) {
+        return Math.min(labels.length, suffixLabels(labels) + 1);
+    }
+
+    /**
+     * The registrable domain of a host in normal form ({@link #hostOf}), e.g. example.co.uk
+     * for login.example.co.uk.
+     */
+    public String registrableDomain(String host) {
+        String[] labels = labelsOf(host);
+        return String.join(".", Arrays.copyOfRange(labels, labels.length - siteLabels(labels), labels.length));
+    }
+
+    /**
+     * A host's labels, top-level label last. An IP address is one opaque label.
+     */
+    public static String[] labelsOf(String host) {
+        boolean ipAddress = host.startsWith("[") || host.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'));
+        return ipAddress ? new String[] {host} : host.split("\\.");
+    }
+
+    /**
+     * Host of a URL in normal form (NFKC, lower case, Unicode labels, no trailing dot, no
+     * leading "www."), or null if there is none. Bare domains ("example.com") are accepted.
+     */
+    public static String hostOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        String value = Normalizer.normalize(url, Normalizer.Form.NFKC).strip().toLowerCase(Locale.ROOT);
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(value.contains("://") ? value : "https://" + value);
+            String host = uri.getHost();
+            if (host == null && uri.getRawAuthority() != null) {
+                // Non-ASCII host names parse as a registry authority: strip user info and port
+                host = uri.getRawAuthority().replaceFirst("^.*@", "").replaceFirst(":\\d*$", "");
+            }
+            if (host == null || host.isEmpty()) {
+                return null;
+            }
+            host = host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+            if (!host.startsWith("[")) {
+                host = IDN.toUnicode(host, IDN.ALLOW_UNASSIGNED);
+            }
+            return host.startsWith("www.") ? host.substring(4) : host;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
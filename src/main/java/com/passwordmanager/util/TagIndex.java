@@ -0,0 +1,185 @@
+package com.passwordmanager.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory index of which entries carry which tags (folders are tags too), for filtering
+ * without a database round-trip.
+ *
+ * Each entry gets a dense ordinal (0, 1, 2, ... in the order it is added) and each tag a
+ * {@link CompressedBitmap} of the ordinals carrying it, so a filter such as
+ * "work AND finance AND NOT archive" is two bitmap operations, and a tag's count within the
+ * current result is one intersection count. Ordinals of removed entries are not reused
+ * until the index is rebuilt.
+ *
+ * Thread-safe.
+ */
+public final class TagIndex {
+
+    private final Map<Integer, Integer> ordinalById = new HashMap<>();
+    private int[] idByOrdinal = new int[64];
+    private int nextOrdinal;
+    private CompressedBitmap all = new CompressedBitmap();
+    private final Map<Integer, CompressedBitmap> byTag = new HashMap<>();
+
+    /**
+     * Adds an entry (without tags) if it is not indexed yet.
+     */
+    public synchronized void addEntry(int entryId) {
+        ordinal(entryId);
+    }
+
+    /**
+     * Drops an entry and all its tags.
+     */
+    public synchronized void removeEntry(int entryId) {
+        Integer ordinal = ordinalById.remove(entryId);
+        if (ordinal == null) {
+            return;
+        }
+        all.remove(ordinal);
+        for (CompressedBitmap bitmap : byTag.values()) {
+            bitmap.remove(ordinal);
+        }
+    }
+
+    public synchronized void tag(int entryId, int tagId) {
+        byTag.computeIfAbsent(tagId, id -> new CompressedBitmap()).add(ordinal(entryId));
+    }
+
+    public synchronized void untag(int entryId, int tagId) {
+        Integer ordinal = ordinalById.get(entryId);
+        CompressedBitmap bitmap = byTag.get(tagId);
+        if (ordinal != null && bitmap != null) {
+            bitmap.remove(ordinal);
+        }
+    }
+
+    /**
+     * Replaces all tags of an entry.
+     */
+    public synchronized void setTags(int entryId, Collection<Integer> tagIds) {
+        int ordinal = ordinal(entryId);
+        for (CompressedBitmap bitmap : byTag.values()) {
+            bitmap.remove(ordinal);
+        }
+        for (int tagId : tagIds) {
+            byTag.computeIfAbsent(tagId, id -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    /**
+     * Forgets a tag (its entries stay).
+     */
+    public synchronized void removeTag(int tagId) {
+        byTag.remove(tagId);
+    }
+
+    public synchronized boolean hasTag(int entryId, int tagId) {
+        Integer ordinal = ordinalById.get(entryId);
+        CompressedBitmap bitmap = byTag.get(tagId);
+        return ordinal != null && bitmap != null && bitmap.contains(ordinal);
+    }
+
+    /**
+     * Entries matching every tag in {@code allOf}, at least one in {@code anyOf} (if not
+     * empty) and none in {@code noneOf}. With no conditions, every entry.
+     */
+    public synchronized CompressedBitmap filter(Collection<Integer> allOf, Collection<Integer> anyOf, Collection<Integer> noneOf) {
+        CompressedBitmap result = all;
+        for (int tagId : allOf) {
+            result = result.and(bitmap(tagId));
+        }
+        if (!anyOf.isEmpty()) {
+            result = result.and(union(anyOf));
+        }
+        if (!noneOf.isEmpty()) {
+            result = result.andNot(union(noneOf));
+        }
+        return result == all ? all.or(new CompressedBitmap()) : result; // Never hand out the live bitmap
+    }
+
+    /**
+     * Number of entries in {@code within} that carry the tag (e.g. the sidebar count under
+     * the current filter).
+     */
+    public synchronized int count(int tagId, CompressedBitmap within) {
+        return bitmap(tagId).andCardinality(within);
+    }
+
+    /**
+     * The given entries as a bitmap, e.g. the current search hits, to narrow a filter result
+     * or count within them. Entries not in the index are skipped.
+     */
+    public synchronized CompressedBitmap subset(Iterable<Integer> entryIds) {
+        CompressedBitmap subset = new CompressedBitmap();
+        for (int entryId : entryIds) {
+            Integer ordinal = ordinalById.get(entryId);
+            if (ordinal != null) {
+                subset.add(ordinal);
+            }
+        }
+        return subset;
+    }
+
+    /**
+     * Whether an entry is in a filter result.
+     */
+    public synchronized boolean contains(CompressedBitmap result, int entryId) {
+        Integer ordinal = ordinalById.get(entryId);
+        return ordinal != null && result.contains(ordinal);
+    }
+
+    /**
+     * The entry IDs of a filter result, in the order the entries were added.
+     */
+    public synchronized int[] entryIds(CompressedBitmap result) {
+        int[] ordinals = result.toArray();
+        int[] ids = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            ids[i] = idByOrdinal[ordinals[i]];
+        }
+        return ids;
+    }
+
+    public synchronized int size() {
+        return ordinalById.size();
+    }
+
+    public synchronized void clear() {
+        ordinalById.clear();
+        nextOrdinal = 0;
+        byTag.clear();
+        all = new CompressedBitmap();
+    }
+
+    private int ordinal(int entryId) {
+        Integer ordinal = ordinalById.get(entryId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (nextOrdinal == idByOrdinal.length) {
+            idByOrdinal = Arrays.copyOf(idByOrdinal, nextOrdinal * 2);
+        }
+        idByOrdinal[nextOrdinal] = entryId;
+        ordinalById.put(entryId, nextOrdinal);
+        all.add(nextOrdinal);
+        return nextOrdinal++;
+    }
+
+    private CompressedBitmap bitmap(int tagId) {
+        CompressedBitmap bitmap = byTag.get(tagId);
+        return bitmap != null ? bitmap : new CompressedBitmap();
+    }
+
+    private CompressedBitmap union(Collection<Integer> tagIds) {
+        CompressedBitmap union = new CompressedBitmap();
+        for (int tagId : tagIds) {
+            union = union.or(bitmap(tagId));
+        }
+        return union;
+    }
+}
@@ -1,5 +1,6 @@
 package com.passwordmanager.util;
 
+import com.passwordmanager.metrics.Metrics;
 import com.warrenstrange.googleauth.GoogleAuthenticator;
 import com.warrenstrange.googleauth.GoogleAuthenticatorKey;
 
@@ -32,8 +33,13 @@ public class TotpUtil {
      * @return true if the code is valid within the time window, false otherwise.
      */
     public static boolean verifyCode(String secret, int code) {
-        // The library handles time drift (window of 3 codes) automatically
-        return gAuth.authorize(secret, code);
+        long start = System.nanoTime();
+        try {
+            // The library handles time drift (window of 3 codes) automatically
+            return gAuth.authorize(secret, code);
+        } finally {
+            Metrics.recordSince("auth.totp.verify", start);
+        }
     }
 
     /**
@@ -0,0 +1,104 @@
+-- ============================================
+-- Password Manager Schema for embedded H2
+-- ============================================
+-- Same tables and columns the DAOs use against PostgreSQL, minus the
+-- PL/pgSQL triggers and row-level security. Used by the load-test harness
+-- and local runs (jdbc:h2:...;MODE=PostgreSQL). Load it with:
+--   RUNSCRIPT FROM 'classpath:/db/schema-h2.sql'
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id SERIAL PRIMARY KEY,
+    username VARCHAR(255) UNIQUE NOT NULL,
+    master_password_hash TEXT NOT NULL,
+    salt TEXT NOT NULL,
+    totp_secret TEXT NOT NULL,
+    wrapped_key TEXT,
+    pending_wrapped_key TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS passwords (
+    password_id SERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    title VARCHAR(255) NOT NULL,
+    username TEXT,
+    encrypted_password TEXT NOT NULL,
+    nonce TEXT,
+    encrypted_note TEXT,
+    note_nonce TEXT,
+    url TEXT,
+    notes TEXT,
+    enc_version SMALLINT NOT NULL DEFAULT 1,
+    row_version INTEGER NOT NULL DEFAULT 1,
+    password_changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS restore_checkpoints (
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    backup_id VARCHAR(64) NOT NULL,
+    last_chunk INTEGER NOT NULL,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, backup_id)
+);
+
+CREATE TABLE IF NOT EXISTS attachments (
+    attachment_id SERIAL PRIMARY KEY,
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    file_name VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    blob_id VARCHAR(64) NOT NULL UNIQUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS reencryption_checkpoints (
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    target_version SMALLINT NOT NULL,
+    last_password_id INTEGER NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, target_version)
+);
+
+CREATE TABLE IF NOT EXISTS search_tokens (
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    token VARCHAR(24) NOT NULL,
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, token, password_id)
+);
+
+CREATE TABLE IF NOT EXISTS tags (
+    tag_id SERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    name VARCHAR(100) NOT NULL,
+    is_folder BOOLEAN NOT NULL DEFAULT FALSE,
+    UNIQUE (user_id, is_folder, name)
+);
+
+CREATE TABLE IF NOT EXISTS entry_tags (
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    tag_id INTEGER NOT NULL REFERENCES tags(tag_id) ON DELETE CASCADE,
+    PRIMARY KEY (password_id, tag_id)
+);
+
+CREATE TABLE IF NOT EXISTS password_history (
+    history_id SERIAL PRIMARY KEY,
+    password_id INTEGER NOT NULL REFERENCES passwords(password_id) ON DELETE CASCADE,
+    user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+    encrypted_password TEXT NOT NULL,
+    row_version INTEGER NOT NULL,
+    replaced_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);
+CREATE INDEX IF NOT EXISTS idx_passwords_user_id ON passwords(user_id);
+CREATE INDEX IF NOT EXISTS idx_passwords_title ON passwords(title);
+CREATE INDEX IF NOT EXISTS idx_passwords_user_version ON passwords(user_id, enc_version, password_id);
+CREATE INDEX IF NOT EXISTS idx_attachments_password_id ON attachments(password_id);
+CREATE INDEX IF NOT EXISTS idx_search_tokens_password_id ON search_tokens(password_id);
+CREATE INDEX IF NOT EXISTS idx_entry_tags_tag_id ON entry_tags(tag_id);
+CREATE INDEX IF NOT EXISTS idx_password_history_entry ON password_history(password_id, history_id);
+CREATE INDEX IF NOT EXISTS idx_password_history_user_replaced ON password_history(user_id, replaced_at);
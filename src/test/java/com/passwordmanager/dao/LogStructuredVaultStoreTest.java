@@ -0,0 +1,93 @@
+package com.passwordmanager.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.passwordmanager.model.PasswordEntry;
+
+class LogStructuredVaultStoreTest {
+
+    private static final int USER_ID = 7;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deletedHighestIdIsNotReusedAfterCompactionAndReopen() throws Exception {
+        Path file = dir.resolve("vault.log");
+        int deletedId;
+        try (LogStructuredVaultStore store = LogStructuredVaultStore.open(file, false)) {
+            store.append(entry("first"));
+            deletedId = store.append(entry("second"));
+            assertTrue(store.delete(deletedId, USER_ID));
+            store.compact();
+        }
+        try (LogStructuredVaultStore store = LogStructuredVaultStore.open(file, false)) {
+            int newId = store.append(entry("third"));
+            assertTrue(newId > deletedId, "id " + newId + " reused after compaction");
+            assertFalse(store.read(deletedId, USER_ID).isPresent());
+            assertEquals(2, store.readAllByUser(USER_ID).size());
+        }
+    }
+
+    @Test
+    void compactionKeepsLiveEntriesAndDeletions() throws Exception {
+        Path file = dir.resolve("vault.log");
+        try (LogStructuredVaultStore store = LogStructuredVaultStore.open(file, false)) {
+            store.appendAll(List.of(entry("a"), entry("b"), entry("c")));
+            PasswordEntry b = store.read(2, USER_ID).orElseThrow();
+            b.setTitle("b2");
+            assertTrue(store.update(b));
+            assertTrue(store.delete(1, USER_ID));
+            store.compact();
+            assertEquals("b2", store.read(2, USER_ID).orElseThrow().getTitle());
+        }
+        try (LogStructuredVaultStore store = LogStructuredVaultStore.open(file, false)) {
+            assertFalse(store.read(1, USER_ID).isPresent());
+            assertEquals("b2", store.read(2, USER_ID).orElseThrow().getTitle());
+            assertEquals(2, store.read(2, USER_ID).orElseThrow().getRowVersion());
+            assertEquals(4, store.append(entry("d")));
+        }
+    }
+
+    @Test
+    void mappingGrowsAheadOfTheDataAndTheTailIsTrimmed() throws Exception {
+        Path file = dir.resolve("vault.log");
+        Path crashCopy = dir.resolve("crashed.log");
+        try (LogStructuredVaultStore store = LogStructuredVaultStore.open(file, false)) {
+            for (int i = 0; i < 100; i++) {
+                store.append(entry("e" + i));
+            }
+            assertEquals(100, store.readAllByUser(USER_ID).size());
+            // One step of growth, not a remap per record: the file is zero-filled ahead
+            assertTrue(Files.size(file) >= 1024 * 1024);
+            Files.copy(file, crashCopy); // What a crash would leave behind
+        }
+        long records = Files.size(file);
+        assertTrue(records < 1024 * 1024, "tail not trimmed on close: " + records);
+
+        try (LogStructuredVaultStore store = LogStructuredVaultStore.open(crashCopy, false)) {
+            assertEquals(100, store.readAllByUser(USER_ID).size());
+            assertEquals(101, store.append(entry("after")));
+        }
+        assertTrue(Files.size(crashCopy) > records && Files.size(crashCopy) < 1024 * 1024);
+    }
+
+    private static PasswordEntry entry(String title) {
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(USER_ID);
+        entry.setTitle(title);
+        entry.setPasswordEnc(Base64.getEncoder().encodeToString(("sealed-" + title).getBytes()));
+        entry.setRowVersion(1);
+        return entry;
+    }
+}
@@ -0,0 +1,111 @@
+package com.passwordmanager.dao;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.service.PasswordService;
+
+/**
+ * Embedded H2 (PostgreSQL mode) for DAO and service tests. All test classes of a run share
+ * one in-memory database, so each test works under a user of its own.
+ */
+public final class TestDatabase {
+
+    private static final String URL = "jdbc:h2:mem:passwordmanager-test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    private static final AtomicInteger USERS = new AtomicInteger();
+    private static boolean initialised;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Points DatabaseManager at the test database and creates the schema (once per run).
+     */
+    public static synchronized void use() throws SQLException {
+        if (initialised) {
+            return;
+        }
+        System.setProperty(DatabaseManager.URL_PROPERTY, URL);
+        System.setProperty(DatabaseManager.USER_PROPERTY, "sa");
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.execute("RUNSCRIPT FROM 'classpath:/db/schema-h2.sql'");
+        }
+        initialised = true;
+    }
+
+    /**
+     * Inserts a bare user row (no usable credentials) and returns its ID.
+     */
+    public static int createUser() throws SQLException {
+        use();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO users (username, master_password_hash, salt, totp_secret) VALUES (?, 'h', 's', 't')",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, "test-user-" + USERS.incrementAndGet());
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Runs one statement against the test database, e.g. to simulate a write from elsewhere.
+     * @return The update count.
+     */
+    public static int execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             Statement statement = conn.createStatement()) {
+            return statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * A fresh user with a random data key and a PasswordService over the SQL DAO, for
+     * service tests that work on one user's entries.
+     */
+    public static Vault vault() throws SQLException {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        PasswordDAO dao = new PasswordDAO();
+        return new Vault(createUser(), key, dao, new PasswordService(dao));
+    }
+
+    public record Vault(int userId, byte[] key, PasswordDAO dao, PasswordService passwords) {
+
+        /**
+         * Creates an entry through the service and returns it as stored.
+         */
+        public PasswordEntry create(String title, String username, String password, String note) {
+            if (!passwords.createEntry(userId, title, username, password, note, key)) {
+                throw new IllegalStateException("Could not create entry " + title);
+            }
+            return find(title);
+        }
+
+        /**
+         * @return The stored entry with this title.
+         */
+        public PasswordEntry find(String title) {
+            return passwords.getEncryptedEntries(userId).stream()
+                    .filter(entry -> entry.getTitle().equals(title))
+                    .findFirst().orElseThrow();
+        }
+
+        /**
+         * @return The entry as currently stored, with its latest row version.
+         */
+        public PasswordEntry current(PasswordEntry entry) {
+            return passwords.getEncryptedEntry(entry.getId(), userId).orElseThrow();
+        }
+    }
+}
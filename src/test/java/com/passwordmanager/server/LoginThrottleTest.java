@@ -0,0 +1,62 @@
+package com.passwordmanager.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class LoginThrottleTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final LoginThrottle throttle = new LoginThrottle(3, Duration.ofSeconds(1), Duration.ofSeconds(8), now::get);
+
+    @Test
+    void lockoutDoublesAfterTheFreeFailuresUpToTheCap() {
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("alice", "10.0.0.1");
+        }
+        assertEquals(Duration.ZERO, throttle.retryAfter("alice", "10.0.0.1"));
+
+        long[] expectedSeconds = {1, 2, 4, 8, 8};
+        for (long seconds : expectedSeconds) {
+            throttle.recordFailure("alice", "10.0.0.1");
+            assertEquals(Duration.ofSeconds(seconds), throttle.retryAfter("alice", "10.0.0.1"));
+        }
+
+        advance(Duration.ofSeconds(8));
+        assertEquals(Duration.ZERO, throttle.retryAfter("alice", "10.0.0.1"));
+    }
+
+    @Test
+    void lockedUsernameIsRefusedFromEveryAddress() {
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure("bob", "10.0.0." + i);
+        }
+        assertTrue(throttle.retryAfter("bob", "192.168.1.1").toMillis() > 0);
+        assertEquals(Duration.ZERO, throttle.retryAfter("carol", "192.168.1.1"));
+    }
+
+    @Test
+    void lockedAddressIsRefusedForEveryUsername() {
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure("user" + i, "10.0.0.9");
+        }
+        assertTrue(throttle.retryAfter("someone-else", "10.0.0.9").toMillis() > 0);
+    }
+
+    @Test
+    void successClearsTheUsername() {
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure("dave", "10.0.0." + i);
+        }
+        throttle.recordSuccess("dave");
+        assertEquals(Duration.ZERO, throttle.retryAfter("dave", "192.168.1.1"));
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+}
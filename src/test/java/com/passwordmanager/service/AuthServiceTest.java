@@ -0,0 +1,100 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.dao.UserDAO;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.User;
+import com.passwordmanager.util.AesGcmEncryptionUtil;
+import com.passwordmanager.util.HkdfUtil;
+import com.passwordmanager.util.Pbkdf2HashUtil;
+
+/**
+ * Legacy accounts, whose entry key was the PBKDF2 output stored as the password hash, end
+ * up under a random data key after unlocking, whether or not they were migrated before.
+ */
+class AuthServiceTest {
+
+    private static final String PASSWORD = "correct horse battery staple";
+    private static final String TOTP_SECRET = "JBSWY3DPEHPK3PXP";
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    private final AuthService authService = new AuthService();
+    private final UserDAO userDAO = new UserDAO();
+    private final PasswordService passwordService = new PasswordService(new PasswordDAO());
+    private byte[] salt;
+    private byte[] stretched;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestDatabase.use();
+        salt = Pbkdf2HashUtil.generateSalt();
+        stretched = Pbkdf2HashUtil.hashPassword(PASSWORD, salt);
+    }
+
+    @Test
+    void migratingALegacyAccountRotatesItsDataKey() throws Exception {
+        User user = legacyUser(null, Pbkdf2HashUtil.toBase64(stretched));
+
+        byte[] dataKey = authService.unlockVault(user.getUsername(), PASSWORD).orElseThrow().getDataKey();
+
+        assertRotated(user, dataKey);
+        // A second unlock keeps the new key
+        assertArrayEquals(dataKey, authService.unlockVault(user.getUsername(), PASSWORD).orElseThrow().getDataKey());
+        assertTrue(authService.unlockVault(user.getUsername(), "wrong").isEmpty());
+    }
+
+    @Test
+    void anAccountMigratedWithoutRotationIsRotatedOnUnlock() throws Exception {
+        // As left by the migration of earlier releases: the PBKDF2 output wrapped as the data key
+        byte[] kek = HkdfUtil.derive(stretched, salt, "pm-kek-v1", 32);
+        byte[] authKey = HkdfUtil.derive(stretched, salt, "pm-auth-v1", 32);
+        String verifier = Pbkdf2HashUtil.toBase64(MessageDigest.getInstance("SHA-256").digest(authKey));
+        User user = legacyUser(Pbkdf2HashUtil.toBase64(AesGcmEncryptionUtil.encryptBytes(stretched, kek)), verifier);
+
+        byte[] dataKey = authService.unlockVault(user.getUsername(), PASSWORD).orElseThrow().getDataKey();
+
+        assertRotated(user, dataKey);
+    }
+
+    private User legacyUser(String wrappedKey, String masterHash) throws Exception {
+        User user = new User();
+        user.setUsername("legacy-user-" + USERS.incrementAndGet());
+        user.setMasterHash(masterHash);
+        user.setMasterSalt(Pbkdf2HashUtil.toBase64(salt));
+        user.setTotpSecretEnc(Pbkdf2HashUtil.toBase64(
+                AesGcmEncryptionUtil.encryptBytes(TOTP_SECRET.getBytes(StandardCharsets.UTF_8), stretched)));
+        user.setWrappedKey(wrappedKey);
+        assertTrue(userDAO.createUser(user) > 0);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(passwordService.createEntry(user.getId(), "site-" + i, "me", "secret-" + i, "note", stretched));
+        }
+        return user;
+    }
+
+    private void assertRotated(User user, byte[] dataKey) throws Exception {
+        assertFalse(Arrays.equals(stretched, dataKey));
+        User stored = userDAO.findUserByUsername(user.getUsername()).orElseThrow();
+        assertNull(stored.getPendingWrappedKey());
+        assertEquals(TOTP_SECRET, new String(AesGcmEncryptionUtil.decryptBytes(
+                Pbkdf2HashUtil.fromBase64(stored.getTotpSecretEnc()), dataKey), StandardCharsets.UTF_8));
+        for (PasswordEntry entry : passwordService.getEncryptedEntries(user.getId())) {
+            assertEquals(entry.getTitle().replace("site-", "secret-"), passwordService.decryptPassword(entry, dataKey));
+            assertEquals("[DECRYPTION FAILED]", passwordService.decryptPassword(entry, stretched));
+        }
+    }
+}
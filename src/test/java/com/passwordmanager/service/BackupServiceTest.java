@@ -0,0 +1,124 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.passwordmanager.dao.FilePasswordDAO;
+import com.passwordmanager.dao.LogStructuredVaultStore;
+import com.passwordmanager.model.PasswordEntry;
+
+/**
+ * Backup and restore against the file vault, which keeps its restore checkpoints next to
+ * the log instead of in SQL.
+ */
+class BackupServiceTest {
+
+    private static final int USER_ID = 7;
+    private static final int ENTRIES = 8;
+
+    @TempDir
+    Path dir;
+
+    private final byte[] key = new byte[32];
+    private final List<LogStructuredVaultStore> stores = new ArrayList<>();
+    private Path backup;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new SecureRandom().nextBytes(key);
+        FilePasswordDAO source = vault("source.log");
+        PasswordService passwordService = new PasswordService(source);
+        for (int i = 0; i < ENTRIES; i++) {
+            // Large notes spread the rows over several chunks
+            assertTrue(passwordService.createEntry(USER_ID, "site-" + i, "me", "pw-" + i, "n".repeat(20_000), key));
+        }
+        backup = dir.resolve("vault.pmbackup");
+        assertEquals(ENTRIES, new BackupService(source).exportVault(USER_ID, key, backup, false));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (LogStructuredVaultStore store : stores) {
+            store.close();
+        }
+    }
+
+    @Test
+    void restoreWritesIntoTheFileVaultOnce() throws Exception {
+        FilePasswordDAO target = vault("target.log");
+        BackupService backupService = new BackupService(target);
+
+        assertEquals(ENTRIES, backupService.restoreVault(USER_ID, key, backup));
+        assertEquals(0, backupService.restoreVault(USER_ID, key, backup));
+
+        PasswordService passwordService = new PasswordService(target);
+        List<PasswordEntry> restored = target.findAllByUserId(USER_ID);
+        assertEquals(ENTRIES, restored.size());
+        for (PasswordEntry entry : restored) {
+            assertEquals(entry.getTitle().replace("site-", "pw-"), passwordService.decryptPassword(entry, key));
+        }
+    }
+
+    @Test
+    void aChunkInterruptedAfterPartOfItWasAppendedIsNotDuplicated() throws Exception {
+        List<List<PasswordEntry>> chunks = new ArrayList<>();
+        FilePasswordDAO target = new FilePasswordDAO(open("target.log")) {
+            @Override
+            public void restoreChunk(int userId, String backupId, int chunk, boolean last, List<PasswordEntry> entries) throws SQLException {
+                super.restoreChunk(userId, backupId, chunk, last, entries);
+                chunks.add(new ArrayList<>(entries));
+            }
+        };
+        new BackupService(target).restoreVault(USER_ID, key, backup);
+        assertTrue(chunks.size() > 2, "expected the backup to span several chunks");
+
+        // As if the process died while appending chunk 1: marked pending, only its first row in the log
+        Path checkpoints = dir.resolve("target.log.restore");
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(checkpoints)) {
+            properties.load(in);
+        }
+        String checkpointKey = properties.stringPropertyNames().iterator().next();
+        properties.setProperty(checkpointKey, "0,1");
+        try (Writer out = Files.newBufferedWriter(checkpoints)) {
+            properties.store(out, null);
+        }
+        for (List<PasswordEntry> chunk : chunks.subList(2, chunks.size())) {
+            chunk.forEach(entry -> target.deleteEntry(entry.getId(), USER_ID));
+        }
+        List<PasswordEntry> chunkOne = chunks.get(1);
+        assertTrue(chunkOne.size() > 1);
+        chunkOne.subList(1, chunkOne.size()).forEach(entry -> target.deleteEntry(entry.getId(), USER_ID));
+
+        new BackupService(target).restoreVault(USER_ID, key, backup);
+
+        List<PasswordEntry> restored = target.findAllByUserId(USER_ID);
+        assertEquals(ENTRIES, restored.size());
+        assertEquals(ENTRIES, restored.stream().map(PasswordEntry::getTitle).distinct().count());
+    }
+
+    private FilePasswordDAO vault(String name) throws Exception {
+        return new FilePasswordDAO(open(name));
+    }
+
+    private LogStructuredVaultStore open(String name) throws Exception {
+        LogStructuredVaultStore store = LogStructuredVaultStore.open(dir.resolve(name), false);
+        stores.add(store);
+        return store;
+    }
+}
@@ -0,0 +1,102 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
+import com.passwordmanager.util.EntryFieldCipher;
+
+class PasswordHistoryTest {
+
+    private TestDatabase.Vault vault;
+    private PasswordService passwordService;
+    private byte[] key;
+    private int userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vault = TestDatabase.vault();
+        passwordService = vault.passwords();
+        key = vault.key();
+        userId = vault.userId();
+    }
+
+    @Test
+    void passwordChangeArchivesTheOldPasswordButOtherEditsDoNot() {
+        PasswordEntry entry = create("mail", "first");
+
+        entry = passwordService.updateEntry(entry, "mail (personal)", "me", "first", null, null, key).orElseThrow();
+        assertTrue(history(entry).isEmpty());
+
+        entry = passwordService.changePassword(entry, "second", key).orElseThrow();
+        List<PasswordVersion> versions = history(entry);
+        assertEquals(1, versions.size());
+        assertEquals("first", passwordService.decryptPassword(versions.get(0), key));
+        assertEquals("second", passwordService.decryptPassword(vault.current(entry), key));
+    }
+
+    @Test
+    void historyIsTrimmedToTheNewestVersions() throws Exception {
+        PasswordEntry entry = create("bank", "v0");
+        for (int i = 1; i <= 5; i++) {
+            entry = passwordService.changePassword(entry, "v" + i, key).orElseThrow();
+        }
+        assertEquals(5, history(entry).size());
+
+        // The DAO path the service uses, with a cap of three versions
+        PasswordEntry next = vault.current(entry);
+        next.setPasswordEnc(EntryFieldCipher.seal("v6", key, userId, EntryFieldCipher.FIELD_PASSWORD));
+        assertTrue(vault.dao().updateEntryArchivingPassword(next, 3));
+
+        List<PasswordVersion> versions = history(entry);
+        assertEquals(3, versions.size());
+        assertEquals("v5", passwordService.decryptPassword(versions.get(0), key));
+        assertEquals("v3", passwordService.decryptPassword(versions.get(2), key));
+    }
+
+    @Test
+    void restoreBringsBackAVersionOnlyFromTheCurrentRowVersion() {
+        PasswordEntry entry = create("vpn", "old");
+        entry = passwordService.changePassword(entry, "new", key).orElseThrow();
+        PasswordVersion old = history(entry).get(0);
+
+        // Someone else saves the entry after it was read: the restore must not apply
+        PasswordEntry stale = vault.current(entry);
+        assertTrue(passwordService.changePassword(vault.current(entry), "newer", key).isPresent());
+        assertFalse(passwordService.restoreVersion(stale, old));
+        assertEquals("newer", passwordService.decryptPassword(vault.current(entry), key));
+
+        PasswordEntry fresh = vault.current(entry);
+        int rowVersion = fresh.getRowVersion();
+        assertTrue(passwordService.restoreVersion(fresh, old));
+        assertEquals(rowVersion + 1, fresh.getRowVersion());
+        assertEquals("old", passwordService.decryptPassword(vault.current(entry), key));
+    }
+
+    @Test
+    void restoreRejectsAnotherEntrysVersion() {
+        PasswordEntry a = passwordService.changePassword(create("a", "a1"), "a2", key).orElseThrow();
+        PasswordEntry b = create("b", "b1");
+        PasswordVersion foreign = history(a).get(0);
+        foreign.setPasswordId(b.getId()); // Forged to pass the service check; the statement still refuses it
+
+        assertFalse(passwordService.restoreVersion(vault.current(b), foreign));
+        assertEquals("b1", passwordService.decryptPassword(vault.current(b), key));
+    }
+
+    private PasswordEntry create(String title, String password) {
+        return vault.create(title, "me", password, null);
+    }
+
+    private List<PasswordVersion> history(PasswordEntry entry) {
+        return passwordService.getPasswordHistory(entry.getId(), userId);
+    }
+}
@@ -0,0 +1,160 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.dao.PasswordHistoryDAO;
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.PasswordVersion;
+import com.passwordmanager.util.AesGcmEncryptionUtil;
+import com.passwordmanager.util.EntryFieldCipher;
+
+class ReencryptionServiceTest {
+
+    private static final int TARGET = EntryFieldCipher.VERSION_CURRENT;
+
+    private PasswordDAO dao;
+    private PasswordService passwordService;
+    private byte[] key;
+    private int userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestDatabase.Vault vault = TestDatabase.vault();
+        dao = vault.dao();
+        passwordService = vault.passwords();
+        key = vault.key();
+        userId = vault.userId();
+    }
+
+    @Test
+    void resumesAfterTheLastCommittedBatchAndClearsTheCheckpoint() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            createLegacyEntry("site-" + i, "secret-" + i);
+        }
+
+        // A run that committed one batch and then died
+        List<PasswordEntry> batch = dao.findBatchBelowVersion(userId, TARGET, 0, 100);
+        List<PasswordEntry> upgraded = new ArrayList<>();
+        for (PasswordEntry entry : batch) {
+            upgraded.add(passwordService.upgradeEntry(entry, key));
+        }
+        int lastId = batch.get(batch.size() - 1).getId();
+        assertEquals(100, dao.reencryptBatch(userId, TARGET, upgraded, lastId));
+        assertEquals(lastId, dao.findReencryptionCheckpoint(userId, TARGET));
+
+        ReencryptionService.ReencryptionSummary summary = new ReencryptionService(passwordService, 2, 1.0).run(userId, key);
+
+        assertTrue(summary.isCompleted());
+        assertEquals(150, summary.getUpgraded());
+        assertEquals(0, summary.getFailed());
+        assertEquals(0, dao.findReencryptionCheckpoint(userId, TARGET));
+        for (PasswordEntry entry : dao.findAllByUserId(userId)) {
+            assertEquals(TARGET, entry.getEncVersion());
+            assertEquals(entry.getTitle().replace("site-", "secret-"), passwordService.decryptPassword(entry, key));
+        }
+    }
+
+    @Test
+    void neverOverwritesAnEntrySavedDuringTheRun() throws Exception {
+        createLegacyEntry("edited", "old-secret");
+        createLegacyEntry("untouched", "other-secret");
+
+        List<PasswordEntry> batch = dao.findBatchBelowVersion(userId, TARGET, 0, 100);
+        List<PasswordEntry> upgraded = new ArrayList<>();
+        for (PasswordEntry entry : batch) {
+            upgraded.add(passwordService.upgradeEntry(entry, key));
+        }
+
+        // The user saves the first entry between the read and the write-back
+        PasswordEntry edited = batch.get(0);
+        assertTrue(passwordService.updateEntry(edited, "edited", "me", "new-secret", null, key).isPresent());
+
+        assertEquals(1, dao.reencryptBatch(userId, TARGET, upgraded, batch.get(1).getId()));
+        PasswordEntry stored = dao.findById(edited.getId(), userId).orElseThrow();
+        assertEquals("new-secret", passwordService.decryptPassword(stored, key));
+    }
+
+    @Test
+    void rotationResumesReSealsHistoryAndSkipsWhatIsAlreadyUnderTheNewKey() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            createLegacyEntry("site-" + i, "secret-" + i);
+        }
+        // Edited twice: the first save upgrades the row, the second archives its password
+        PasswordEntry edited = dao.findBatchBelowVersion(userId, ReencryptionService.ANY_VERSION, 0, 1).get(0);
+        edited = passwordService.updateEntry(edited, edited.getTitle(), "me", "middle-secret", null, key).orElseThrow();
+        assertTrue(passwordService.updateEntry(edited, edited.getTitle(), "me", "newer-secret", null, key).isPresent());
+        byte[] newKey = new byte[32];
+        new SecureRandom().nextBytes(newKey);
+
+        // A rotation that committed one batch and then died
+        List<PasswordEntry> batch = dao.findBatchBelowVersion(userId, ReencryptionService.ANY_VERSION, 0, 100);
+        List<PasswordEntry> rotated = new ArrayList<>();
+        for (PasswordEntry entry : batch) {
+            rotated.add(passwordService.rotateEntry(entry, key, newKey));
+        }
+        int lastId = batch.get(batch.size() - 1).getId();
+        assertEquals(100, dao.rotateBatch(userId, rotated, lastId));
+        assertEquals(lastId, dao.findReencryptionCheckpoint(userId, PasswordDAO.KEY_ROTATION));
+
+        ReencryptionService.ReencryptionSummary summary = new ReencryptionService(passwordService, 2, 1.0).rotate(userId, key, newKey);
+
+        assertTrue(summary.isCompleted());
+        assertEquals(151, summary.getUpgraded()); // 150 entries and the archived password
+        assertEquals(0, summary.getFailed());
+        assertEquals(0, dao.findReencryptionCheckpoint(userId, PasswordDAO.KEY_ROTATION));
+        for (PasswordEntry entry : dao.findAllByUserId(userId)) {
+            String expected = entry.getId() == edited.getId() ? "newer-secret" : entry.getTitle().replace("site-", "secret-");
+            assertEquals(expected, passwordService.decryptPassword(entry, newKey));
+            assertEquals("[DECRYPTION FAILED]", passwordService.decryptPassword(entry, key));
+        }
+        List<PasswordVersion> history = passwordService.getPasswordHistory(edited.getId(), userId);
+        assertEquals(1, history.size());
+        assertEquals("middle-secret", passwordService.decryptPassword(history.get(0), newKey));
+
+        // A second run from scratch finds everything under the new key already
+        summary = new ReencryptionService(passwordService, 2, 1.0).rotate(userId, key, newKey);
+        assertTrue(summary.isCompleted());
+        assertEquals(0, summary.getUpgraded());
+        assertEquals(0, summary.getFailed());
+        assertEquals(1, new PasswordHistoryDAO().findBatchByUser(userId, 0, 10).size());
+    }
+
+    @Test
+    void rotationRetriesAnEntrySavedBetweenTheReadAndTheWrite() throws Exception {
+        createLegacyEntry("edited", "old-secret");
+        byte[] newKey = new byte[32];
+        new SecureRandom().nextBytes(newKey);
+
+        PasswordEntry entry = dao.findBatchBelowVersion(userId, ReencryptionService.ANY_VERSION, 0, 1).get(0);
+        PasswordEntry resealed = passwordService.rotateEntry(entry, key, newKey);
+        assertTrue(passwordService.updateEntry(entry, "edited", "me", "new-secret", null, key).isPresent());
+
+        // The stale re-seal loses the row-version race and leaves the checkpoint alone
+        assertEquals(0, dao.rotateBatch(userId, List.of(resealed), entry.getId()));
+        assertEquals(0, dao.findReencryptionCheckpoint(userId, PasswordDAO.KEY_ROTATION));
+        assertTrue(new ReencryptionService(passwordService, 1, 1.0).rotate(userId, key, newKey).isCompleted());
+        PasswordEntry stored = dao.findById(entry.getId(), userId).orElseThrow();
+        assertEquals("new-secret", passwordService.decryptPassword(stored, newKey));
+    }
+
+    private void createLegacyEntry(String title, String password) throws Exception {
+        AesGcmEncryptionUtil.EncryptedResult sealed = AesGcmEncryptionUtil.encrypt(password, key);
+        PasswordEntry entry = new PasswordEntry();
+        entry.setUserId(userId);
+        entry.setTitle(title);
+        entry.setPasswordEnc(sealed.getCipherTextBase64());
+        entry.setEntryNonce(sealed.getNonceBase64());
+        entry.setEncVersion(EntryFieldCipher.VERSION_LEGACY);
+        assertTrue(dao.createEntry(entry) > 0);
+    }
+}
@@ -0,0 +1,127 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.service.SessionManager.Session;
+
+class SessionManagerTest {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    private final List<SessionManager> managers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        managers.forEach(SessionManager::close);
+    }
+
+    @Test
+    void idleSessionExpiresAndItsKeyIsZeroed() throws Exception {
+        SessionManager sessions = manager(Duration.ofMillis(200), Duration.ofHours(1));
+        byte[] key = key();
+        Session session = sessions.create(1, "alice", key);
+        assertTrue(sessions.touch(session.getToken()).isPresent());
+
+        awaitTrue(() -> sessions.size() == 0, Duration.ofSeconds(5));
+
+        assertTrue(session.isEnded());
+        assertTrue(sessions.touch(session.getToken()).isEmpty());
+        assertArrayEquals(new byte[key.length], key);
+    }
+
+    @Test
+    void absoluteTimeoutEndsAnActiveSession() throws Exception {
+        SessionManager sessions = manager(Duration.ofHours(1), Duration.ofMillis(300));
+        Session session = sessions.create(1, "bob", key());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (sessions.touch(session.getToken()).isPresent()) {
+            assertTrue(System.nanoTime() < deadline, "session outlived its absolute timeout");
+            Thread.sleep(20);
+        }
+        assertTrue(session.isEnded());
+    }
+
+    @Test
+    void expiryDuringARequestZeroesTheKeyOnlyAfterRelease() throws Exception {
+        SessionManager sessions = manager(Duration.ofHours(1), Duration.ofMillis(200));
+        byte[] key = key();
+        byte[] original = key.clone();
+        Session session = sessions.create(1, "carol", key);
+
+        Session inUse = sessions.acquire(session.getToken()).orElseThrow();
+        awaitTrue(inUse::isEnded, Duration.ofSeconds(5));
+
+        // Ended for everyone else, but the running request still sees an intact key
+        assertTrue(sessions.acquire(session.getToken()).isEmpty());
+        assertArrayEquals(original, inUse.getDataKey());
+
+        sessions.release(inUse);
+        assertArrayEquals(new byte[key.length], key);
+    }
+
+    @Test
+    void invalidateWaitsForEveryHolder() {
+        SessionManager sessions = manager(Duration.ofHours(1), Duration.ofHours(1));
+        byte[] key = key();
+        Session session = sessions.create(1, "dave", key);
+        Session first = sessions.acquire(session.getToken()).orElseThrow();
+        Session second = sessions.acquire(session.getToken()).orElseThrow();
+
+        sessions.invalidate(session.getToken());
+        sessions.release(first);
+        assertFalse(Arrays.equals(new byte[key.length], key));
+
+        sessions.release(second);
+        assertArrayEquals(new byte[key.length], key);
+    }
+
+    @Test
+    void hundredThousandSessionsAllExpire() throws Exception {
+        SessionManager sessions = manager(Duration.ofMillis(500), Duration.ofHours(1));
+        int count = 100_000;
+        List<Session> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            created.add(sessions.create(i, "user" + i, null));
+        }
+        assertEquals(count, sessions.size());
+        for (Session session : created) {
+            assertTrue(sessions.touch(session.getToken()).isPresent());
+        }
+
+        awaitTrue(() -> sessions.size() == 0, Duration.ofSeconds(20));
+        assertTrue(created.stream().allMatch(Session::isEnded));
+    }
+
+    private SessionManager manager(Duration idle, Duration absolute) {
+        SessionManager sessions = new SessionManager("test", idle, absolute, TICK);
+        managers.add(sessions);
+        return sessions;
+    }
+
+    private static byte[] key() {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) 7);
+        return key;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within " + timeout);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.model.PasswordEntry;
+
+class SyncServiceTest {
+
+    private TestDatabase.Vault vault;
+    private PasswordService passwordService;
+    private SyncService syncService;
+    private byte[] key;
+    private int userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vault = TestDatabase.vault();
+        passwordService = vault.passwords();
+        syncService = new SyncService(passwordService);
+        key = vault.key();
+        userId = vault.userId();
+    }
+
+    @Test
+    void staleUpdateIsRejected() throws Exception {
+        PasswordEntry base = vault.create("mail", "alice", "pw1", "note");
+        PasswordEntry otherCopy = passwordService.getEncryptedEntry(base.getId(), userId).orElseThrow();
+
+        Optional<PasswordEntry> first = passwordService.updateEntry(base, "mail", "alice", "pw2", null, "note", key);
+        assertTrue(first.isPresent());
+        assertEquals(base.getRowVersion() + 1, first.get().getRowVersion());
+
+        assertFalse(passwordService.updateEntry(otherCopy, "mail", "alice", "pw3", null, "note", key).isPresent());
+        assertEquals("pw2", passwordService.decryptPassword(vault.current(base), key));
+    }
+
+    @Test
+    void concurrentUpdatesFromOneBaseLetExactlyOneWin() throws Exception {
+        PasswordEntry base = vault.create("bank", "bob", "start", null);
+        int writers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                String password = "writer-" + i;
+                PasswordEntry copy = passwordService.getEncryptedEntry(base.getId(), userId).orElseThrow();
+                tasks.add(() -> {
+                    start.await();
+                    return passwordService.updateEntry(copy, "bank", "bob", password, null, null, key).isPresent();
+                });
+            }
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                results.add(pool.submit(task));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) won++;
+            }
+            assertEquals(1, won);
+            assertEquals(base.getRowVersion() + 1, vault.current(base).getRowVersion());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reconcileMergesChangesToDifferentFields() throws Exception {
+        PasswordEntry base = vault.create("shop", "carol", "pw", "old note");
+        PasswordEntry remote = passwordService.getEncryptedEntry(base.getId(), userId).orElseThrow();
+        assertTrue(passwordService.updateEntry(remote, "shop", "carol", "pw", null, "new note", key).isPresent());
+
+        SyncService.EntryFields local = new SyncService.EntryFields("shop (work)", "carol", "pw", null, "old note");
+        SyncService.SyncSummary summary = syncService.reconcile(userId, List.of(new SyncService.OfflineEdit(base, local)), key);
+
+        assertEquals(1, summary.getMerged());
+        assertEquals(0, summary.getConflictCopies());
+        SyncService.EntryFields stored = passwordService.decryptFields(vault.current(base), key);
+        assertEquals("shop (work)", stored.title());
+        assertEquals("new note", stored.note());
+    }
+
+    @Test
+    void reconcileKeepsAConflictCopyWhenBothSidesChangedAField() throws Exception {
+        PasswordEntry base = vault.create("vpn", "dave", "pw", null);
+        PasswordEntry remote = passwordService.getEncryptedEntry(base.getId(), userId).orElseThrow();
+        assertTrue(passwordService.updateEntry(remote, "vpn", "dave", "remote-pw", null, null, key).isPresent());
+
+        SyncService.EntryFields local = new SyncService.EntryFields("vpn", "dave", "local-pw", null, null);
+        SyncService.SyncSummary summary = syncService.reconcile(userId, List.of(new SyncService.OfflineEdit(base, local)), key);
+
+        assertEquals(1, summary.getConflictCopies());
+        assertEquals("remote-pw", passwordService.decryptPassword(vault.current(base), key));
+        PasswordEntry copy = passwordService.getEncryptedEntries(userId).stream()
+                .filter(entry -> entry.getTitle().equals("vpn" + SyncService.CONFLICT_SUFFIX))
+                .findFirst().orElseThrow();
+        assertEquals("local-pw", passwordService.decryptPassword(copy, key));
+    }
+
+    @Test
+    void mergeTakesEachSidesOwnChanges() {
+        SyncService.EntryFields base = new SyncService.EntryFields("t", "u", "p", null, "n");
+        SyncService.EntryFields local = new SyncService.EntryFields("t2", "u", "p", null, "n");
+        SyncService.EntryFields remote = new SyncService.EntryFields("t", "u", "p", "https://example.com", "n");
+
+        SyncService.MergeResult result = SyncService.merge(base, local, remote);
+
+        assertFalse(result.hasConflicts());
+        assertEquals(new SyncService.EntryFields("t2", "u", "p", "https://example.com", "n"), result.merged());
+    }
+}
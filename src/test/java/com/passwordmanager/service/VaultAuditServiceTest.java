@@ -0,0 +1,80 @@
+package com.passwordmanager.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.model.PasswordEntry;
+
+class VaultAuditServiceTest {
+
+    private TestDatabase.Vault vault;
+    private PasswordService passwordService;
+    private VaultAuditService auditService;
+    private byte[] key;
+    private int userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vault = TestDatabase.vault();
+        passwordService = vault.passwords();
+        auditService = new VaultAuditService(passwordService, 2, 365);
+        key = vault.key();
+        userId = vault.userId();
+        vault.create("mail", "alice", "shared-Secret-42!", null);
+        vault.create("bank", "alice", "shared-Secret-42!", null);
+        vault.create("forum", "alice", "abc", null);
+    }
+
+    @Test
+    void reauditOnlyDecryptsEntriesWhoseVersionMoved() throws Exception {
+        VaultAuditService.AuditReport first = auditService.audit(userId, key);
+        assertFalse(first.isIncremental());
+        assertEquals(3, first.getAudited());
+        assertEquals(2, first.getReused());
+
+        VaultAuditService.AuditReport unchanged = auditService.audit(userId, key);
+        assertTrue(unchanged.isIncremental());
+        assertEquals(0, unchanged.getAudited());
+        assertEquals(3, unchanged.getTotal());
+
+        update("bank", "Another-unique-Pa55!");
+        VaultAuditService.AuditReport second = auditService.audit(userId, key);
+        assertEquals(1, second.getAudited());
+        assertEquals(0, second.getReused());
+    }
+
+    @Test
+    void lateCommitWithAnOlderTimestampIsStillAudited() throws Exception {
+        auditService.audit(userId, key);
+
+        // A write whose updated_at predates the last run, as a transaction that started before
+        // the audit but committed after it would leave on PostgreSQL
+        PasswordEntry forum = update("forum", "shared-Secret-42!");
+        TestDatabase.execute("UPDATE passwords SET updated_at = TIMESTAMP '2000-01-01 00:00:00' WHERE password_id = " + forum.getId());
+
+        VaultAuditService.AuditReport report = auditService.audit(userId, key);
+        assertEquals(1, report.getAudited());
+        assertEquals(3, report.getReused());
+        assertEquals(0, report.getWeak());
+    }
+
+    @Test
+    void deletedEntriesDropOut() throws Exception {
+        auditService.audit(userId, key);
+        assertTrue(passwordService.deleteEntry(vault.find("mail").getId(), userId));
+
+        VaultAuditService.AuditReport report = auditService.audit(userId, key);
+        assertEquals(2, report.getTotal());
+        assertEquals(0, report.getReused());
+    }
+
+    private PasswordEntry update(String title, String password) {
+        PasswordEntry entry = vault.find(title);
+        return passwordService.updateEntry(entry, title, "alice", password, null, null, key).orElseThrow();
+    }
+}
@@ -0,0 +1,126 @@
+package com.passwordmanager.ui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.RoundTripBudget;
+import com.passwordmanager.dao.TagDAO;
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.model.PasswordEntry;
+import com.passwordmanager.model.Tag;
+import com.passwordmanager.service.PasswordService;
+import com.passwordmanager.service.TagService;
+import com.passwordmanager.util.TagIndex;
+
+/**
+ * The main window's data paths against H2 in strict mode: each stays within its round-trip
+ * budget however large the vault, and an N+1 loop fails instead of logging a warning.
+ */
+class MainFrameRoundTripTest {
+
+    private static final int ENTRIES = 30;
+
+    private static String previousStrict;
+
+    private byte[] key;
+    private PasswordService passwordService;
+    private TagService tagService;
+    private int userId;
+
+    @BeforeAll
+    static void strictMode() {
+        previousStrict = System.setProperty(RoundTripBudget.STRICT_PROPERTY, "true");
+    }
+
+    // Put back whatever the fork had, so strict mode does not leak into later test classes
+    @AfterAll
+    static void restoreMode() {
+        if (previousStrict == null) {
+            System.clearProperty(RoundTripBudget.STRICT_PROPERTY);
+        } else {
+            System.setProperty(RoundTripBudget.STRICT_PROPERTY, previousStrict);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestDatabase.Vault vault = TestDatabase.vault();
+        key = vault.key();
+        userId = vault.userId();
+        passwordService = vault.passwords();
+        tagService = new TagService(new TagDAO());
+        for (int i = 0; i < ENTRIES; i++) {
+            vault.create("site-" + i, "user" + i + "@example.com", "pw-" + i, null);
+        }
+    }
+
+    @Test
+    void loadingTheVaultWithItsTagsStaysWithinBudget() {
+        Tag work = tagService.createTag(userId, "work", false).orElseThrow();
+        Tag banking = tagService.createTag(userId, "banking", true).orElseThrow();
+        List<PasswordEntry> entries = passwordService.getEncryptedEntries(userId);
+        TagIndex index = new TagIndex();
+        for (PasswordEntry entry : entries) {
+            assertTrue(tagService.setEntryTags(userId, entry.getId(), List.of(work, banking), index));
+        }
+
+        MainFrame.VaultData vault = MainFrame.readVault(passwordService, tagService, userId);
+
+        assertEquals(ENTRIES, vault.entries().size());
+        assertEquals(2, vault.tags().size());
+        for (PasswordEntry entry : vault.entries()) {
+            assertTrue(vault.tagIndex().hasTag(entry.getId(), work.getId()));
+        }
+    }
+
+    @Test
+    void searchStaysWithinBudget() {
+        List<PasswordEntry> hits = MainFrame.searchVault(passwordService, userId, "user7", key);
+
+        assertEquals(1, hits.size());
+        assertEquals("site-7", hits.get(0).getTitle());
+    }
+
+    @Test
+    void revealingAPasswordMakesNoRoundTrip() {
+        PasswordEntry entry = passwordService.getEncryptedEntries(userId).get(0);
+
+        assertEquals(entry.getTitle().replace("site-", "pw-"), MainFrame.revealPassword(passwordService, entry, key));
+    }
+
+    @Test
+    void fetchingAChangeBatchIsOneRoundTrip() {
+        List<Integer> ids = new ArrayList<>();
+        for (PasswordEntry entry : passwordService.getEncryptedEntries(userId)) {
+            ids.add(entry.getId());
+        }
+        int deleted = ids.get(3);
+        assertTrue(passwordService.deleteEntry(deleted, userId));
+
+        List<PasswordEntry> changed = MainFrame.fetchChanged(passwordService, userId, ids);
+
+        assertEquals(ENTRIES - 1, changed.size());
+        assertTrue(changed.stream().noneMatch(entry -> entry.getId() == deleted));
+    }
+
+    @Test
+    void perEntryQueriesOverrunTheLoadBudget() {
+        IllegalStateException overrun = assertThrows(IllegalStateException.class,
+                () -> RoundTripBudget.call("MainFrameRoundTripTest.nPlusOne", MainFrame.LOAD_ROUND_TRIPS, () -> {
+                    for (PasswordEntry entry : passwordService.getEncryptedEntries(userId)) {
+                        passwordService.getEncryptedEntry(entry.getId(), userId);
+                    }
+                    return null;
+                }));
+        assertTrue(overrun.getMessage().contains("made " + (ENTRIES + 1) + " database round-trips"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.passwordmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.dao.PasswordDAO;
+import com.passwordmanager.dao.TestDatabase;
+import com.passwordmanager.util.AesGcmEncryptionUtil.EncryptedResult;
+
+/**
+ * Fails when a hot path allocates more bytes per operation than its budget.
+ *
+ * Each operation is warmed up (so the JIT has settled and escape analysis applies), then run
+ * a fixed number of times on this thread while ThreadMXBean counts the bytes it allocates.
+ * Budgets carry some headroom over the measured values so JDK updates do not trip them;
+ * tighten one when a path gets cheaper, and only raise one deliberately.
+ */
+class AllocationBudgetTest {
+
+    private static final int ITERATIONS = 50_000;
+    private static final int ROWS = 500;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static byte[] key;
+    private static String candidate;
+    private static EncryptedResult encrypted;
+    private static Object sink;
+
+    /** One measured operation; returns something so the JIT cannot drop the work. */
+    @FunctionalInterface
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    @BeforeAll
+    static void fixtures() throws Exception {
+        // A sealed 20-character password and a candidate password
+        Random random = new Random(42);
+        key = new byte[32];
+        random.nextBytes(key);
+        candidate = PasswordGenerator.generatePassword(20, true, true, true, true, random);
+        encrypted = AesGcmEncryptionUtil.encrypt(candidate, key);
+    }
+
+    @Test
+    void aesGcmDecrypt() throws Exception {
+        // Base64 decodes, GCM init, plaintext String
+        assertWithinBudget("aesgcm.decrypt", 2_048, measure(ITERATIONS, () ->
+                AesGcmEncryptionUtil.decrypt(encrypted.getCipherTextBase64(), encrypted.getNonceBase64(), key)));
+    }
+
+    @Test
+    void passwordGeneration() throws Exception {
+        // Mostly SecureRandom.nextInt's own buffers
+        assertWithinBudget("generator.generate", 3_072, measure(ITERATIONS, () ->
+                PasswordGenerator.generatePassword(20, true, true, true, true)));
+    }
+
+    @Test
+    void strengthCheck() throws Exception {
+        // Allocation-free
+        assertWithinBudget("strength.check", 16, measure(ITERATIONS, () ->
+                PasswordStrengthChecker.checkStrength(candidate)));
+    }
+
+    @Test
+    void daoRowMapping() throws Exception {
+        TestDatabase.Vault vault = TestDatabase.vault();
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(vault.passwords().createEntry(vault.userId(), "site-" + i, "user" + i, "pw-" + i, null, key));
+        }
+        PasswordDAO dao = vault.dao();
+        int userId = vault.userId();
+
+        // PasswordEntry, its Strings, and the driver's row. Whole streamed query per call,
+        // reported per row; the per-query overhead is amortised
+        assertWithinBudget("dao.mapRow", 2_048, measure(ITERATIONS / ROWS, () ->
+                dao.streamAllByUserId(userId, entry -> sink = entry)) / ROWS);
+    }
+
+    private static void assertWithinBudget(String operation, long budget, double bytesPerOp) {
+        assertTrue(bytesPerOp <= budget,
+                String.format("%s allocates %.1f B/op, over its budget of %d", operation, bytesPerOp, budget));
+    }
+
+    // Average bytes allocated by this thread per call, after as many warm-up calls
+    private static double measure(int iterations, Operation operation) throws Exception {
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.run();
+        }
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            sink = operation.run();
+        }
+        long after = THREADS.getThreadAllocatedBytes(threadId);
+        return (double) (after - before) / iterations;
+    }
+}
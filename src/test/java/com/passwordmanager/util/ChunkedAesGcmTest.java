@@ -0,0 +1,157 @@
+package com.passwordmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkedAesGcmTest {
+
+    // seq | flags | nonce, then the ciphertext length
+    private static final int LENGTH_OFFSET = 4 + 1 + 12;
+    private static final int HEADER_LENGTH = LENGTH_OFFSET + 4;
+
+    private final Random random = new Random(7);
+    private final byte[] key = bytes(32);
+    private final byte[] streamId = ChunkedAesGcm.newStreamId();
+
+    @Test
+    void roundTripsAcrossChunksWithAndWithoutCompression() throws Exception {
+        // Random bytes do not deflate and are stored as-is; the repeated text does
+        byte[] noise = bytes(3 * ChunkedAesGcm.CHUNK_SIZE + 123);
+        byte[] text = "correct horse battery staple ".repeat(10_000).getBytes();
+        for (boolean compress : new boolean[] {false, true}) {
+            assertArrayEquals(noise, decrypt(encrypt(noise, key, streamId, compress), key, streamId));
+            assertArrayEquals(text, decrypt(encrypt(text, key, streamId, compress), key, streamId));
+        }
+        assertTrue(encrypt(text, key, streamId, true).length < text.length / 10);
+        assertArrayEquals(new byte[0], decrypt(encrypt(new byte[0], key, streamId, true), key, streamId));
+    }
+
+    @Test
+    void droppingTheFinalChunkIsRejected() throws Exception {
+        List<byte[]> frames = frames(encrypt(bytes(3 * ChunkedAesGcm.CHUNK_SIZE), key, streamId, false));
+        assertEquals(3, frames.size());
+
+        byte[] truncated = join(frames.subList(0, 2));
+        assertThrows(EOFException.class, () -> decrypt(truncated, key, streamId));
+    }
+
+    @Test
+    void cuttingAChunkShortIsRejected() throws Exception {
+        byte[] stream = encrypt(bytes(2 * ChunkedAesGcm.CHUNK_SIZE), key, streamId, false);
+        byte[] cut = Arrays.copyOf(stream, stream.length - 1);
+
+        assertThrows(EOFException.class, () -> decrypt(cut, key, streamId));
+    }
+
+    @Test
+    void reorderedChunksAreRejectedEvenWithRewrittenSequenceNumbers() throws Exception {
+        List<byte[]> frames = frames(encrypt(bytes(3 * ChunkedAesGcm.CHUNK_SIZE), key, streamId, false));
+
+        byte[] swapped = join(List.of(frames.get(1), frames.get(0), frames.get(2)));
+        IOException outOfOrder = assertThrows(IOException.class, () -> decrypt(swapped, key, streamId));
+        assertTrue(outOfOrder.getMessage().contains("out of order"));
+
+        // The sequence number is also authenticated, so patching the header does not help
+        byte[] first = frames.get(1).clone();
+        byte[] second = frames.get(0).clone();
+        ByteBuffer.wrap(first).putInt(0, 0);
+        ByteBuffer.wrap(second).putInt(0, 1);
+        byte[] patched = join(List.of(first, second, frames.get(2)));
+        IOException forged = assertThrows(IOException.class, () -> decrypt(patched, key, streamId));
+        assertTrue(forged.getMessage().contains("failed authentication"));
+    }
+
+    @Test
+    void aChunkSplicedInFromAnotherStreamIsRejected() throws Exception {
+        byte[] otherId = ChunkedAesGcm.newStreamId();
+        List<byte[]> ours = frames(encrypt(bytes(2 * ChunkedAesGcm.CHUNK_SIZE), key, streamId, false));
+        List<byte[]> theirs = frames(encrypt(bytes(2 * ChunkedAesGcm.CHUNK_SIZE), key, otherId, false));
+
+        // Same key, same position, different stream
+        byte[] spliced = join(List.of(ours.get(0), theirs.get(1)));
+        IOException e = assertThrows(IOException.class, () -> decrypt(spliced, key, streamId));
+        assertTrue(e.getMessage().contains("Chunk 1 failed authentication"));
+    }
+
+    @Test
+    void aWrongKeyOrAFlippedBitIsRejected() throws Exception {
+        byte[] stream = encrypt(bytes(1000), key, streamId, true);
+
+        assertThrows(IOException.class, () -> decrypt(stream, bytes(32), streamId));
+        assertThrows(IOException.class, () -> decrypt(stream, key, ChunkedAesGcm.newStreamId()));
+
+        byte[] flipped = stream.clone();
+        flipped[HEADER_LENGTH + 5] ^= 1;
+        assertThrows(IOException.class, () -> decrypt(flipped, key, streamId));
+
+        // Clearing the final flag changes the AAD, so it cannot be used to hide a truncation
+        byte[] notFinal = stream.clone();
+        notFinal[4] &= ~1;
+        assertThrows(IOException.class, () -> decrypt(notFinal, key, streamId));
+    }
+
+    private static byte[] encrypt(byte[] plaintext, byte[] key, byte[] streamId, boolean compress) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChunkedAesGcm.Writer writer = new ChunkedAesGcm.Writer(Channels.newChannel(out), key, streamId, compress)) {
+            int offset = 0;
+            do {
+                int length = Math.min(ChunkedAesGcm.CHUNK_SIZE, plaintext.length - offset);
+                writer.write(ByteBuffer.wrap(plaintext, offset, length), offset + length >= plaintext.length);
+                offset += length;
+            } while (offset < plaintext.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] stream, byte[] key, byte[] streamId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChunkedAesGcm.Reader reader = new ChunkedAesGcm.Reader(
+                Channels.newChannel(new ByteArrayInputStream(stream)), key, streamId)) {
+            ChunkedAesGcm.Chunk chunk;
+            while ((chunk = reader.next()) != null) {
+                ByteBuffer plaintext = chunk.getPlaintext();
+                out.write(plaintext.array(), plaintext.arrayOffset() + plaintext.position(), plaintext.remaining());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // Splits a stream into its frames (header plus ciphertext)
+    private static List<byte[]> frames(byte[] stream) {
+        List<byte[]> frames = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(stream);
+        while (buffer.hasRemaining()) {
+            byte[] frame = new byte[HEADER_LENGTH + buffer.getInt(buffer.position() + LENGTH_OFFSET)];
+            buffer.get(frame);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static byte[] join(List<byte[]> frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        frames.forEach(out::writeBytes);
+        return out.toByteArray();
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,187 @@
+package com.passwordmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CompressedBitmap checked against {@link BitSet}. Container kinds are not visible from
+ * outside, so the inputs are sized to land on each side of the 4096-value switch.
+ */
+class CompressedBitmapTest {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int CONTAINER = 1 << 16;
+
+    private final Random random = new Random(11);
+
+    @Test
+    void switchesBetweenArrayAndBitmapAt4096Values() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet oracle = new BitSet();
+        // Every other value, so neither kind can pass for a contiguous run
+        for (int i = 0; i < ARRAY_MAX; i++) {
+            add(bitmap, oracle, 2 * i);
+        }
+        assertMatches(oracle, bitmap);
+
+        add(bitmap, oracle, 2 * ARRAY_MAX); // 4097: now a bitmap
+        add(bitmap, oracle, 2 * ARRAY_MAX); // Duplicate
+        add(bitmap, oracle, 1);
+        assertMatches(oracle, bitmap);
+
+        remove(bitmap, oracle, 1);
+        remove(bitmap, oracle, 0);          // 4096: back to an array
+        remove(bitmap, oracle, 0);          // Already gone
+        assertMatches(oracle, bitmap);
+        remove(bitmap, oracle, 2);
+        add(bitmap, oracle, 3);
+        assertMatches(oracle, bitmap);
+
+        // Grow past the threshold again from the array form
+        for (int i = 0; i < 100; i++) {
+            add(bitmap, oracle, 2 * i + 1);
+        }
+        assertMatches(oracle, bitmap);
+    }
+
+    @Test
+    void setOperationsAgreeAcrossContainerKinds() {
+        // Per container: sparse (array), dense (bitmap), just under and just over the switch
+        int[] densities = {50, ARRAY_MAX - 1, ARRAY_MAX + 1, 20_000};
+        List<BitSet> sets = new ArrayList<>();
+        for (int a : densities) {
+            for (int b : densities) {
+                BitSet set = new BitSet();
+                fill(set, 0, a);
+                fill(set, 1, b);
+                fill(set, 2 + random.nextInt(3), densities[random.nextInt(densities.length)]);
+                sets.add(set);
+            }
+        }
+        sets.add(new BitSet());
+
+        for (BitSet a : sets) {
+            for (BitSet b : sets) {
+                CompressedBitmap left = bitmap(a);
+                CompressedBitmap right = bitmap(b);
+
+                BitSet and = (BitSet) a.clone();
+                and.and(b);
+                assertMatches(and, left.and(right));
+                assertEquals(and.cardinality(), left.andCardinality(right));
+
+                BitSet or = (BitSet) a.clone();
+                or.or(b);
+                assertMatches(or, left.or(right));
+
+                BitSet andNot = (BitSet) a.clone();
+                andNot.andNot(b);
+                assertMatches(andNot, left.andNot(right));
+
+                // Operands are left as they were
+                assertMatches(a, left);
+                assertMatches(b, right);
+            }
+        }
+    }
+
+    @Test
+    void unionOfTwoArraysCanNeedABitmapAndIntersectionsCanShrinkBack() {
+        BitSet evens = new BitSet();
+        BitSet odds = new BitSet();
+        for (int i = 0; i < 3000; i++) {
+            evens.set(2 * i);
+            odds.set(2 * i + 1);
+        }
+        CompressedBitmap union = bitmap(evens).or(bitmap(odds));
+        BitSet both = (BitSet) evens.clone();
+        both.or(odds);
+        assertMatches(both, union); // 6000 values from two arrays
+
+        // A bitmap with an array on the other side, each result falling back under the switch
+        assertMatches(evens, union.and(bitmap(evens)));
+        assertMatches(odds, union.andNot(bitmap(evens)));
+        union.add(10_000);
+        assertMatches(new BitSet(), union.andNot(union));
+    }
+
+    @Test
+    void removingEveryValueLeavesAnEmptyBitmap() {
+        BitSet oracle = new BitSet();
+        fill(oracle, 0, 50);
+        fill(oracle, 3, 10_000);
+        fill(oracle, 7, ARRAY_MAX);
+        CompressedBitmap bitmap = bitmap(oracle);
+        assertMatches(oracle, bitmap);
+
+        List<Integer> values = new ArrayList<>();
+        oracle.stream().forEach(values::add);
+        Collections.shuffle(values, random);
+        for (int i = 0; i < values.size(); i++) {
+            remove(bitmap, oracle, values.get(i));
+            if (i % 1000 == 0) {
+                assertMatches(oracle, bitmap);
+            }
+        }
+
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+        assertArrayEquals(new int[0], bitmap.toArray());
+        assertTrue(bitmap.or(new CompressedBitmap()).isEmpty());
+
+        // Still usable afterwards
+        add(bitmap, oracle, 5 * CONTAINER + 9);
+        assertMatches(oracle, bitmap);
+    }
+
+    private static void add(CompressedBitmap bitmap, BitSet oracle, int value) {
+        bitmap.add(value);
+        oracle.set(value);
+    }
+
+    private static void remove(CompressedBitmap bitmap, BitSet oracle, int value) {
+        bitmap.remove(value);
+        oracle.clear(value);
+    }
+
+    // Sets the given number of random low values in one high-16 container
+    private void fill(BitSet set, int container, int values) {
+        int base = container * CONTAINER;
+        int added = 0;
+        while (added < values) {
+            int value = base + random.nextInt(CONTAINER);
+            if (!set.get(value)) {
+                set.set(value);
+                added++;
+            }
+        }
+    }
+
+    private static CompressedBitmap bitmap(BitSet set) {
+        return CompressedBitmap.of(set.stream().toArray());
+    }
+
+    private static void assertMatches(BitSet expected, CompressedBitmap actual) {
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        for (int value : new int[] {0, 1, 2, ARRAY_MAX, 2 * ARRAY_MAX, CONTAINER - 1, CONTAINER, 3 * CONTAINER + 17}) {
+            assertEquals(expected.get(value), actual.contains(value), "contains(" + value + ")");
+        }
+        int[] values = expected.stream().toArray();
+        for (int i = 0; i < values.length; i += 97) {
+            assertTrue(actual.contains(values[i]));
+        }
+        assertFalse(actual.contains(-1)); // High bits 0xFFFF, never populated here
+    }
+}
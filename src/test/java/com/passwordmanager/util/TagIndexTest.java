@@ -0,0 +1,188 @@
+package com.passwordmanager.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TagIndex checked against a plain map of entry to tags, filtered by brute force.
+ */
+class TagIndexTest {
+
+    private static final int ENTRIES = 10_000;
+    private static final int TAGS = 6;
+
+    private final Random random = new Random(5);
+    private final TagIndex index = new TagIndex();
+    private final Map<Integer, Set<Integer>> oracle = new LinkedHashMap<>(); // In insertion order
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ENTRIES; i++) {
+            int entryId = 1_000 + 3 * i; // Not the ordinals
+            Set<Integer> tags = new HashSet<>();
+            for (int tagId = 1; tagId <= TAGS; tagId++) {
+                // Tag 1 on almost everything, tag 6 on almost nothing: both container kinds
+                if (random.nextInt(100) < 100 - 19 * (tagId - 1)) {
+                    tags.add(tagId);
+                }
+            }
+            index.addEntry(entryId);
+            index.setTags(entryId, tags);
+            oracle.put(entryId, tags);
+        }
+    }
+
+    @Test
+    void filtersAndCountsMatchBruteForce() {
+        assertFilters();
+        assertEquals(ENTRIES, index.size());
+        assertEquals(ENTRIES, index.filter(List.of(), List.of(), List.of()).cardinality());
+    }
+
+    @Test
+    void filtersFollowUntagRemoveEntryAndRemoveTag() {
+        List<Integer> ids = new ArrayList<>(oracle.keySet());
+        for (int i = 0; i < 3_000; i++) {
+            int entryId = ids.get(random.nextInt(ids.size()));
+            int tagId = 1 + random.nextInt(TAGS);
+            if (oracle.containsKey(entryId)) {
+                index.untag(entryId, tagId);
+                oracle.get(entryId).remove(tagId);
+                assertFalse(index.hasTag(entryId, tagId));
+            }
+        }
+        assertFilters();
+
+        // Drop most of the entries, leaving tag 6 empty at the end
+        for (int entryId : ids) {
+            if (random.nextInt(10) < 8 || oracle.get(entryId).contains(6)) {
+                index.removeEntry(entryId);
+                oracle.remove(entryId);
+            }
+        }
+        index.removeEntry(-1); // Never indexed
+        assertEquals(oracle.size(), index.size());
+        assertEquals(0, index.count(6, index.filter(List.of(), List.of(), List.of())));
+        assertFilters();
+
+        index.removeTag(2);
+        oracle.values().forEach(tags -> tags.remove(2));
+        assertFilters();
+
+        // Re-adding an entry gives it a fresh ordinal and no tags
+        int removed = ids.stream().filter(id -> !oracle.containsKey(id)).findFirst().orElseThrow();
+        index.tag(removed, 3);
+        oracle.put(removed, new HashSet<>(Set.of(3)));
+        assertTrue(index.hasTag(removed, 3));
+        assertFilters();
+    }
+
+    @Test
+    void subsetNarrowsAFilterToGivenEntries() {
+        List<Integer> hits = new ArrayList<>();
+        for (int entryId : oracle.keySet()) {
+            if (random.nextInt(50) == 0) {
+                hits.add(entryId);
+            }
+        }
+        hits.add(-5); // Not indexed, skipped
+        CompressedBitmap within = index.subset(hits);
+        CompressedBitmap result = index.filter(List.of(2), List.of(), List.of(4)).and(within);
+
+        List<Integer> expected = new ArrayList<>();
+        for (Map.Entry<Integer, Set<Integer>> entry : oracle.entrySet()) {
+            if (hits.contains(entry.getKey()) && entry.getValue().contains(2) && !entry.getValue().contains(4)) {
+                expected.add(entry.getKey());
+            }
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), index.entryIds(result));
+        for (int tagId = 1; tagId <= TAGS; tagId++) {
+            int count = 0;
+            for (int entryId : hits) {
+                if (oracle.containsKey(entryId) && oracle.get(entryId).contains(tagId)) {
+                    count++;
+                }
+            }
+            assertEquals(count, index.count(tagId, within), "tag " + tagId);
+        }
+    }
+
+    @Test
+    void theFilterResultIsACopy() {
+        CompressedBitmap everything = index.filter(List.of(), List.of(), List.of());
+        everything.remove(0);
+        everything.add(ENTRIES + 1);
+
+        assertEquals(ENTRIES, index.filter(List.of(), List.of(), List.of()).cardinality());
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.filter(List.of(1), List.of(), List.of()).isEmpty());
+    }
+
+    // Every allOf / anyOf / noneOf combination of up to one or two tags, plus an unknown tag
+    private void assertFilters() {
+        List<List<Integer>> choices = new ArrayList<>();
+        choices.add(List.of());
+        for (int a = 1; a <= TAGS; a++) {
+            choices.add(List.of(a));
+            for (int b = a + 1; b <= TAGS; b += 2) {
+                choices.add(List.of(a, b));
+            }
+        }
+        choices.add(List.of(99));
+        for (List<Integer> allOf : choices) {
+            for (List<Integer> anyOf : choices) {
+                for (List<Integer> noneOf : List.of(List.<Integer>of(), List.of(1), List.of(3, 5), List.of(99))) {
+                    CompressedBitmap result = index.filter(allOf, anyOf, noneOf);
+                    int[] expected = expected(allOf, anyOf, noneOf);
+                    assertArrayEquals(expected, index.entryIds(result), allOf + " " + anyOf + " " + noneOf);
+                    for (int tagId = 1; tagId <= TAGS; tagId++) {
+                        assertEquals(count(expected, tagId), index.count(tagId, result));
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Integer, Set<Integer>> entry : oracle.entrySet()) {
+            for (int tagId = 1; tagId <= TAGS; tagId++) {
+                assertEquals(entry.getValue().contains(tagId), index.hasTag(entry.getKey(), tagId));
+            }
+        }
+    }
+
+    private int[] expected(Collection<Integer> allOf, Collection<Integer> anyOf, Collection<Integer> noneOf) {
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Set<Integer>> entry : oracle.entrySet()) {
+            Set<Integer> tags = entry.getValue();
+            if (tags.containsAll(allOf)
+                    && (anyOf.isEmpty() || anyOf.stream().anyMatch(tags::contains))
+                    && noneOf.stream().noneMatch(tags::contains)) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int count(int[] entryIds, int tagId) {
+        int count = 0;
+        for (int entryId : entryIds) {
+            if (oracle.get(entryId).contains(tagId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}